@@ -0,0 +1,147 @@
+package com.anagram;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Immutable group of words that share the same sorted letters.
+ * Words are kept sorted with {@link java.lang.String#CASE_INSENSITIVE_ORDER} which also defines word equality,
+ * so "Test" and "test" are the same word within a group.
+ *
+ * Every update returns a new instance (copy-on-write) so readers can hold on to a group without any locking.
+ */
+final class AnagramGroup {
+
+    static final AnagramGroup EMPTY = new AnagramGroup(new String[0]);
+
+    private final String[] words;
+
+    private AnagramGroup(String[] words) {
+        this.words = words;
+    }
+
+    /**
+     * @param words words sharing the same sorted letters, in any order
+     * @return a group of the words, keeping the first of any case-insensitive duplicates.
+     */
+    static AnagramGroup of(Collection<String> words) {
+        final String[] sorted = words.toArray(new String[words.size()]);
+        //stable, so the first of equal words stays first
+        Arrays.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+        int size = 0;
+        for (String word : sorted) {
+            if ((size == 0) || (String.CASE_INSENSITIVE_ORDER.compare(sorted[size - 1], word) != 0)) {
+                sorted[size++] = word;
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        return new AnagramGroup((size == sorted.length) ? sorted : Arrays.copyOf(sorted, size));
+    }
+
+    int size() {
+        return words.length;
+    }
+
+    boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    String get(int index) {
+        return words[index];
+    }
+
+    /**
+     * @param word the word to look for
+     * @return index of the word (case-insensitive) or a negative value if it is not in the group.
+     */
+    int indexOf(String word) {
+        return Arrays.binarySearch(words, word, String.CASE_INSENSITIVE_ORDER);
+    }
+
+    boolean contains(String word) {
+        return indexOf(word) >= 0;
+    }
+
+    /**
+     * @param word the word to add
+     * @return a new group containing the word or this group if the word already exists.
+     */
+    AnagramGroup add(String word) {
+        int index = indexOf(word);
+        if (index >= 0) {
+            return this;
+        }
+        int insertionPoint = -(index + 1);
+        String[] updated = new String[words.length + 1];
+        System.arraycopy(words, 0, updated, 0, insertionPoint);
+        updated[insertionPoint] = word;
+        System.arraycopy(words, insertionPoint, updated, insertionPoint + 1, words.length - insertionPoint);
+        return new AnagramGroup(updated);
+    }
+
+    /**
+     * @param word the word to remove
+     * @return a new group without the word or this group if the word does not exist.
+     */
+    AnagramGroup remove(String word) {
+        int index = indexOf(word);
+        if (index < 0) {
+            return this;
+        }
+        if (words.length == 1) {
+            return EMPTY;
+        }
+        String[] updated = new String[words.length - 1];
+        System.arraycopy(words, 0, updated, 0, index);
+        System.arraycopy(words, index + 1, updated, index, words.length - index - 1);
+        return new AnagramGroup(updated);
+    }
+
+    /**
+     * Immutable view of the group without the specified word.
+     * Groups with one or fewer words do not have any anagrams.
+     *
+     * @param word the word to exclude
+     * @return anagrams of the word, or an empty {@link java.util.Set}.
+     */
+    Set<String> anagramsView(String word) {
+        return AnagramsView.of(words, 0, words.length, word);
+    }
+
+    /**
+     * Visits the group without the specified word.
+     *
+     * @param word the word to exclude
+     * @param visitor receives every anagram
+     * @return number of anagrams visited.
+     */
+    int forEachAnagram(String word, Consumer<? super String> visitor) {
+        return AnagramsView.forEach(words, 0, words.length, word, visitor);
+    }
+
+    /**
+     * Adds every word of the group.
+     *
+     * @param target collection to add to
+     */
+    void addTo(Collection<? super String> target) {
+        Collections.addAll(target, words);
+    }
+
+    /**
+     * @return a copy of the words of the group.
+     */
+    String[] toArray() {
+        return words.clone();
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(words);
+    }
+}
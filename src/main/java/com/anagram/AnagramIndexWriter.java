@@ -0,0 +1,215 @@
+package com.anagram;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Writes the index file served by {@link com.anagram.MappedAnagramService}, see its documentation for the layout.
+ *
+ * Words are grouped exactly like {@link com.anagram.FrozenAnagramService.Builder}: a word equal to one already in its
+ * group ignoring case is skipped. The index is written next to the target and then renamed over it, so services that
+ * still map the previous index keep reading a consistent file.
+ *
+ * Run it after every change of the dictionary:
+ * <pre>
+ *     java com.anagram.AnagramIndexWriter [dictionary file [index file]]
+ * </pre>
+ * The defaults are the dictionary and index of a default {@link com.anagram.AnagramServiceFactory}.
+ */
+public abstract class AnagramIndexWriter {
+
+    /**
+     * Loads a dictionary file and writes its index.
+     *
+     * @param dictionaryFileName the dictionary in the filesystem or classpath.
+     * @param indexFileName the index file to write or replace.
+     * @return number of words in the index.
+     * @throws FileNotFoundException If the dictionary is not found in the filesystem or classpath.
+     * @throws IOException If the index cannot be written.
+     */
+    public static int write(String dictionaryFileName, String indexFileName) throws IOException {
+        //stamp before reading, so a dictionary changed while it is read makes the index stale
+        final long[] stamp = MappedAnagramService.sourceStamp(dictionaryFileName);
+        if (stamp == null) {
+            throw new FileNotFoundException(dictionaryFileName);
+        }
+        final SortedMap<String, TreeSet<String>> sortedWord2Words = new TreeMap<>();
+        AnagramServiceMBeanFileLoader.processFile(word -> addWord(sortedWord2Words, word), dictionaryFileName);
+        return write(sortedWord2Words, stamp[0], stamp[1], indexFileName);
+    }
+
+    /**
+     * Writes an index of words, eg. for tests or dictionaries that are not read from a file.
+     * A {@link com.anagram.MappedAnagramService} opened with the dictionary check will treat the index as stale
+     * unless sourceLength and sourceLastModified match the dictionary.
+     *
+     * @param words the dictionary words
+     * @param sourceLength length of the dictionary the words come from
+     * @param sourceLastModified last modified time of the dictionary the words come from
+     * @param indexFileName the index file to write or replace.
+     * @return number of words in the index.
+     * @throws IOException If the index cannot be written.
+     */
+    public static int write(Iterable<String> words, long sourceLength, long sourceLastModified,
+                            String indexFileName) throws IOException {
+        final SortedMap<String, TreeSet<String>> sortedWord2Words = new TreeMap<>();
+        for (String word : words) {
+            addWord(sortedWord2Words, word);
+        }
+        return write(sortedWord2Words, sourceLength, sourceLastModified, indexFileName);
+    }
+
+    private static void addWord(Map<String, TreeSet<String>> sortedWord2Words, String word) {
+        if ((word == null) || word.isEmpty()) {
+            return;
+        }
+        sortedWord2Words.computeIfAbsent(AnagramSignature.sort(word), sortedWord -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER))
+                .add(word);
+    }
+
+    /**
+     * @param sortedWord2Words non-empty groups in the order of their sorted words, every group case-insensitively
+     *                         sorted without duplicates
+     */
+    static int write(SortedMap<String, ? extends Collection<String>> sortedWord2Words, long sourceLength, long sourceLastModified,
+                             String indexFileName) throws IOException {
+        final int groupCount = sortedWord2Words.size();
+        int wordCount = 0;
+        long keyChars = 0;
+        for (Map.Entry<String, ? extends Collection<String>> entry : sortedWord2Words.entrySet()) {
+            keyChars += entry.getKey().length();
+            wordCount += entry.getValue().size();
+        }
+        final byte[][] encodedWords = new byte[wordCount][];
+        long wordBytes = 0;
+        int word = 0;
+        for (Collection<String> words : sortedWord2Words.values()) {
+            for (String groupWord : words) {
+                encodedWords[word] = groupWord.getBytes(StandardCharsets.UTF_8);
+                wordBytes += encodedWords[word++].length;
+            }
+        }
+        final int slotCount = tableSizeFor(groupCount);
+        if ((keyChars > Integer.MAX_VALUE) || (wordBytes > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("Invalid dictionary size " + wordBytes);
+        }
+        final long size = MappedAnagramService.size(groupCount, wordCount, slotCount, (int) keyChars, (int) wordBytes);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid index size " + size);
+        }
+
+        final Path indexPath = FileSystems.getDefault().getPath(indexFileName).toAbsolutePath();
+        final Path tempPath = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MappedAnagramService.HEADER_MAGIC, MappedAnagramService.MAGIC);
+                buffer.putInt(MappedAnagramService.HEADER_VERSION, MappedAnagramService.FORMAT_VERSION);
+                buffer.putLong(MappedAnagramService.HEADER_SOURCE_LENGTH, sourceLength);
+                buffer.putLong(MappedAnagramService.HEADER_SOURCE_LAST_MODIFIED, sourceLastModified);
+                buffer.putInt(MappedAnagramService.HEADER_GROUP_COUNT, groupCount);
+                buffer.putInt(MappedAnagramService.HEADER_WORD_COUNT, wordCount);
+                buffer.putInt(MappedAnagramService.HEADER_SLOT_COUNT, slotCount);
+                buffer.putInt(MappedAnagramService.HEADER_KEY_CHARS, (int) keyChars);
+                buffer.putInt(MappedAnagramService.HEADER_WORD_BYTES, (int) wordBytes);
+                writeSections(buffer, sortedWord2Words, encodedWords, slotCount);
+                buffer.putLong(MappedAnagramService.HEADER_CHECKSUM, MappedAnagramService.checksum(buffer));
+                buffer.force();
+            }
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+        System.out.println("Wrote " + wordCount + " words in " + groupCount + " groups to " + indexPath);
+        return wordCount;
+    }
+
+    private static void writeSections(ByteBuffer buffer, Map<String, ? extends Collection<String>> sortedWord2Words,
+                                      byte[][] encodedWords, int slotCount) {
+        final int groupCount = sortedWord2Words.size();
+        final int[] slots = new int[slotCount];
+        Arrays.fill(slots, MappedAnagramService.NO_GROUP);
+        final int[] groupHashes = new int[groupCount];
+        int group = 0;
+        for (String sortedWord : sortedWord2Words.keySet()) {
+            final int hash = AnagramService.spread(sortedWord.hashCode());
+            int index = hash & (slotCount - 1);
+            while (slots[index] != MappedAnagramService.NO_GROUP) {
+                index = (index + 1) & (slotCount - 1);
+            }
+            slots[index] = group;
+            groupHashes[group++] = hash;
+        }
+
+        buffer.position(MappedAnagramService.HEADER_SIZE);
+        buffer.asIntBuffer().put(slots).put(groupHashes);
+        buffer.position(buffer.position() + ((slots.length + groupHashes.length) * Integer.BYTES));
+        //group key starts
+        int keyStart = 0;
+        for (String sortedWord : sortedWord2Words.keySet()) {
+            buffer.putInt(keyStart);
+            keyStart += sortedWord.length();
+        }
+        buffer.putInt(keyStart);
+        //group word starts
+        int wordStart = 0;
+        for (Collection<String> words : sortedWord2Words.values()) {
+            buffer.putInt(wordStart);
+            wordStart += words.size();
+        }
+        buffer.putInt(wordStart);
+        //word starts
+        int byteStart = 0;
+        for (byte[] word : encodedWords) {
+            buffer.putInt(byteStart);
+            byteStart += word.length;
+        }
+        buffer.putInt(byteStart);
+        //keys
+        for (String sortedWord : sortedWord2Words.keySet()) {
+            for (int i = 0; i < sortedWord.length(); i++) {
+                buffer.putChar(sortedWord.charAt(i));
+            }
+        }
+        //words
+        for (byte[] word : encodedWords) {
+            buffer.put(word);
+        }
+    }
+
+    /**
+     * @return power of two with a load factor of at most 0.5.
+     */
+    private static int tableSizeFor(int count) {
+        int n = 2;
+        while (n < (count * 2)) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    public static void main(String[] args) throws IOException {
+        final AnagramServiceFactory anagramServiceFactory = (args.length > 0)
+                ? new AnagramServiceFactory(args[0]) : new AnagramServiceFactory();
+        if (args.length > 1) {
+            anagramServiceFactory.setIndexFileName(args[1]);
+        }
+        write(anagramServiceFactory.getDictionaryFileName(), anagramServiceFactory.getIndexFileName());
+    }
+}
@@ -0,0 +1,33 @@
+package com.anagram;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Query API that hands out anagrams without copying the group they belong to.
+ *
+ * {@link com.anagram.AnagramServiceMBean#getAnagrams(String)} remains the compatibility adapter which copies the
+ * result into a new {@link java.util.TreeSet}, eg. to be serialized over JMX.
+ */
+public interface AnagramQuery {
+
+    /**
+     * Visits all anagrams of the specified word, in case-insensitive order, excluding the word itself.
+     * Does not allocate when the group is held on-heap.
+     *
+     * @param word The word to find anagrams for.
+     * @param visitor receives every anagram.
+     * @return number of anagrams visited.
+     */
+    int forEachAnagram(String word, Consumer<? super String> visitor);
+
+    /**
+     * Returns an immutable view of all anagrams of the specified word, excluding the word itself.
+     * The view is a point-in-time snapshot of the group, later updates to the dictionary are not visible through it.
+     *
+     * @param word The word to find anagrams for.
+     * @return an immutable {@link java.util.Set} of anagrams.
+     *         An empty {@link java.util.Set} is returned if there are not any anagrams for the word.
+     */
+    Set<String> anagramsView(String word);
+}
@@ -1,20 +1,83 @@
 package com.anagram;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 /**
  * Created by rmanaloto on 8/12/14.
  *
  * Implementation of {@link com.anagram.AnagramServiceMBean} which supports thread-safe access.
  * Internal data structures are striped to provide supporting multi-threaded access from different clients.
+ * Groups are immutable {@link com.anagram.AnagramGroup} instances so results can be handed out as views.
+ * Every stripe owns the groups hashed to it together with their lock, see {@link com.anagram.AnagramService.LockType}.
+ *
+ * The number of stripes can be changed online with {@link #resize(int)}: the groups are moved one stripe at a time
+ * and every moved stripe forwards to the new ones, so only the stripe being moved is ever locked.
+ * In adaptive mode the stripes are resized periodically based on the measured lock contention
+ * (see {@link com.anagram.AnagramServiceStripesMBean}).
+ *
+ * Use a {@link com.anagram.AnagramService.Builder} to load a whole dictionary up front without any per-word locking.
+ * {@link #writeSnapshot(String)} saves the live groups, including every update made since the dictionary was loaded,
+ * and {@link com.anagram.AnagramService.Builder#restore(String)} loads them back without parsing a word.
  */
-public class AnagramService implements AnagramServiceMBean {
+public class AnagramService implements AnagramServiceMBean, AnagramQuery, AnagramServiceStripesMBean {
+
+    private static final Logger log = Logger.getLogger(AnagramService.class.getName());
 
-    private final Map<String, Set<String>> sortedWord2Anagrams = new HashMap<>();
-    private final int numberOfStripes;
-    private final ReadWriteLock[] stripeLocks;
+    /**
+     * Stripes grow when more than this fraction of lock acquisitions had to wait.
+     */
+    public static final double GROW_CONTENTION_RATIO = 0.01;
+    /**
+     * Stripes shrink when less than this fraction of lock acquisitions had to wait.
+     */
+    public static final double SHRINK_CONTENTION_RATIO = 0.0001;
+    /**
+     * Minimum number of lock acquisitions in an interval before the stripes are resized.
+     */
+    public static final long MIN_RESIZE_LOCK_COUNT = 1000;
+
+    /**
+     * Lock guarding every stripe.
+     */
+    public enum LockType {
+        /**
+         * {@link java.util.concurrent.locks.ReentrantReadWriteLock}: every lookup takes the shared read lock.
+         */
+        READ_WRITE,
+        /**
+         * {@link java.util.concurrent.locks.StampedLock}: lookups read optimistically without writing any shared
+         * state and only take the read lock if a writer intervened.
+         */
+        STAMPED
+    }
+
+    private final LockType lockType;
+    //replaced once all groups were moved to the new stripes
+    private volatile AnagramStripe[] stripes;
+    private final int maxStripes;
+    //checks contention and resizes the stripes, null if not adaptive
+    private final ScheduledExecutorService resizer;
+    //lock statistics of stripes that were replaced
+    private final LongAdder retiredLockCount = new LongAdder();
+    private final LongAdder retiredContendedLockCount = new LongAdder();
+    private final LongAdder retiredLockWaitNanos = new LongAdder();
+    private volatile int resizeCount;
+    //statistics at the previous adaptive check
+    private long lastLockCount;
+    private long lastContendedLockCount;
+    //signatures of groups with at least 2 words, null if disabled
+    private final SignatureFilter anagramFilter;
+    //groups keyed by sorted word for sub-anagram queries
+    private final SubAnagramIndex<AnagramGroup> subAnagramIndex = new SubAnagramIndex<>();
 
     /**
      * Creates a new, empty {@link com.anagram.AnagramServiceMBean} instance that supports multiple updating threads via
@@ -23,14 +86,195 @@ public class AnagramService implements AnagramServiceMBean {
      * @param numberOfStripes number of stripes which correlates to the estimated number of concurrently updating threads.
      */
     public AnagramService(int numberOfStripes) {
-        this.numberOfStripes = numberOfStripes;
-        if (this.numberOfStripes <= 0) {
+        this(numberOfStripes, 0);
+    }
+
+    /**
+     * Creates a new, empty {@link com.anagram.AnagramServiceMBean} instance that supports multiple updating threads via
+     * the numberOfStripes parameter, with a {@link com.anagram.SignatureFilter} in front of all lookups.
+     * Lookups for words without any anagram are then answered before any lock is taken.
+     *
+     * @param numberOfStripes number of stripes which correlates to the estimated number of concurrently updating threads.
+     * @param expectedAnagramGroups expected number of groups with at least 2 words used to size the filter,
+     *                              0 to disable the filter.
+     */
+    public AnagramService(int numberOfStripes, int expectedAnagramGroups) {
+        this(numberOfStripes, expectedAnagramGroups, LockType.READ_WRITE);
+    }
+
+    /**
+     * Creates a new, empty {@link com.anagram.AnagramServiceMBean} instance that supports multiple updating threads via
+     * the numberOfStripes parameter.
+     *
+     * @param numberOfStripes number of stripes which correlates to the estimated number of concurrently updating threads.
+     * @param expectedAnagramGroups expected number of groups with at least 2 words used to size the filter,
+     *                              0 to disable the filter.
+     * @param lockType lock guarding every stripe.
+     */
+    public AnagramService(int numberOfStripes, int expectedAnagramGroups, LockType lockType) {
+        this(numberOfStripes, expectedAnagramGroups, lockType, 0, 0);
+    }
+
+    /**
+     * Creates a new, empty {@link com.anagram.AnagramServiceMBean} instance whose number of stripes adapts to the
+     * measured lock contention, between 1 and maxStripes.
+     *
+     * @param numberOfStripes initial number of stripes.
+     * @param expectedAnagramGroups expected number of groups with at least 2 words used to size the filter,
+     *                              0 to disable the filter.
+     * @param lockType lock guarding every stripe.
+     * @param maxStripes maximum number of stripes, 0 to keep numberOfStripes.
+     * @param resizeIntervalMillis interval between contention checks.
+     */
+    public AnagramService(int numberOfStripes, int expectedAnagramGroups, LockType lockType, int maxStripes, long resizeIntervalMillis) {
+        this(numberOfStripes, expectedAnagramGroups, lockType, maxStripes, resizeIntervalMillis, null, null, null);
+    }
+
+    /**
+     * @param snapshot initial groups, added before the service is shared, or null.
+     * @param words initial words in batches, added to the snapshot groups before the service is shared, or null.
+     * @param interner shares the initial words and their signatures with other dictionaries, or null.
+     */
+    private AnagramService(int numberOfStripes, int expectedAnagramGroups, LockType lockType, int maxStripes, long resizeIntervalMillis,
+                           MappedAnagramService snapshot, Collection<String[]> words, SignatureInterner interner) {
+        this.lockType = lockType;
+        this.anagramFilter = (expectedAnagramGroups > 0) ? new SignatureFilter(expectedAnagramGroups) : null;
+        if (numberOfStripes <= 0) {
             throw new IllegalArgumentException("Invalid number of stripes " + numberOfStripes);
         }
-        this.stripeLocks = new ReadWriteLock[numberOfStripes];
+        if (this.lockType == null) {
+            throw new IllegalArgumentException("Invalid lock type");
+        }
+        if ((maxStripes < 0) || ((maxStripes > 0) && (maxStripes < numberOfStripes))) {
+            throw new IllegalArgumentException("Invalid max stripes " + maxStripes);
+        }
+        if ((maxStripes > 0) && (resizeIntervalMillis <= 0)) {
+            throw new IllegalArgumentException("Invalid resize interval " + resizeIntervalMillis);
+        }
+        this.stripes = createStripes(numberOfStripes);
+        this.maxStripes = maxStripes;
+        if ((snapshot != null) || (words != null)) {
+            populate(snapshot, (words != null) ? words : Collections.<String[]>emptyList(), interner);
+        }
+        if (maxStripes > 0) {
+            this.resizer = Executors.newSingleThreadScheduledExecutor(r -> {
+                final Thread thread = new Thread(r, "anagram-stripes-resizer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.resizer.scheduleWithFixedDelay(this::adapt, resizeIntervalMillis, resizeIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.resizer = null;
+        }
+    }
+
+    /**
+     * Builds the groups of all words without taking any lock, since the service is not shared yet.
+     * Signatures are computed in parallel, words are partitioned by stripe with a counting sort and every stripe's
+     * groups are then built in parallel, each group in one step rather than one copy per word.
+     * Snapshot groups are partitioned the same way and are put into their stripe as they are before any word.
+     * Words and signatures are replaced by their canonical instances if an interner is shared with other dictionaries.
+     */
+    private void populate(MappedAnagramService snapshot, Collection<String[]> batches, SignatureInterner interner) {
+        int wordCount = 0;
+        for (String[] batch : batches) {
+            wordCount += batch.length;
+        }
+        final String[] words = new String[wordCount];
+        int offset = 0;
+        for (String[] batch : batches) {
+            System.arraycopy(batch, 0, words, offset, batch.length);
+            offset += batch.length;
+        }
+        final String[] sortedWords = new String[wordCount];
+        final int[] stripeIndexes = new int[wordCount];
+        final AnagramStripe[] stripes = this.stripes;
+        IntStream.range(0, wordCount).parallel().forEach(i -> {
+            if (words[i] != null) {
+                if (interner != null) {
+                    final SignatureInterner.Entry entry = interner.intern(words[i]);
+                    words[i] = entry.word;
+                    sortedWords[i] = entry.sortedWord;
+                } else {
+                    sortedWords[i] = AnagramSignature.sort(words[i]);
+                }
+                stripeIndexes[i] = getStripeIndex(stripes, sortedWords[i]);
+            } else {
+                stripeIndexes[i] = StripeBatch.SKIP;
+            }
+        });
+        final int[] order = StripeBatch.order(stripeIndexes, stripes.length);
+        final int[] starts = stripeStarts(order, stripeIndexes, stripes.length);
+
+        final int groupCount = (snapshot != null) ? snapshot.getGroupCount() : 0;
+        final String[] groupSortedWords = new String[groupCount];
+        final int[] groupStripeIndexes = new int[groupCount];
+        IntStream.range(0, groupCount).parallel().forEach(group -> {
+            groupSortedWords[group] = snapshot.sortedWord(group);
+            groupStripeIndexes[group] = getStripeIndex(stripes, groupSortedWords[group]);
+        });
+        final int[] groupOrder = StripeBatch.order(groupStripeIndexes, stripes.length);
+        final int[] groupStarts = stripeStarts(groupOrder, groupStripeIndexes, stripes.length);
+
+        IntStream.range(0, stripes.length).parallel().forEach(stripeIndex -> {
+            final Map<String, AnagramGroup> sortedWord2Anagrams = stripes[stripeIndex].sortedWord2Anagrams;
+            for (int i = groupStarts[stripeIndex]; i < groupStarts[stripeIndex + 1]; i++) {
+                final int group = groupOrder[i];
+                sortedWord2Anagrams.put(groupSortedWords[group], AnagramGroup.of(Arrays.asList(snapshot.groupWords(group))));
+            }
+            //most groups hold a single word, only the others collect their words first
+            final Map<String, List<String>> sortedWord2Words = new HashMap<>();
+            for (int i = starts[stripeIndex]; i < starts[stripeIndex + 1]; i++) {
+                final int index = order[i];
+                final AnagramGroup single = sortedWord2Anagrams.putIfAbsent(sortedWords[index], AnagramGroup.EMPTY.add(words[index]));
+                if (single != null) {
+                    List<String> groupWords = sortedWord2Words.get(sortedWords[index]);
+                    if (groupWords == null) {
+                        groupWords = new ArrayList<>(single.size() + 3);
+                        single.addTo(groupWords);
+                        sortedWord2Words.put(sortedWords[index], groupWords);
+                    }
+                    groupWords.add(words[index]);
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : sortedWord2Words.entrySet()) {
+                sortedWord2Anagrams.put(entry.getKey(), AnagramGroup.of(entry.getValue()));
+            }
+            for (Map.Entry<String, AnagramGroup> entry : sortedWord2Anagrams.entrySet()) {
+                final AnagramGroup anagrams = entry.getValue();
+                subAnagramIndex.put(entry.getKey(), anagrams);
+                if ((anagramFilter != null) && (anagrams.size() >= 2)) {
+                    anagramFilter.add(anagrams.get(0));
+                }
+            }
+        });
+    }
+
+    /**
+     * @return start of every stripe's range in the order, followed by the end of the last range.
+     */
+    private static int[] stripeStarts(int[] order, int[] stripeIndexes, int numberOfStripes) {
+        final int[] starts = new int[numberOfStripes + 1];
+        for (int i = 0, stripeIndex = 0; stripeIndex < numberOfStripes; stripeIndex++) {
+            starts[stripeIndex] = i;
+            while ((i < order.length) && (stripeIndexes[order[i]] == stripeIndex)) {
+                i++;
+            }
+            starts[stripeIndex + 1] = i;
+        }
+        return starts;
+    }
+
+    private AnagramStripe[] createStripes(int numberOfStripes) {
+        final AnagramStripe[] created = new AnagramStripe[numberOfStripes];
         for (int i = 0; i < numberOfStripes; i++) {
-            this.stripeLocks[i] = new ReentrantReadWriteLock();
+            created[i] = AnagramStripe.create(lockType);
         }
+        return created;
+    }
+
+    public LockType getLockType() {
+        return lockType;
     }
 
     /**
@@ -40,19 +284,7 @@ public class AnagramService implements AnagramServiceMBean {
     public boolean addWord(String word) {
         boolean added = false;
         if (word != null) {
-            String sortedWord = sort(word);
-            final ReadWriteLock lock = getLock(sortedWord);
-            lock.writeLock().lock();
-            try {
-                Set<String> anagrams = sortedWord2Anagrams.get(sortedWord);
-                if (anagrams == null) {
-                    anagrams = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-                    sortedWord2Anagrams.put(sortedWord, anagrams);
-                }
-                added = anagrams.add(word);
-            } finally {
-                lock.writeLock().unlock();
-            }
+            added = update(AnagramSignature.sort(word), word, true);
         }
         return added;
     }
@@ -64,84 +296,496 @@ public class AnagramService implements AnagramServiceMBean {
     public boolean deleteWord(String word) {
         boolean deleted = false;
         if (word != null) {
-            String sortedWord = sort(word);
-            final ReadWriteLock lock = getLock(sortedWord);
-            lock.writeLock().lock();
+            deleted = update(AnagramSignature.sort(word), word, false);
+        }
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Words are grouped by stripe and every stripe's write lock is taken once for the whole batch.
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        return update(words, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Words are grouped by stripe and every stripe's write lock is taken once for the whole batch.
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        return update(words, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Words are grouped by stripe and every stripe's read lock is taken once for the whole batch,
+     * results are copied after the locks are released.
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        if (words == null) {
+            return new ArrayList<>();
+        }
+        final AnagramStripe[] stripes = this.stripes;
+        final String[] sortedWords = new String[words.length];
+        final int[] stripeIndexes = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            final String word = words[i];
+            if ((word != null) && ((anagramFilter == null) || anagramFilter.mightContain(word))) {
+                sortedWords[i] = AnagramSignature.sort(word);
+                stripeIndexes[i] = getStripeIndex(stripes, sortedWords[i]);
+            } else {
+                stripeIndexes[i] = StripeBatch.SKIP;
+            }
+        }
+        final int[] order = StripeBatch.order(stripeIndexes, stripes.length);
+        final AnagramGroup[] groups = new AnagramGroup[words.length];
+        int i = 0;
+        while (i < order.length) {
+            final int stripeIndex = stripeIndexes[order[i]];
+            final AnagramStripe stripe = stripes[stripeIndex];
+            final int from = i;
+            final AnagramStripe[] movedTo;
+            final long stamp = stripe.lockRead();
             try {
-                Set<String> anagrams = sortedWord2Anagrams.get(sortedWord);
-                if (anagrams != null) {
-                    deleted = anagrams.remove(word);
-                    if (anagrams.isEmpty()) {
-                        sortedWord2Anagrams.remove(sortedWord);
+                movedTo = stripe.getMovedTo();
+                for (; (i < order.length) && (stripeIndexes[order[i]] == stripeIndex); i++) {
+                    if (movedTo == null) {
+                        groups[order[i]] = stripe.sortedWord2Anagrams.get(sortedWords[order[i]]);
                     }
                 }
             } finally {
-                lock.writeLock().unlock();
+                stripe.unlockRead(stamp);
+            }
+            //the stripe was re-partitioned since the batch started
+            if (movedTo != null) {
+                for (int j = from; j < i; j++) {
+                    groups[order[j]] = AnagramStripe.of(movedTo, sortedWords[order[j]]).get(sortedWords[order[j]]);
+                }
             }
         }
-        return deleted;
+        final List<Set<String>> anagrams = new ArrayList<>(words.length);
+        for (int j = 0; j < words.length; j++) {
+            anagrams.add((groups[j] == null) ? Collections.<String>emptySet() : AnagramsView.copyOf(groups[j].anagramsView(words[j])));
+        }
+        return anagrams;
+    }
+
+    private boolean[] update(String[] words, boolean add) {
+        if (words == null) {
+            return new boolean[0];
+        }
+        final AnagramStripe[] stripes = this.stripes;
+        final boolean[] updated = new boolean[words.length];
+        final String[] sortedWords = new String[words.length];
+        final int[] stripeIndexes = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != null) {
+                sortedWords[i] = AnagramSignature.sort(words[i]);
+                stripeIndexes[i] = getStripeIndex(stripes, sortedWords[i]);
+            } else {
+                stripeIndexes[i] = StripeBatch.SKIP;
+            }
+        }
+        final int[] order = StripeBatch.order(stripeIndexes, stripes.length);
+        int i = 0;
+        while (i < order.length) {
+            final int stripeIndex = stripeIndexes[order[i]];
+            final AnagramStripe stripe = stripes[stripeIndex];
+            final int from = i;
+            final boolean moved;
+            final long stamp = stripe.lockWrite();
+            try {
+                moved = stripe.getMovedTo() != null;
+                for (; (i < order.length) && (stripeIndexes[order[i]] == stripeIndex); i++) {
+                    final int index = order[i];
+                    if (!moved) {
+                        updated[index] = add ? add(stripe, sortedWords[index], words[index]) : delete(stripe, sortedWords[index], words[index]);
+                    }
+                }
+            } finally {
+                stripe.unlockWrite(stamp);
+            }
+            //the stripe was re-partitioned since the batch started
+            if (moved) {
+                for (int j = from; j < i; j++) {
+                    final int index = order[j];
+                    updated[index] = update(sortedWords[index], words[index], add);
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Adds or deletes a word with the write lock of its stripe held, following the stripe if it was re-partitioned.
+     */
+    private boolean update(String sortedWord, String word, boolean add) {
+        AnagramStripe stripe = AnagramStripe.of(stripes, sortedWord);
+        while (true) {
+            final AnagramStripe[] movedTo;
+            final long stamp = stripe.lockWrite();
+            try {
+                movedTo = stripe.getMovedTo();
+                if (movedTo == null) {
+                    return add ? add(stripe, sortedWord, word) : delete(stripe, sortedWord, word);
+                }
+            } finally {
+                stripe.unlockWrite(stamp);
+            }
+            stripe = AnagramStripe.of(movedTo, sortedWord);
+        }
+    }
+
+    /**
+     * Must be called with the write lock of the sorted word's stripe held.
+     */
+    private boolean add(AnagramStripe stripe, String sortedWord, String word) {
+        final Map<String, AnagramGroup> sortedWord2Anagrams = stripe.sortedWord2Anagrams;
+        AnagramGroup anagrams = sortedWord2Anagrams.get(sortedWord);
+        if (anagrams == null) {
+            anagrams = AnagramGroup.EMPTY;
+        }
+        AnagramGroup updated = anagrams.add(word);
+        if (updated == anagrams) {
+            return false;
+        }
+        sortedWord2Anagrams.put(sortedWord, updated);
+        subAnagramIndex.put(sortedWord, updated);
+        //the filter is updated before the lock is released
+        if ((anagramFilter != null) && (updated.size() == 2)) {
+            anagramFilter.add(word);
+        }
+        return true;
+    }
+
+    /**
+     * Must be called with the write lock of the sorted word's stripe held.
+     */
+    private boolean delete(AnagramStripe stripe, String sortedWord, String word) {
+        final Map<String, AnagramGroup> sortedWord2Anagrams = stripe.sortedWord2Anagrams;
+        AnagramGroup anagrams = sortedWord2Anagrams.get(sortedWord);
+        if (anagrams == null) {
+            return false;
+        }
+        AnagramGroup updated = anagrams.remove(word);
+        if (updated == anagrams) {
+            return false;
+        }
+        if ((anagramFilter != null) && (updated.size() == 1)) {
+            anagramFilter.remove(word);
+        }
+        if (updated.isEmpty()) {
+            sortedWord2Anagrams.remove(sortedWord);
+            subAnagramIndex.put(sortedWord, null);
+        } else {
+            sortedWord2Anagrams.put(sortedWord, updated);
+            subAnagramIndex.put(sortedWord, updated);
+        }
+        return true;
     }
 
     /**
      * {@inheritDoc}
+     *
+     * Copies {@link #anagramsView(String)}.
      */
     @Override
     public Set<String> getAnagrams(String word) {
-        Set<String> anagramsCopy = null;
-        Set<String> anagrams = null;
-        if (word != null) {
-            String sortedWord = sort(word);
-            final ReadWriteLock lock = getLock(sortedWord);
-            lock.readLock().lock();
+        return AnagramsView.copyOf(anagramsView(word));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The read lock is only held while looking up the immutable group.
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        AnagramGroup anagrams = getGroup(word);
+        if (anagrams == null) {
+            return Collections.emptySet();
+        }
+        return anagrams.anagramsView(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The read lock is only held while looking up the immutable group.
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        AnagramGroup anagrams = getGroup(word);
+        if (anagrams == null) {
+            return 0;
+        }
+        return anagrams.forEachAnagram(word, visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} of the current immutable groups.
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEach(letters, (sortedWord, length, anagrams) -> anagrams.addTo(words));
+        return words;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} of the current immutable groups.
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEachWildcard(pattern, WILDCARD, (sortedWord, length, anagrams) -> anagrams.addTo(words));
+        return words;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Candidate groups are the sub-anagrams of the phrase, solved by the default
+     * {@link com.anagram.PhraseAnagramSolver}.
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        final List<String[]> groups = new ArrayList<>();
+        subAnagramIndex.forEach(PhraseAnagramSolver.letters(phrase), (sortedWord, length, anagrams) -> groups.add(anagrams.toArray()));
+        return PhraseAnagramSolver.getDefault().solve(phrase, groups);
+    }
+
+    private AnagramGroup getGroup(String word) {
+        AnagramGroup anagrams = null;
+        if ((word != null) && ((anagramFilter == null) || anagramFilter.mightContain(word))) {
+            String sortedWord = AnagramSignature.sort(word);
+            anagrams = AnagramStripe.of(stripes, sortedWord).get(sortedWord);
+        }
+        return anagrams;
+    }
+
+    /**
+     * Re-partitions the groups into the specified number of stripes without pausing the whole service: the groups
+     * of one stripe are moved at a time with only that stripe write-locked, and calls reaching a moved stripe retry
+     * on the new stripes. Resizes are serialized.
+     *
+     * @param numberOfStripes the new number of stripes.
+     */
+    public synchronized void resize(int numberOfStripes) {
+        if (numberOfStripes <= 0) {
+            throw new IllegalArgumentException("Invalid number of stripes " + numberOfStripes);
+        }
+        final AnagramStripe[] current = stripes;
+        if (numberOfStripes == current.length) {
+            return;
+        }
+        final AnagramStripe[] resized = createStripes(numberOfStripes);
+        for (AnagramStripe stripe : current) {
+            final long stamp = stripe.lockWrite();
             try {
-                anagrams = sortedWord2Anagrams.get(sortedWord);
+                stripe.moveTo(resized);
             } finally {
-                lock.readLock().unlock();
+                stripe.unlockWrite(stamp);
             }
+            retiredLockCount.add(stripe.lockCount.sum());
+            retiredContendedLockCount.add(stripe.contendedLockCount.sum());
+            retiredLockWaitNanos.add(stripe.lockWaitNanos.sum());
         }
-        if ((anagrams == null) || (anagrams.size() <= 1)) {
-            return Collections.emptySet();
-        } else {
-            anagramsCopy = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
-            anagramsCopy.addAll(anagrams);
-            anagramsCopy.remove(word);
+        //calls that already read the old stripes follow them to the new ones
+        stripes = resized;
+        resizeCount++;
+        log.info("Resized stripes from " + current.length + " to " + numberOfStripes);
+    }
+
+    /**
+     * Doubles the stripes if too many lock acquisitions waited since the previous check, halves them if almost none did.
+     */
+    private synchronized void adapt() {
+        final long lockCount = getLockCount();
+        final long contendedLockCount = getContendedLockCount();
+        final long locks = lockCount - lastLockCount;
+        final double contention = (locks == 0) ? 0 : ((double) (contendedLockCount - lastContendedLockCount) / locks);
+        final int stripeCount = getStripeCount();
+        try {
+            if ((locks >= MIN_RESIZE_LOCK_COUNT) && (contention > GROW_CONTENTION_RATIO) && (stripeCount < maxStripes)) {
+                resize(Math.min(stripeCount * 2, maxStripes));
+            } else if ((contention < SHRINK_CONTENTION_RATIO) && (stripeCount > 1)) {
+                resize(stripeCount / 2);
+            }
+        } catch (RuntimeException e) {
+            log.warning("Could not resize stripes: " + e);
         }
-        return anagramsCopy;
+        //statistics include the lock acquisitions of the resize itself
+        lastLockCount = getLockCount();
+        lastContendedLockCount = getContendedLockCount();
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
-    public void close() {
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMaxStripes() {
+        return (maxStripes > 0) ? maxStripes : getStripeCount();
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isAdaptive() {
+        return resizer != null;
     }
 
     /**
-     * Sorts the word to its uppercase form.
+     * {@inheritDoc}
+     */
+    @Override
+    public int getResizeCount() {
+        return resizeCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLockCount() {
+        long lockCount = retiredLockCount.sum();
+        for (AnagramStripe stripe : stripes) {
+            lockCount += stripe.lockCount.sum();
+        }
+        return lockCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getContendedLockCount() {
+        long contendedLockCount = retiredContendedLockCount.sum();
+        for (AnagramStripe stripe : stripes) {
+            contendedLockCount += stripe.contendedLockCount.sum();
+        }
+        return contendedLockCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLockWaitNanos() {
+        long lockWaitNanos = retiredLockWaitNanos.sum();
+        for (AnagramStripe stripe : stripes) {
+            lockWaitNanos += stripe.lockWaitNanos.sum();
+        }
+        return lockWaitNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getStripeLockWaitNanos() {
+        final AnagramStripe[] current = stripes;
+        final long[] lockWaitNanos = new long[current.length];
+        for (int i = 0; i < current.length; i++) {
+            lockWaitNanos[i] = current[i].lockWaitNanos.sum();
+        }
+        return lockWaitNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getContentionRatio() {
+        final long lockCount = getLockCount();
+        return (lockCount == 0) ? 0 : ((double) getContendedLockCount() / lockCount);
+    }
+
+    /**
+     * Writes every group to a snapshot file in the format of {@link com.anagram.AnagramIndexWriter}, so it can also be
+     * served by a {@link com.anagram.MappedAnagramService}. Restore it with {@link com.anagram.AnagramService.Builder#restore(String)}.
      *
-     * @param word word to sort
-     * @return word uppercase sorted.
+     * Only one stripe is read-locked at a time, while its group references are copied, and the file is written after
+     * all locks are released, so writers wait at most for the copy of one stripe. Every stripe is saved as of its copy:
+     * a batch updating several stripes while the snapshot is taken may be saved in part.
+     * Resizes wait for the copy to complete. The file is replaced atomically once it is complete.
+     *
+     * @param snapshotFileName the snapshot file to write or replace.
+     * @return number of words written.
+     * @throws IOException If the snapshot cannot be written.
      */
-    private String sort(String word) {
-        final char[] characters = word.toCharArray();
-        for (int i = 0; i < characters.length; i++) {
-            characters[i] = Character.toUpperCase(characters[i]);
+    public int writeSnapshot(String snapshotFileName) throws IOException {
+        final SortedMap<String, List<String>> sortedWord2Words = new TreeMap<>();
+        //no stripe is moved while it is copied
+        synchronized (this) {
+            for (AnagramStripe stripe : stripes) {
+                final String[] sortedWords;
+                final AnagramGroup[] groups;
+                final long stamp = stripe.lockRead();
+                try {
+                    sortedWords = new String[stripe.sortedWord2Anagrams.size()];
+                    groups = new AnagramGroup[sortedWords.length];
+                    int i = 0;
+                    for (Map.Entry<String, AnagramGroup> entry : stripe.sortedWord2Anagrams.entrySet()) {
+                        sortedWords[i] = entry.getKey();
+                        groups[i++] = entry.getValue();
+                    }
+                } finally {
+                    stripe.unlockRead(stamp);
+                }
+                for (int i = 0; i < sortedWords.length; i++) {
+                    if (!groups[i].isEmpty()) {
+                        sortedWord2Words.put(sortedWords[i], Arrays.asList(groups[i].toArray()));
+                    }
+                }
+            }
+        }
+        return AnagramIndexWriter.write(sortedWord2Words, 0, 0, snapshotFileName);
+    }
+
+    /**
+     * Stops adapting the stripes.
+     */
+    @Override
+    public void close() {
+        if (resizer != null) {
+            resizer.shutdownNow();
         }
-        Arrays.sort(characters);
-        return new String(characters);
     }
 
     /**
-     * Gets a lock for the sorted word.
+     * Gets the stripe index of the sorted word.
      * Internally, it uses the same logic found in {@link java.util.concurrent.ConcurrentHashMap}
      * to stripe access into the internal data structures.
      *
      * @see java.util.concurrent.ConcurrentHashMap
      *
-     * @param sortedWord the sorted word to find a lock for
-     * @return {@link java.util.concurrent.locks.ReadWriteLock} for the sortedWord.
+     * @param stripes the stripes to pick from
+     * @param sortedWord the sorted word to find a stripe for
+     * @return index of the {@link com.anagram.AnagramStripe} holding the sortedWord.
      */
-    private ReadWriteLock getLock(String sortedWord) {
-        int index = spread(sortedWord.hashCode()) % numberOfStripes;
-        return stripeLocks[index];
+    private static int getStripeIndex(AnagramStripe[] stripes, String sortedWord) {
+        return spread(sortedWord.hashCode()) % stripes.length;
     }
 
     /**
@@ -167,7 +811,118 @@ public class AnagramService implements AnagramServiceMBean {
      * to incorporate impact of the highest bits that would otherwise
      * never be used in index calculations because of table bounds.
      */
-    private static final int spread(int h) {
+    static final int spread(int h) {
         return (h ^ (h >>> 16)) & HASH_BITS;
     }
+
+    /**
+     * Collects a whole dictionary and builds a fully populated {@link com.anagram.AnagramService} in one pass,
+     * ready for concurrent use. Words may be added from many threads at once, eg. by
+     * {@link com.anagram.AnagramServiceMBeanMappedFileLoader#processFile(java.util.function.Consumer, String)}.
+     */
+    public static class Builder {
+
+        private int numberOfStripes = 1;
+        private int expectedAnagramGroups;
+        private LockType lockType = LockType.READ_WRITE;
+        private int maxStripes;
+        private long resizeIntervalMillis;
+        private MappedAnagramService snapshot;
+        private SignatureInterner interner;
+        private final ConcurrentLinkedQueue<String[]> words = new ConcurrentLinkedQueue<>();
+
+        /**
+         * @see com.anagram.AnagramService#AnagramService(int, int, com.anagram.AnagramService.LockType, int, long)
+         */
+        public Builder stripes(int numberOfStripes, LockType lockType) {
+            this.numberOfStripes = numberOfStripes;
+            this.lockType = lockType;
+            return this;
+        }
+
+        /**
+         * @see com.anagram.AnagramService#AnagramService(int, int, com.anagram.AnagramService.LockType, int, long)
+         */
+        public Builder adaptive(int maxStripes, long resizeIntervalMillis) {
+            this.maxStripes = maxStripes;
+            this.resizeIntervalMillis = resizeIntervalMillis;
+            return this;
+        }
+
+        /**
+         * @see com.anagram.AnagramService#AnagramService(int, int)
+         */
+        public Builder filter(int expectedAnagramGroups) {
+            this.expectedAnagramGroups = expectedAnagramGroups;
+            return this;
+        }
+
+        /**
+         * Starts from the groups of a snapshot written by {@link com.anagram.AnagramService#writeSnapshot(String)},
+         * words added to the builder are added to them.
+         *
+         * @param snapshotFileName the snapshot file
+         * @return this builder
+         * @throws IOException If the file cannot be read or is not a valid snapshot.
+         */
+        public Builder restore(String snapshotFileName) throws IOException {
+            this.snapshot = MappedAnagramService.open(snapshotFileName);
+            return this;
+        }
+
+        /**
+         * Shares the words and their signatures with the other dictionaries built with the same interner.
+         *
+         * @param interner the shared interner, or null
+         * @return this builder
+         */
+        public Builder interner(SignatureInterner interner) {
+            this.interner = interner;
+            return this;
+        }
+
+        /**
+         * @param word word to add
+         * @return this builder
+         */
+        public Builder addWord(String word) {
+            return addWords(new String[]{word});
+        }
+
+        /**
+         * Thread-safe.
+         *
+         * @param words words to add, copied
+         * @return this builder
+         */
+        public Builder addWords(String[] words) {
+            if ((words != null) && (words.length > 0)) {
+                this.words.add(words.clone());
+            }
+            return this;
+        }
+
+        /**
+         * @param words words to add
+         * @return this builder
+         */
+        public Builder addWords(Iterable<String> words) {
+            final List<String> batch = new ArrayList<>();
+            for (String word : words) {
+                batch.add(word);
+            }
+            this.words.add(batch.toArray(new String[batch.size()]));
+            return this;
+        }
+
+        /**
+         * Builds the service from all words added so far, words added concurrently with the build may be left out.
+         *
+         * @return a new service holding all words.
+         */
+        public AnagramService build() {
+            return new AnagramService(numberOfStripes, expectedAnagramGroups, lockType, maxStripes, resizeIntervalMillis,
+                    snapshot, new ArrayList<>(words), interner);
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package com.anagram;
+
+/**
+ * Statistics of a {@link com.anagram.CachingAnagramService} used to size the cache.
+ */
+public interface AnagramServiceCacheMBean {
+
+    /**
+     * @return number of lookups served from the cache.
+     */
+    long getHitCount();
+
+    /**
+     * @return number of lookups that had to query the underlying service.
+     */
+    long getMissCount();
+
+    /**
+     * @return number of entries dropped because the cache was full.
+     */
+    long getEvictionCount();
+
+    /**
+     * @return number of entries dropped because a word of their group was added or deleted.
+     */
+    long getInvalidationCount();
+
+    /**
+     * @return hits / (hits + misses), or 0 if there were not any lookups.
+     */
+    double getHitRatio();
+
+    /**
+     * @return current number of cached query words.
+     */
+    int getSize();
+
+    /**
+     * @return maximum number of cached query words.
+     */
+    int getMaximumSize();
+
+    /**
+     * Drops all cached entries.
+     */
+    void invalidateAll();
+}
@@ -5,8 +5,17 @@ import com.anagram.server.tcp.AnagramServiceTCPClient;
 import com.anagram.server.tcp.AnagramServiceTCPClientConfiguration;
 
 import javax.management.MalformedObjectNameException;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Created by rmanaloto on 8/13/14.
@@ -17,18 +26,61 @@ public class AnagramServiceFactory {
 
     public static final String DEFAULT_ANAGRAM_SERVICE_MBEAN_NAME = "com.anagram:type=AnagramService";
     public static final String DEFAULT_DICTIONARY_FILENAME = "words.txt";
+    public static final String DEFAULT_DICTIONARY_NAME = "default";
     public static final String ANAGRAM_SERVICE_JMX_OBJECTNAME = "anagram.service.jmx.objectname";
     public static final int DEFAULT_STRIPES_COUNT = 1;
+    public static final long DEFAULT_STRIPES_RESIZE_INTERVAL_MILLIS = 1000;
 
     public enum Mode {
         LOCAL, JMX, TCP;
     }
 
+    /**
+     * Storage engine used for {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} services.
+     */
+    public enum Engine {
+        /** {@link com.anagram.AnagramService}: one table per stripe guarded by the stripe's {@link com.anagram.AnagramService.LockType} */
+        STRIPED,
+        /** {@link com.anagram.ShardedAnagramService}: one table per stripe with lock-free reads */
+        SHARDED,
+        /** {@link com.anagram.FrozenAnagramService}: read-only flat arrays published through a {@link com.anagram.SwappableAnagramService} */
+        FROZEN,
+        /** {@link com.anagram.OffHeapAnagramService}: words and groups stored in direct memory */
+        OFF_HEAP,
+        /** {@link com.anagram.VersionedAnagramService}: lock-free reads of committed versions and point-in-time snapshots */
+        VERSIONED,
+        /**
+         * {@link com.anagram.MappedAnagramService}: read-only index file written by {@link com.anagram.AnagramIndexWriter}
+         * and memory-mapped, published through a {@link com.anagram.SwappableAnagramService}.
+         * Falls back to {@link #FROZEN} if the index is missing, invalid or older than the dictionary.
+         */
+        MAPPED;
+    }
+
     private int stripesCount = Integer.getInteger("anagram.service.stripes.count", DEFAULT_STRIPES_COUNT);
+    private Engine engine = Engine.valueOf(System.getProperty("anagram.service.engine", Engine.STRIPED.name()).toUpperCase());
+    private boolean packedSignatures = Boolean.valueOf(System.getProperty("anagram.service.signatures.packed", "true"));
+    private boolean offHeapSubAnagramIndexed = Boolean.getBoolean("anagram.service.offheap.subanagram.index");
+    private int cacheSize = Integer.getInteger("anagram.service.cache.size", 0);
+    private int filterExpectedGroups = Integer.getInteger("anagram.service.filter.expected.groups", 0);
+    private int stripesMax = Integer.getInteger("anagram.service.stripes.max", 0);
+    private long stripesResizeIntervalMillis = Long.getLong("anagram.service.stripes.resize.interval.millis", DEFAULT_STRIPES_RESIZE_INTERVAL_MILLIS);
+    private AnagramService.LockType stripesLock = AnagramService.LockType.valueOf(System.getProperty("anagram.service.stripes.lock", AnagramService.LockType.READ_WRITE.name()).toUpperCase());
     private String dictionaryFileName = System.getProperty("anagram.service.factory.dictionary.filename", DEFAULT_DICTIONARY_FILENAME);
+    private Map<String, String> dictionaryFileNames = parseDictionaryFileNames(System.getProperty("anagram.service.dictionaries", ""));
+    private String dictionaryName = System.getProperty("anagram.service.dictionary.name", DEFAULT_DICTIONARY_NAME);
+    private String indexFileName = System.getProperty("anagram.service.index.filename");
+    private String tailFileName = System.getProperty("anagram.service.tail.filename");
+    private String snapshotFileName = System.getProperty("anagram.service.snapshot.filename");
+    private long snapshotIntervalMillis = Long.getLong("anagram.service.snapshot.interval.millis", 0);
+    private boolean progressive = Boolean.getBoolean("anagram.service.startup.progressive");
+    private String logFileName = System.getProperty("anagram.service.log.filename");
+    private long logCommitWindowMicros = Long.getLong("anagram.service.log.commit.window.micros", DurableAnagramService.DEFAULT_COMMIT_WINDOW_MICROS);
     private String jmxHost = System.getProperty("anagram.service.jmx.host", "localhost");
     private int jmxPort = Integer.getInteger("anagram.service.jmx.port", 9999);
     private String jmxObjectName = System.getProperty(ANAGRAM_SERVICE_JMX_OBJECTNAME, DEFAULT_ANAGRAM_SERVICE_MBEAN_NAME);
+    //shared by the dictionaries built by createAnagramServices()
+    private SignatureInterner interner;
 
     public AnagramServiceFactory() {
         this(System.getProperty("anagram.service.factory.dictionary.filename", DEFAULT_DICTIONARY_FILENAME));
@@ -46,6 +98,87 @@ public class AnagramServiceFactory {
         this.stripesCount = stripesCount;
     }
 
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public boolean isPackedSignatures() {
+        return packedSignatures;
+    }
+
+    public void setPackedSignatures(boolean packedSignatures) {
+        this.packedSignatures = packedSignatures;
+    }
+
+    public boolean isOffHeapSubAnagramIndexed() {
+        return offHeapSubAnagramIndexed;
+    }
+
+    public void setOffHeapSubAnagramIndexed(boolean offHeapSubAnagramIndexed) {
+        this.offHeapSubAnagramIndexed = offHeapSubAnagramIndexed;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * @param cacheSize maximum number of cached query words in front of {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} services, 0 disables the cache.
+     */
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public int getFilterExpectedGroups() {
+        return filterExpectedGroups;
+    }
+
+    /**
+     * @param filterExpectedGroups expected number of anagram groups used to size the negative-lookup filter of
+     *                             {@link com.anagram.AnagramServiceFactory.Engine#STRIPED} services, 0 disables the filter.
+     */
+    public void setFilterExpectedGroups(int filterExpectedGroups) {
+        this.filterExpectedGroups = filterExpectedGroups;
+    }
+
+    public int getStripesMax() {
+        return stripesMax;
+    }
+
+    /**
+     * @param stripesMax maximum number of stripes of adaptive {@link com.anagram.AnagramServiceFactory.Engine#STRIPED}
+     *                   services which resize with the measured lock contention, 0 keeps the stripes count fixed.
+     */
+    public void setStripesMax(int stripesMax) {
+        this.stripesMax = stripesMax;
+    }
+
+    public long getStripesResizeIntervalMillis() {
+        return stripesResizeIntervalMillis;
+    }
+
+    /**
+     * @param stripesResizeIntervalMillis interval between contention checks of adaptive services.
+     */
+    public void setStripesResizeIntervalMillis(long stripesResizeIntervalMillis) {
+        this.stripesResizeIntervalMillis = stripesResizeIntervalMillis;
+    }
+
+    public AnagramService.LockType getStripesLock() {
+        return stripesLock;
+    }
+
+    /**
+     * @param stripesLock lock guarding every stripe of {@link com.anagram.AnagramServiceFactory.Engine#STRIPED} services.
+     */
+    public void setStripesLock(AnagramService.LockType stripesLock) {
+        this.stripesLock = stripesLock;
+    }
+
     public String getDictionaryFileName() {
         return dictionaryFileName;
     }
@@ -54,6 +187,156 @@ public class AnagramServiceFactory {
         this.dictionaryFileName = dictionaryFileName;
     }
 
+    /**
+     * @return file of every named dictionary hosted next to the {@link #DEFAULT_DICTIONARY_NAME} dictionary, by name.
+     */
+    public Map<String, String> getDictionaryFileNames() {
+        return dictionaryFileNames;
+    }
+
+    public void setDictionaryFileNames(Map<String, String> dictionaryFileNames) {
+        for (String name : dictionaryFileNames.keySet()) {
+            checkDictionaryName(name);
+        }
+        this.dictionaryFileNames = new LinkedHashMap<>(dictionaryFileNames);
+    }
+
+    public String getDictionaryName() {
+        return dictionaryName;
+    }
+
+    /**
+     * @param dictionaryName dictionary selected by {@link #createAnagramService(Mode)}.
+     */
+    public void setDictionaryName(String dictionaryName) {
+        this.dictionaryName = checkDictionaryName(dictionaryName);
+    }
+
+    /**
+     * @param dictionaries named dictionaries as "name=filename,name=filename", eg. "en=words.txt,fr=mots.txt".
+     * @return the file of every dictionary by name, in the given order.
+     */
+    static Map<String, String> parseDictionaryFileNames(String dictionaries) {
+        final Map<String, String> dictionaryFileNames = new LinkedHashMap<>();
+        for (String dictionary : dictionaries.split(",")) {
+            if (dictionary.trim().isEmpty()) {
+                continue;
+            }
+            final int separator = dictionary.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid dictionary '" + dictionary + "'");
+            }
+            final String name = checkDictionaryName(dictionary.substring(0, separator).trim());
+            if ((dictionaryFileNames.put(name, dictionary.substring(separator + 1).trim()) != null) || name.equals(DEFAULT_DICTIONARY_NAME)) {
+                throw new IllegalArgumentException("Invalid dictionary name " + name);
+            }
+        }
+        return dictionaryFileNames;
+    }
+
+    /**
+     * Names are used as is in JMX object names and TCP requests.
+     */
+    private static String checkDictionaryName(String name) {
+        if ((name == null) || name.isEmpty()) {
+            throw new IllegalArgumentException("Invalid dictionary name " + name);
+        }
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            if (!(((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_') || (c == '-') || (c == '.'))) {
+                throw new IllegalArgumentException("Invalid dictionary name " + name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * @param mbeanName object name of the {@link #DEFAULT_DICTIONARY_NAME} dictionary
+     * @param dictionaryName name of a dictionary
+     * @return object name of the dictionary, eg. "com.anagram:type=AnagramService,dictionary=fr".
+     */
+    public static String getObjectName(String mbeanName, String dictionaryName) {
+        return DEFAULT_DICTIONARY_NAME.equals(dictionaryName) ? mbeanName : mbeanName + ",dictionary=" + dictionaryName;
+    }
+
+    /**
+     * @return the index file of {@link com.anagram.AnagramServiceFactory.Engine#MAPPED} services, by default the
+     * dictionary file name followed by {@link com.anagram.MappedAnagramService#DEFAULT_INDEX_SUFFIX}.
+     */
+    public String getIndexFileName() {
+        return (indexFileName != null) ? indexFileName : dictionaryFileName + MappedAnagramService.DEFAULT_INDEX_SUFFIX;
+    }
+
+    public void setIndexFileName(String indexFileName) {
+        this.indexFileName = indexFileName;
+    }
+
+    public String getTailFileName() {
+        return tailFileName;
+    }
+
+    /**
+     * @param tailFileName dictionary or changelog file followed by {@link #tailFile(AnagramServiceMBean)}, null for none.
+     */
+    public void setTailFileName(String tailFileName) {
+        this.tailFileName = tailFileName;
+    }
+
+    public String getSnapshotFileName() {
+        return snapshotFileName;
+    }
+
+    /**
+     * @param snapshotFileName snapshot file restored by {@link #createAnagramServiceBuilder()} instead of the dictionary
+     *                         if it exists, and written by {@link #createSnapshotter(AnagramServiceMBean)}, null for none.
+     */
+    public void setSnapshotFileName(String snapshotFileName) {
+        this.snapshotFileName = snapshotFileName;
+    }
+
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    /**
+     * @param snapshotIntervalMillis interval between background snapshots, 0 to only write requested snapshots.
+     */
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    public boolean isProgressive() {
+        return progressive;
+    }
+
+    /**
+     * @param progressive true to create {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} services right away as a
+     *                    {@link com.anagram.ProgressiveAnagramService} loading the dictionary in the background.
+     */
+    public void setProgressive(boolean progressive) {
+        this.progressive = progressive;
+    }
+
+    public String getLogFileName() {
+        return logFileName;
+    }
+
+    /**
+     * @param logFileName write-ahead log replayed into {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} services
+     *                    and appended to by every update through a {@link com.anagram.DurableAnagramService}, null for none.
+     */
+    public void setLogFileName(String logFileName) {
+        this.logFileName = logFileName;
+    }
+
+    public long getLogCommitWindowMicros() {
+        return logCommitWindowMicros;
+    }
+
+    public void setLogCommitWindowMicros(long logCommitWindowMicros) {
+        this.logCommitWindowMicros = logCommitWindowMicros;
+    }
+
     public String getJmxHost() {
         return jmxHost;
     }
@@ -90,26 +373,59 @@ public class AnagramServiceFactory {
      * @return
      */
     public AnagramServiceMBean createAnagramService(Mode mode) {
+        return createAnagramService(mode, dictionaryName);
+    }
+
+    /**
+     * Creates a {@link com.anagram.AnagramServiceMBean} of the named dictionary based on the
+     * {@link com.anagram.AnagramServiceFactory.Mode} specified.
+     * The tail file, snapshot and log only apply to the {@link #DEFAULT_DICTIONARY_NAME} dictionary, progressive startup
+     * applies to every dictionary.
+     *
+     * @param mode
+     * @param dictionaryName {@link #DEFAULT_DICTIONARY_NAME} or the name of one of the {@link #getDictionaryFileNames()}.
+     * @return
+     */
+    public AnagramServiceMBean createAnagramService(Mode mode, String dictionaryName) {
+        checkDictionaryName(dictionaryName);
         AnagramServiceMBean anagramService = null;
         switch(mode) {
             case LOCAL:
+                if (!DEFAULT_DICTIONARY_NAME.equals(dictionaryName)) {
+                    final String fileName = dictionaryFileNames.get(dictionaryName);
+                    if (fileName == null) {
+                        throw new IllegalArgumentException("Invalid dictionary name " + dictionaryName);
+                    }
+                    try {
+                        anagramService = progressive ? createProgressiveNamedAnagramService(fileName) : createNamedAnagramService(fileName);
+                    } catch (FileNotFoundException e) {
+                        throw new RuntimeException(e);
+                    }
+                    anagramService = cache(anagramService);
+                    break;
+                }
                 try {
-                    anagramService = new AnagramService(stripesCount);
-                    AnagramServiceMBeanFileLoader.processFile(anagramService, dictionaryFileName);
-                } catch (FileNotFoundException e) {
+                    if (progressive) {
+                        anagramService = createProgressiveAnagramService();
+                    } else {
+                        anagramService = openLog(createLocalAnagramService());
+                    }
+                    anagramService = cache(anagramService);
+                } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
                 break;
             case JMX:
                 final String jmxURL = createJMXURL(jmxHost, jmxPort);
                 try {
-                    anagramService = new AnagramServiceJMXProxy(jmxURL, jmxObjectName);
+                    anagramService = new AnagramServiceJMXProxy(jmxURL, getObjectName(jmxObjectName, dictionaryName));
                 } catch (MalformedObjectNameException|IOException e) {
                     throw new RuntimeException(e);
                 }
                 break;
             case TCP:
                 AnagramServiceTCPClientConfiguration configuration = new AnagramServiceTCPClientConfiguration();
+                configuration.setDictionaryName(DEFAULT_DICTIONARY_NAME.equals(dictionaryName) ? null : dictionaryName);
                 anagramService = new AnagramServiceSemaphoreTCPClient(configuration);
 //                Thread thread = new Thread((AnagramServiceTCPClient)anagramService);
 //                thread.start();
@@ -118,4 +434,319 @@ public class AnagramServiceFactory {
         return anagramService;
     }
 
+    private AnagramServiceMBean cache(AnagramServiceMBean anagramService) {
+        if (cacheSize <= 0) {
+            return anagramService;
+        }
+        final CachingAnagramService cachingAnagramService = new CachingAnagramService(anagramService, cacheSize);
+        if (anagramService instanceof ProgressiveAnagramService) {
+            //drop the partial results cached while loading
+            ((ProgressiveAnagramService) anagramService).ready().thenRun(cachingAnagramService::invalidateAll);
+        }
+        return cachingAnagramService;
+    }
+
+    /**
+     * Creates a {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} service of every dictionary, the
+     * {@link #DEFAULT_DICTIONARY_NAME} dictionary first. {@link com.anagram.AnagramServiceFactory.Engine#STRIPED}
+     * dictionaries loaded here share their words and signatures through a {@link com.anagram.SignatureInterner}, unless
+     * they are loaded progressively, in which case every dictionary is loaded on its own background thread.
+     *
+     * @return the service of every dictionary by name.
+     */
+    public Map<String, AnagramServiceMBean> createAnagramServices() {
+        final Map<String, AnagramServiceMBean> anagramServices = new LinkedHashMap<>();
+        interner = (dictionaryFileNames.isEmpty() || (engine != Engine.STRIPED) || progressive) ? null : new SignatureInterner();
+        try {
+            anagramServices.put(DEFAULT_DICTIONARY_NAME, createAnagramService(Mode.LOCAL, DEFAULT_DICTIONARY_NAME));
+            for (String name : dictionaryFileNames.keySet()) {
+                anagramServices.put(name, createAnagramService(Mode.LOCAL, name));
+                System.out.println((progressive ? "Loading dictionary " : "Loaded dictionary ") + name + " from " + dictionaryFileNames.get(name));
+            }
+            if (interner != null) {
+                System.out.println("Dictionaries share " + interner.getWordCount() + " distinct words and " + interner.getSignatureCount() + " signatures");
+            }
+        } finally {
+            interner = null;
+        }
+        return anagramServices;
+    }
+
+    private AnagramServiceMBean createNamedAnagramService(String fileName) throws FileNotFoundException {
+        switch (engine) {
+            case FROZEN:
+                return new SwappableAnagramService(createFrozenAnagramService(fileName));
+            case MAPPED:
+                return new SwappableAnagramService(createMappedAnagramService(fileName + MappedAnagramService.DEFAULT_INDEX_SUFFIX, fileName));
+            case STRIPED:
+                final AnagramService.Builder builder = newAnagramServiceBuilder();
+                AnagramServiceMBeanMappedFileLoader.processFile(builder::addWords, fileName);
+                return builder.build();
+            default:
+                final AnagramServiceMBean anagramService = createEmptyAnagramService();
+                AnagramServiceMBeanMappedFileLoader.processFile(anagramService, fileName);
+                return anagramService;
+        }
+    }
+
+    private AnagramServiceMBean createLocalAnagramService() throws FileNotFoundException {
+        switch (engine) {
+            case FROZEN:
+                return new SwappableAnagramService(createFrozenAnagramService());
+            case MAPPED:
+                return new SwappableAnagramService(createMappedAnagramService());
+            case STRIPED:
+                return createAnagramServiceBuilder().build();
+            default:
+                final AnagramServiceMBean anagramService = createEmptyAnagramService();
+                AnagramServiceMBeanMappedFileLoader.processFile(anagramService, dictionaryFileName);
+                return anagramService;
+        }
+    }
+
+    /**
+     * @return an empty service of the engine, a {@link com.anagram.SwappableAnagramService} of an empty
+     * {@link com.anagram.FrozenAnagramService} for read-only engines.
+     */
+    private AnagramServiceMBean createEmptyAnagramService() {
+        switch (engine) {
+            case FROZEN:
+            case MAPPED:
+                return new SwappableAnagramService(FrozenAnagramService.of(Collections.<String>emptyList()));
+            case OFF_HEAP:
+                return new OffHeapAnagramService(OffHeapAnagramService.DEFAULT_INITIAL_GROUP_CAPACITY,
+                        WordArena.DEFAULT_CHUNK_SIZE, offHeapSubAnagramIndexed);
+            case VERSIONED:
+                return new VersionedAnagramService();
+            case SHARDED:
+                return new ShardedAnagramService(stripesCount, ShardedAnagramService.DEFAULT_SHARD_CAPACITY, packedSignatures);
+            case STRIPED:
+            default:
+                return newAnagramServiceBuilder().build();
+        }
+    }
+
+    private AnagramServiceMBean openLog(AnagramServiceMBean anagramService) throws IOException {
+        return (logFileName != null) ? DurableAnagramService.open(anagramService, logFileName, logCommitWindowMicros) : anagramService;
+    }
+
+    /**
+     * Creates an empty service of the engine which serves queries right away while the dictionary, or the snapshot
+     * file if it exists, is loaded in the background and the log is replayed once it is loaded.
+     * Read-only engines serve no words until their dictionary or index is published at once.
+     *
+     * @return the service, loading.
+     */
+    public ProgressiveAnagramService createProgressiveAnagramService() {
+        final AnagramServiceMBean anagramService = createEmptyAnagramService();
+        final ProgressiveAnagramService progressiveAnagramService = new ProgressiveAnagramService(anagramService);
+        return progressiveAnagramService.start(words -> {
+            switch (engine) {
+                case FROZEN:
+                    ((SwappableAnagramService) anagramService).publish(createFrozenAnagramService());
+                    break;
+                case MAPPED:
+                    ((SwappableAnagramService) anagramService).publish(createMappedAnagramService());
+                    break;
+                default:
+                    if ((engine == Engine.STRIPED) && (snapshotFileName != null) && new File(snapshotFileName).isFile()) {
+                        try {
+                            restoreSnapshot(words);
+                            System.out.println("Restored snapshot " + snapshotFileName);
+                            break;
+                        } catch (IOException e) {
+                            System.out.println("Loading " + dictionaryFileName + " instead of snapshot " + snapshotFileName + ": " + e);
+                        }
+                    }
+                    AnagramServiceMBeanMappedFileLoader.processFile(words, dictionaryFileName);
+                    break;
+            }
+            return openLog(anagramService);
+        });
+    }
+
+    /**
+     * Creates an empty service of the engine which serves queries right away while the named dictionary file is loaded
+     * in the background.
+     *
+     * @return the service, loading.
+     */
+    private ProgressiveAnagramService createProgressiveNamedAnagramService(String fileName) {
+        final AnagramServiceMBean anagramService = createEmptyAnagramService();
+        final ProgressiveAnagramService progressiveAnagramService = new ProgressiveAnagramService(anagramService);
+        return progressiveAnagramService.start(words -> {
+            switch (engine) {
+                case FROZEN:
+                    ((SwappableAnagramService) anagramService).publish(createFrozenAnagramService(fileName));
+                    break;
+                case MAPPED:
+                    ((SwappableAnagramService) anagramService).publish(
+                            createMappedAnagramService(fileName + MappedAnagramService.DEFAULT_INDEX_SUFFIX, fileName));
+                    break;
+                default:
+                    AnagramServiceMBeanMappedFileLoader.processFile(words, fileName);
+                    break;
+            }
+            return anagramService;
+        });
+    }
+
+    private void restoreSnapshot(Consumer<String[]> words) throws IOException {
+        final MappedAnagramService snapshot = MappedAnagramService.open(snapshotFileName);
+        final List<String> batch = new ArrayList<>(AnagramServiceMBeanMappedFileLoader.DEFAULT_BATCH_SIZE);
+        for (int group = 0; group < snapshot.getGroupCount(); group++) {
+            Collections.addAll(batch, snapshot.groupWords(group));
+            if (batch.size() >= AnagramServiceMBeanMappedFileLoader.DEFAULT_BATCH_SIZE) {
+                words.accept(batch.toArray(new String[batch.size()]));
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            words.accept(batch.toArray(new String[batch.size()]));
+        }
+    }
+
+    /**
+     * Follows the tail file, if one is set, and applies its appended lines to a {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} service.
+     * If the tail file is the dictionary file only lines appended from now on are applied since the others were already
+     * loaded, any other file (eg. a changelog) is applied from its start.
+     *
+     * @param anagramService the service to apply the lines to
+     * @return the started tailer or null if no tail file is set.
+     * @throws IOException If the directory of the tail file cannot be watched.
+     */
+    public AnagramServiceMBeanFileTailer tailFile(AnagramServiceMBean anagramService) throws IOException {
+        if (tailFileName == null) {
+            return null;
+        }
+        final Path tailPath = FileSystems.getDefault().getPath(tailFileName).toAbsolutePath().normalize();
+        final Path dictionaryPath = FileSystems.getDefault().getPath(dictionaryFileName).toAbsolutePath().normalize();
+        final long position = tailPath.equals(dictionaryPath) ? tailPath.toFile().length() : 0;
+        return AnagramServiceMBeanFileLoader.tailFile(anagramService, tailFileName, position);
+    }
+
+    /**
+     * @param anagramService a {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} service
+     * @return the storage engine behind the {@link com.anagram.CachingAnagramService},
+     * {@link com.anagram.ProgressiveAnagramService} and {@link com.anagram.DurableAnagramService} decorators of the service.
+     */
+    public static AnagramServiceMBean getEngine(AnagramServiceMBean anagramService) {
+        if (anagramService instanceof CachingAnagramService) {
+            anagramService = ((CachingAnagramService) anagramService).getAnagramService();
+        }
+        if (anagramService instanceof ProgressiveAnagramService) {
+            anagramService = ((ProgressiveAnagramService) anagramService).getAnagramService();
+        }
+        if (anagramService instanceof DurableAnagramService) {
+            anagramService = ((DurableAnagramService) anagramService).getAnagramService();
+        }
+        return anagramService;
+    }
+
+    /**
+     * @param anagramService a {@link com.anagram.AnagramServiceFactory.Mode#LOCAL} service
+     * @return the {@link com.anagram.ProgressiveAnagramService} behind the {@link com.anagram.CachingAnagramService}
+     * decorator of the service, null if it was not created progressively.
+     */
+    public static ProgressiveAnagramService getProgressive(AnagramServiceMBean anagramService) {
+        if (anagramService instanceof CachingAnagramService) {
+            anagramService = ((CachingAnagramService) anagramService).getAnagramService();
+        }
+        return (anagramService instanceof ProgressiveAnagramService) ? (ProgressiveAnagramService) anagramService : null;
+    }
+
+    /**
+     * Writes snapshots of a {@link com.anagram.AnagramServiceFactory.Engine#STRIPED} service to the snapshot file, if one
+     * is set, in the background every snapshot interval and whenever requested.
+     *
+     * @param anagramService the service to save, possibly behind a {@link com.anagram.CachingAnagramService}
+     * @return the snapshotter or null if no snapshot file is set or the service is not an {@link com.anagram.AnagramService}.
+     */
+    public AnagramServiceSnapshotter createSnapshotter(AnagramServiceMBean anagramService) {
+        anagramService = getEngine(anagramService);
+        if ((snapshotFileName == null) || !(anagramService instanceof AnagramService)) {
+            return null;
+        }
+        return new AnagramServiceSnapshotter((AnagramService) anagramService, snapshotFileName, snapshotIntervalMillis);
+    }
+
+    /**
+     * Loads the dictionary file into a {@link com.anagram.AnagramService.Builder} configured like
+     * {@link com.anagram.AnagramServiceFactory.Engine#STRIPED} services, so the service is built without per-word locking.
+     * If the snapshot file exists it is restored instead of the dictionary, falling back to the dictionary if the
+     * snapshot is invalid.
+     *
+     * @return a builder holding every word of the dictionary or snapshot.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public AnagramService.Builder createAnagramServiceBuilder() throws FileNotFoundException {
+        final AnagramService.Builder builder = newAnagramServiceBuilder();
+        if ((snapshotFileName != null) && new File(snapshotFileName).isFile()) {
+            try {
+                builder.restore(snapshotFileName);
+                System.out.println("Restored snapshot " + snapshotFileName);
+                return builder;
+            } catch (IOException e) {
+                System.out.println("Loading " + dictionaryFileName + " instead of snapshot " + snapshotFileName + ": " + e);
+            }
+        }
+        AnagramServiceMBeanMappedFileLoader.processFile(builder::addWords, dictionaryFileName);
+        return builder;
+    }
+
+    private AnagramService.Builder newAnagramServiceBuilder() {
+        final AnagramService.Builder builder = new AnagramService.Builder()
+                .stripes(stripesCount, stripesLock)
+                .filter(filterExpectedGroups)
+                .interner(interner);
+        if (stripesMax > 0) {
+            builder.adaptive(Math.max(stripesMax, stripesCount), stripesResizeIntervalMillis);
+        }
+        return builder;
+    }
+
+    /**
+     * Loads the dictionary file into a new read-only {@link com.anagram.FrozenAnagramService}.
+     * Use it to refresh a {@link com.anagram.SwappableAnagramService} created in {@link com.anagram.AnagramServiceFactory.Engine#FROZEN} mode:
+     * <pre>
+     *     swappableAnagramService.publish(anagramServiceFactory.createFrozenAnagramService());
+     * </pre>
+     *
+     * @return a fully built read-only service.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public FrozenAnagramService createFrozenAnagramService() throws FileNotFoundException {
+        return createFrozenAnagramService(dictionaryFileName);
+    }
+
+    private static FrozenAnagramService createFrozenAnagramService(String dictionaryFileName) throws FileNotFoundException {
+        final FrozenAnagramService.Builder builder = new FrozenAnagramService.Builder();
+        AnagramServiceMBeanFileLoader.processFile(builder::addWord, dictionaryFileName);
+        return builder.build();
+    }
+
+    /**
+     * Maps the index file into a new read-only {@link com.anagram.MappedAnagramService}, or loads the dictionary file
+     * into a {@link com.anagram.FrozenAnagramService} if the index cannot be used.
+     * Use it to refresh a {@link com.anagram.SwappableAnagramService} created in {@link com.anagram.AnagramServiceFactory.Engine#MAPPED}
+     * mode after rewriting the index with {@link com.anagram.AnagramIndexWriter}.
+     *
+     * @return a read-only service.
+     * @throws FileNotFoundException If the index cannot be used and the dictionary file is not found in the filesystem or classpath.
+     */
+    public AnagramServiceMBean createMappedAnagramService() throws FileNotFoundException {
+        return createMappedAnagramService(getIndexFileName(), dictionaryFileName);
+    }
+
+    private static AnagramServiceMBean createMappedAnagramService(String indexFileName, String dictionaryFileName) throws FileNotFoundException {
+        try {
+            final MappedAnagramService anagramService = MappedAnagramService.open(indexFileName, dictionaryFileName);
+            System.out.println("Mapped " + anagramService.getWordCount() + " words from " + indexFileName);
+            return anagramService;
+        } catch (IOException e) {
+            System.out.println("Loading " + dictionaryFileName + " instead of index " + indexFileName + ": " + e);
+            return createFrozenAnagramService(dictionaryFileName);
+        }
+    }
+
 }
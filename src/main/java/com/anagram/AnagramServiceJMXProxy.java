@@ -8,6 +8,7 @@ import javax.management.remote.JMXConnector;
 import javax.management.remote.JMXConnectorFactory;
 import javax.management.remote.JMXServiceURL;
 import java.io.IOException;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -66,6 +67,54 @@ public class AnagramServiceJMXProxy implements AnagramServiceMBean {
         return anagramService.getAnagrams(word);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        return anagramService.addWords(words);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        return anagramService.deleteWords(words);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        return anagramService.getAllAnagrams(words);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return anagramService.getSubAnagrams(letters);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return anagramService.getWildcardAnagrams(pattern);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return anagramService.getPhraseAnagrams(phrase);
+    }
+
     @Override
     public void close() {
 
@@ -0,0 +1,32 @@
+package com.anagram;
+
+/**
+ * Write-ahead log of a {@link com.anagram.DurableAnagramService}.
+ */
+public interface AnagramServiceLogMBean {
+
+    /**
+     * @return the log file.
+     */
+    String getLogFileName();
+
+    /**
+     * @return size of the log file in bytes, including records not yet committed.
+     */
+    long getLogSize();
+
+    /**
+     * @return number of lines replayed when the log was opened.
+     */
+    long getReplayedCount();
+
+    /**
+     * @return number of words appended since the log was opened.
+     */
+    long getRecordCount();
+
+    /**
+     * @return number of times the log was forced to disk, every commit makes the records of all waiting writers durable.
+     */
+    long getCommitCount();
+}
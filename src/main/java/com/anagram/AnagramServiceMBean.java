@@ -1,5 +1,6 @@
 package com.anagram;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -9,6 +10,11 @@ import java.util.Set;
  */
 public interface AnagramServiceMBean {
 
+    /**
+     * Wildcard character of {@link #getWildcardAnagrams(String)} which stands for any one letter.
+     */
+    char WILDCARD = '?';
+
     /**
      * Add a word into the service's dictionary.
      *
@@ -34,5 +40,62 @@ public interface AnagramServiceMBean {
      */
     Set<String> getAnagrams(String word);
 
+    /**
+     * Adds many words into the service's dictionary, amortizing the cost of locking over the whole batch.
+     *
+     * @param words words to add
+     * @return for every word, true if it was added. False if it already existed, including earlier in the batch.
+     */
+    boolean[] addWords(String[] words);
+
+    /**
+     * Deletes many words from the service's dictionary, amortizing the cost of locking over the whole batch.
+     *
+     * @param words words to delete
+     * @return for every word, true if it was deleted. False if it was not in the dictionary.
+     */
+    boolean[] deleteWords(String[] words);
+
+    /**
+     * Looks up the anagrams of many words, amortizing the cost of locking over the whole batch.
+     *
+     * @param words words to find anagrams for
+     * @return for every word, in the same order, the {@link java.util.Set} that {@link #getAnagrams(String)} returns.
+     */
+    List<Set<String>> getAllAnagrams(String[] words);
+
+    /**
+     * Returns a {@link java.util.Set} of all words in the service's dictionary which can be built from the specified
+     * letters, using every letter at most as many times as it appears. Letters are compared case-insensitively.
+     *
+     * @param letters the available letters in any order.
+     * @return a {@link java.util.Set} of words, including exact anagrams of the letters.
+     *         An empty {@link java.util.Set} is returned if no word can be built.
+     */
+    Set<String> getSubAnagrams(String letters);
+
+    /**
+     * Returns a {@link java.util.Set} of all words in the service's dictionary which are anagrams of the specified
+     * pattern, where every {@link #WILDCARD} in the pattern stands for any one letter (like a blank tile).
+     * Letters are compared case-insensitively.
+     *
+     * @param pattern known letters and wildcards in any order, eg. "te?t".
+     * @return a {@link java.util.Set} of words as long as the pattern which contain all its known letters.
+     *         An empty {@link java.util.Set} is returned if there are not any matching words.
+     */
+    Set<String> getWildcardAnagrams(String pattern);
+
+    /**
+     * Returns a {@link java.util.Set} of phrases made of words in the service's dictionary which together use exactly
+     * the letters of the specified phrase. Whitespace is ignored and letters are compared case-insensitively.
+     * The search is capped in number of results, number of words per phrase and time (see
+     * {@link com.anagram.PhraseAnagramSolver}), so the result may be partial.
+     *
+     * @param phrase The phrase to find anagrams for.
+     * @return a {@link java.util.Set} of phrases with words separated by a space, without the phrase itself.
+     *         An empty {@link java.util.Set} is returned if there are not any phrase anagrams.
+     */
+    Set<String> getPhraseAnagrams(String phrase);
+
     void close();
 }
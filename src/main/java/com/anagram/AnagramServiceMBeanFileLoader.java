@@ -3,6 +3,7 @@ package com.anagram;
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
@@ -11,9 +12,13 @@ import java.nio.file.Path;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * Created by rmanaloto on 8/13/14.
+ *
+ * Files ending with {@link com.anagram.AnagramServiceMBeanGzipFileLoader#GZIP_SUFFIX} are decompressed while they are
+ * loaded, see {@link com.anagram.AnagramServiceMBeanGzipFileLoader}.
  */
 public abstract class AnagramServiceMBeanFileLoader {
 
@@ -48,7 +53,66 @@ public abstract class AnagramServiceMBeanFileLoader {
      */
     public static int processFile(AnagramServiceMBean anagramService, String filename, Locale locale, String charset) throws FileNotFoundException {
         Objects.nonNull(anagramService);
+        return processFile(anagramService::addWord, anagramService.getClass().getClassLoader(), filename, locale, charset);
+    }
+
+    /**
+     * Processes a dictionary file with specified filename and passes all words to the wordConsumer.
+     * Assumes file specifies a word for each line and will trim it to be safe.
+     *
+     * Uses DEFAULT_LOCALE and DEFAULT_CHARSET
+     *
+     * @param wordConsumer receives every trimmed, non-empty word, eg. {@link com.anagram.FrozenAnagramService.Builder#addWord(String)}
+     * @param filename The file name to process
+     * @return number of words processed.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public static int processFile(Consumer<String> wordConsumer, String filename) throws FileNotFoundException {
+        return processFile(wordConsumer, AnagramServiceMBeanFileLoader.class.getClassLoader(), filename, DEFAULT_LOCALE, DEFAULT_CHARSET);
+    }
+
+    /**
+     * Follows a dictionary or changelog file on a background thread and applies every line appended from now on to the
+     * {@link com.anagram.AnagramServiceMBean}, see {@link com.anagram.AnagramServiceMBeanFileTailer} for the line format.
+     *
+     * @param anagramService The {@link com.anagram.AnagramServiceMBean} to apply appended lines to
+     * @param filename The file name to follow in the filesystem
+     * @return the started tailer, close it to stop following the file.
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    public static AnagramServiceMBeanFileTailer tailFile(AnagramServiceMBean anagramService, String filename) throws IOException {
+        final File localFile = FileSystems.getDefault().getPath(filename).toFile();
+        return tailFile(anagramService, filename, localFile.length());
+    }
+
+    /**
+     * Follows a dictionary or changelog file on a background thread and applies every line from position on to the
+     * {@link com.anagram.AnagramServiceMBean}, see {@link com.anagram.AnagramServiceMBeanFileTailer} for the line format.
+     *
+     * @param anagramService The {@link com.anagram.AnagramServiceMBean} to apply appended lines to
+     * @param filename The file name to follow in the filesystem
+     * @param position offset of the first line to apply, 0 applies the whole file.
+     * @return the started tailer, close it to stop following the file.
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    public static AnagramServiceMBeanFileTailer tailFile(AnagramServiceMBean anagramService, String filename, long position) throws IOException {
+        return new AnagramServiceMBeanFileTailer(anagramService, filename, position,
+                AnagramServiceMBeanMappedFileLoader.DEFAULT_BATCH_SIZE, AnagramServiceMBeanFileTailer.DEFAULT_POLL_INTERVAL_MILLIS).start();
+    }
+
+    static int processFile(Consumer<String> wordConsumer, ClassLoader classLoader, String filename, Locale locale, String charset) throws FileNotFoundException {
+        Objects.nonNull(wordConsumer);
         Objects.nonNull(filename);
+        if (AnagramServiceMBeanGzipFileLoader.isGzipFile(filename)) {
+            //a single add thread keeps the words in order for consumers that are not thread-safe
+            return new AnagramServiceMBeanGzipFileLoader(charset, AnagramServiceMBeanGzipFileLoader.DEFAULT_BLOCK_SIZE,
+                    AnagramServiceMBeanMappedFileLoader.DEFAULT_BATCH_SIZE, AnagramServiceMBeanGzipFileLoader.DEFAULT_QUEUE_CAPACITY, 1)
+                    .loadAndReport(words -> {
+                        for (String word : words) {
+                            wordConsumer.accept(word);
+                        }
+                    }, filename);
+        }
         final FileSystem fileSystem = FileSystems.getDefault();
         final Path path = fileSystem.getPath(filename);
         final File localFile = path.toFile();
@@ -56,7 +120,10 @@ public abstract class AnagramServiceMBeanFileLoader {
         if (localFile.exists()) {
             scanner = new Scanner(localFile, charset);
         } else {
-            final InputStream localInputStream = anagramService.getClass().getClassLoader().getResourceAsStream(filename);
+            final InputStream localInputStream = classLoader.getResourceAsStream(filename);
+            if (localInputStream == null) {
+                throw new FileNotFoundException(filename);
+            }
             scanner = new Scanner(new BufferedInputStream(localInputStream), charset);
         }
         scanner.useLocale(locale);
@@ -66,7 +133,7 @@ public abstract class AnagramServiceMBeanFileLoader {
         while (scanner.hasNext()) {
             String word = scanner.nextLine();
             if ( (word != null) && ((trimmedWord = word.trim()).length() > 0)) {
-                anagramService.addWord(trimmedWord);
+                wordConsumer.accept(trimmedWord);
                 count++;
             }
         }
@@ -0,0 +1,333 @@
+package com.anagram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Follows a UTF-8 dictionary or changelog file as it grows and applies every appended line to a running
+ * {@link com.anagram.AnagramServiceMBean}:
+ * <ul>
+ *     <li>"+word" adds the word.</li>
+ *     <li>"-word" deletes the word.</li>
+ *     <li>any other line adds the whole line, so a plain dictionary can be followed too.
+ *     Words starting with '+' or '-' must be written with a prefix, eg. "+-ism".</li>
+ * </ul>
+ * Lines are trimmed and empty lines are skipped like {@link com.anagram.AnagramServiceMBeanFileLoader}.
+ *
+ * New bytes are read with positional reads from the end of the last complete line, so a line still being written is
+ * only applied once its newline is there. Consecutive lines of the same kind are applied in batches of up to batchSize
+ * words through {@link com.anagram.AnagramServiceMBean#addWords(String[])} and
+ * {@link com.anagram.AnagramServiceMBean#deleteWords(String[])}, so an appended block costs a few calls rather than one
+ * per word. If the file shrinks it is read again from the start.
+ * Lines read together are all applied before the position moves past them, so if the service fails, eg. it is
+ * read-only or cannot log the change, they are read and applied again by the next poll.
+ *
+ * {@link #start()} follows the file on a daemon thread woken by a {@link java.nio.file.WatchService} on the file's
+ * directory, and at least every pollIntervalMillis for filesystems without change notifications.
+ * {@link #poll()} catches up synchronously.
+ */
+public class AnagramServiceMBeanFileTailer implements AnagramServiceTailerMBean, Closeable {
+
+    private static final Logger log = Logger.getLogger(AnagramServiceMBeanFileTailer.class.getName());
+
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+
+    private static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+
+    private final AnagramServiceMBean anagramService;
+    private final Path path;
+    private final String[] batch;
+    private final long pollIntervalMillis;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+    private int batched;
+    //true if the batch holds words to delete
+    private boolean batchDeletes;
+
+    private volatile long position;
+    private volatile long lineCount;
+    private volatile long addedCount;
+    private volatile long deletedCount;
+    private volatile long batchCount;
+    private volatile int resetCount;
+    private volatile long failureCount;
+
+    private volatile boolean closed;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * @param anagramService the {@link com.anagram.AnagramServiceMBean} to apply appended lines to
+     * @param filename the file to follow, it does not need to exist yet.
+     * @param position offset of the first line to apply, eg. the file size to only apply lines appended from now on.
+     * @param batchSize maximum number of words per {@link com.anagram.AnagramServiceMBean#addWords(String[])} or
+     *                  {@link com.anagram.AnagramServiceMBean#deleteWords(String[])} call.
+     * @param pollIntervalMillis maximum time between two checks of the file.
+     */
+    public AnagramServiceMBeanFileTailer(AnagramServiceMBean anagramService, String filename, long position,
+                                         int batchSize, long pollIntervalMillis) {
+        this.anagramService = Objects.requireNonNull(anagramService);
+        this.path = FileSystems.getDefault().getPath(Objects.requireNonNull(filename)).toAbsolutePath();
+        if (position < 0) {
+            throw new IllegalArgumentException("Invalid position " + position);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        }
+        if (pollIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Invalid poll interval " + pollIntervalMillis);
+        }
+        this.position = position;
+        this.batch = new String[batchSize];
+        this.pollIntervalMillis = pollIntervalMillis;
+    }
+
+    /**
+     * Starts following the file on a daemon thread until {@link #close()}.
+     *
+     * @return this tailer
+     * @throws IOException if the file's directory cannot be watched.
+     */
+    public synchronized AnagramServiceMBeanFileTailer start() throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("Tailer already started");
+        }
+        watchService = path.getFileSystem().newWatchService();
+        path.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::follow, "anagram-file-tailer");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    private void follow() {
+        log.info("Following " + path + " from position " + position);
+        try {
+            while (!closed) {
+                try {
+                    poll();
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to read " + path, e);
+                } catch (RuntimeException e) {
+                    log.log(Level.WARNING, "Failed to apply " + path + " from position " + position, e);
+                }
+                final WatchKey key = watchService.poll(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    //any event only wakes the thread up, poll() finds out what changed
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            //closed
+        }
+    }
+
+    /**
+     * Applies every complete line appended since the last call.
+     *
+     * @return number of non-empty lines applied.
+     * @throws IOException if the file exists but cannot be read.
+     * @throws RuntimeException if the service failed to apply the lines, they are applied again by the next call.
+     */
+    public synchronized int poll() throws IOException {
+        try {
+            return readLines();
+        } catch (IOException | RuntimeException e) {
+            failureCount++;
+            //the words of a failed batch are read again from the file
+            batched = 0;
+            throw e;
+        }
+    }
+
+    private int readLines() throws IOException {
+        final FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        int lines = 0;
+        try {
+            long size = channel.size();
+            if (size < position) {
+                log.info("Reading " + path + " from the start, it shrank from " + position + " to " + size + " bytes");
+                position = 0;
+                resetCount++;
+            }
+            while (position < size) {
+                readBuffer.clear();
+                final int read = channel.read(readBuffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                final int end = lastLineEnd(readBuffer.array(), read);
+                if (end < 0) {
+                    if (read < readBuffer.capacity()) {
+                        //the last line is still being written
+                        break;
+                    }
+                    readBuffer = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                    continue;
+                }
+                final int applied = applyLines(readBuffer.array(), end);
+                flush();
+                position += end;
+                lineCount += applied;
+                lines += applied;
+                size = Math.max(size, channel.size());
+            }
+        } finally {
+            channel.close();
+        }
+        return lines;
+    }
+
+    /**
+     * @return length of the complete lines in bytes, or -1 if there is no newline.
+     */
+    private static int lastLineEnd(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private int applyLines(byte[] bytes, int end) {
+        int lines = 0;
+        int lineStart = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] == '\n') {
+                if (applyLine(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8).trim())) {
+                    lines++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        return lines;
+    }
+
+    private boolean applyLine(String line) {
+        if (line.isEmpty()) {
+            return false;
+        }
+        final char operation = line.charAt(0);
+        final String word = ((operation == '+') || (operation == '-')) ? line.substring(1).trim() : line;
+        if (word.isEmpty()) {
+            return false;
+        }
+        final boolean delete = (operation == '-');
+        if ((batched > 0) && (delete != batchDeletes)) {
+            //keep the order of adds and deletes of the same word
+            flush();
+        }
+        batchDeletes = delete;
+        batch[batched++] = word;
+        if (batched == batch.length) {
+            flush();
+        }
+        return true;
+    }
+
+    private void flush() {
+        if (batched == 0) {
+            return;
+        }
+        final String[] words = (batched == batch.length) ? batch : Arrays.copyOf(batch, batched);
+        final boolean[] results = batchDeletes ? anagramService.deleteWords(words) : anagramService.addWords(words);
+        batched = 0;
+        batchCount++;
+        int applied = 0;
+        for (boolean result : results) {
+            if (result) {
+                applied++;
+            }
+        }
+        if (batchDeletes) {
+            deletedCount += applied;
+        } else {
+            addedCount += applied;
+        }
+    }
+
+    @Override
+    public String getFileName() {
+        return path.toString();
+    }
+
+    @Override
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    @Override
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    @Override
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    @Override
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    @Override
+    public int getResetCount() {
+        return resetCount;
+    }
+
+    @Override
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Stops following the file and waits for the lines being applied.
+     */
+    @Override
+    public void close() throws IOException {
+        final Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = this.thread;
+            if (watchService != null) {
+                watchService.close();
+            }
+        }
+        if ((thread != null) && (thread != Thread.currentThread())) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.anagram;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.FileSystems;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads a gzip-compressed dictionary file through a pipeline of stages running on their own threads, connected by
+ * bounded queues so a fast stage waits for a slow one instead of buffering the whole dictionary:
+ * <ol>
+ *     <li>gunzip: inflates the file into blocks of bytes.</li>
+ *     <li>split: decodes the blocks and splits them into trimmed, non-empty lines, collected into batches.</li>
+ *     <li>add: passes every batch to the batch consumer, eg. {@link com.anagram.AnagramServiceMBean#addWords(String[])}
+ *     which computes the signatures and adds the words, on addThreads threads.</li>
+ * </ol>
+ * Lines are split exactly like {@link com.anagram.AnagramServiceMBeanFileLoader} and the same count is returned.
+ * With a single add thread batches are passed on in the order of the file.
+ *
+ * Every stage counts its output and the time it spent working and waiting on its queues, see {@link #getStages()};
+ * a stage that rarely waits is the one limiting the load.
+ */
+public class AnagramServiceMBeanGzipFileLoader {
+
+    public static final String GZIP_SUFFIX = ".gz";
+    public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private static final long QUEUE_TIMEOUT_MILLIS = 100;
+    private static final int MAX_BYTES_PER_CHAR = 8;
+    private static final byte[] END_OF_BLOCKS = new byte[0];
+    private static final String[] END_OF_BATCHES = new String[0];
+
+    /**
+     * Output and timing of one pipeline stage.
+     */
+    public static final class Stage {
+        private final String name;
+        private final String unit;
+        private final int threads;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder elapsedNanos = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+
+        private Stage(String name, String unit, int threads) {
+            this.name = name;
+            this.unit = unit;
+            this.threads = threads;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return unit of {@link #getCount()}, eg. "bytes" or "words".
+         */
+        public String getUnit() {
+            return unit;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        /**
+         * @return units produced by the stage.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @return time the stage's threads spent working rather than waiting, summed over its threads.
+         */
+        public long getBusyNanos() {
+            return elapsedNanos.sum() - waitNanos.sum();
+        }
+
+        /**
+         * @return time the stage's threads spent waiting for input or for room in the next queue.
+         */
+        public long getWaitNanos() {
+            return waitNanos.sum();
+        }
+
+        /**
+         * @return units per second a single thread of the stage produces while it is busy.
+         */
+        public double getThroughput() {
+            final long busy = getBusyNanos();
+            return (busy == 0) ? 0 : (getCount() * 1e9) / busy;
+        }
+
+        @Override
+        public String toString() {
+            final long busy = getBusyNanos();
+            final long total = busy + getWaitNanos();
+            return String.format("%s: %d %s on %d thread(s), %.0f %s/s per busy thread, %.0f%% waiting",
+                    name, getCount(), unit, threads, getThroughput(), unit, (total == 0) ? 0.0 : (100.0 * (total - busy)) / total);
+        }
+    }
+
+    private final Charset charset;
+    private final int blockSize;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final int addThreads;
+    private final Stage gunzip;
+    private final Stage split;
+    private final Stage add;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public AnagramServiceMBeanGzipFileLoader() {
+        this(AnagramServiceMBeanFileLoader.DEFAULT_CHARSET, DEFAULT_BLOCK_SIZE, AnagramServiceMBeanMappedFileLoader.DEFAULT_BATCH_SIZE,
+                DEFAULT_QUEUE_CAPACITY, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param charset the {@link java.nio.charset.Charset} of the uncompressed dictionary.
+     * @param blockSize number of uncompressed bytes passed from gunzip to split at a time.
+     * @param batchSize maximum number of words passed from split to add at a time.
+     * @param queueCapacity number of blocks or batches every queue holds before its producer waits.
+     * @param addThreads number of threads passing batches to the batch consumer, 1 keeps the order of the file.
+     */
+    public AnagramServiceMBeanGzipFileLoader(String charset, int blockSize, int batchSize, int queueCapacity, int addThreads) {
+        this.charset = Charset.forName(charset);
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size " + blockSize);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid queue capacity " + queueCapacity);
+        }
+        if (addThreads <= 0) {
+            throw new IllegalArgumentException("Invalid add threads " + addThreads);
+        }
+        this.blockSize = blockSize;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+        this.addThreads = addThreads;
+        this.gunzip = new Stage("gunzip", "bytes", 1);
+        this.split = new Stage("split", "words", 1);
+        this.add = new Stage("add", "words", addThreads);
+    }
+
+    /**
+     * @return true if the file is loaded by this loader.
+     */
+    public static boolean isGzipFile(String filename) {
+        return filename.endsWith(GZIP_SUFFIX);
+    }
+
+    /**
+     * Processes a gzip-compressed dictionary file with specified filename and adds all words into the
+     * {@link com.anagram.AnagramServiceMBean}, with as many add threads as processors.
+     *
+     * @param anagramService The {@link com.anagram.AnagramServiceMBean} to add words to from dictionary file
+     * @param filename The file name to process
+     * @return number of words processed and added.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public static int processFile(AnagramServiceMBean anagramService, String filename) throws FileNotFoundException {
+        Objects.requireNonNull(anagramService);
+        return processFile(anagramService::addWords, filename);
+    }
+
+    /**
+     * Processes a gzip-compressed dictionary file with specified filename and passes all words to the batchConsumer
+     * in batches, with as many add threads as processors.
+     *
+     * @param batchConsumer receives every trimmed, non-empty word in batches, from many threads at once.
+     * @param filename The file name to process
+     * @return number of words processed.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public static int processFile(Consumer<String[]> batchConsumer, String filename) throws FileNotFoundException {
+        return new AnagramServiceMBeanGzipFileLoader().loadAndReport(batchConsumer, filename);
+    }
+
+    /**
+     * {@link #load(Consumer, String)} and print the count and the statistics of every stage.
+     */
+    int loadAndReport(Consumer<String[]> batchConsumer, String filename) throws FileNotFoundException {
+        final int count = load(batchConsumer, filename);
+        System.out.println("Added " + count + " words");
+        getStages().forEach(System.out::println);
+        return count;
+    }
+
+    /**
+     * @return the gunzip, split and add stages.
+     */
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(Arrays.asList(gunzip, split, add));
+    }
+
+    /**
+     * Runs the pipeline once, an instance cannot be reused.
+     *
+     * @param batchConsumer receives every trimmed, non-empty word in batches. Batch arrays are not reused.
+     * @param filename The file name to process in the filesystem or classpath.
+     * @return number of words processed.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public int load(Consumer<String[]> batchConsumer, String filename) throws FileNotFoundException {
+        Objects.requireNonNull(batchConsumer);
+        final InputStream inputStream = open(filename);
+        final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<>(queueCapacity);
+        final BlockingQueue<String[]> batches = new ArrayBlockingQueue<>(queueCapacity);
+        final List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> runStage(gunzip, () -> gunzip(inputStream, blocks)), "anagram-gunzip"));
+        threads.add(new Thread(() -> runStage(split, () -> split(blocks, batches)), "anagram-split"));
+        for (int i = 0; i < addThreads; i++) {
+            threads.add(new Thread(() -> runStage(add, () -> add(batches, batchConsumer)), "anagram-add-" + i));
+        }
+        threads.forEach(Thread::start);
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+            threads.forEach(Thread::interrupt);
+        }
+        final Throwable cause = failure.get();
+        if (cause instanceof IOException) {
+            throw new UncheckedIOException((IOException) cause);
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause != null) {
+            throw new IllegalStateException(cause);
+        }
+        return (int) add.getCount();
+    }
+
+    private InputStream open(String filename) throws FileNotFoundException {
+        final File localFile = FileSystems.getDefault().getPath(Objects.requireNonNull(filename)).toFile();
+        final InputStream inputStream = localFile.exists() ? new FileInputStream(localFile)
+                : AnagramServiceMBeanGzipFileLoader.class.getClassLoader().getResourceAsStream(filename);
+        if (inputStream == null) {
+            throw new FileNotFoundException(filename);
+        }
+        return new BufferedInputStream(inputStream);
+    }
+
+    private interface StageTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * Runs a thread of a stage until it is done or any stage failed.
+     */
+    private void runStage(Stage stage, StageTask task) {
+        final long start = System.nanoTime();
+        try {
+            task.run();
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            stage.elapsedNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private void gunzip(InputStream inputStream, BlockingQueue<byte[]> blocks) throws IOException, InterruptedException {
+        try (InputStream gzipInputStream = new GZIPInputStream(inputStream, blockSize)) {
+            while (true) {
+                final byte[] block = new byte[blockSize];
+                int length = 0;
+                int read;
+                while ((length < block.length) && ((read = gzipInputStream.read(block, length, block.length - length)) > 0)) {
+                    length += read;
+                }
+                if (length == 0) {
+                    break;
+                }
+                gunzip.count.add(length);
+                if (!put(gunzip, blocks, (length == block.length) ? block : Arrays.copyOf(block, length))) {
+                    return;
+                }
+            }
+        } finally {
+            put(gunzip, blocks, END_OF_BLOCKS);
+        }
+    }
+
+    private void split(BlockingQueue<byte[]> blocks, BlockingQueue<String[]> batches) throws InterruptedException {
+        final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        //room for the bytes of a character split between blocks
+        final ByteBuffer bytes = ByteBuffer.allocate(blockSize + MAX_BYTES_PER_CHAR);
+        //room for every character of the bytes, so they are always all decoded
+        final CharBuffer chars = CharBuffer.allocate((int) Math.ceil(bytes.capacity() * decoder.maxCharsPerByte()));
+        final Splitter splitter = new Splitter(batches);
+        try {
+            byte[] block;
+            while ((block = take(split, blocks)) != null) {
+                final boolean endOfInput = (block == END_OF_BLOCKS);
+                bytes.put(block);
+                bytes.flip();
+                decoder.decode(bytes, chars, endOfInput);
+                if (endOfInput) {
+                    decoder.flush(chars);
+                }
+                bytes.compact();
+                chars.flip();
+                if (!splitter.split(chars, endOfInput) || endOfInput) {
+                    return;
+                }
+                chars.clear();
+            }
+        } finally {
+            for (int i = 0; i < addThreads; i++) {
+                put(split, batches, END_OF_BATCHES);
+            }
+        }
+    }
+
+    /**
+     * Splits decoded characters into trimmed, non-empty lines and queues them in batches.
+     */
+    private final class Splitter {
+        private final BlockingQueue<String[]> batches;
+        //start of a line continued in the next block
+        private final StringBuilder line = new StringBuilder();
+        private String[] batch = new String[batchSize];
+        private int batched;
+
+        private Splitter(BlockingQueue<String[]> batches) {
+            this.batches = batches;
+        }
+
+        /**
+         * @return false if a batch was not queued because another stage failed.
+         */
+        private boolean split(CharBuffer chars, boolean endOfInput) throws InterruptedException {
+            final char[] array = chars.array();
+            int lineStart = 0;
+            for (int i = 0; i < chars.limit(); i++) {
+                if (AnagramServiceMBeanMappedFileLoader.isLineSeparator(array[i])) {
+                    final String word;
+                    if (line.length() == 0) {
+                        word = new String(array, lineStart, i - lineStart).trim();
+                    } else {
+                        word = line.append(array, lineStart, i - lineStart).toString().trim();
+                        line.setLength(0);
+                    }
+                    lineStart = i + 1;
+                    if (!word.isEmpty() && !add(word)) {
+                        return false;
+                    }
+                }
+            }
+            line.append(array, lineStart, chars.limit() - lineStart);
+            if (endOfInput) {
+                //the last line does not need a separator
+                final String word = line.toString().trim();
+                if (!word.isEmpty()) {
+                    batch[batched++] = word;
+                }
+                return (batched == 0) || queue(Arrays.copyOf(batch, batched));
+            }
+            return true;
+        }
+
+        private boolean add(String word) throws InterruptedException {
+            batch[batched++] = word;
+            if (batched < batch.length) {
+                return true;
+            }
+            final String[] full = batch;
+            batch = new String[batchSize];
+            return queue(full);
+        }
+
+        private boolean queue(String[] words) throws InterruptedException {
+            split.count.add(words.length);
+            batched = 0;
+            return put(split, batches, words);
+        }
+    }
+
+    private void add(BlockingQueue<String[]> batches, Consumer<String[]> batchConsumer) throws InterruptedException {
+        String[] batch;
+        while (((batch = take(add, batches)) != null) && (batch != END_OF_BATCHES)) {
+            batchConsumer.accept(batch);
+            add.count.add(batch.length);
+        }
+    }
+
+    /**
+     * @return false if the element was not queued because another stage failed.
+     */
+    private <T> boolean put(Stage stage, BlockingQueue<T> queue, T element) throws InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            while (!queue.offer(element, QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            stage.waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the next element or null if another stage failed.
+     */
+    private <T> T take(Stage stage, BlockingQueue<T> queue) throws InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            T element;
+            while ((element = queue.poll(QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (failure.get() != null) {
+                    return null;
+                }
+            }
+            return element;
+        } finally {
+            stage.waitNanos.add(System.nanoTime() - start);
+        }
+    }
+}
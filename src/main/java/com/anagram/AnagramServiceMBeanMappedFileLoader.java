@@ -0,0 +1,261 @@
+package com.anagram;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Loads a dictionary file into a {@link com.anagram.AnagramServiceMBean} in parallel.
+ *
+ * The file is memory-mapped and split into chunks that end at a newline, so no line spans two chunks.
+ * Chunks are decoded on the {@link java.util.concurrent.ForkJoinPool#commonPool()} and their words are added in
+ * batches through {@link com.anagram.AnagramServiceMBean#addWords(String[])}, which computes the signatures on the
+ * loading thread and locks every stripe once per batch.
+ *
+ * Lines are trimmed and empty lines are skipped exactly like {@link com.anagram.AnagramServiceMBeanFileLoader},
+ * and the same count is returned. Files that are not on the local filesystem (eg. classpath resources) or charsets in
+ * which a newline byte may be part of another character are loaded by {@link com.anagram.AnagramServiceMBeanFileLoader}.
+ * Gzip-compressed files are loaded by {@link com.anagram.AnagramServiceMBeanGzipFileLoader}.
+ */
+public abstract class AnagramServiceMBeanMappedFileLoader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int BOUNDARY_BUFFER_SIZE = 8192;
+
+    /**
+     * Processes a dictionary file with specified filename and adds all words into the {@link com.anagram.AnagramServiceMBean}.
+     *
+     * Uses DEFAULT_CHARSET, DEFAULT_CHUNK_SIZE and DEFAULT_BATCH_SIZE
+     *
+     * @param anagramService The {@link com.anagram.AnagramServiceMBean} to add words to from dictionary file
+     * @param filename The file name to process
+     * @return number of words processed and added.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public static int processFile(AnagramServiceMBean anagramService, String filename) throws FileNotFoundException {
+        return processFile(anagramService, filename, AnagramServiceMBeanFileLoader.DEFAULT_CHARSET, DEFAULT_CHUNK_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Processes a dictionary file with specified filename and adds all words into the {@link com.anagram.AnagramServiceMBean}.
+     *
+     * @param anagramService The {@link com.anagram.AnagramServiceMBean} to add words to from dictionary file
+     * @param filename The file name to process
+     * @param charset the {@link java.nio.charset.Charset} for the dictionary file.
+     * @param chunkSize number of bytes decoded by one task, extended to the end of its last line.
+     * @param batchSize number of words added per {@link com.anagram.AnagramServiceMBean#addWords(String[])} call.
+     * @return number of words processed and added.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public static int processFile(AnagramServiceMBean anagramService, String filename, String charset,
+                                  int chunkSize, int batchSize) throws FileNotFoundException {
+        Objects.requireNonNull(anagramService);
+        return processFile(anagramService::addWords, filename, charset, chunkSize, batchSize);
+    }
+
+    /**
+     * Processes a dictionary file with specified filename and passes all words to the batchConsumer in batches.
+     *
+     * Uses DEFAULT_CHARSET, DEFAULT_CHUNK_SIZE and DEFAULT_BATCH_SIZE
+     *
+     * @param batchConsumer receives every trimmed, non-empty word in batches, from many threads at once and in no
+     *                      particular order. Batch arrays are reused once the call returns.
+     *                      eg. {@link com.anagram.AnagramService.Builder#addWords(String[])}
+     * @param filename The file name to process
+     * @return number of words processed.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public static int processFile(Consumer<String[]> batchConsumer, String filename) throws FileNotFoundException {
+        return processFile(batchConsumer, filename, AnagramServiceMBeanFileLoader.DEFAULT_CHARSET, DEFAULT_CHUNK_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Processes a dictionary file with specified filename and passes all words to the batchConsumer in batches.
+     *
+     * @param batchConsumer receives every trimmed, non-empty word in batches, from many threads at once and in no
+     *                      particular order. Batch arrays are reused once the call returns.
+     * @param filename The file name to process
+     * @param charset the {@link java.nio.charset.Charset} for the dictionary file.
+     * @param chunkSize number of bytes decoded by one task, extended to the end of its last line.
+     * @param batchSize maximum number of words per batch.
+     * @return number of words processed.
+     * @throws FileNotFoundException If file is not found in the filesystem or classpath.
+     */
+    public static int processFile(Consumer<String[]> batchConsumer, String filename, String charset,
+                                  int chunkSize, int batchSize) throws FileNotFoundException {
+        Objects.requireNonNull(batchConsumer);
+        Objects.requireNonNull(filename);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        }
+        if (AnagramServiceMBeanGzipFileLoader.isGzipFile(filename)) {
+            return new AnagramServiceMBeanGzipFileLoader(charset, AnagramServiceMBeanGzipFileLoader.DEFAULT_BLOCK_SIZE, batchSize,
+                    AnagramServiceMBeanGzipFileLoader.DEFAULT_QUEUE_CAPACITY, Runtime.getRuntime().availableProcessors())
+                    .loadAndReport(batchConsumer, filename);
+        }
+        final Charset fileCharset = Charset.forName(charset);
+        final File localFile = FileSystems.getDefault().getPath(filename).toFile();
+        if (!localFile.isFile() || !isNewlineSafe(fileCharset)) {
+            final Batcher batcher = new Batcher(batchConsumer, batchSize);
+            final int count = AnagramServiceMBeanFileLoader.processFile(batcher, AnagramServiceMBeanMappedFileLoader.class.getClassLoader(),
+                    filename, AnagramServiceMBeanFileLoader.DEFAULT_LOCALE, charset);
+            batcher.flush();
+            return count;
+        }
+        try (FileChannel channel = FileChannel.open(localFile.toPath(), StandardOpenOption.READ)) {
+            final List<long[]> chunks = split(channel, chunkSize);
+            final int count = chunks.parallelStream()
+                    .mapToInt(chunk -> processChunk(batchConsumer, channel, chunk[0], chunk[1], fileCharset, batchSize))
+                    .sum();
+            System.out.println("Added " + count + " words");
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return true if a '\n' byte is always a newline, so a file can be split at any of them.
+     */
+    private static boolean isNewlineSafe(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @return [start, end) of every chunk, every chunk but the last ends right after a '\n'.
+     */
+    private static List<long[]> split(FileChannel channel, int chunkSize) throws IOException {
+        final long size = channel.size();
+        final List<long[]> chunks = new ArrayList<>((int) (size / chunkSize) + 1);
+        final ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_BUFFER_SIZE);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(start + chunkSize, size);
+            if (end < size) {
+                end = nextLineStart(channel, end - 1, buffer);
+            }
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return the position after the first '\n' at or after position, or the file size.
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        final long size = channel.size();
+        while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static int processChunk(Consumer<String[]> batchConsumer, FileChannel channel, long start, long end,
+                                    Charset charset, int batchSize) {
+        final CharBuffer chars;
+        try {
+            chars = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+        } catch (CharacterCodingException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final Batcher batcher = new Batcher(batchConsumer, batchSize);
+        int count = 0;
+        int lineStart = 0;
+        final int length = chars.length();
+        for (int i = 0; i <= length; i++) {
+            if ((i < length) && !isLineSeparator(chars.get(i))) {
+                continue;
+            }
+            //same as String.trim()
+            int wordStart = lineStart;
+            int wordEnd = i;
+            while ((wordStart < wordEnd) && (chars.get(wordStart) <= ' ')) {
+                wordStart++;
+            }
+            while ((wordEnd > wordStart) && (chars.get(wordEnd - 1) <= ' ')) {
+                wordEnd--;
+            }
+            if (wordEnd > wordStart) {
+                batcher.accept(chars.subSequence(wordStart, wordEnd).toString());
+                count++;
+            }
+            lineStart = i + 1;
+        }
+        batcher.flush();
+        return count;
+    }
+
+    /**
+     * Collects words into batches for a single thread.
+     */
+    private static final class Batcher implements Consumer<String> {
+        private final Consumer<String[]> batchConsumer;
+        private final String[] batch;
+        private int batched;
+
+        private Batcher(Consumer<String[]> batchConsumer, int batchSize) {
+            this.batchConsumer = batchConsumer;
+            this.batch = new String[batchSize];
+        }
+
+        @Override
+        public void accept(String word) {
+            batch[batched++] = word;
+            if (batched == batch.length) {
+                batchConsumer.accept(batch);
+                batched = 0;
+            }
+        }
+
+        private void flush() {
+            if (batched > 0) {
+                batchConsumer.accept(Arrays.copyOf(batch, batched));
+                batched = 0;
+            }
+        }
+    }
+
+    /**
+     * @return true for the line separators of {@link java.util.Scanner#nextLine()}.
+     */
+    static boolean isLineSeparator(char c) {
+        return (c == '\n') || (c == '\r') || (c == '\u2028') || (c == '\u2029') || (c == '\u0085');
+    }
+}
@@ -0,0 +1,32 @@
+package com.anagram;
+
+/**
+ * Loading progress of a {@link com.anagram.ProgressiveAnagramService}, eg. for a readiness probe.
+ */
+public interface AnagramServiceReadinessMBean {
+
+    /**
+     * @return LOADING, READY or FAILED.
+     */
+    String getState();
+
+    /**
+     * @return true once the whole dictionary is loaded, queries answered before are partial.
+     */
+    boolean isReady();
+
+    /**
+     * @return number of words loaded so far.
+     */
+    long getLoadedWordCount();
+
+    /**
+     * @return time spent loading so far, or the total load time once loading completed.
+     */
+    long getLoadMillis();
+
+    /**
+     * @return the error that stopped the load, null if none.
+     */
+    String getFailure();
+}
@@ -0,0 +1,37 @@
+package com.anagram;
+
+/**
+ * Snapshots of a live {@link com.anagram.AnagramService} written by a {@link com.anagram.AnagramServiceSnapshotter}.
+ */
+public interface AnagramServiceSnapshotMBean {
+
+    /**
+     * @return the snapshot file restored on startup.
+     */
+    String getSnapshotFileName();
+
+    /**
+     * Starts writing a snapshot in the background, unless one is already being written.
+     */
+    void snapshot();
+
+    /**
+     * @return number of snapshots written.
+     */
+    int getSnapshotCount();
+
+    /**
+     * @return number of words in the last snapshot written.
+     */
+    int getLastSnapshotWordCount();
+
+    /**
+     * @return time taken to write the last snapshot.
+     */
+    long getLastSnapshotMillis();
+
+    /**
+     * @return time the last snapshot was completed in milliseconds since the epoch, 0 if none was written.
+     */
+    long getLastSnapshotTime();
+}
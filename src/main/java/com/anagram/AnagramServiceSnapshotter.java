@@ -0,0 +1,123 @@
+package com.anagram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes snapshots of a live {@link com.anagram.AnagramService} with {@link com.anagram.AnagramService#writeSnapshot(String)}
+ * on a background thread, on request and optionally at a fixed interval, so updates survive a restart once the
+ * snapshot is restored with {@link com.anagram.AnagramService.Builder#restore(String)}.
+ *
+ * Snapshots are written one at a time, a request made while one is being written is dropped.
+ */
+public class AnagramServiceSnapshotter implements AnagramServiceSnapshotMBean, Closeable {
+
+    private static final Logger log = Logger.getLogger(AnagramServiceSnapshotter.class.getName());
+
+    private final AnagramService anagramService;
+    private final String snapshotFileName;
+    private final ScheduledExecutorService writer;
+    //true from a request until its snapshot is written
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    private volatile int snapshotCount;
+    private volatile int lastSnapshotWordCount;
+    private volatile long lastSnapshotMillis;
+    private volatile long lastSnapshotTime;
+
+    /**
+     * @param anagramService the service to save
+     * @param snapshotFileName the snapshot file to write or replace.
+     * @param intervalMillis interval between snapshots, 0 to only write requested snapshots.
+     */
+    public AnagramServiceSnapshotter(AnagramService anagramService, String snapshotFileName, long intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid snapshot interval " + intervalMillis);
+        }
+        this.anagramService = anagramService;
+        this.snapshotFileName = snapshotFileName;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "anagram-snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (intervalMillis > 0) {
+            writer.scheduleWithFixedDelay(this::snapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public String getSnapshotFileName() {
+        return snapshotFileName;
+    }
+
+    @Override
+    public void snapshot() {
+        if (pending.compareAndSet(false, true)) {
+            writer.execute(() -> {
+                try {
+                    writeSnapshot();
+                } catch (IOException | RuntimeException e) {
+                    log.log(Level.WARNING, "Failed to write snapshot " + snapshotFileName, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes a snapshot on the calling thread, eg. before shutting down.
+     *
+     * @return number of words written.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public synchronized int writeSnapshot() throws IOException {
+        pending.set(false);
+        final long start = System.currentTimeMillis();
+        final int wordCount = anagramService.writeSnapshot(snapshotFileName);
+        lastSnapshotTime = System.currentTimeMillis();
+        lastSnapshotMillis = lastSnapshotTime - start;
+        lastSnapshotWordCount = wordCount;
+        snapshotCount++;
+        log.info("Wrote snapshot of " + wordCount + " words in " + lastSnapshotMillis + " ms to " + snapshotFileName);
+        return wordCount;
+    }
+
+    @Override
+    public int getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    @Override
+    public int getLastSnapshotWordCount() {
+        return lastSnapshotWordCount;
+    }
+
+    @Override
+    public long getLastSnapshotMillis() {
+        return lastSnapshotMillis;
+    }
+
+    @Override
+    public long getLastSnapshotTime() {
+        return lastSnapshotTime;
+    }
+
+    /**
+     * Stops writing snapshots, a snapshot being written is completed.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.anagram;
+
+/**
+ * Stripe count and lock contention statistics of a {@link com.anagram.AnagramService}.
+ * Counts include the stripes that were replaced by a resize.
+ */
+public interface AnagramServiceStripesMBean {
+
+    /**
+     * @return current number of stripes.
+     */
+    int getStripeCount();
+
+    /**
+     * @return maximum number of stripes the service adapts to, the current number if it is not adaptive.
+     */
+    int getMaxStripes();
+
+    /**
+     * @return true if the number of stripes follows the measured contention.
+     */
+    boolean isAdaptive();
+
+    /**
+     * @return number of times the stripes were re-partitioned.
+     */
+    int getResizeCount();
+
+    /**
+     * @return number of stripe lock acquisitions, optimistic reads that did not need the lock are not counted.
+     */
+    long getLockCount();
+
+    /**
+     * @return number of stripe lock acquisitions that had to wait for another thread.
+     */
+    long getContendedLockCount();
+
+    /**
+     * @return total time spent waiting for stripe locks held by other threads.
+     */
+    long getLockWaitNanos();
+
+    /**
+     * @return time spent waiting for the lock of every current stripe.
+     */
+    long[] getStripeLockWaitNanos();
+
+    /**
+     * @return contended lock count / lock count, or 0 if no lock was taken.
+     */
+    double getContentionRatio();
+}
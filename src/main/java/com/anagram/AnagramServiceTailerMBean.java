@@ -0,0 +1,49 @@
+package com.anagram;
+
+/**
+ * Progress of a {@link com.anagram.AnagramServiceMBeanFileTailer} following a dictionary or changelog file.
+ */
+public interface AnagramServiceTailerMBean {
+
+    /**
+     * @return the followed file.
+     */
+    String getFileName();
+
+    /**
+     * @return offset in the file after the last applied line.
+     */
+    long getPosition();
+
+    /**
+     * @return number of non-empty lines applied.
+     */
+    long getLineCount();
+
+    /**
+     * @return number of words added by applied lines, words that already existed are not counted.
+     */
+    long getAddedCount();
+
+    /**
+     * @return number of words deleted by applied lines, words that did not exist are not counted.
+     */
+    long getDeletedCount();
+
+    /**
+     * @return number of {@link com.anagram.AnagramServiceMBean#addWords(String[])} and
+     * {@link com.anagram.AnagramServiceMBean#deleteWords(String[])} calls.
+     */
+    long getBatchCount();
+
+    /**
+     * @return number of times the file shrank, eg. it was truncated or replaced, and was read again from the start.
+     */
+    int getResetCount();
+
+    /**
+     * @return number of polls that failed, eg. the file could not be read or the service rejected the words.
+     * The lines of a failed poll are applied again by the next one.
+     */
+    long getFailureCount();
+}
@@ -0,0 +1,184 @@
+package com.anagram;
+
+import java.util.Arrays;
+
+/**
+ * Signature shared by all anagrams of a word.
+ *
+ * Words whose uppercase letters are all in 'A'..'Z' (with at most {@link #MAX_PACKED_COUNT} of each letter)
+ * are packed into a letter histogram of two longs using 4 bits per letter:
+ * <ul>
+ *     <li>low: letters 'A'..'P'</li>
+ *     <li>high: letters 'Q'..'Z' (only the lower 40 bits are used)</li>
+ * </ul>
+ * Any other word falls back to its uppercase sorted form (see {@link #sort(String)}).
+ *
+ * The static methods compute the packed form without any allocation so hot paths can key primitive tables with it.
+ */
+public final class AnagramSignature {
+
+    /**
+     * Maximum number of occurrences of a single letter that fit into a packed signature.
+     */
+    public static final int MAX_PACKED_COUNT = 15;
+
+    /**
+     * Value returned by {@link #high(CharSequence)} for words that cannot be packed.
+     * It can never be a valid high value since only 40 bits are used.
+     */
+    public static final long NOT_PACKABLE = -1L;
+
+    private static final int BITS_PER_LETTER = 4;
+    private static final int LETTERS_IN_LOW = Long.SIZE / BITS_PER_LETTER;
+
+    private final long high;
+    private final long low;
+    private final String sortedWord;
+
+    private AnagramSignature(long high, long low, String sortedWord) {
+        this.high = high;
+        this.low = low;
+        this.sortedWord = sortedWord;
+    }
+
+    /**
+     * Creates the signature of a word.
+     *
+     * @param word word to create the signature for
+     * @return packed signature when possible, otherwise a signature based on the sorted word.
+     */
+    public static AnagramSignature of(String word) {
+        final long high = high(word);
+        if (high != NOT_PACKABLE) {
+            return new AnagramSignature(high, low(word), null);
+        }
+        return new AnagramSignature(NOT_PACKABLE, 0L, sort(word));
+    }
+
+    public boolean isPacked() {
+        return sortedWord == null;
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return the sorted word for signatures that are not packed, otherwise null.
+     */
+    public String getSortedWord() {
+        return sortedWord;
+    }
+
+    /**
+     * Computes the high half of the packed signature.
+     *
+     * @param word the word
+     * @return the high half or {@link #NOT_PACKABLE} if the word cannot be packed.
+     */
+    public static long high(CharSequence word) {
+        long high = 0L;
+        long low = 0L;
+        for (int i = 0, n = word.length(); i < n; i++) {
+            final int letter = Character.toUpperCase(word.charAt(i)) - 'A';
+            if ((letter < 0) || (letter >= 26)) {
+                return NOT_PACKABLE;
+            }
+            if (letter < LETTERS_IN_LOW) {
+                final int shift = letter * BITS_PER_LETTER;
+                if (((low >>> shift) & 0xF) == MAX_PACKED_COUNT) {
+                    return NOT_PACKABLE;
+                }
+                low += 1L << shift;
+            } else {
+                final int shift = (letter - LETTERS_IN_LOW) * BITS_PER_LETTER;
+                if (((high >>> shift) & 0xF) == MAX_PACKED_COUNT) {
+                    return NOT_PACKABLE;
+                }
+                high += 1L << shift;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Computes the low half of the packed signature.
+     * Only meaningful if {@link #high(CharSequence)} did not return {@link #NOT_PACKABLE}.
+     *
+     * @param word the word
+     * @return the low half.
+     */
+    public static long low(CharSequence word) {
+        long low = 0L;
+        for (int i = 0, n = word.length(); i < n; i++) {
+            final int letter = Character.toUpperCase(word.charAt(i)) - 'A';
+            if ((letter >= 0) && (letter < LETTERS_IN_LOW)) {
+                low += 1L << (letter * BITS_PER_LETTER);
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Hash of a packed signature.
+     *
+     * @param high high half
+     * @param low low half
+     * @return well mixed hash of both halves.
+     */
+    public static int hash(long high, long low) {
+        long h = (high * 0x9E3779B97F4A7C15L) ^ low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Sorts the word to its uppercase form.
+     *
+     * @param word word to sort
+     * @return word uppercase sorted.
+     */
+    public static String sort(String word) {
+        final char[] characters = word.toCharArray();
+        for (int i = 0; i < characters.length; i++) {
+            characters[i] = Character.toUpperCase(characters[i]);
+        }
+        Arrays.sort(characters);
+        return new String(characters);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AnagramSignature)) {
+            return false;
+        }
+        AnagramSignature that = (AnagramSignature) o;
+        if (sortedWord != null) {
+            return sortedWord.equals(that.sortedWord);
+        }
+        return (that.sortedWord == null) && (high == that.high) && (low == that.low);
+    }
+
+    @Override
+    public int hashCode() {
+        return (sortedWord != null) ? sortedWord.hashCode() : hash(high, low);
+    }
+
+    @Override
+    public String toString() {
+        return "AnagramSignature{" +
+                "high=" + Long.toHexString(high) +
+                ", low=" + Long.toHexString(low) +
+                ", sortedWord=" + sortedWord +
+                '}';
+    }
+}
@@ -0,0 +1,243 @@
+package com.anagram;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * One stripe of {@link com.anagram.AnagramService}: the groups of the sorted words hashed to it and the lock
+ * guarding them. Every stripe owns its own map, so writers of different stripes never touch the same table.
+ *
+ * Locking methods return a stamp which must be passed back when unlocking. Stamps are only meaningful for
+ * {@link com.anagram.AnagramService.LockType#STAMPED} stripes.
+ *
+ * When the stripes are re-partitioned, the groups of a stripe are moved into the new stripes and the stripe forwards
+ * to them (see {@link #getMovedTo()}). Callers must check it once they hold the lock and retry on the new stripes.
+ * Every lock acquisition is counted and the time spent waiting for a lock held by another thread is measured,
+ * which is how {@link com.anagram.AnagramService} decides to grow or shrink its stripes.
+ */
+abstract class AnagramStripe {
+
+    //groups keyed by sorted word, only modified with the write lock held
+    final Map<String, AnagramGroup> sortedWord2Anagrams;
+    //stripes holding the groups of this stripe after a re-partition, only set with the write lock held
+    private volatile AnagramStripe[] movedTo;
+
+    final LongAdder lockCount = new LongAdder();
+    final LongAdder contendedLockCount = new LongAdder();
+    final LongAdder lockWaitNanos = new LongAdder();
+
+    AnagramStripe(Map<String, AnagramGroup> sortedWord2Anagrams) {
+        this.sortedWord2Anagrams = sortedWord2Anagrams;
+    }
+
+    static AnagramStripe create(AnagramService.LockType lockType) {
+        switch (lockType) {
+            case STAMPED:
+                return new Stamped();
+            case READ_WRITE:
+            default:
+                return new ReadWrite();
+        }
+    }
+
+    /**
+     * @param stripes stripes of a service
+     * @param sortedWord the sorted word
+     * @return the stripe of the sorted word.
+     */
+    static AnagramStripe of(AnagramStripe[] stripes, String sortedWord) {
+        return stripes[AnagramService.spread(sortedWord.hashCode()) % stripes.length];
+    }
+
+    /**
+     * @return the stripes this stripe's groups were moved to or null. Stable once the caller holds the lock.
+     */
+    final AnagramStripe[] getMovedTo() {
+        return movedTo;
+    }
+
+    /**
+     * Moves every group into the stripes it belongs to, after which this stripe only forwards.
+     * Must be called with the write lock held, takes the write lock of every target stripe in turn.
+     *
+     * @return number of moved groups.
+     */
+    final int moveTo(AnagramStripe[] stripes) {
+        final int moved = sortedWord2Anagrams.size();
+        for (Map.Entry<String, AnagramGroup> entry : sortedWord2Anagrams.entrySet()) {
+            final AnagramStripe target = of(stripes, entry.getKey());
+            final long stamp = target.lockWrite();
+            try {
+                target.sortedWord2Anagrams.put(entry.getKey(), entry.getValue());
+            } finally {
+                target.unlockWrite(stamp);
+            }
+        }
+        movedTo = stripes;
+        sortedWord2Anagrams.clear();
+        return moved;
+    }
+
+    /**
+     * Looks up the group of the sorted word, following the stripe to wherever its groups were moved.
+     *
+     * @return the group of the sorted word or null.
+     */
+    final AnagramGroup get(String sortedWord) {
+        AnagramStripe stripe = this;
+        while (true) {
+            final AnagramGroup anagrams = stripe.find(sortedWord);
+            final AnagramStripe[] moved = stripe.movedTo;
+            if (anagrams != null) {
+                return anagrams;
+            }
+            if (moved == null) {
+                return null;
+            }
+            stripe = of(moved, sortedWord);
+        }
+    }
+
+    /**
+     * @return the group of the sorted word in this stripe's table or null. Only definitive if the stripe had not moved
+     *         before the lookup.
+     */
+    abstract AnagramGroup find(String sortedWord);
+
+    abstract long lockRead();
+
+    abstract void unlockRead(long stamp);
+
+    abstract long lockWrite();
+
+    abstract void unlockWrite(long stamp);
+
+    final void waited(long start) {
+        contendedLockCount.increment();
+        lockWaitNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * Every read takes the shared read lock.
+     */
+    private static final class ReadWrite extends AnagramStripe {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private ReadWrite() {
+            super(new HashMap<>());
+        }
+
+        @Override
+        AnagramGroup find(String sortedWord) {
+            lockRead();
+            try {
+                return sortedWord2Anagrams.get(sortedWord);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        long lockRead() {
+            lockCount.increment();
+            if (!lock.readLock().tryLock()) {
+                final long start = System.nanoTime();
+                lock.readLock().lock();
+                waited(start);
+            }
+            return 0L;
+        }
+
+        @Override
+        void unlockRead(long stamp) {
+            lock.readLock().unlock();
+        }
+
+        @Override
+        long lockWrite() {
+            lockCount.increment();
+            if (!lock.writeLock().tryLock()) {
+                final long start = System.nanoTime();
+                lock.writeLock().lock();
+                waited(start);
+            }
+            return 0L;
+        }
+
+        @Override
+        void unlockWrite(long stamp) {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads are optimistic: the map is read without writing to any shared state and the result is only used if no
+     * writer locked the stripe in the meantime, otherwise the read is retried under the read lock.
+     * The map is a {@link java.util.concurrent.ConcurrentHashMap}, so a lookup racing a writer, eg. while the table is
+     * resized, still completes with a value the map held; the stamp only decides whether it is current.
+     * Groups are immutable, so a validated read is safe to hand out.
+     */
+    private static final class Stamped extends AnagramStripe {
+        private final StampedLock lock = new StampedLock();
+
+        private Stamped() {
+            super(new ConcurrentHashMap<>());
+        }
+
+        @Override
+        AnagramGroup find(String sortedWord) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0L) {
+                final AnagramGroup anagrams = sortedWord2Anagrams.get(sortedWord);
+                if (lock.validate(stamp)) {
+                    return anagrams;
+                }
+            }
+            stamp = lockRead();
+            try {
+                return sortedWord2Anagrams.get(sortedWord);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        long lockRead() {
+            lockCount.increment();
+            long stamp = lock.tryReadLock();
+            if (stamp == 0L) {
+                final long start = System.nanoTime();
+                stamp = lock.readLock();
+                waited(start);
+            }
+            return stamp;
+        }
+
+        @Override
+        void unlockRead(long stamp) {
+            lock.unlockRead(stamp);
+        }
+
+        @Override
+        long lockWrite() {
+            lockCount.increment();
+            long stamp = lock.tryWriteLock();
+            if (stamp == 0L) {
+                final long start = System.nanoTime();
+                stamp = lock.writeLock();
+                waited(start);
+            }
+            return stamp;
+        }
+
+        @Override
+        void unlockWrite(long stamp) {
+            lock.unlockWrite(stamp);
+        }
+    }
+}
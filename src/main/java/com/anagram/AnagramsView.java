@@ -0,0 +1,130 @@
+package com.anagram;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Immutable {@link java.util.Set} view over a case-insensitively sorted range of an immutable word array,
+ * leaving out the queried word. Nothing is copied.
+ */
+final class AnagramsView extends AbstractSet<String> {
+
+    private final String[] words;
+    private final int start;
+    private final int end;
+    //absolute index of the queried word or -1 if it is not in the range
+    private final int excluded;
+
+    private AnagramsView(String[] words, int start, int end, int excluded) {
+        this.words = words;
+        this.start = start;
+        this.end = end;
+        this.excluded = excluded;
+    }
+
+    /**
+     * @param words immutable array of words
+     * @param start first index of the group (inclusive)
+     * @param end last index of the group (exclusive)
+     * @param word the queried word, left out of the view
+     * @return view of the anagrams of word. Groups with one or fewer words do not have any anagrams.
+     */
+    static Set<String> of(String[] words, int start, int end, String word) {
+        if ((end - start) <= 1) {
+            return Collections.emptySet();
+        }
+        return new AnagramsView(words, start, end, excludedIndex(words, start, end, word));
+    }
+
+    /**
+     * Visits the same words as {@link #of(String[], int, int, String)} without allocating a view.
+     *
+     * @return number of words visited.
+     */
+    static int forEach(String[] words, int start, int end, String word, Consumer<? super String> visitor) {
+        if ((end - start) <= 1) {
+            return 0;
+        }
+        final int excluded = excludedIndex(words, start, end, word);
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if (i != excluded) {
+                visitor.accept(words[i]);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Copies a view for callers of {@link com.anagram.AnagramServiceMBean#getAnagrams(String)}.
+     */
+    static Set<String> copyOf(Set<String> anagrams) {
+        if (anagrams.isEmpty()) {
+            return Collections.emptySet();
+        }
+        final Set<String> copy = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        copy.addAll(anagrams);
+        return copy;
+    }
+
+    private static int excludedIndex(String[] words, int start, int end, String word) {
+        final int index = Arrays.binarySearch(words, start, end, word, String.CASE_INSENSITIVE_ORDER);
+        return (index >= 0) ? index : -1;
+    }
+
+    @Override
+    public int size() {
+        return (end - start) - ((excluded >= 0) ? 1 : 0);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        final int index = Arrays.binarySearch(words, start, end, (String) o, String.CASE_INSENSITIVE_ORDER);
+        return (index >= 0) && (index != excluded);
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = skipExcluded(start);
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public String next() {
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                final String word = words[next];
+                next = skipExcluded(next + 1);
+                return word;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super String> action) {
+        for (int i = start; i < end; i++) {
+            if (i != excluded) {
+                action.accept(words[i]);
+            }
+        }
+    }
+
+    private int skipExcluded(int index) {
+        return (index == excluded) ? index + 1 : index;
+    }
+}
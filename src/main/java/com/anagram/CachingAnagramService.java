@@ -0,0 +1,360 @@
+package com.anagram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@link com.anagram.AnagramServiceMBean} decorator that caches the immutable result of hot queries.
+ *
+ * The cache is split into segments, each an LRU {@link java.util.LinkedHashMap} bounded to its share of the maximum size.
+ * A query word is placed in the segment of its {@link com.anagram.AnagramSignature}, so all cached queries of a group
+ * live in the same segment and {@link #addWord(String)} / {@link #deleteWord(String)} only invalidate the queries of
+ * the affected signature.
+ *
+ * A per-segment generation prevents a lookup that raced with an update from caching a stale result.
+ */
+public class CachingAnagramService implements AnagramServiceMBean, AnagramQuery, AnagramServiceCacheMBean {
+
+    public static final int DEFAULT_SEGMENTS_COUNT = 16;
+
+    private static final class CachedAnagrams {
+        private final AnagramSignature signature;
+        private final Set<String> anagrams;
+
+        private CachedAnagrams(AnagramSignature signature, Set<String> anagrams) {
+            this.signature = signature;
+            this.anagrams = anagrams;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<String, CachedAnagrams> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+        private final Map<AnagramSignature, Set<String>> signature2Queries = new HashMap<>();
+        private long generation;
+
+        private Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        private void put(String word, AnagramSignature signature, Set<String> anagrams) {
+            if (put(word, new CachedAnagrams(signature, anagrams)) == null) {
+                Set<String> queries = signature2Queries.get(signature);
+                if (queries == null) {
+                    queries = new HashSet<>();
+                    signature2Queries.put(signature, queries);
+                }
+                queries.add(word);
+            }
+        }
+
+        private int invalidate(AnagramSignature signature) {
+            generation++;
+            final Set<String> queries = signature2Queries.remove(signature);
+            if (queries == null) {
+                return 0;
+            }
+            for (String query : queries) {
+                remove(query);
+            }
+            return queries.size();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedAnagrams> eldest) {
+            if (size() > maximumSize) {
+                final Set<String> queries = signature2Queries.get(eldest.getValue().signature);
+                if (queries != null) {
+                    queries.remove(eldest.getKey());
+                    if (queries.isEmpty()) {
+                        signature2Queries.remove(eldest.getValue().signature);
+                    }
+                }
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final AnagramServiceMBean anagramService;
+    private final int maximumSize;
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public CachingAnagramService(AnagramServiceMBean anagramService, int maximumSize) {
+        this(anagramService, maximumSize, DEFAULT_SEGMENTS_COUNT);
+    }
+
+    /**
+     * @param anagramService the service to cache results of
+     * @param maximumSize maximum number of cached query words
+     * @param segmentsCount number of independently locked LRU segments
+     */
+    public CachingAnagramService(AnagramServiceMBean anagramService, int maximumSize, int segmentsCount) {
+        this.anagramService = anagramService;
+        Objects.requireNonNull(this.anagramService);
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Invalid maximum size " + maximumSize);
+        }
+        if (segmentsCount <= 0) {
+            throw new IllegalArgumentException("Invalid number of segments " + segmentsCount);
+        }
+        segmentsCount = Math.min(segmentsCount, maximumSize);
+        this.maximumSize = maximumSize;
+        this.segments = new Segment[segmentsCount];
+        final int segmentSize = (maximumSize + segmentsCount - 1) / segmentsCount;
+        for (int i = 0; i < segmentsCount; i++) {
+            this.segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * @return the underlying service.
+     */
+    public AnagramServiceMBean getAnagramService() {
+        return anagramService;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Invalidates the cached queries of the word's signature if the dictionary changed.
+     */
+    @Override
+    public boolean addWord(String word) {
+        final boolean added = anagramService.addWord(word);
+        if (added) {
+            invalidate(word);
+        }
+        return added;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Invalidates the cached queries of the word's signature if the dictionary changed.
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        final boolean deleted = anagramService.deleteWord(word);
+        if (deleted) {
+            invalidate(word);
+        }
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Invalidates the cached queries of the signatures of all added words.
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        final boolean[] added = anagramService.addWords(words);
+        invalidate(words, added);
+        return added;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Invalidates the cached queries of the signatures of all deleted words.
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        final boolean[] deleted = anagramService.deleteWords(words);
+        invalidate(words, deleted);
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Every word goes through the cache.
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        final List<Set<String>> anagrams = new ArrayList<>((words == null) ? 0 : words.length);
+        if (words != null) {
+            for (String word : words) {
+                anagrams.add(getAnagrams(word));
+            }
+        }
+        return anagrams;
+    }
+
+    private void invalidate(String[] words, boolean[] changed) {
+        for (int i = 0; i < changed.length; i++) {
+            if (changed[i]) {
+                invalidate(words[i]);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The returned {@link java.util.Set} is immutable and shared with other callers.
+     */
+    @Override
+    public Set<String> getAnagrams(String word) {
+        if (word == null) {
+            return Collections.emptySet();
+        }
+        final AnagramSignature signature = AnagramSignature.of(word);
+        final Segment segment = segments[AnagramService.spread(signature.hashCode()) % segments.length];
+        long generation;
+        synchronized (segment) {
+            final CachedAnagrams entry = segment.get(word);
+            if (entry != null) {
+                hits.increment();
+                return entry.anagrams;
+            }
+            generation = segment.generation;
+        }
+        misses.increment();
+        final Set<String> anagrams = anagramService.getAnagrams(word);
+        final Set<String> result = anagrams.isEmpty() ? Collections.<String>emptySet() : Collections.unmodifiableSet(anagrams);
+        synchronized (segment) {
+            //skip caching if the group changed while the underlying service was queried
+            if (segment.generation == generation) {
+                segment.put(word, signature, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Not cached: sub-anagram results span many groups and are invalidated by updates of any of them.
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return anagramService.getSubAnagrams(letters);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Not cached for the same reason as {@link #getSubAnagrams(String)}.
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return anagramService.getWildcardAnagrams(pattern);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Not cached for the same reason as {@link #getSubAnagrams(String)}.
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return anagramService.getPhraseAnagrams(phrase);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        final Set<String> anagrams = getAnagrams(word);
+        anagrams.forEach(visitor);
+        return anagrams.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        return getAnagrams(word);
+    }
+
+    @Override
+    public void close() {
+        invalidateAll();
+        anagramService.close();
+    }
+
+    private void invalidate(String word) {
+        final AnagramSignature signature = AnagramSignature.of(word);
+        final Segment segment = segments[AnagramService.spread(signature.hashCode()) % segments.length];
+        int invalidated;
+        synchronized (segment) {
+            invalidated = segment.invalidate(signature);
+        }
+        invalidations.add(invalidated);
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + misses.sum();
+        return (total == 0) ? 0 : ((double) hitCount / total);
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                segment.signature2Queries.clear();
+                segment.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.anagram;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * {@link com.anagram.AnagramServiceMBean} decorator that makes every update durable in a write-ahead log before
+ * returning.
+ *
+ * Every word actually added or deleted is appended to the log as a "+word" or "-word" line, the format followed by
+ * {@link com.anagram.AnagramServiceMBeanFileTailer}, so {@link #open(AnagramServiceMBean, String, long)} replays the
+ * log on top of the base dictionary with a tailer, and a replica can follow the log of a running service.
+ * An incomplete last line left by a crash is dropped.
+ *
+ * Writers apply their update and append its lines under one lock, so the log holds the updates in the order they were
+ * applied, then wait outside the lock for a group commit: the first waiting writer becomes the leader, waits up to the
+ * commit window for more records, and writes and forces every pending record with one {@link java.nio.channels.FileChannel#force(boolean)}
+ * while the next records are appended to a second buffer. Concurrent writers therefore share one fsync, and so do the
+ * words of one {@link #addWords(String[])} or {@link #deleteWords(String[])} call.
+ *
+ * Updates are visible to readers as soon as they are applied, before they are durable.
+ * Words must not be empty, start or end with whitespace or hold a line feed, so they are replayed as they were added.
+ */
+public class DurableAnagramService implements AnagramServiceMBean, AnagramQuery, AnagramServiceLogMBean {
+
+    private static final Logger log = Logger.getLogger(DurableAnagramService.class.getName());
+
+    public static final long DEFAULT_COMMIT_WINDOW_MICROS = 200;
+
+    private static final int REPLAY_BATCH_SIZE = 1024;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final AnagramServiceMBean anagramService;
+    private final Path path;
+    private final FileChannel channel;
+    private final long commitWindowNanos;
+    private final long replayedCount;
+
+    //records appended since the last commit started, guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    //records being written by the leader
+    private ByteBuffer committing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean leading;
+    private IOException failure;
+
+    private volatile long logSize;
+    private volatile long recordCount;
+    private volatile long commitCount;
+
+    private DurableAnagramService(AnagramServiceMBean anagramService, Path path, FileChannel channel,
+                                  long commitWindowMicros, long replayedCount) throws IOException {
+        this.anagramService = anagramService;
+        this.path = path;
+        this.channel = channel;
+        this.commitWindowNanos = TimeUnit.MICROSECONDS.toNanos(commitWindowMicros);
+        this.replayedCount = replayedCount;
+        this.logSize = channel.size();
+    }
+
+    /**
+     * Replays the log file, if it exists, into the service and opens it for appending.
+     *
+     * @param anagramService the service holding the base dictionary
+     * @param logFileName the log file, created if it does not exist.
+     * @param commitWindowMicros time a commit waits for more records before forcing them to disk, 0 to only share
+     *                           commits with writers arriving while the previous commit is forced.
+     * @return the durable service.
+     * @throws IOException If the log cannot be read or opened.
+     */
+    public static DurableAnagramService open(AnagramServiceMBean anagramService, String logFileName, long commitWindowMicros) throws IOException {
+        Objects.requireNonNull(anagramService);
+        if (commitWindowMicros < 0) {
+            throw new IllegalArgumentException("Invalid commit window " + commitWindowMicros);
+        }
+        final Path path = FileSystems.getDefault().getPath(Objects.requireNonNull(logFileName)).toAbsolutePath();
+        final AnagramServiceMBeanFileTailer replay = new AnagramServiceMBeanFileTailer(anagramService, logFileName, 0,
+                REPLAY_BATCH_SIZE, AnagramServiceMBeanFileTailer.DEFAULT_POLL_INTERVAL_MILLIS);
+        final long start = System.currentTimeMillis();
+        replay.poll();
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() > replay.getPosition()) {
+                log.warning("Dropping " + (channel.size() - replay.getPosition()) + " bytes of an incomplete record at the end of " + path);
+                channel.truncate(replay.getPosition());
+                channel.force(true);
+            }
+            channel.position(replay.getPosition());
+            log.info("Replayed " + replay.getLineCount() + " lines of " + path + " in " + (System.currentTimeMillis() - start) + " ms");
+            return new DurableAnagramService(anagramService, path, channel, commitWindowMicros, replay.getLineCount());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the underlying service.
+     */
+    public AnagramServiceMBean getAnagramService() {
+        return anagramService;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Returns once the word is durable if it was added.
+     */
+    @Override
+    public boolean addWord(String word) {
+        checkWord(word);
+        final long sequence;
+        synchronized (this) {
+            checkOpen();
+            if (!anagramService.addWord(word)) {
+                return false;
+            }
+            sequence = append('+', word);
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Returns once the word is durable if it was deleted.
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        final long sequence;
+        synchronized (this) {
+            checkOpen();
+            if (!anagramService.deleteWord(word)) {
+                return false;
+            }
+            sequence = append('-', word);
+        }
+        awaitDurable(sequence);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Returns once all added words are durable, they share one commit.
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        if (words != null) {
+            for (String word : words) {
+                checkWord(word);
+            }
+        }
+        return update('+', words);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Returns once all deleted words are durable, they share one commit.
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        return update('-', words);
+    }
+
+    private boolean[] update(char operation, String[] words) {
+        final boolean[] results;
+        long sequence = 0;
+        synchronized (this) {
+            checkOpen();
+            results = (operation == '+') ? anagramService.addWords(words) : anagramService.deleteWords(words);
+            for (int i = 0; i < results.length; i++) {
+                if (results[i]) {
+                    sequence = append(operation, words[i]);
+                }
+            }
+        }
+        if (sequence > 0) {
+            awaitDurable(sequence);
+        }
+        return results;
+    }
+
+    private static void checkWord(String word) {
+        if ((word != null) && (word.isEmpty() || !word.equals(word.trim()) || (word.indexOf('\n') >= 0))) {
+            throw new IllegalArgumentException("Invalid word '" + word + "'");
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Log " + path + " failed", failure);
+        }
+        if (!channel.isOpen()) {
+            throw new IllegalStateException("Log " + path + " closed");
+        }
+    }
+
+    /**
+     * Appends a record to the pending buffer, must hold the lock.
+     *
+     * @return sequence number of the record.
+     */
+    private long append(char operation, String word) {
+        final byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        if (pending.remaining() < bytes.length + 2) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes.length + 2));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        pending.put((byte) operation).put(bytes).put((byte) '\n');
+        recordCount++;
+        return ++appendedSequence;
+    }
+
+    /**
+     * Waits until the record is durable, committing it and every other pending record if no commit is in progress.
+     */
+    private void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                synchronized (this) {
+                    while ((durableSequence < sequence) && leading && (failure == null)) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (failure != null) {
+                        throw new UncheckedIOException("Log " + path + " failed", failure);
+                    }
+                    if (durableSequence >= sequence) {
+                        return;
+                    }
+                    leading = true;
+                }
+                commit();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes and forces the pending records, only called by the leader.
+     */
+    private void commit() {
+        if (commitWindowNanos > 0) {
+            //let concurrent writers append their records to this commit
+            LockSupport.parkNanos(commitWindowNanos);
+        }
+        final ByteBuffer records;
+        final long sequence;
+        synchronized (this) {
+            records = pending;
+            sequence = appendedSequence;
+            pending = committing;
+            pending.clear();
+            committing = records;
+        }
+        IOException error = null;
+        try {
+            records.flip();
+            while (records.hasRemaining()) {
+                channel.write(records);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+        synchronized (this) {
+            if (error != null) {
+                //the log no longer matches the service, fail every update from now on
+                failure = error;
+            } else {
+                durableSequence = sequence;
+                commitCount++;
+                logSize += records.limit();
+            }
+            leading = false;
+            notifyAll();
+        }
+    }
+
+    @Override
+    public Set<String> getAnagrams(String word) {
+        return anagramService.getAnagrams(word);
+    }
+
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        return anagramService.getAllAnagrams(words);
+    }
+
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return anagramService.getSubAnagrams(letters);
+    }
+
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return anagramService.getWildcardAnagrams(pattern);
+    }
+
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return anagramService.getPhraseAnagrams(phrase);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        if (anagramService instanceof AnagramQuery) {
+            return ((AnagramQuery) anagramService).forEachAnagram(word, visitor);
+        }
+        final Set<String> anagrams = anagramService.getAnagrams(word);
+        anagrams.forEach(visitor);
+        return anagrams.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        if (anagramService instanceof AnagramQuery) {
+            return ((AnagramQuery) anagramService).anagramsView(word);
+        }
+        return Collections.unmodifiableSet(anagramService.getAnagrams(word));
+    }
+
+    @Override
+    public String getLogFileName() {
+        return path.toString();
+    }
+
+    @Override
+    public long getLogSize() {
+        return logSize;
+    }
+
+    @Override
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    @Override
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * Waits for the commit in progress, closes the log and the underlying service.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            boolean interrupted = false;
+            while (leading) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warning("Failed to close " + path + ": " + e);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        anagramService.close();
+    }
+}
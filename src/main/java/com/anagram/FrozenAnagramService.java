@@ -0,0 +1,345 @@
+package com.anagram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+/**
+ * Read-only implementation of {@link com.anagram.AnagramServiceMBean} built once from a loaded dictionary.
+ *
+ * All words are stored in one flat array where every group is a contiguous, case-insensitively sorted range.
+ * Groups are found through open addressing tables keyed by the packed {@link com.anagram.AnagramSignature}
+ * (or the sorted word for words that cannot be packed), so a lookup is a few array probes without any locks.
+ *
+ * {@link #addWord(String)} and {@link #deleteWord(String)} are not supported. To refresh the dictionary build a new
+ * instance and publish it through {@link com.anagram.SwappableAnagramService}.
+ */
+public class FrozenAnagramService implements AnagramServiceMBean, AnagramQuery {
+
+    private static final int NO_GROUP = -1;
+
+    private final String[] words;
+    //group i spans words[groupStarts[i]] to words[groupStarts[i + 1] - 1]
+    private final int[] groupStarts;
+
+    private final long[] packedHighs;
+    private final long[] packedLows;
+    private final int[] packedGroups;
+    private final int packedMask;
+
+    private final String[] sortedWords;
+    private final int[] sortedWordGroups;
+    private final int sortedWordMask;
+
+    //group indexes keyed by sorted word for sub-anagram queries
+    private final SubAnagramIndex<Integer> subAnagramIndex = new SubAnagramIndex<>();
+
+    private FrozenAnagramService(Map<AnagramSignature, TreeSet<String>> signature2Words) {
+        int packedCount = 0;
+        int wordCount = 0;
+        for (Map.Entry<AnagramSignature, TreeSet<String>> entry : signature2Words.entrySet()) {
+            if (entry.getKey().isPacked()) {
+                packedCount++;
+            }
+            wordCount += entry.getValue().size();
+        }
+        final int sortedWordCount = signature2Words.size() - packedCount;
+
+        this.words = new String[wordCount];
+        this.groupStarts = new int[signature2Words.size() + 1];
+
+        final int packedCapacity = tableSizeFor(packedCount);
+        this.packedMask = packedCapacity - 1;
+        this.packedHighs = new long[packedCapacity];
+        this.packedLows = new long[packedCapacity];
+        this.packedGroups = newGroupIndexes(packedCapacity);
+
+        final int sortedWordCapacity = tableSizeFor(sortedWordCount);
+        this.sortedWordMask = sortedWordCapacity - 1;
+        this.sortedWords = new String[sortedWordCapacity];
+        this.sortedWordGroups = newGroupIndexes(sortedWordCapacity);
+
+        int group = 0;
+        int position = 0;
+        for (Map.Entry<AnagramSignature, TreeSet<String>> entry : signature2Words.entrySet()) {
+            groupStarts[group] = position;
+            for (String word : entry.getValue()) {
+                words[position++] = word;
+            }
+            subAnagramIndex.put(AnagramSignature.sort(entry.getValue().first()), group);
+            final AnagramSignature signature = entry.getKey();
+            if (signature.isPacked()) {
+                int index = AnagramSignature.hash(signature.getHigh(), signature.getLow()) & packedMask;
+                while (packedGroups[index] != NO_GROUP) {
+                    index = (index + 1) & packedMask;
+                }
+                packedHighs[index] = signature.getHigh();
+                packedLows[index] = signature.getLow();
+                packedGroups[index] = group;
+            } else {
+                int index = AnagramService.spread(signature.getSortedWord().hashCode()) & sortedWordMask;
+                while (sortedWordGroups[index] != NO_GROUP) {
+                    index = (index + 1) & sortedWordMask;
+                }
+                sortedWords[index] = signature.getSortedWord();
+                sortedWordGroups[index] = group;
+            }
+            group++;
+        }
+        groupStarts[group] = position;
+    }
+
+    /**
+     * @return number of words in the dictionary.
+     */
+    public int getWordCount() {
+        return words.length;
+    }
+
+    /**
+     * @return number of anagram groups in the dictionary.
+     */
+    public int getGroupCount() {
+        return groupStarts.length - 1;
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addWord(String word) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lookups are lock-free so every word is looked up on its own.
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        final List<Set<String>> anagrams = new ArrayList<>((words == null) ? 0 : words.length);
+        if (words != null) {
+            for (String word : words) {
+                anagrams.add(getAnagrams(word));
+            }
+        }
+        return anagrams;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Copies {@link #anagramsView(String)}.
+     */
+    @Override
+    public Set<String> getAnagrams(String word) {
+        return AnagramsView.copyOf(anagramsView(word));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        if (word == null) {
+            return Collections.emptySet();
+        }
+        final int group = findGroup(word);
+        if (group == NO_GROUP) {
+            return Collections.emptySet();
+        }
+        return AnagramsView.of(words, groupStarts[group], groupStarts[group + 1], word);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        if (word == null) {
+            return 0;
+        }
+        final int group = findGroup(word);
+        if (group == NO_GROUP) {
+            return 0;
+        }
+        return AnagramsView.forEach(words, groupStarts[group], groupStarts[group + 1], word, visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} built with the dictionary.
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        final Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEach(letters, (sortedWord, length, group) ->
+                result.addAll(Arrays.asList(words).subList(groupStarts[group], groupStarts[group + 1])));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} built with the dictionary.
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        final Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEachWildcard(pattern, WILDCARD, (sortedWord, length, group) ->
+                result.addAll(Arrays.asList(words).subList(groupStarts[group], groupStarts[group + 1])));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Candidate groups are the sub-anagrams of the phrase, solved by the default
+     * {@link com.anagram.PhraseAnagramSolver}.
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        final List<String[]> groups = new ArrayList<>();
+        subAnagramIndex.forEach(PhraseAnagramSolver.letters(phrase), (sortedWord, length, group) ->
+                groups.add(Arrays.copyOfRange(words, groupStarts[group], groupStarts[group + 1])));
+        return PhraseAnagramSolver.getDefault().solve(phrase, groups);
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    private int findGroup(String word) {
+        final long high = AnagramSignature.high(word);
+        if (high != AnagramSignature.NOT_PACKABLE) {
+            final long low = AnagramSignature.low(word);
+            int index = AnagramSignature.hash(high, low) & packedMask;
+            int group;
+            while ((group = packedGroups[index]) != NO_GROUP) {
+                if ((packedHighs[index] == high) && (packedLows[index] == low)) {
+                    return group;
+                }
+                index = (index + 1) & packedMask;
+            }
+            return NO_GROUP;
+        }
+        final String sortedWord = AnagramSignature.sort(word);
+        int index = AnagramService.spread(sortedWord.hashCode()) & sortedWordMask;
+        int group;
+        while ((group = sortedWordGroups[index]) != NO_GROUP) {
+            if (sortedWord.equals(sortedWords[index])) {
+                return group;
+            }
+            index = (index + 1) & sortedWordMask;
+        }
+        return NO_GROUP;
+    }
+
+    private static int[] newGroupIndexes(int capacity) {
+        final int[] indexes = new int[capacity];
+        Arrays.fill(indexes, NO_GROUP);
+        return indexes;
+    }
+
+    /**
+     * @return power of two with a load factor of at most 0.5.
+     */
+    private static int tableSizeFor(int count) {
+        int n = 2;
+        while (n < (count * 2)) {
+            n <<= 1;
+        }
+        return n;
+    }
+
+    /**
+     * Collects words and builds a {@link com.anagram.FrozenAnagramService}. Not thread-safe.
+     */
+    public static class Builder {
+
+        private final Map<AnagramSignature, TreeSet<String>> signature2Words = new HashMap<>();
+
+        /**
+         * @param word word to add
+         * @return True if the word was added. False if the word already exists.
+         */
+        public boolean addWord(String word) {
+            if (word == null) {
+                return false;
+            }
+            final AnagramSignature signature = AnagramSignature.of(word);
+            TreeSet<String> anagrams = signature2Words.get(signature);
+            if (anagrams == null) {
+                anagrams = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                signature2Words.put(signature, anagrams);
+            }
+            return anagrams.add(word);
+        }
+
+        /**
+         * @param words words to add
+         * @return this builder
+         */
+        public Builder addWords(Iterable<String> words) {
+            for (String word : words) {
+                addWord(word);
+            }
+            return this;
+        }
+
+        public FrozenAnagramService build() {
+            return new FrozenAnagramService(signature2Words);
+        }
+    }
+
+    /**
+     * Convenience method to freeze a list of words.
+     *
+     * @param words the dictionary words
+     * @return a new read-only service.
+     */
+    public static FrozenAnagramService of(Iterable<String> words) {
+        return new Builder().addWords(words).build();
+    }
+}
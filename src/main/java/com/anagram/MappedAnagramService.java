@@ -0,0 +1,567 @@
+package com.anagram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only implementation of {@link com.anagram.AnagramServiceMBean} served straight from a memory-mapped index file
+ * written by {@link com.anagram.AnagramIndexWriter}, so opening a dictionary does not parse a word nor compute a
+ * signature and only the pages touched by queries are read from disk.
+ *
+ * The index holds every group sorted by its sorted word (see {@link com.anagram.AnagramSignature#sort(String)}):
+ * <ul>
+ *     <li>an open addressing table of group indexes keyed by the hash of the sorted word, for anagram lookups.</li>
+ *     <li>the sorted words as UTF-16 chars. Groups sharing a prefix are contiguous, so sub-anagram and wildcard
+ *     queries walk the sorted words like the trie of {@link com.anagram.SubAnagramIndex} with binary searches.</li>
+ *     <li>the words of every group as UTF-8 bytes, case-insensitively sorted like {@link com.anagram.FrozenAnagramService}.</li>
+ * </ul>
+ *
+ * The header holds a format version, the length and last modified time of the dictionary the index was written from
+ * and a CRC32 of everything after it, all of which are checked by {@link #open(String, String)}.
+ * Index files are limited to 2GB. The mapping is released by the garbage collector, not by {@link #close()}.
+ */
+public class MappedAnagramService implements AnagramServiceMBean, AnagramQuery {
+
+    public static final int MAGIC = 0x414E4958; // "ANIX"
+    public static final int FORMAT_VERSION = 1;
+    public static final String DEFAULT_INDEX_SUFFIX = ".idx";
+
+    //header layout, the checksum covers everything from HEADER_GROUP_COUNT to the end of the file
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_SOURCE_LENGTH = 8;
+    static final int HEADER_SOURCE_LAST_MODIFIED = 16;
+    static final int HEADER_CHECKSUM = 24;
+    static final int HEADER_GROUP_COUNT = 32;
+    static final int HEADER_WORD_COUNT = 36;
+    static final int HEADER_SLOT_COUNT = 40;
+    static final int HEADER_KEY_CHARS = 44;
+    static final int HEADER_WORD_BYTES = 48;
+    static final int HEADER_SIZE = 56;
+
+    static final int NO_GROUP = -1;
+
+    private final ByteBuffer buffer;
+    private final int groupCount;
+    private final int wordCount;
+    private final int slotMask;
+
+    //section offsets, in the order they are written
+    private final int slotsOffset;
+    private final int groupHashesOffset;
+    private final int groupKeyStartsOffset;
+    private final int groupWordStartsOffset;
+    private final int wordStartsOffset;
+    private final int keysOffset;
+    private final int wordsOffset;
+
+    private MappedAnagramService(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Invalid index size " + buffer.capacity());
+        }
+        if (buffer.getInt(HEADER_MAGIC) != MAGIC) {
+            throw new IOException("Invalid index magic number " + Integer.toHexString(buffer.getInt(HEADER_MAGIC)));
+        }
+        if (buffer.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+            throw new IOException("Invalid index format version " + buffer.getInt(HEADER_VERSION));
+        }
+        this.groupCount = buffer.getInt(HEADER_GROUP_COUNT);
+        this.wordCount = buffer.getInt(HEADER_WORD_COUNT);
+        final int slotCount = buffer.getInt(HEADER_SLOT_COUNT);
+        final long size = size(groupCount, wordCount, slotCount, buffer.getInt(HEADER_KEY_CHARS), buffer.getInt(HEADER_WORD_BYTES));
+        if ((groupCount < 0) || (wordCount < 0) || (Integer.bitCount(slotCount) != 1) || (size != buffer.capacity())) {
+            throw new IOException("Invalid index size " + buffer.capacity());
+        }
+        if (checksum(buffer) != buffer.getLong(HEADER_CHECKSUM)) {
+            throw new IOException("Invalid index checksum");
+        }
+        this.slotMask = slotCount - 1;
+        this.slotsOffset = HEADER_SIZE;
+        this.groupHashesOffset = slotsOffset + (slotCount * Integer.BYTES);
+        this.groupKeyStartsOffset = groupHashesOffset + (groupCount * Integer.BYTES);
+        this.groupWordStartsOffset = groupKeyStartsOffset + ((groupCount + 1) * Integer.BYTES);
+        this.wordStartsOffset = groupWordStartsOffset + ((groupCount + 1) * Integer.BYTES);
+        this.keysOffset = wordStartsOffset + ((wordCount + 1) * Integer.BYTES);
+        this.wordsOffset = keysOffset + (buffer.getInt(HEADER_KEY_CHARS) * Character.BYTES);
+    }
+
+    /**
+     * Maps an index file without checking whether it is stale.
+     *
+     * @param indexFileName the index written by {@link com.anagram.AnagramIndexWriter}
+     * @return a read-only service over the index.
+     * @throws IOException if the file cannot be read or is not a valid index of this format version.
+     */
+    public static MappedAnagramService open(String indexFileName) throws IOException {
+        return open(indexFileName, null);
+    }
+
+    /**
+     * Maps an index file and checks that the dictionary was not changed since the index was written.
+     *
+     * @param indexFileName the index written by {@link com.anagram.AnagramIndexWriter}
+     * @param dictionaryFileName the dictionary the index was written from, in the filesystem or classpath.
+     *                           null skips the check.
+     * @return a read-only service over the index.
+     * @throws IOException if the file cannot be read, is not a valid index of this format version or is stale.
+     */
+    public static MappedAnagramService open(String indexFileName, String dictionaryFileName) throws IOException {
+        final Path path = FileSystems.getDefault().getPath(indexFileName);
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid index size " + channel.size());
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        final MappedAnagramService anagramService = new MappedAnagramService(buffer);
+        if (dictionaryFileName != null) {
+            final long[] stamp = sourceStamp(dictionaryFileName);
+            if ((stamp == null) || (stamp[0] != anagramService.getSourceLength())
+                    || (stamp[1] != anagramService.getSourceLastModified())) {
+                throw new IOException("Stale index " + indexFileName + " of dictionary " + dictionaryFileName);
+            }
+        }
+        return anagramService;
+    }
+
+    /**
+     * @return {length, last modified time} of a dictionary in the filesystem or classpath, or null if it is not found.
+     */
+    static long[] sourceStamp(String dictionaryFileName) throws IOException {
+        final File localFile = FileSystems.getDefault().getPath(dictionaryFileName).toFile();
+        if (localFile.exists()) {
+            return new long[]{localFile.length(), localFile.lastModified()};
+        }
+        final URL resource = MappedAnagramService.class.getClassLoader().getResource(dictionaryFileName);
+        if (resource == null) {
+            return null;
+        }
+        final URLConnection connection = resource.openConnection();
+        return new long[]{connection.getContentLengthLong(), connection.getLastModified()};
+    }
+
+    /**
+     * @return size in bytes of an index.
+     */
+    static long size(int groupCount, int wordCount, int slotCount, int keyChars, int wordBytes) {
+        return HEADER_SIZE
+                + ((long) slotCount * Integer.BYTES)
+                + ((long) groupCount * Integer.BYTES)
+                + (((long) groupCount + 1) * Integer.BYTES * 2)
+                + (((long) wordCount + 1) * Integer.BYTES)
+                + ((long) keyChars * Character.BYTES)
+                + wordBytes;
+    }
+
+    /**
+     * @return CRC32 of everything after the checksum field.
+     */
+    static long checksum(ByteBuffer buffer) {
+        final ByteBuffer checked = buffer.duplicate();
+        checked.position(HEADER_GROUP_COUNT);
+        final CRC32 crc = new CRC32();
+        crc.update(checked);
+        return crc.getValue();
+    }
+
+    /**
+     * @return length of the dictionary the index was written from.
+     */
+    public long getSourceLength() {
+        return buffer.getLong(HEADER_SOURCE_LENGTH);
+    }
+
+    /**
+     * @return last modified time of the dictionary the index was written from.
+     */
+    public long getSourceLastModified() {
+        return buffer.getLong(HEADER_SOURCE_LAST_MODIFIED);
+    }
+
+    /**
+     * @return number of words in the dictionary.
+     */
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return number of anagram groups in the dictionary.
+     */
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addWord(String word) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * Not supported, the dictionary is read-only.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        throw new UnsupportedOperationException("Dictionary is read-only");
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lookups are lock-free so every word is looked up on its own.
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        final List<Set<String>> anagrams = new ArrayList<>((words == null) ? 0 : words.length);
+        if (words != null) {
+            for (String word : words) {
+                anagrams.add(getAnagrams(word));
+            }
+        }
+        return anagrams;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Copies {@link #anagramsView(String)}.
+     */
+    @Override
+    public Set<String> getAnagrams(String word) {
+        return AnagramsView.copyOf(anagramsView(word));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The words of the group are decoded from the index for every call.
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        if (word == null) {
+            return Collections.emptySet();
+        }
+        final int group = findGroup(word);
+        if (group == NO_GROUP) {
+            return Collections.emptySet();
+        }
+        final String[] groupWords = groupWords(group);
+        return AnagramsView.of(groupWords, 0, groupWords.length, word);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        if (word == null) {
+            return 0;
+        }
+        final int group = findGroup(word);
+        if (group == NO_GROUP) {
+            return 0;
+        }
+        final String[] groupWords = groupWords(group);
+        return AnagramsView.forEach(groupWords, 0, groupWords.length, word, visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the sorted words of the index.
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        final Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        forEachSubAnagramGroup(letters, group -> result.addAll(Arrays.asList(groupWords(group))));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the sorted words of the index.
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        final Set<String> result = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        if ((pattern == null) || pattern.isEmpty()) {
+            return result;
+        }
+        final StringBuilder known = new StringBuilder(pattern.length());
+        int blanks = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (c == WILDCARD) {
+                blanks++;
+            } else {
+                known.append(c);
+            }
+        }
+        final Letters letters = new Letters(known.toString());
+        forEachWildcard(0, groupCount, 0, letters, 0, blanks, pattern.length(),
+                group -> result.addAll(Arrays.asList(groupWords(group))));
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Candidate groups are the sub-anagrams of the phrase, solved by the default
+     * {@link com.anagram.PhraseAnagramSolver}.
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        final List<String[]> groups = new ArrayList<>();
+        forEachSubAnagramGroup(PhraseAnagramSolver.letters(phrase), group -> groups.add(groupWords(group)));
+        return PhraseAnagramSolver.getDefault().solve(phrase, groups);
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    private int findGroup(String word) {
+        final String sortedWord = AnagramSignature.sort(word);
+        final int hash = AnagramService.spread(sortedWord.hashCode());
+        int index = hash & slotMask;
+        int group;
+        while ((group = buffer.getInt(slotsOffset + (index * Integer.BYTES))) != NO_GROUP) {
+            if ((buffer.getInt(groupHashesOffset + (group * Integer.BYTES)) == hash) && keyEquals(group, sortedWord)) {
+                return group;
+            }
+            index = (index + 1) & slotMask;
+        }
+        return NO_GROUP;
+    }
+
+    private boolean keyEquals(int group, String sortedWord) {
+        final int start = keyStart(group);
+        if ((keyStart(group + 1) - start) != sortedWord.length()) {
+            return false;
+        }
+        for (int i = 0; i < sortedWord.length(); i++) {
+            if (buffer.getChar(keysOffset + ((start + i) * Character.BYTES)) != sortedWord.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int keyStart(int group) {
+        return buffer.getInt(groupKeyStartsOffset + (group * Integer.BYTES));
+    }
+
+    private int keyLength(int group) {
+        return keyStart(group + 1) - keyStart(group);
+    }
+
+    private char keyChar(int group, int index) {
+        return buffer.getChar(keysOffset + ((keyStart(group) + index) * Character.BYTES));
+    }
+
+    /**
+     * @param group index of a group, from 0 to {@link #getGroupCount()}
+     * @return the sorted word of the group.
+     */
+    String sortedWord(int group) {
+        final int start = keyStart(group);
+        final char[] sortedWord = new char[keyStart(group + 1) - start];
+        for (int i = 0; i < sortedWord.length; i++) {
+            sortedWord[i] = buffer.getChar(keysOffset + ((start + i) * Character.BYTES));
+        }
+        return new String(sortedWord);
+    }
+
+    /**
+     * @param group index of a group, from 0 to {@link #getGroupCount()}
+     * @return the words of the group, case-insensitively sorted.
+     */
+    String[] groupWords(int group) {
+        final int start = buffer.getInt(groupWordStartsOffset + (group * Integer.BYTES));
+        final int end = buffer.getInt(groupWordStartsOffset + ((group + 1) * Integer.BYTES));
+        final String[] words = new String[end - start];
+        final ByteBuffer bytes = buffer.duplicate();
+        for (int i = start; i < end; i++) {
+            final int wordStart = buffer.getInt(wordStartsOffset + (i * Integer.BYTES));
+            final int wordEnd = buffer.getInt(wordStartsOffset + ((i + 1) * Integer.BYTES));
+            final byte[] word = new byte[wordEnd - wordStart];
+            bytes.position(wordsOffset + wordStart);
+            bytes.get(word);
+            words[i - start] = new String(word, StandardCharsets.UTF_8);
+        }
+        return words;
+    }
+
+    /**
+     * Distinct sorted letters of a query with the number of times each is still available.
+     */
+    private static final class Letters {
+        private final char[] distinct;
+        private final int[] counts;
+
+        private Letters(String letters) {
+            final String sortedLetters = AnagramSignature.sort(letters);
+            final char[] distinct = new char[sortedLetters.length()];
+            this.counts = new int[sortedLetters.length()];
+            int distinctCount = 0;
+            for (int i = 0; i < sortedLetters.length(); i++) {
+                final char letter = sortedLetters.charAt(i);
+                if ((distinctCount == 0) || (distinct[distinctCount - 1] != letter)) {
+                    distinct[distinctCount++] = letter;
+                }
+                counts[distinctCount - 1]++;
+            }
+            this.distinct = Arrays.copyOf(distinct, distinctCount);
+        }
+    }
+
+    /**
+     * Visits every group whose letters are a sub-multiset of the letters, case-insensitively.
+     */
+    private void forEachSubAnagramGroup(String letters, GroupVisitor visitor) {
+        if ((letters == null) || letters.isEmpty()) {
+            return;
+        }
+        forEachSubAnagram(0, groupCount, 0, new Letters(letters), 0, visitor);
+    }
+
+    /**
+     * Groups from start to end share their first depth letters, which the query can spell, and are at least depth long.
+     *
+     * @param fromLetter first distinct letter that may follow the shared letters
+     */
+    private void forEachSubAnagram(int start, int end, int depth, Letters letters, int fromLetter, GroupVisitor visitor) {
+        if ((start < end) && (keyLength(start) == depth)) {
+            //the shorter group sorts first
+            if (depth > 0) {
+                visitor.visit(start);
+            }
+            start++;
+        }
+        int j = fromLetter;
+        while ((start < end) && (j < letters.distinct.length)) {
+            final char letter = keyChar(start, depth);
+            final int childEnd = childEnd(start, end, depth, letter);
+            while ((j < letters.distinct.length) && (letters.distinct[j] < letter)) {
+                j++;
+            }
+            if (j == letters.distinct.length) {
+                break;
+            }
+            if ((letters.distinct[j] == letter) && (letters.counts[j] > 0)) {
+                letters.counts[j]--;
+                forEachSubAnagram(start, childEnd, depth + 1, letters, j, visitor);
+                letters.counts[j]++;
+            }
+            start = childEnd;
+        }
+    }
+
+    /**
+     * Groups from start to end share their first depth letters and are at least depth long.
+     *
+     * @param next first distinct known letter not fully used yet, every known letter before it is used up
+     */
+    private void forEachWildcard(int start, int end, int depth, Letters letters, int next, int blanks, int targetDepth,
+                                 GroupVisitor visitor) {
+        if ((start < end) && (keyLength(start) == depth)) {
+            if (depth == targetDepth) {
+                if (next == letters.distinct.length) {
+                    visitor.visit(start);
+                }
+                return;
+            }
+            start++;
+        }
+        if (depth == targetDepth) {
+            return;
+        }
+        while (start < end) {
+            final char letter = keyChar(start, depth);
+            //a known letter left behind can never be used, and groups are sorted
+            if ((next < letters.distinct.length) && (letter > letters.distinct[next])) {
+                break;
+            }
+            final int childEnd = childEnd(start, end, depth, letter);
+            if ((next < letters.distinct.length) && (letter == letters.distinct[next])) {
+                //known letters are used before blanks, so every group is found once
+                letters.counts[next]--;
+                final int childNext = (letters.counts[next] == 0) ? next + 1 : next;
+                forEachWildcard(start, childEnd, depth + 1, letters, childNext, blanks, targetDepth, visitor);
+                letters.counts[next]++;
+            } else if (blanks > 0) {
+                forEachWildcard(start, childEnd, depth + 1, letters, next, blanks - 1, targetDepth, visitor);
+            }
+            start = childEnd;
+        }
+    }
+
+    /**
+     * @return first group from start to end whose letter at depth comes after letter.
+     */
+    private int childEnd(int start, int end, int depth, char letter) {
+        int low = start + 1;
+        int high = end - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            if (keyChar(middle, depth) <= letter) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    private interface GroupVisitor {
+        void visit(int group);
+    }
+}
@@ -0,0 +1,771 @@
+package com.anagram;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Implementation of {@link com.anagram.AnagramServiceMBean} that keeps words and group membership off-heap so very
+ * large dictionaries do not need a large heap nor cause long GC pauses.
+ *
+ * <ul>
+ *     <li>Words are UTF-8 records in a {@link com.anagram.WordArena}, every group is a linked list of records
+ *     referenced by int offsets.</li>
+ *     <li>Groups are found through an open addressing table stored in direct {@link java.nio.ByteBuffer} segments,
+ *     keyed by the packed {@link com.anagram.AnagramSignature} or, for words that cannot be packed,
+ *     by an arena record holding the sorted word.</li>
+ * </ul>
+ *
+ * All off-heap structures share one {@link java.util.concurrent.locks.ReadWriteLock}:
+ * readers run concurrently, writers are exclusive.
+ * Space of deleted words is not reclaimed until the service is rebuilt.
+ *
+ * Sub-anagram, wildcard and multi-word anagram queries scan the group table by default, decoding the letters of every
+ * group from its key, so no part of the dictionary lives on the heap. A {@link com.anagram.SubAnagramIndex} of the
+ * sorted words answers them without a scan, at the cost of a heap trie as large as the dictionary whose nodes are
+ * kept after their groups are deleted, so it is opt-in.
+ */
+public class OffHeapAnagramService implements AnagramServiceMBean, AnagramQuery {
+
+    public static final int DEFAULT_INITIAL_GROUP_CAPACITY = 1024;
+
+    //slot layout
+    private static final int SLOT_HIGH = 0;
+    private static final int SLOT_LOW = 8;
+    private static final int SLOT_HEAD = 16;
+    private static final int SLOT_COUNT = 20;
+    private static final int SLOT_HASH = 24;
+    private static final int SLOT_SIZE = 32;
+    private static final long EMPTY_SLOT = Long.MIN_VALUE;
+    //high value of slots keyed by a sorted word record, low is the record offset
+    private static final long SORTED_WORD_SLOT = AnagramSignature.NOT_PACKABLE;
+
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
+
+    //word record layout
+    private static final int WORD_NEXT = 0;
+    private static final int WORD_LENGTH = 4;
+    private static final int WORD_BYTES = 8;
+
+    //sorted word record layout
+    private static final int KEY_LENGTH = 0;
+    private static final int KEY_BYTES = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final WordArena arena;
+
+    private ByteBuffer[] slotSegments;
+    private int slotMask;
+    private int usedSlots;
+    private int wordCount;
+    //sorted words of non-empty groups for sub-anagram queries, null to scan the group table instead
+    private SubAnagramIndex<Boolean> subAnagramIndex;
+
+    public OffHeapAnagramService() {
+        this(DEFAULT_INITIAL_GROUP_CAPACITY, WordArena.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param initialGroupCapacity expected number of anagram groups.
+     * @param arenaChunkSize size in bytes of every direct buffer used for words, must be a power of two.
+     */
+    public OffHeapAnagramService(int initialGroupCapacity, int arenaChunkSize) {
+        this(initialGroupCapacity, arenaChunkSize, false);
+    }
+
+    /**
+     * @param initialGroupCapacity expected number of anagram groups.
+     * @param arenaChunkSize size in bytes of every direct buffer used for words, must be a power of two.
+     * @param subAnagramIndexed true to index the sorted words of the groups on-heap rather than scan the group table
+     *                          for sub-anagram, wildcard and multi-word anagram queries.
+     */
+    public OffHeapAnagramService(int initialGroupCapacity, int arenaChunkSize, boolean subAnagramIndexed) {
+        this.subAnagramIndex = subAnagramIndexed ? new SubAnagramIndex<>() : null;
+        this.arena = new WordArena(arenaChunkSize);
+        int capacity = 16;
+        while ((capacity * 3) < (initialGroupCapacity * 4)) {
+            capacity <<= 1;
+        }
+        this.slotSegments = newSlotSegments(capacity);
+        this.slotMask = capacity - 1;
+    }
+
+    public boolean isSubAnagramIndexed() {
+        return subAnagramIndex != null;
+    }
+
+    public int getWordCount() {
+        lock.readLock().lock();
+        try {
+            return wordCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return bytes of direct memory used by words and the group table.
+     */
+    public long getOffHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return arena.getAllocatedBytes() + ((long) (slotMask + 1) * SLOT_SIZE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addWord(String word) {
+        if (word == null) {
+            return false;
+        }
+        final Key key = new Key(word);
+        final byte[] wordBytes = word.getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            return add(word, key, wordBytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        if (word == null) {
+            return false;
+        }
+        final Key key = new Key(word);
+        lock.writeLock().lock();
+        try {
+            return delete(word, key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Keys are computed before the write lock is taken once for the whole batch.
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        if (words == null) {
+            return new boolean[0];
+        }
+        final boolean[] added = new boolean[words.length];
+        final Key[] keys = new Key[words.length];
+        final byte[][] wordBytes = new byte[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != null) {
+                keys[i] = new Key(words[i]);
+                wordBytes[i] = words[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < words.length; i++) {
+                added[i] = (keys[i] != null) && add(words[i], keys[i], wordBytes[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return added;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Keys are computed before the write lock is taken once for the whole batch.
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        if (words == null) {
+            return new boolean[0];
+        }
+        final boolean[] deleted = new boolean[words.length];
+        final Key[] keys = new Key[words.length];
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != null) {
+                keys[i] = new Key(words[i]);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < words.length; i++) {
+                deleted[i] = (keys[i] != null) && delete(words[i], keys[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return deleted;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The read lock is taken once for the whole batch.
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        if (words == null) {
+            return new ArrayList<>();
+        }
+        final List<Set<String>> anagrams = new ArrayList<>(words.length);
+        final Key[] keys = new Key[words.length];
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != null) {
+                keys[i] = new Key(words[i]);
+            }
+        }
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < words.length; i++) {
+                anagrams.add((keys[i] != null) ? getAnagrams(words[i], keys[i]) : Collections.<String>emptySet());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return anagrams;
+    }
+
+    /**
+     * Must be called with the write lock held.
+     */
+    private boolean add(String word, Key key, byte[] wordBytes) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            for (int record = head(slot); record != WordArena.NULL; record = next(record)) {
+                if (String.CASE_INSENSITIVE_ORDER.compare(word, readWord(record)) == 0) {
+                    return false;
+                }
+            }
+        } else {
+            if (((usedSlots + 1) * 4) > ((slotMask + 1) * 3)) {
+                resize();
+            }
+            slot = -(findSlot(key) + 1);
+            createSlot(slot, key);
+        }
+        final int record = arena.allocate(WORD_BYTES + wordBytes.length);
+        final ByteBuffer chunk = arena.chunk(record);
+        final int position = arena.position(record);
+        chunk.putInt(position + WORD_NEXT, head(slot));
+        chunk.putInt(position + WORD_LENGTH, wordBytes.length);
+        for (int i = 0; i < wordBytes.length; i++) {
+            chunk.put(position + WORD_BYTES + i, wordBytes[i]);
+        }
+        final ByteBuffer segment = segment(slot);
+        final int slotPosition = slotPosition(slot);
+        segment.putInt(slotPosition + SLOT_HEAD, record);
+        final int count = segment.getInt(slotPosition + SLOT_COUNT) + 1;
+        segment.putInt(slotPosition + SLOT_COUNT, count);
+        if ((count == 1) && (subAnagramIndex != null)) {
+            //new group, or a group emptied by deletes before the next resize
+            subAnagramIndex.put(AnagramSignature.sort(word), Boolean.TRUE);
+        }
+        wordCount++;
+        return true;
+    }
+
+    /**
+     * Must be called with the write lock held.
+     */
+    private boolean delete(String word, Key key) {
+        final int slot = findSlot(key);
+        if (slot < 0) {
+            return false;
+        }
+        int previous = WordArena.NULL;
+        for (int record = head(slot); record != WordArena.NULL; record = next(record)) {
+            if (String.CASE_INSENSITIVE_ORDER.compare(word, readWord(record)) == 0) {
+                final ByteBuffer segment = segment(slot);
+                final int slotPosition = slotPosition(slot);
+                if (previous == WordArena.NULL) {
+                    segment.putInt(slotPosition + SLOT_HEAD, next(record));
+                } else {
+                    arena.chunk(previous).putInt(arena.position(previous) + WORD_NEXT, next(record));
+                }
+                final int count = segment.getInt(slotPosition + SLOT_COUNT) - 1;
+                segment.putInt(slotPosition + SLOT_COUNT, count);
+                if ((count == 0) && (subAnagramIndex != null)) {
+                    subAnagramIndex.put(AnagramSignature.sort(word), null);
+                }
+                wordCount--;
+                return true;
+            }
+            previous = record;
+        }
+        return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getAnagrams(String word) {
+        if (word == null) {
+            return Collections.emptySet();
+        }
+        final Key key = new Key(word);
+        lock.readLock().lock();
+        try {
+            return getAnagrams(word, key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Must be called with the read lock held.
+     */
+    private Set<String> getAnagrams(String word, Key key) {
+        final int slot = findSlot(key);
+        if ((slot < 0) || (count(slot) <= 1)) {
+            return Collections.emptySet();
+        }
+        final Set<String> anagrams = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (int record = head(slot); record != WordArena.NULL; record = next(record)) {
+            anagrams.add(readWord(record));
+        }
+        anagrams.remove(word);
+        return anagrams;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Words are decoded from off-heap memory, so every visited word is a new {@link java.lang.String}.
+     * The visitor runs while holding the read lock and must not update this service.
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        if (word == null) {
+            return 0;
+        }
+        final Key key = new Key(word);
+        int count = 0;
+        lock.readLock().lock();
+        try {
+            final int slot = findSlot(key);
+            if ((slot < 0) || (count(slot) <= 1)) {
+                return 0;
+            }
+            for (int record = head(slot); record != WordArena.NULL; record = next(record)) {
+                final String anagram = readWord(record);
+                if (String.CASE_INSENSITIVE_ORDER.compare(word, anagram) != 0) {
+                    visitor.accept(anagram);
+                    count++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return count;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Groups live off-heap, so the view is an unmodifiable copy of {@link #getAnagrams(String)}.
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        return Collections.unmodifiableSet(getAnagrams(word));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Matching groups are found through the index or a scan of the group table, the words themselves are decoded
+     * from off-heap memory while holding the read lock.
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        lock.readLock().lock();
+        try {
+            forEachSubAnagramGroup(letters, slot -> addGroup(slot, words));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return words;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Matching groups are found through the index or a scan of the group table, the words themselves are decoded
+     * from off-heap memory while holding the read lock.
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        lock.readLock().lock();
+        try {
+            forEachWildcardGroup(pattern, slot -> addGroup(slot, words));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return words;
+    }
+
+    /**
+     * Must be called with the read lock held.
+     */
+    private void addGroup(int slot, Set<String> words) {
+        for (int record = head(slot); record != WordArena.NULL; record = next(record)) {
+            words.add(readWord(record));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Candidate groups are decoded while holding the read lock, the search itself runs without it on the default
+     * {@link com.anagram.PhraseAnagramSolver}.
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        final List<String[]> groups = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            forEachSubAnagramGroup(PhraseAnagramSolver.letters(phrase), slot -> {
+                final String[] words = new String[count(slot)];
+                int i = 0;
+                for (int record = head(slot); record != WordArena.NULL; record = next(record)) {
+                    words[i++] = readWord(record);
+                }
+                groups.add(words);
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return PhraseAnagramSolver.getDefault().solve(phrase, groups);
+    }
+
+    /**
+     * Visits the slot of every non-empty group whose letters are a sub-multiset of the letters, case-insensitively.
+     * Must be called with the read lock held.
+     */
+    private void forEachSubAnagramGroup(String letters, IntConsumer slotVisitor) {
+        if (subAnagramIndex != null) {
+            subAnagramIndex.forEach(letters, (sortedWord, length, present) -> visitGroup(sortedWord, length, slotVisitor));
+            return;
+        }
+        if ((letters == null) || letters.isEmpty()) {
+            return;
+        }
+        final char[] sortedLetters = AnagramSignature.sort(letters).toCharArray();
+        forEachGroup((slot, sortedWord, length) -> {
+            if (containsAll(sortedLetters, sortedLetters.length, sortedWord, length)) {
+                slotVisitor.accept(slot);
+            }
+        });
+    }
+
+    /**
+     * Visits the slot of every non-empty group with as many letters as the pattern and all of its letters other than
+     * the wildcards, case-insensitively. Must be called with the read lock held.
+     */
+    private void forEachWildcardGroup(String pattern, IntConsumer slotVisitor) {
+        if (subAnagramIndex != null) {
+            subAnagramIndex.forEachWildcard(pattern, WILDCARD, (sortedWord, length, present) -> visitGroup(sortedWord, length, slotVisitor));
+            return;
+        }
+        if ((pattern == null) || pattern.isEmpty()) {
+            return;
+        }
+        final char[] known = AnagramSignature.sort(pattern.replace(String.valueOf(WILDCARD), "")).toCharArray();
+        forEachGroup((slot, sortedWord, length) -> {
+            if ((length == pattern.length()) && containsAll(sortedWord, length, known, known.length)) {
+                slotVisitor.accept(slot);
+            }
+        });
+    }
+
+    private void visitGroup(char[] sortedWord, int length, IntConsumer slotVisitor) {
+        final int slot = findSlot(new Key(new String(sortedWord, 0, length)));
+        if (slot >= 0) {
+            slotVisitor.accept(slot);
+        }
+    }
+
+    /**
+     * Receives the groups of {@link #forEachGroup(GroupVisitor)}.
+     */
+    private interface GroupVisitor {
+        /**
+         * @param sortedWord buffer holding the sorted word of the group, only valid during the call
+         */
+        void visit(int slot, char[] sortedWord, int length);
+    }
+
+    /**
+     * Visits every non-empty group with its sorted word, decoded from the packed signature or the sorted word record
+     * of its slot. Must be called with the read lock held.
+     */
+    private void forEachGroup(GroupVisitor visitor) {
+        char[] sortedWord = new char[64];
+        for (int slot = 0; slot <= slotMask; slot++) {
+            final ByteBuffer segment = segment(slot);
+            final int slotPosition = slotPosition(slot);
+            final long high = segment.getLong(slotPosition + SLOT_HIGH);
+            if ((high == EMPTY_SLOT) || (segment.getInt(slotPosition + SLOT_COUNT) == 0)) {
+                continue;
+            }
+            final long low = segment.getLong(slotPosition + SLOT_LOW);
+            int length = 0;
+            if (high == SORTED_WORD_SLOT) {
+                final String sorted = readSortedWord((int) low);
+                if (sortedWord.length < sorted.length()) {
+                    sortedWord = new char[sorted.length()];
+                }
+                sorted.getChars(0, sorted.length(), sortedWord, 0);
+                length = sorted.length();
+            } else {
+                //4 bits per letter, 'A'..'P' in low and 'Q'..'Z' in high
+                for (int letter = 0; letter < 26; letter++) {
+                    final int count = (int) ((letter < 16) ? (low >>> (letter * 4)) : (high >>> ((letter - 16) * 4))) & 0xF;
+                    if ((length + count) > sortedWord.length) {
+                        sortedWord = Arrays.copyOf(sortedWord, Math.max(2 * sortedWord.length, length + count));
+                    }
+                    for (int i = 0; i < count; i++) {
+                        sortedWord[length++] = (char) ('A' + letter);
+                    }
+                }
+            }
+            visitor.visit(slot, sortedWord, length);
+        }
+    }
+
+    /**
+     * @return true if every letter of the sorted sub-multiset is in the sorted letters, as many times.
+     */
+    private static boolean containsAll(char[] sortedLetters, int lettersLength, char[] sortedSubset, int subsetLength) {
+        if (subsetLength > lettersLength) {
+            return false;
+        }
+        int i = 0;
+        for (int j = 0; j < subsetLength; j++) {
+            while ((i < lettersLength) && (sortedLetters[i] < sortedSubset[j])) {
+                i++;
+            }
+            if ((i == lettersLength) || (sortedLetters[i] != sortedSubset[j])) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Releases all off-heap structures. The service must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            arena.clear();
+            if (subAnagramIndex != null) {
+                subAnagramIndex = new SubAnagramIndex<>();
+            }
+            slotSegments = newSlotSegments(16);
+            slotMask = 15;
+            usedSlots = 0;
+            wordCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Signature of a word in the form stored in the slot table.
+     */
+    private static final class Key {
+        private final long high;
+        private final long low;
+        private final byte[] sortedWord;
+        private final int hash;
+
+        private Key(String word) {
+            final long packedHigh = AnagramSignature.high(word);
+            if (packedHigh != AnagramSignature.NOT_PACKABLE) {
+                this.high = packedHigh;
+                this.low = AnagramSignature.low(word);
+                this.sortedWord = null;
+                this.hash = AnagramSignature.hash(high, low);
+            } else {
+                final String sorted = AnagramSignature.sort(word);
+                this.high = SORTED_WORD_SLOT;
+                this.low = 0L;
+                this.sortedWord = sorted.getBytes(StandardCharsets.UTF_8);
+                this.hash = AnagramService.spread(sorted.hashCode());
+            }
+        }
+    }
+
+    /**
+     * @return the slot of the key or (-(insertion slot) - 1) if the key is not in the table.
+     */
+    private int findSlot(Key key) {
+        int slot = key.hash & slotMask;
+        while (true) {
+            final ByteBuffer segment = segment(slot);
+            final int slotPosition = slotPosition(slot);
+            final long high = segment.getLong(slotPosition + SLOT_HIGH);
+            if (high == EMPTY_SLOT) {
+                return -(slot + 1);
+            }
+            if ((high == key.high) && (segment.getInt(slotPosition + SLOT_HASH) == key.hash)) {
+                final long low = segment.getLong(slotPosition + SLOT_LOW);
+                if (key.sortedWord == null) {
+                    if (low == key.low) {
+                        return slot;
+                    }
+                } else if (sortedWordEquals((int) low, key.sortedWord)) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    private void createSlot(int slot, Key key) {
+        long low = key.low;
+        if (key.sortedWord != null) {
+            final int record = arena.allocate(KEY_BYTES + key.sortedWord.length);
+            final ByteBuffer chunk = arena.chunk(record);
+            final int position = arena.position(record);
+            chunk.putInt(position + KEY_LENGTH, key.sortedWord.length);
+            for (int i = 0; i < key.sortedWord.length; i++) {
+                chunk.put(position + KEY_BYTES + i, key.sortedWord[i]);
+            }
+            low = record;
+        }
+        final ByteBuffer segment = segment(slot);
+        final int slotPosition = slotPosition(slot);
+        segment.putLong(slotPosition + SLOT_HIGH, key.high);
+        segment.putLong(slotPosition + SLOT_LOW, low);
+        segment.putInt(slotPosition + SLOT_HEAD, WordArena.NULL);
+        segment.putInt(slotPosition + SLOT_COUNT, 0);
+        segment.putInt(slotPosition + SLOT_HASH, key.hash);
+        usedSlots++;
+    }
+
+    /**
+     * Doubles the slot table, dropping groups that no longer have any words.
+     */
+    private void resize() {
+        final ByteBuffer[] oldSegments = slotSegments;
+        final int oldCapacity = slotMask + 1;
+        int capacity = oldCapacity * 2;
+        if (capacity > (1 << 30)) {
+            throw new IllegalStateException("Too many anagram groups");
+        }
+        slotSegments = newSlotSegments(capacity);
+        slotMask = capacity - 1;
+        usedSlots = 0;
+        for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+            final ByteBuffer oldSegment = oldSegments[oldSlot >>> SEGMENT_SHIFT];
+            final int oldPosition = (oldSlot & SEGMENT_MASK) * SLOT_SIZE;
+            if ((oldSegment.getLong(oldPosition + SLOT_HIGH) == EMPTY_SLOT) || (oldSegment.getInt(oldPosition + SLOT_COUNT) == 0)) {
+                continue;
+            }
+            int slot = oldSegment.getInt(oldPosition + SLOT_HASH) & slotMask;
+            while (segment(slot).getLong(slotPosition(slot) + SLOT_HIGH) != EMPTY_SLOT) {
+                slot = (slot + 1) & slotMask;
+            }
+            final ByteBuffer segment = segment(slot);
+            final int slotPosition = slotPosition(slot);
+            for (int i = 0; i < SLOT_SIZE; i += 8) {
+                segment.putLong(slotPosition + i, oldSegment.getLong(oldPosition + i));
+            }
+            usedSlots++;
+        }
+    }
+
+    private static ByteBuffer[] newSlotSegments(int capacity) {
+        final int slotsPerSegment = Math.min(capacity, SEGMENT_MASK + 1);
+        final ByteBuffer[] segments = new ByteBuffer[capacity / slotsPerSegment];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = ByteBuffer.allocateDirect(slotsPerSegment * SLOT_SIZE).order(ByteOrder.nativeOrder());
+            for (int slot = 0; slot < slotsPerSegment; slot++) {
+                segments[i].putLong(slot * SLOT_SIZE + SLOT_HIGH, EMPTY_SLOT);
+            }
+        }
+        return segments;
+    }
+
+    private ByteBuffer segment(int slot) {
+        return slotSegments[slot >>> SEGMENT_SHIFT];
+    }
+
+    private static int slotPosition(int slot) {
+        return (slot & SEGMENT_MASK) * SLOT_SIZE;
+    }
+
+    private int head(int slot) {
+        return segment(slot).getInt(slotPosition(slot) + SLOT_HEAD);
+    }
+
+    private int count(int slot) {
+        return segment(slot).getInt(slotPosition(slot) + SLOT_COUNT);
+    }
+
+    private int next(int record) {
+        return arena.chunk(record).getInt(arena.position(record) + WORD_NEXT);
+    }
+
+    private String readWord(int record) {
+        final ByteBuffer chunk = arena.chunk(record);
+        final int position = arena.position(record);
+        final byte[] bytes = new byte[chunk.getInt(position + WORD_LENGTH)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(position + WORD_BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private String readSortedWord(int record) {
+        final ByteBuffer chunk = arena.chunk(record);
+        final int position = arena.position(record);
+        final byte[] bytes = new byte[chunk.getInt(position + KEY_LENGTH)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(position + KEY_BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean sortedWordEquals(int record, byte[] sortedWord) {
+        final ByteBuffer chunk = arena.chunk(record);
+        final int position = arena.position(record);
+        if (chunk.getInt(position + KEY_LENGTH) != sortedWord.length) {
+            return false;
+        }
+        for (int i = 0; i < sortedWord.length; i++) {
+            if (chunk.get(position + KEY_BYTES + i) != sortedWord[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
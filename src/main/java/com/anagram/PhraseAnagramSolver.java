@@ -0,0 +1,308 @@
+package com.anagram;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds combinations of dictionary words whose letters together are exactly the letters of a phrase,
+ * eg. "dormitory" gives "dirty room". Whitespace in the phrase is ignored and letters are compared case-insensitively.
+ *
+ * The solver works on anagram groups rather than words: candidates are the groups whose letters fit in the phrase
+ * (as found through a {@link com.anagram.SubAnagramIndex}), the search backtracks over the remaining letter histogram
+ * and only expands a combination of groups into phrases once all letters are used.
+ * Every combination is found once by only choosing groups in non-decreasing candidate order.
+ *
+ * The first word choices are searched in parallel on a {@link java.util.concurrent.ForkJoinPool}.
+ * A search stops at the first of maxResults phrases or timeoutMillis, so results may be partial.
+ */
+public final class PhraseAnagramSolver {
+
+    public static final int DEFAULT_MAX_RESULTS = 1000;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 1000;
+    public static final int DEFAULT_MAX_WORDS = 4;
+
+    private static final PhraseAnagramSolver DEFAULT = new PhraseAnagramSolver(
+            Integer.getInteger("anagram.service.phrase.max.results", DEFAULT_MAX_RESULTS),
+            Long.getLong("anagram.service.phrase.timeout.millis", DEFAULT_TIMEOUT_MILLIS),
+            Integer.getInteger("anagram.service.phrase.max.words", DEFAULT_MAX_WORDS),
+            ForkJoinPool.commonPool());
+
+    private final int maxResults;
+    private final long timeoutMillis;
+    private final int maxWords;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param maxResults maximum number of phrases returned
+     * @param timeoutMillis maximum time spent on a search
+     * @param maxWords maximum number of words in a phrase
+     * @param pool pool running the search
+     */
+    public PhraseAnagramSolver(int maxResults, long timeoutMillis, int maxWords, ForkJoinPool pool) {
+        if (maxResults <= 0) {
+            throw new IllegalArgumentException("Invalid max results " + maxResults);
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Invalid timeout " + timeoutMillis);
+        }
+        if (maxWords <= 0) {
+            throw new IllegalArgumentException("Invalid max words " + maxWords);
+        }
+        this.maxResults = maxResults;
+        this.timeoutMillis = timeoutMillis;
+        this.maxWords = maxWords;
+        this.pool = pool;
+        if (this.pool == null) {
+            throw new IllegalArgumentException("Invalid pool");
+        }
+    }
+
+    /**
+     * @return the solver configured through the 'anagram.service.phrase.*' system properties.
+     */
+    public static PhraseAnagramSolver getDefault() {
+        return DEFAULT;
+    }
+
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public int getMaxWords() {
+        return maxWords;
+    }
+
+    /**
+     * @param phrase the phrase
+     * @return the letters of the phrase without whitespace, to look up candidate groups with.
+     */
+    public static String letters(String phrase) {
+        if (phrase == null) {
+            return "";
+        }
+        final StringBuilder sb = new StringBuilder(phrase.length());
+        for (int i = 0; i < phrase.length(); i++) {
+            final char c = phrase.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param phrase the phrase to find anagrams for
+     * @param groups candidate anagram groups, every array holds the words of one group
+     * @return phrases made of words separated by a space, without the phrase itself.
+     */
+    public Set<String> solve(String phrase, Collection<String[]> groups) {
+        final Set<String> phrases = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        final String letters = letters(phrase);
+        if (letters.isEmpty() || groups.isEmpty()) {
+            return phrases;
+        }
+        final Search search = new Search(letters, groups);
+        if (search.candidates.length > 0) {
+            pool.invoke(new FirstWordsTask(search, 0, search.candidates.length));
+        }
+        phrases.addAll(search.phrases);
+        phrases.remove(normalize(phrase));
+        return phrases;
+    }
+
+    private static String normalize(String phrase) {
+        final StringBuilder sb = new StringBuilder(phrase.length());
+        for (String word : phrase.trim().split("\\s+")) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(word);
+        }
+        return sb.toString();
+    }
+
+    private static final class Candidate {
+        private final String[] words;
+        //indexes into the phrase's distinct letters, one per letter of the group
+        private final int[] letters;
+
+        private Candidate(String[] words, int[] letters) {
+            this.words = words;
+            this.letters = letters;
+        }
+    }
+
+    /**
+     * State shared by all tasks of one search.
+     */
+    private final class Search {
+        private final char[] distinct;
+        private final int[] counts;
+        private final int letterCount;
+        //longest groups first, which keeps the search shallow
+        private final Candidate[] candidates;
+        private final long deadline;
+        private final AtomicInteger found = new AtomicInteger();
+        private final ConcurrentLinkedQueue<String> phrases = new ConcurrentLinkedQueue<>();
+
+        private Search(String letters, Collection<String[]> groups) {
+            final String sortedLetters = AnagramSignature.sort(letters);
+            final char[] distinctLetters = new char[sortedLetters.length()];
+            final int[] letterCounts = new int[sortedLetters.length()];
+            int distinctCount = 0;
+            for (int i = 0; i < sortedLetters.length(); i++) {
+                final char letter = sortedLetters.charAt(i);
+                if ((distinctCount == 0) || (distinctLetters[distinctCount - 1] != letter)) {
+                    distinctLetters[distinctCount++] = letter;
+                }
+                letterCounts[distinctCount - 1]++;
+            }
+            this.distinct = Arrays.copyOf(distinctLetters, distinctCount);
+            this.counts = Arrays.copyOf(letterCounts, distinctCount);
+            this.letterCount = sortedLetters.length();
+
+            final List<Candidate> fitting = new ArrayList<>(groups.size());
+            for (String[] words : groups) {
+                if ((words.length > 0) && !words[0].isEmpty()) {
+                    final int[] indexes = indexes(words[0]);
+                    if (indexes != null) {
+                        fitting.add(new Candidate(words, indexes));
+                    }
+                }
+            }
+            fitting.sort((c1, c2) -> Integer.compare(c2.letters.length, c1.letters.length));
+            this.candidates = fitting.toArray(new Candidate[fitting.size()]);
+            this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        }
+
+        /**
+         * @return the letter indexes of the word or null if it has letters outside of the phrase.
+         */
+        private int[] indexes(String word) {
+            final int[] indexes = new int[word.length()];
+            for (int i = 0; i < word.length(); i++) {
+                final int index = Arrays.binarySearch(distinct, Character.toUpperCase(word.charAt(i)));
+                if (index < 0) {
+                    return null;
+                }
+                indexes[i] = index;
+            }
+            return indexes;
+        }
+
+        private boolean isDone() {
+            return (found.get() >= maxResults) || (System.nanoTime() - deadline > 0);
+        }
+
+        /**
+         * Backtracks over the candidates from the specified index on.
+         */
+        private void search(int[] remaining, int remainingLetters, int from, int[] chosen, int depth) {
+            if (remainingLetters == 0) {
+                expand(chosen, depth, 0, new String[depth]);
+                return;
+            }
+            if ((depth == maxWords) || isDone()) {
+                return;
+            }
+            for (int i = from; i < candidates.length; i++) {
+                final Candidate candidate = candidates[i];
+                final int length = candidate.letters.length;
+                //candidates are sorted by length, so the longest ones left cannot use up the letters either
+                if ((long) length * (maxWords - depth) < remainingLetters) {
+                    return;
+                }
+                if ((length <= remainingLetters) && take(remaining, candidate)) {
+                    chosen[depth] = i;
+                    search(remaining, remainingLetters - length, i, chosen, depth + 1);
+                    give(remaining, candidate);
+                }
+            }
+        }
+
+        private void expand(int[] chosen, int depth, int word, String[] words) {
+            if (word == depth) {
+                if (found.getAndIncrement() < maxResults) {
+                    phrases.add(String.join(" ", words));
+                }
+                return;
+            }
+            for (String candidateWord : candidates[chosen[word]].words) {
+                if (found.get() >= maxResults) {
+                    return;
+                }
+                words[word] = candidateWord;
+                expand(chosen, depth, word + 1, words);
+            }
+        }
+    }
+
+    private static boolean take(int[] remaining, Candidate candidate) {
+        final int[] letters = candidate.letters;
+        for (int i = 0; i < letters.length; i++) {
+            if (--remaining[letters[i]] < 0) {
+                //roll back what was taken so far
+                for (int j = 0; j <= i; j++) {
+                    remaining[letters[j]]++;
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void give(int[] remaining, Candidate candidate) {
+        for (int letter : candidate.letters) {
+            remaining[letter]++;
+        }
+    }
+
+    /**
+     * Searches all phrases starting with the candidates in [from, to), splitting the range until it is one candidate.
+     */
+    private final class FirstWordsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int from;
+        private final int to;
+
+        private FirstWordsTask(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.isDone()) {
+                return;
+            }
+            if ((to - from) > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new FirstWordsTask(search, from, middle), new FirstWordsTask(search, middle, to));
+                return;
+            }
+            final Candidate first = search.candidates[from];
+            final int[] remaining = search.counts.clone();
+            if (take(remaining, first)) {
+                final int[] chosen = new int[maxWords];
+                chosen[0] = from;
+                search.search(remaining, search.letterCount - first.letters.length, from, chosen, 1);
+            }
+        }
+    }
+}
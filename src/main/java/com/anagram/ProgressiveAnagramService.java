@@ -0,0 +1,253 @@
+package com.anagram;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link com.anagram.AnagramServiceMBean} decorator that serves queries while its dictionary is still being loaded on a
+ * background thread, so a server can accept connections right away.
+ *
+ * Queries answered before the load completes only see the words loaded so far and {@link #isPartial()} is true.
+ * Updates are rejected with an {@link java.lang.IllegalStateException} until the load completes, so the dictionary
+ * cannot undo an update made while it is loaded and updates are only logged after the log is replayed. They fail fast
+ * rather than wait, so a server thread serving an update never stalls the other clients for the whole load; callers
+ * can wait for {@link #ready()} and retry.
+ */
+public class ProgressiveAnagramService implements AnagramServiceMBean, AnagramQuery, AnagramServiceReadinessMBean {
+
+    private static final Logger log = Logger.getLogger(ProgressiveAnagramService.class.getName());
+
+    public enum State {
+        LOADING, READY, FAILED
+    }
+
+    /**
+     * Loads a dictionary into the service being served.
+     */
+    public interface Loader {
+
+        /**
+         * @param words adds a batch of words to the service being served and counts them.
+         * @return the service to serve once loaded, eg. the service itself or a {@link com.anagram.DurableAnagramService}
+         * wrapping it.
+         * @throws IOException If the dictionary cannot be read.
+         */
+        AnagramServiceMBean load(Consumer<String[]> words) throws IOException;
+    }
+
+    private final CompletableFuture<AnagramServiceMBean> ready = new CompletableFuture<>();
+    private final LongAdder loadedWordCount = new LongAdder();
+
+    private volatile AnagramServiceMBean anagramService;
+    private volatile State state = State.LOADING;
+    private volatile long loadStartMillis;
+    private volatile long loadEndMillis;
+    private volatile Throwable failure;
+
+    /**
+     * @param anagramService the empty service filled by the loader and served meanwhile.
+     */
+    public ProgressiveAnagramService(AnagramServiceMBean anagramService) {
+        this.anagramService = Objects.requireNonNull(anagramService);
+    }
+
+    /**
+     * Starts loading on a daemon thread.
+     *
+     * @param loader loads the dictionary
+     * @return this service
+     */
+    public ProgressiveAnagramService start(Loader loader) {
+        Objects.requireNonNull(loader);
+        loadStartMillis = System.currentTimeMillis();
+        final Thread thread = new Thread(() -> load(loader), "anagram-progressive-loader");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    private void load(Loader loader) {
+        final AnagramServiceMBean loading = anagramService;
+        try {
+            final AnagramServiceMBean loaded = loader.load(words -> {
+                loading.addWords(words);
+                loadedWordCount.add(words.length);
+            });
+            anagramService = Objects.requireNonNull(loaded);
+            loadEndMillis = System.currentTimeMillis();
+            state = State.READY;
+            log.info("Loaded " + loadedWordCount.sum() + " words in " + getLoadMillis() + " ms");
+            ready.complete(loaded);
+        } catch (IOException | RuntimeException e) {
+            log.log(Level.SEVERE, "Failed to load the dictionary", e);
+            failure = e;
+            loadEndMillis = System.currentTimeMillis();
+            state = State.FAILED;
+            ready.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return completes with the loaded service once the load completes, eg. to start following a changelog.
+     */
+    public CompletableFuture<AnagramServiceMBean> ready() {
+        return ready;
+    }
+
+    /**
+     * @return the service being filled, or the service returned by the loader once loaded.
+     */
+    public AnagramServiceMBean getAnagramService() {
+        return anagramService;
+    }
+
+    /**
+     * @return true until the load completes, query results only hold the words loaded so far.
+     */
+    public boolean isPartial() {
+        return state != State.READY;
+    }
+
+    private AnagramServiceMBean loaded() {
+        if (!ready.isDone()) {
+            throw new IllegalStateException("Dictionary is loading");
+        }
+        try {
+            return ready.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Dictionary failed to load", e.getCause());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the dictionary is still loading or failed to load.
+     */
+    @Override
+    public boolean addWord(String word) {
+        return loaded().addWord(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the dictionary is still loading or failed to load.
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        return loaded().deleteWord(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the dictionary is still loading or failed to load.
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        return loaded().addWords(words);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if the dictionary is still loading or failed to load.
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        return loaded().deleteWords(words);
+    }
+
+    @Override
+    public Set<String> getAnagrams(String word) {
+        return anagramService.getAnagrams(word);
+    }
+
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        return anagramService.getAllAnagrams(words);
+    }
+
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return anagramService.getSubAnagrams(letters);
+    }
+
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return anagramService.getWildcardAnagrams(pattern);
+    }
+
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return anagramService.getPhraseAnagrams(phrase);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        final AnagramServiceMBean anagramService = this.anagramService;
+        if (anagramService instanceof AnagramQuery) {
+            return ((AnagramQuery) anagramService).forEachAnagram(word, visitor);
+        }
+        final Set<String> anagrams = anagramService.getAnagrams(word);
+        anagrams.forEach(visitor);
+        return anagrams.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        final AnagramServiceMBean anagramService = this.anagramService;
+        if (anagramService instanceof AnagramQuery) {
+            return ((AnagramQuery) anagramService).anagramsView(word);
+        }
+        return Collections.unmodifiableSet(anagramService.getAnagrams(word));
+    }
+
+    @Override
+    public String getState() {
+        return state.name();
+    }
+
+    @Override
+    public boolean isReady() {
+        return state == State.READY;
+    }
+
+    @Override
+    public long getLoadedWordCount() {
+        return loadedWordCount.sum();
+    }
+
+    @Override
+    public long getLoadMillis() {
+        final long end = (state == State.LOADING) ? System.currentTimeMillis() : loadEndMillis;
+        return (loadStartMillis == 0) ? 0 : end - loadStartMillis;
+    }
+
+    @Override
+    public String getFailure() {
+        final Throwable failure = this.failure;
+        return (failure == null) ? null : failure.toString();
+    }
+
+    @Override
+    public void close() {
+        anagramService.close();
+    }
+}
@@ -0,0 +1,349 @@
+package com.anagram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Implementation of {@link com.anagram.AnagramServiceMBean} where every stripe (shard) owns its own hash table.
+ *
+ * Writers only lock the shard that owns the sorted word, so writers on different shards never touch the same table.
+ * Groups are immutable {@link com.anagram.AnagramGroup} instances which are replaced on every update,
+ * which allows {@link #getAnagrams(String)} to read without taking any lock.
+ *
+ * In signature mode, words made of 'A'..'Z' are keyed by their packed letter histogram in a primitive
+ * {@link com.anagram.SignatureTable} so lookups neither sort nor allocate.
+ * Every other word falls back to its sorted form.
+ */
+public class ShardedAnagramService implements AnagramServiceMBean, AnagramQuery {
+
+    public static final int DEFAULT_SHARD_CAPACITY = 16;
+
+    private static final class Shard {
+        private final Lock writeLock = new ReentrantLock();
+        //groups keyed by packed letter histogram
+        private final SignatureTable<AnagramGroup> packedGroups;
+        //groups of words that cannot be packed, keyed by sorted word
+        private final ConcurrentHashMap<String, AnagramGroup> groups;
+
+        private Shard(int initialCapacity) {
+            this.packedGroups = new SignatureTable<>(initialCapacity);
+            //only one writer per shard at a time
+            this.groups = new ConcurrentHashMap<>(initialCapacity, 0.75f, 1);
+        }
+    }
+
+    private final int numberOfShards;
+    private final Shard[] shards;
+    private final boolean packedSignatures;
+    //groups of all shards keyed by sorted word, updated under the owning shard's lock
+    private final SubAnagramIndex<AnagramGroup> subAnagramIndex = new SubAnagramIndex<>();
+
+    /**
+     * Creates a new, empty {@link com.anagram.AnagramServiceMBean} instance with the specified number of shards.
+     *
+     * @param numberOfShards number of shards which correlates to the estimated number of concurrently updating threads.
+     */
+    public ShardedAnagramService(int numberOfShards) {
+        this(numberOfShards, DEFAULT_SHARD_CAPACITY, true);
+    }
+
+    /**
+     * Creates a new, empty {@link com.anagram.AnagramServiceMBean} instance with the specified number of shards.
+     *
+     * @param numberOfShards number of shards which correlates to the estimated number of concurrently updating threads.
+     * @param initialShardCapacity initial capacity of each shard's hash table.
+     * @param packedSignatures true to key 'A'..'Z' words by their packed letter histogram
+     *                         (see {@link com.anagram.AnagramSignature}) instead of their sorted word.
+     */
+    public ShardedAnagramService(int numberOfShards, int initialShardCapacity, boolean packedSignatures) {
+        this.numberOfShards = numberOfShards;
+        this.packedSignatures = packedSignatures;
+        if (this.numberOfShards <= 0) {
+            throw new IllegalArgumentException("Invalid number of shards " + numberOfShards);
+        }
+        this.shards = new Shard[numberOfShards];
+        for (int i = 0; i < numberOfShards; i++) {
+            this.shards[i] = new Shard(initialShardCapacity);
+        }
+    }
+
+    public int getNumberOfShards() {
+        return numberOfShards;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addWord(String word) {
+        return (word != null) && update(word, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        return (word != null) && update(word, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Words are grouped by shard and every shard's lock is taken once for the whole batch.
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        return update(words, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Words are grouped by shard and every shard's lock is taken once for the whole batch.
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        return update(words, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lookups are lock-free so there is nothing to amortize, every word is looked up on its own.
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        final List<Set<String>> anagrams = new ArrayList<>((words == null) ? 0 : words.length);
+        if (words != null) {
+            for (String word : words) {
+                anagrams.add(getAnagrams(word));
+            }
+        }
+        return anagrams;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: copies {@link #anagramsView(String)}.
+     */
+    @Override
+    public Set<String> getAnagrams(String word) {
+        return AnagramsView.copyOf(anagramsView(word));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: reads the current immutable group of the owning shard.
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        if (word == null) {
+            return Collections.emptySet();
+        }
+        AnagramGroup anagrams = getGroup(word);
+        if (anagrams == null) {
+            return Collections.emptySet();
+        }
+        return anagrams.anagramsView(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: reads the current immutable group of the owning shard.
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        if (word == null) {
+            return 0;
+        }
+        AnagramGroup anagrams = getGroup(word);
+        if (anagrams == null) {
+            return 0;
+        }
+        return anagrams.forEachAnagram(word, visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} of the current immutable groups.
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEach(letters, (sortedWord, length, anagrams) -> anagrams.addTo(words));
+        return words;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} of the current immutable groups.
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEachWildcard(pattern, WILDCARD, (sortedWord, length, anagrams) -> anagrams.addTo(words));
+        return words;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Candidate groups are the sub-anagrams of the phrase, solved by the default
+     * {@link com.anagram.PhraseAnagramSolver}.
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        final List<String[]> groups = new ArrayList<>();
+        subAnagramIndex.forEach(PhraseAnagramSolver.letters(phrase), (sortedWord, length, anagrams) -> groups.add(anagrams.toArray()));
+        return PhraseAnagramSolver.getDefault().solve(phrase, groups);
+    }
+
+    /**
+     * Lock-free lookup of the group for the word.
+     * Packed signatures are computed without allocation and probe the shard's primitive table.
+     */
+    private AnagramGroup getGroup(String word) {
+        final long high = packedSignatures ? AnagramSignature.high(word) : AnagramSignature.NOT_PACKABLE;
+        if (high != AnagramSignature.NOT_PACKABLE) {
+            final long low = AnagramSignature.low(word);
+            return getShard(AnagramSignature.hash(high, low)).packedGroups.get(high, low);
+        }
+        String sortedWord = AnagramSignature.sort(word);
+        return getShard(sortedWord.hashCode()).groups.get(sortedWord);
+    }
+
+    private boolean update(String word, boolean add) {
+        final long high = packedSignatures ? AnagramSignature.high(word) : AnagramSignature.NOT_PACKABLE;
+        final long low;
+        final String sortedWord;
+        final Shard shard;
+        if (high != AnagramSignature.NOT_PACKABLE) {
+            low = AnagramSignature.low(word);
+            sortedWord = null;
+            shard = getShard(AnagramSignature.hash(high, low));
+        } else {
+            low = 0L;
+            sortedWord = AnagramSignature.sort(word);
+            shard = getShard(sortedWord.hashCode());
+        }
+        shard.writeLock.lock();
+        try {
+            return update(shard, word, high, low, sortedWord, add);
+        } finally {
+            shard.writeLock.unlock();
+        }
+    }
+
+    private boolean[] update(String[] words, boolean add) {
+        if (words == null) {
+            return new boolean[0];
+        }
+        final boolean[] updated = new boolean[words.length];
+        final long[] highs = new long[words.length];
+        final long[] lows = new long[words.length];
+        final String[] sortedWords = new String[words.length];
+        final int[] shardIndexes = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            final String word = words[i];
+            if (word == null) {
+                shardIndexes[i] = StripeBatch.SKIP;
+                continue;
+            }
+            highs[i] = packedSignatures ? AnagramSignature.high(word) : AnagramSignature.NOT_PACKABLE;
+            if (highs[i] != AnagramSignature.NOT_PACKABLE) {
+                lows[i] = AnagramSignature.low(word);
+                shardIndexes[i] = getShardIndex(AnagramSignature.hash(highs[i], lows[i]));
+            } else {
+                sortedWords[i] = AnagramSignature.sort(word);
+                shardIndexes[i] = getShardIndex(sortedWords[i].hashCode());
+            }
+        }
+        final int[] order = StripeBatch.order(shardIndexes, numberOfShards);
+        int i = 0;
+        while (i < order.length) {
+            final int shardIndex = shardIndexes[order[i]];
+            final Shard shard = shards[shardIndex];
+            shard.writeLock.lock();
+            try {
+                for (; (i < order.length) && (shardIndexes[order[i]] == shardIndex); i++) {
+                    final int index = order[i];
+                    updated[index] = update(shard, words[index], highs[index], lows[index], sortedWords[index], add);
+                }
+            } finally {
+                shard.writeLock.unlock();
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Must be called with the shard's write lock held.
+     *
+     * @param sortedWord the sorted word if the word is not keyed by its packed signature, otherwise null
+     */
+    private boolean update(Shard shard, String word, long high, long low, String sortedWord, boolean add) {
+        if (high != AnagramSignature.NOT_PACKABLE) {
+            AnagramGroup anagrams = shard.packedGroups.get(high, low);
+            AnagramGroup updated = update(anagrams, word, add);
+            if (updated == null) {
+                return false;
+            }
+            if (updated.isEmpty()) {
+                shard.packedGroups.remove(high, low);
+            } else {
+                shard.packedGroups.put(high, low, updated);
+            }
+            subAnagramIndex.put(AnagramSignature.sort(word), updated.isEmpty() ? null : updated);
+            return true;
+        }
+        AnagramGroup anagrams = shard.groups.get(sortedWord);
+        AnagramGroup updated = update(anagrams, word, add);
+        if (updated == null) {
+            return false;
+        }
+        if (updated.isEmpty()) {
+            shard.groups.remove(sortedWord);
+        } else {
+            shard.groups.put(sortedWord, updated);
+        }
+        subAnagramIndex.put(sortedWord, updated.isEmpty() ? null : updated);
+        return true;
+    }
+
+    /**
+     * @return the updated group or null if the group did not change.
+     */
+    private static AnagramGroup update(AnagramGroup anagrams, String word, boolean add) {
+        if (anagrams == null) {
+            anagrams = AnagramGroup.EMPTY;
+        }
+        AnagramGroup updated = add ? anagrams.add(word) : anagrams.remove(word);
+        return (updated == anagrams) ? null : updated;
+    }
+
+    @Override
+    public void close() {
+
+    }
+
+    private Shard getShard(int hash) {
+        return shards[getShardIndex(hash)];
+    }
+
+    private int getShardIndex(int hash) {
+        return AnagramService.spread(hash) % numberOfShards;
+    }
+}
@@ -0,0 +1,123 @@
+package com.anagram;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter over word signatures which supports deletes.
+ *
+ * Counters are 4 bits wide and packed 16 per long in an {@link java.util.concurrent.atomic.AtomicLongArray}, so updates
+ * are lock-free CAS operations. A counter that reaches 15 saturates and is never decremented again, which trades a
+ * slightly higher false positive rate for never reporting a false negative.
+ *
+ * The hash of a word is derived from its packed {@link com.anagram.AnagramSignature} when possible so most checks
+ * neither sort nor allocate.
+ */
+public final class SignatureFilter {
+
+    private static final int HASH_FUNCTIONS = 7;
+    private static final int COUNTERS_PER_GROUP = 10;
+    private static final int BITS_PER_COUNTER = 4;
+    private static final int COUNTERS_PER_LONG = Long.SIZE / BITS_PER_COUNTER;
+    private static final long MAX_COUNT = 0xF;
+
+    private final AtomicLongArray counters;
+    private final long counterMask;
+
+    /**
+     * @param expectedGroups expected number of signatures in the filter.
+     *                       More signatures are supported at the cost of a higher false positive rate.
+     */
+    public SignatureFilter(int expectedGroups) {
+        if (expectedGroups <= 0) {
+            throw new IllegalArgumentException("Invalid expected groups " + expectedGroups);
+        }
+        long counterCount = COUNTERS_PER_LONG;
+        while ((counterCount < ((long) expectedGroups * COUNTERS_PER_GROUP)) && (counterCount < (1L << 31))) {
+            counterCount <<= 1;
+        }
+        this.counters = new AtomicLongArray((int) (counterCount / COUNTERS_PER_LONG));
+        this.counterMask = counterCount - 1;
+    }
+
+    /**
+     * @param word any word of the group
+     * @return false if the signature of the word is definitely not in the filter.
+     */
+    public boolean mightContain(String word) {
+        final long hash = hash(word);
+        final int h1 = (int) hash;
+        final int h2 = ((int) (hash >>> 32)) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            final long counter = (h1 + i * h2) & counterMask;
+            if (count(counter) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the signature of the word.
+     *
+     * @param word any word of the group
+     */
+    public void add(String word) {
+        update(hash(word), 1);
+    }
+
+    /**
+     * Removes the signature of the word. Must only be called for a signature previously added.
+     *
+     * @param word any word of the group
+     */
+    public void remove(String word) {
+        update(hash(word), -1);
+    }
+
+    private void update(long hash, int delta) {
+        final int h1 = (int) hash;
+        final int h2 = ((int) (hash >>> 32)) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            final long counter = (h1 + i * h2) & counterMask;
+            final int index = (int) (counter / COUNTERS_PER_LONG);
+            final int shift = (int) (counter % COUNTERS_PER_LONG) * BITS_PER_COUNTER;
+            while (true) {
+                final long current = counters.get(index);
+                final long count = (current >>> shift) & MAX_COUNT;
+                if ((count == MAX_COUNT) || ((delta < 0) && (count == 0))) {
+                    //saturated counters stick
+                    break;
+                }
+                final long updated = current + ((long) delta << shift);
+                if (counters.compareAndSet(index, current, updated)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private long count(long counter) {
+        final int index = (int) (counter / COUNTERS_PER_LONG);
+        final int shift = (int) (counter % COUNTERS_PER_LONG) * BITS_PER_COUNTER;
+        return (counters.get(index) >>> shift) & MAX_COUNT;
+    }
+
+    /**
+     * 64 bit hash of the word's signature, identical for all anagrams.
+     */
+    private static long hash(String word) {
+        final long high = AnagramSignature.high(word);
+        long h;
+        if (high != AnagramSignature.NOT_PACKABLE) {
+            h = (high * 0x9E3779B97F4A7C15L) ^ AnagramSignature.low(word);
+        } else {
+            h = AnagramSignature.sort(word).hashCode() * 0xC2B2AE3D27D4EB4FL + 1;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
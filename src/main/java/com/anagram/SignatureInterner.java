@@ -0,0 +1,58 @@
+package com.anagram;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of words and of their sorted signatures, shared by the {@link com.anagram.AnagramService.Builder}s
+ * of several dictionaries built together, eg. per language or per game edition.
+ *
+ * A word or signature found in several dictionaries is then stored once on the heap, the dictionaries only add their
+ * own table entries and groups, and every distinct word is sorted once whatever the number of dictionaries holding it.
+ * Thread-safe. Only needed while the dictionaries are built, words added later are not shared.
+ */
+public final class SignatureInterner {
+
+    static final class Entry {
+        final String word;
+        final String sortedWord;
+
+        private Entry(String word, String sortedWord) {
+            this.word = word;
+            this.sortedWord = sortedWord;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> words = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> sortedWords = new ConcurrentHashMap<>();
+
+    /**
+     * @return the canonical word and its canonical sorted signature.
+     */
+    Entry intern(String word) {
+        Entry entry = words.get(word);
+        if (entry == null) {
+            final String sortedWord = AnagramSignature.sort(word);
+            final String canonicalSortedWord = sortedWords.putIfAbsent(sortedWord, sortedWord);
+            entry = new Entry(word, (canonicalSortedWord != null) ? canonicalSortedWord : sortedWord);
+            final Entry previous = words.putIfAbsent(word, entry);
+            if (previous != null) {
+                entry = previous;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return number of distinct words interned.
+     */
+    public int getWordCount() {
+        return words.size();
+    }
+
+    /**
+     * @return number of distinct signatures interned.
+     */
+    public int getSignatureCount() {
+        return sortedWords.size();
+    }
+}
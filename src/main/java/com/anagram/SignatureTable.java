@@ -0,0 +1,184 @@
+package com.anagram;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Open addressing hash table keyed by packed {@link com.anagram.AnagramSignature} halves (two primitive longs).
+ *
+ * Reads are lock-free and do not allocate. Writes must be serialized by the caller (eg. a shard lock).
+ * A slot's key never changes once written and its value is published through a volatile write,
+ * so a reader that sees a value also sees the key written before it.
+ * Removed entries leave a tombstone which is purged when the table is rebuilt.
+ *
+ * @param <V> value type
+ */
+final class SignatureTable<V> {
+
+    private static final Object TOMBSTONE = new Object();
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private static final class Table {
+        private final long[] highs;
+        private final long[] lows;
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+
+        private Table(int capacity) {
+            this.highs = new long[capacity];
+            this.lows = new long[capacity];
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table;
+    private int size;
+    private int usedSlots;
+
+    SignatureTable(int initialCapacity) {
+        this.table = new Table(tableSizeFor(initialCapacity * 2));
+    }
+
+    /**
+     * Lock-free lookup.
+     *
+     * @param high high half of the packed signature
+     * @param low low half of the packed signature
+     * @return the value or null if absent.
+     */
+    @SuppressWarnings("unchecked")
+    V get(long high, long low) {
+        final Table t = this.table;
+        int index = AnagramSignature.hash(high, low) & t.mask;
+        for (int probes = 0; probes <= t.mask; probes++) {
+            final Object value = t.values.get(index);
+            if (value == null) {
+                return null;
+            }
+            if ((t.highs[index] == high) && (t.lows[index] == low)) {
+                return (value == TOMBSTONE) ? null : (V) value;
+            }
+            index = (index + 1) & t.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Associates the value with the signature. Caller must hold the writer lock.
+     *
+     * @param high high half of the packed signature
+     * @param low low half of the packed signature
+     * @param value non-null value
+     */
+    void put(long high, long low, V value) {
+        Table t = this.table;
+        int index = AnagramSignature.hash(high, low) & t.mask;
+        while (true) {
+            final Object current = t.values.get(index);
+            if (current == null) {
+                break;
+            }
+            if ((t.highs[index] == high) && (t.lows[index] == low)) {
+                if (current == TOMBSTONE) {
+                    size++;
+                }
+                t.values.set(index, value);
+                return;
+            }
+            index = (index + 1) & t.mask;
+        }
+        if ((usedSlots + 1) * 4 > (t.mask + 1) * 3) {
+            t = rebuild(size + 1);
+            index = AnagramSignature.hash(high, low) & t.mask;
+            while (t.values.get(index) != null) {
+                index = (index + 1) & t.mask;
+            }
+        }
+        t.highs[index] = high;
+        t.lows[index] = low;
+        t.values.set(index, value);
+        size++;
+        usedSlots++;
+    }
+
+    /**
+     * Removes the signature. Caller must hold the writer lock.
+     *
+     * @param high high half of the packed signature
+     * @param low low half of the packed signature
+     */
+    void remove(long high, long low) {
+        final Table t = this.table;
+        int index = AnagramSignature.hash(high, low) & t.mask;
+        while (true) {
+            final Object current = t.values.get(index);
+            if (current == null) {
+                return;
+            }
+            if ((t.highs[index] == high) && (t.lows[index] == low)) {
+                if (current != TOMBSTONE) {
+                    t.values.set(index, TOMBSTONE);
+                    size--;
+                }
+                return;
+            }
+            index = (index + 1) & t.mask;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Visits every live entry. Caller must hold the writer lock or accept a weakly consistent view.
+     *
+     * @param visitor the visitor
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(Visitor<V> visitor) {
+        final Table t = this.table;
+        for (int i = 0; i <= t.mask; i++) {
+            final Object value = t.values.get(i);
+            if ((value != null) && (value != TOMBSTONE)) {
+                visitor.visit(t.highs[i], t.lows[i], (V) value);
+            }
+        }
+    }
+
+    interface Visitor<V> {
+        void visit(long high, long low, V value);
+    }
+
+    /**
+     * Copies the live entries into a new table (dropping tombstones) and publishes it.
+     */
+    private Table rebuild(int expectedSize) {
+        final Table old = this.table;
+        final Table rebuilt = new Table(tableSizeFor(expectedSize * 2));
+        for (int i = 0; i <= old.mask; i++) {
+            final Object value = old.values.get(i);
+            if ((value != null) && (value != TOMBSTONE)) {
+                int index = AnagramSignature.hash(old.highs[i], old.lows[i]) & rebuilt.mask;
+                while (rebuilt.values.get(index) != null) {
+                    index = (index + 1) & rebuilt.mask;
+                }
+                rebuilt.highs[index] = old.highs[i];
+                rebuilt.lows[index] = old.lows[i];
+                rebuilt.values.lazySet(index, value);
+            }
+        }
+        usedSlots = size;
+        //volatile write publishes the whole rebuilt table
+        this.table = rebuilt;
+        return rebuilt;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = MINIMUM_CAPACITY;
+        while ((n < capacity) && (n < (1 << 30))) {
+            n <<= 1;
+        }
+        return n;
+    }
+}
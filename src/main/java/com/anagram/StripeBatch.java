@@ -0,0 +1,38 @@
+package com.anagram;
+
+/**
+ * Orders the items of a batch by stripe so every stripe lock is taken once per batch.
+ */
+final class StripeBatch {
+
+    static final int SKIP = -1;
+
+    private StripeBatch() {
+    }
+
+    /**
+     * Stable counting sort of item indexes by stripe, so items of the same stripe keep their batch order.
+     *
+     * @param stripes stripe of every item, or {@link #SKIP} for items that do not need any stripe
+     * @param numberOfStripes number of stripes
+     * @return indexes of all items not skipped, grouped by stripe.
+     */
+    static int[] order(int[] stripes, int numberOfStripes) {
+        final int[] starts = new int[numberOfStripes + 1];
+        for (int stripe : stripes) {
+            if (stripe != SKIP) {
+                starts[stripe + 1]++;
+            }
+        }
+        for (int i = 0; i < numberOfStripes; i++) {
+            starts[i + 1] += starts[i];
+        }
+        final int[] order = new int[starts[numberOfStripes]];
+        for (int i = 0; i < stripes.length; i++) {
+            if (stripes[i] != SKIP) {
+                order[starts[stripes[i]]++] = i;
+            }
+        }
+        return order;
+    }
+}
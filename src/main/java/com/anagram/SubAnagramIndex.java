@@ -0,0 +1,289 @@
+package com.anagram;
+
+import java.util.Arrays;
+
+/**
+ * Index of anagram groups answering "which groups can be built from these letters" without scanning every group.
+ *
+ * Groups are keyed by their sorted word (see {@link com.anagram.AnagramSignature#sort(String)}) in a trie where every
+ * level adds one letter in sorted order, so a path spells a letter multiset. A query walks the trie with the sorted
+ * query letters and only descends into letters it still has left, so the cost is bound by the number of sub-multisets
+ * of the query present in the dictionary rather than by the dictionary size.
+ *
+ * Every node also records the lengths of the sorted words below it, which lets wildcard queries
+ * (see {@link #forEachWildcard(String, char, Visitor)}) only descend into subtrees holding words of the right length,
+ * so a blank costs one pass over the matching children rather than a probe for every possible letter.
+ * Lengths are never cleared, so after deletes a query may walk a subtree that no longer holds any group.
+ *
+ * Reads are lock-free. Children arrays are copy-on-write and values are volatile, so callers only need to serialize
+ * updates of the same sorted word, which every engine already does with its own stripe lock.
+ * Nodes of groups that become empty are kept and reused if the group comes back.
+ *
+ * @param <V> the group value stored for every sorted word
+ */
+final class SubAnagramIndex<V> {
+
+    /**
+     * Receives every group found by {@link #forEach(String, Visitor)} or {@link #forEachWildcard(String, char, Visitor)}.
+     */
+    interface Visitor<V> {
+        /**
+         * @param sortedWord buffer holding the sorted word of the group, only valid during the call
+         * @param length length of the sorted word in the buffer
+         * @param value value of the group
+         */
+        void visit(char[] sortedWord, int length, V value);
+    }
+
+    private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+    //lengths of 63 and above share the last bit
+    private static final int MAX_LENGTH_BIT = Long.SIZE - 1;
+
+    private static final class Node<V> {
+        private final char letter;
+        //sorted by letter, replaced on every insert
+        private volatile Node<V>[] children;
+        private volatile V value;
+        //bit n is set if a word of length n is stored in this node or below
+        private volatile long lengths;
+
+        @SuppressWarnings("unchecked")
+        private Node(char letter) {
+            this.letter = letter;
+            this.children = (Node<V>[]) NO_CHILDREN;
+        }
+    }
+
+    private final Node<V> root = new Node<>((char) 0);
+
+    /**
+     * Sets the value of a group. Updates of the same sorted word must be serialized by the caller.
+     *
+     * @param sortedWord the group's sorted word
+     * @param value the group value or null if the group is empty
+     */
+    void put(String sortedWord, V value) {
+        final long length = lengthBit(sortedWord.length());
+        Node<V> node = root;
+        if (value != null) {
+            addLength(node, length);
+        }
+        for (int i = 0; i < sortedWord.length(); i++) {
+            node = (value != null) ? getOrCreateChild(node, sortedWord.charAt(i)) : getChild(node, sortedWord.charAt(i));
+            if (node == null) {
+                //nothing to remove
+                return;
+            }
+            if (value != null) {
+                addLength(node, length);
+            }
+        }
+        node.value = value;
+    }
+
+    /**
+     * @param sortedWord the group's sorted word
+     * @return the value of the group or null
+     */
+    V get(String sortedWord) {
+        Node<V> node = root;
+        for (int i = 0; (i < sortedWord.length()) && (node != null); i++) {
+            node = getChild(node, sortedWord.charAt(i));
+        }
+        return (node != null) ? node.value : null;
+    }
+
+    /**
+     * Visits every group whose letters are a sub-multiset of the letters, case-insensitively.
+     *
+     * @param letters the available letters in any order
+     * @param visitor receives every matching group
+     * @return number of visited groups
+     */
+    int forEach(String letters, Visitor<? super V> visitor) {
+        if ((letters == null) || letters.isEmpty()) {
+            return 0;
+        }
+        final String sortedLetters = AnagramSignature.sort(letters);
+        final char[] distinct = new char[sortedLetters.length()];
+        final int[] counts = new int[sortedLetters.length()];
+        final int distinctCount = countLetters(sortedLetters, distinct, counts);
+        return forEach(root, Arrays.copyOf(distinct, distinctCount), counts, 0,
+                new char[sortedLetters.length()], 0, visitor);
+    }
+
+    private int forEach(Node<V> node, char[] distinct, int[] counts, int fromLetter,
+                        char[] path, int depth, Visitor<? super V> visitor) {
+        int visited = 0;
+        final Node<V>[] children = node.children;
+        //both arrays are sorted, so walk them together
+        int i = 0;
+        int j = fromLetter;
+        while ((i < children.length) && (j < distinct.length)) {
+            final Node<V> child = children[i];
+            if (child.letter < distinct[j]) {
+                i++;
+            } else if (child.letter > distinct[j]) {
+                j++;
+            } else {
+                if (counts[j] > 0) {
+                    counts[j]--;
+                    path[depth] = child.letter;
+                    final V value = child.value;
+                    if (value != null) {
+                        visitor.visit(path, depth + 1, value);
+                        visited++;
+                    }
+                    visited += forEach(child, distinct, counts, j, path, depth + 1, visitor);
+                    counts[j]++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Visits every group which has as many letters as the pattern and contains all of its letters other than the
+     * wildcard, case-insensitively. Every wildcard stands for exactly one letter of any value.
+     *
+     * @param pattern the known letters and wildcards in any order
+     * @param wildcard the wildcard character
+     * @param visitor receives every matching group
+     * @return number of visited groups
+     */
+    int forEachWildcard(String pattern, char wildcard, Visitor<? super V> visitor) {
+        if ((pattern == null) || pattern.isEmpty()) {
+            return 0;
+        }
+        final StringBuilder known = new StringBuilder(pattern.length());
+        int blanks = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            final char c = pattern.charAt(i);
+            if (c == wildcard) {
+                blanks++;
+            } else {
+                known.append(c);
+            }
+        }
+        final String sortedLetters = AnagramSignature.sort(known.toString());
+        final char[] distinct = new char[sortedLetters.length()];
+        final int[] counts = new int[sortedLetters.length()];
+        final int distinctCount = countLetters(sortedLetters, distinct, counts);
+        return forEachWildcard(root, Arrays.copyOf(distinct, distinctCount), counts, 0, blanks,
+                lengthBit(pattern.length()), new char[pattern.length()], 0, pattern.length(), visitor);
+    }
+
+    /**
+     * @param next first distinct known letter not fully used yet, every known letter before it is used up
+     */
+    private int forEachWildcard(Node<V> node, char[] distinct, int[] counts, int next, int blanks, long length,
+                                char[] path, int depth, int targetDepth, Visitor<? super V> visitor) {
+        if (depth == targetDepth) {
+            final V value = node.value;
+            if ((value != null) && (next == distinct.length)) {
+                visitor.visit(path, depth, value);
+                return 1;
+            }
+            return 0;
+        }
+        int visited = 0;
+        for (Node<V> child : node.children) {
+            if ((child.lengths & length) == 0) {
+                continue;
+            }
+            //a known letter left behind can never be used, and children are sorted
+            if ((next < distinct.length) && (child.letter > distinct[next])) {
+                break;
+            }
+            path[depth] = child.letter;
+            if ((next < distinct.length) && (child.letter == distinct[next])) {
+                //known letters are used before blanks, so every group is found once
+                counts[next]--;
+                final int childNext = (counts[next] == 0) ? next + 1 : next;
+                visited += forEachWildcard(child, distinct, counts, childNext, blanks, length,
+                        path, depth + 1, targetDepth, visitor);
+                counts[next]++;
+            } else if (blanks > 0) {
+                visited += forEachWildcard(child, distinct, counts, next, blanks - 1, length,
+                        path, depth + 1, targetDepth, visitor);
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Fills the distinct letters of the sorted letters with their counts.
+     *
+     * @return number of distinct letters.
+     */
+    private static int countLetters(String sortedLetters, char[] distinct, int[] counts) {
+        int distinctCount = 0;
+        for (int i = 0; i < sortedLetters.length(); i++) {
+            final char letter = sortedLetters.charAt(i);
+            if ((distinctCount == 0) || (distinct[distinctCount - 1] != letter)) {
+                distinct[distinctCount++] = letter;
+            }
+            counts[distinctCount - 1]++;
+        }
+        return distinctCount;
+    }
+
+    private static long lengthBit(int length) {
+        return 1L << Math.min(length, MAX_LENGTH_BIT);
+    }
+
+    private static void addLength(Node<?> node, long length) {
+        if ((node.lengths & length) == 0) {
+            synchronized (node) {
+                node.lengths |= length;
+            }
+        }
+    }
+
+    private Node<V> getChild(Node<V> node, char letter) {
+        final Node<V>[] children = node.children;
+        final int index = indexOf(children, letter);
+        return (index >= 0) ? children[index] : null;
+    }
+
+    private Node<V> getOrCreateChild(Node<V> node, char letter) {
+        Node<V> child = getChild(node, letter);
+        if (child != null) {
+            return child;
+        }
+        //different sorted words may share this node, so inserts are serialized per node
+        synchronized (node) {
+            final Node<V>[] children = node.children;
+            final int index = indexOf(children, letter);
+            if (index >= 0) {
+                return children[index];
+            }
+            final int insertion = -(index + 1);
+            final Node<V>[] updated = Arrays.copyOf(children, children.length + 1);
+            System.arraycopy(children, insertion, updated, insertion + 1, children.length - insertion);
+            child = new Node<>(letter);
+            updated[insertion] = child;
+            node.children = updated;
+            return child;
+        }
+    }
+
+    private static int indexOf(Node<?>[] children, char letter) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final char middleLetter = children[middle].letter;
+            if (middleLetter < letter) {
+                low = middle + 1;
+            } else if (middleLetter > letter) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,146 @@
+package com.anagram;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * {@link com.anagram.AnagramServiceMBean} that delegates to a service which can be replaced atomically at runtime.
+ *
+ * Typically used with {@link com.anagram.FrozenAnagramService}: a refreshed dictionary is built off to the side and
+ * published with {@link #publish(AnagramServiceMBean)}. Readers never block; calls already running finish against
+ * the previous instance and every call made after the publish sees the new one.
+ */
+public class SwappableAnagramService implements AnagramServiceMBean, AnagramQuery {
+
+    private final AtomicReference<AnagramServiceMBean> anagramService;
+
+    public SwappableAnagramService(AnagramServiceMBean anagramService) {
+        Objects.requireNonNull(anagramService);
+        this.anagramService = new AtomicReference<>(anagramService);
+    }
+
+    /**
+     * Atomically replaces the current service.
+     *
+     * @param replacement the new service
+     * @return the previous service, which the caller may close once it is no longer in use.
+     */
+    public AnagramServiceMBean publish(AnagramServiceMBean replacement) {
+        Objects.requireNonNull(replacement);
+        return anagramService.getAndSet(replacement);
+    }
+
+    /**
+     * @return the currently published service.
+     */
+    public AnagramServiceMBean getAnagramService() {
+        return anagramService.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addWord(String word) {
+        return anagramService.get().addWord(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        return anagramService.get().deleteWord(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getAnagrams(String word) {
+        return anagramService.get().getAnagrams(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        return anagramService.get().addWords(words);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        return anagramService.get().deleteWords(words);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        return anagramService.get().getAllAnagrams(words);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return anagramService.get().getSubAnagrams(letters);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return anagramService.get().getWildcardAnagrams(pattern);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return anagramService.get().getPhraseAnagrams(phrase);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        final AnagramServiceMBean current = anagramService.get();
+        if (current instanceof AnagramQuery) {
+            return ((AnagramQuery) current).forEachAnagram(word, visitor);
+        }
+        final Set<String> anagrams = current.getAnagrams(word);
+        anagrams.forEach(visitor);
+        return anagrams.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        final AnagramServiceMBean current = anagramService.get();
+        if (current instanceof AnagramQuery) {
+            return ((AnagramQuery) current).anagramsView(word);
+        }
+        return Collections.unmodifiableSet(current.getAnagrams(word));
+    }
+
+    @Override
+    public void close() {
+        anagramService.get().close();
+    }
+}
@@ -0,0 +1,500 @@
+package com.anagram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Multi-version {@link com.anagram.AnagramServiceMBean} whose readers never lock and can query a consistent
+ * point-in-time view of the dictionary through a {@link com.anagram.VersionedAnagramService.Snapshot}.
+ *
+ * Every sorted word maps to a chain of versions of its immutable {@link com.anagram.AnagramGroup}, newest first.
+ * Writers are serialized and every call commits one new dictionary version, so a whole
+ * {@link #addWords(String[])} batch becomes visible at once. Readers resolve every group at the last committed
+ * version (or at the version of their snapshot) by skipping newer entries of the chain, so they neither block
+ * writers nor see a batch half applied.
+ *
+ * Versions older than the oldest open snapshot are reclaimed: chains are trimmed as soon as their new version is
+ * committed, and chains kept for a snapshot are trimmed once it is closed. A reader without a snapshot that finds the
+ * version it started at already reclaimed reads the oldest version left, which was committed while it was running.
+ */
+public class VersionedAnagramService implements AnagramServiceMBean, AnagramQuery {
+
+    /**
+     * One version of a group, the group is {@link com.anagram.AnagramGroup#EMPTY} once all its words were deleted.
+     */
+    private static final class Version {
+        private final long version;
+        private final AnagramGroup group;
+        //true if the sorted word did not exist before this version
+        private final boolean first;
+        //older version, trimmed once no snapshot can read it
+        private volatile Version previous;
+
+        private Version(long version, AnagramGroup group, Version previous, boolean first) {
+            this.version = version;
+            this.group = group;
+            this.previous = previous;
+            this.first = first;
+        }
+
+        /**
+         * @return the group as of the version or null if the sorted word did not exist then.
+         */
+        private AnagramGroup at(long readVersion) {
+            Version current = this;
+            while (current.version > readVersion) {
+                final Version previous = current.previous;
+                if (previous == null) {
+                    //either the word is newer or the versions before were reclaimed during the read
+                    return current.first ? null : current.group;
+                }
+                current = previous;
+            }
+            return current.group;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Version> sortedWord2Versions = new ConcurrentHashMap<>();
+    //latest version of every sorted word for sub-anagram queries
+    private final SubAnagramIndex<Version> subAnagramIndex = new SubAnagramIndex<>();
+    //serializes writers and reclamation
+    private final ReentrantLock writeLock = new ReentrantLock();
+    //last committed version
+    private volatile long committedVersion;
+    //versions before this one may have been reclaimed, snapshots must read at this version or later
+    private volatile long reclaimedVersion;
+    private final Set<Snapshot> openSnapshots = ConcurrentHashMap.newKeySet();
+    //sorted words whose chain holds more than one version, only modified with the write lock held
+    private final Set<String> sortedWordsWithHistory = ConcurrentHashMap.newKeySet();
+    //set when a snapshot was closed while a writer held the lock
+    private volatile boolean reclaimPending;
+
+    /**
+     * Consistent, read-only view of the dictionary as of the version it was opened at. Queries do not lock and are
+     * not affected by later writes. A snapshot must be closed so the versions it references can be reclaimed.
+     */
+    public final class Snapshot implements AnagramQuery, AutoCloseable {
+        private final long version;
+        private volatile boolean closed;
+
+        private Snapshot(long version) {
+            this.version = version;
+        }
+
+        /**
+         * @return the dictionary version the snapshot reads.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @see com.anagram.AnagramServiceMBean#getAnagrams(String)
+         */
+        public Set<String> getAnagrams(String word) {
+            return AnagramsView.copyOf(anagramsView(word));
+        }
+
+        /**
+         * @see com.anagram.AnagramServiceMBean#getAllAnagrams(String[])
+         */
+        public List<Set<String>> getAllAnagrams(String[] words) {
+            return VersionedAnagramService.this.getAllAnagrams(words, checkOpen());
+        }
+
+        /**
+         * @see com.anagram.AnagramServiceMBean#getSubAnagrams(String)
+         */
+        public Set<String> getSubAnagrams(String letters) {
+            return VersionedAnagramService.this.getSubAnagrams(letters, checkOpen());
+        }
+
+        /**
+         * @see com.anagram.AnagramServiceMBean#getWildcardAnagrams(String)
+         */
+        public Set<String> getWildcardAnagrams(String pattern) {
+            return VersionedAnagramService.this.getWildcardAnagrams(pattern, checkOpen());
+        }
+
+        /**
+         * @see com.anagram.AnagramServiceMBean#getPhraseAnagrams(String)
+         */
+        public Set<String> getPhraseAnagrams(String phrase) {
+            return VersionedAnagramService.this.getPhraseAnagrams(phrase, checkOpen());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Set<String> anagramsView(String word) {
+            final AnagramGroup anagrams = getGroup(word, checkOpen());
+            return (anagrams == null) ? Collections.<String>emptySet() : anagrams.anagramsView(word);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int forEachAnagram(String word, Consumer<? super String> visitor) {
+            final AnagramGroup anagrams = getGroup(word, checkOpen());
+            return (anagrams == null) ? 0 : anagrams.forEachAnagram(word, visitor);
+        }
+
+        private long checkOpen() {
+            if (closed) {
+                throw new IllegalStateException("Snapshot " + version + " is closed");
+            }
+            return version;
+        }
+
+        /**
+         * Releases the versions referenced by the snapshot. Closing twice has no effect.
+         */
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                if (openSnapshots.remove(this)) {
+                    reclaim();
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a snapshot of the last committed version. Does not wait for writers.
+     *
+     * @return a snapshot which must be closed.
+     */
+    public Snapshot snapshot() {
+        while (true) {
+            final Snapshot snapshot = new Snapshot(committedVersion);
+            openSnapshots.add(snapshot);
+            //a writer that started reclaiming before the snapshot was registered may have trimmed its version
+            if (reclaimedVersion <= snapshot.version) {
+                return snapshot;
+            }
+            openSnapshots.remove(snapshot);
+        }
+    }
+
+    /**
+     * @return the last committed version, incremented by every call that changed the dictionary.
+     */
+    public long getVersion() {
+        return committedVersion;
+    }
+
+    /**
+     * @return number of snapshots not closed yet.
+     */
+    public int getOpenSnapshotCount() {
+        return openSnapshots.size();
+    }
+
+    /**
+     * @return number of sorted words still holding older versions, for snapshots or until the next reclamation.
+     */
+    public int getHistoryCount() {
+        return sortedWordsWithHistory.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addWord(String word) {
+        return addWords(new String[]{word})[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean deleteWord(String word) {
+        return deleteWords(new String[]{word})[0];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The whole batch is committed as one version.
+     */
+    @Override
+    public boolean[] addWords(String[] words) {
+        return update(words, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The whole batch is committed as one version.
+     */
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        return update(words, false);
+    }
+
+    private boolean[] update(String[] words, boolean add) {
+        if (words == null) {
+            return new boolean[0];
+        }
+        final boolean[] updated = new boolean[words.length];
+        writeLock.lock();
+        try {
+            final long version = committedVersion + 1;
+            final String[] sortedWords = new String[words.length];
+            boolean changed = false;
+            for (int i = 0; i < words.length; i++) {
+                if (words[i] != null) {
+                    sortedWords[i] = AnagramSignature.sort(words[i]);
+                    updated[i] = update(sortedWords[i], words[i], add, version);
+                    changed |= updated[i];
+                }
+            }
+            if (changed) {
+                //publishes every version of the batch at once
+                committedVersion = version;
+                final long oldestReadVersion = startReclaim();
+                for (int i = 0; i < words.length; i++) {
+                    if (updated[i]) {
+                        trim(sortedWords[i], oldestReadVersion);
+                    }
+                }
+            }
+            if (reclaimPending) {
+                reclaim(startReclaim());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return updated;
+    }
+
+    /**
+     * Must be called with the write lock held.
+     */
+    private boolean update(String sortedWord, String word, boolean add, long version) {
+        final Version head = sortedWord2Versions.get(sortedWord);
+        final AnagramGroup anagrams = (head != null) ? head.group : AnagramGroup.EMPTY;
+        final AnagramGroup updatedAnagrams = add ? anagrams.add(word) : anagrams.remove(word);
+        if (updatedAnagrams == anagrams) {
+            return false;
+        }
+        final Version updated;
+        if ((head != null) && (head.version == version)) {
+            //already changed earlier in the batch, nobody can read this version yet
+            updated = new Version(version, updatedAnagrams, head.previous, head.first);
+        } else {
+            updated = new Version(version, updatedAnagrams, head, head == null);
+        }
+        sortedWord2Versions.put(sortedWord, updated);
+        subAnagramIndex.put(sortedWord, updated);
+        return true;
+    }
+
+    /**
+     * Publishes that versions before the committed one may be reclaimed, then finds the oldest version still read.
+     * Must be called with the write lock held.
+     *
+     * @return the oldest version an open snapshot may read.
+     */
+    private long startReclaim() {
+        long oldestReadVersion = committedVersion;
+        reclaimedVersion = oldestReadVersion;
+        for (Snapshot snapshot : openSnapshots) {
+            oldestReadVersion = Math.min(oldestReadVersion, snapshot.version);
+        }
+        return oldestReadVersion;
+    }
+
+    /**
+     * Drops the versions of the sorted word that no snapshot can read any more, and the sorted word itself if it was
+     * deleted before every snapshot. Must be called with the write lock held.
+     */
+    private void trim(String sortedWord, long oldestReadVersion) {
+        final Version head = sortedWord2Versions.get(sortedWord);
+        if (head == null) {
+            sortedWordsWithHistory.remove(sortedWord);
+            return;
+        }
+        Version current = head;
+        while ((current.version > oldestReadVersion) && (current.previous != null)) {
+            current = current.previous;
+        }
+        //current is the version seen at oldestReadVersion, everything older is unreachable
+        current.previous = null;
+        if (head.previous != null) {
+            sortedWordsWithHistory.add(sortedWord);
+            return;
+        }
+        sortedWordsWithHistory.remove(sortedWord);
+        if (head.group.isEmpty() && (head.version <= oldestReadVersion)) {
+            sortedWord2Versions.remove(sortedWord);
+            subAnagramIndex.put(sortedWord, null);
+        }
+    }
+
+    /**
+     * Trims the chains holding history now, or leaves it to the writer holding the lock.
+     */
+    private void reclaim() {
+        reclaimPending = true;
+        if (!sortedWordsWithHistory.isEmpty() && writeLock.tryLock()) {
+            try {
+                reclaim(startReclaim());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Must be called with the write lock held.
+     */
+    private void reclaim(long oldestReadVersion) {
+        reclaimPending = false;
+        for (String sortedWord : sortedWordsWithHistory) {
+            trim(sortedWord, oldestReadVersion);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Reads the last committed version.
+     */
+    @Override
+    public Set<String> getAnagrams(String word) {
+        return AnagramsView.copyOf(anagramsView(word));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Reads the last committed version, use a {@link #snapshot()} to read several words at the same version.
+     */
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        return getAllAnagrams(words, committedVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} at the last committed version.
+     */
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return getSubAnagrams(letters, committedVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Lock-free: walks the {@link com.anagram.SubAnagramIndex} at the last committed version.
+     */
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return getWildcardAnagrams(pattern, committedVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Candidate groups are the sub-anagrams of the phrase at the last committed version, solved by the default
+     * {@link com.anagram.PhraseAnagramSolver}.
+     */
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return getPhraseAnagrams(phrase, committedVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> anagramsView(String word) {
+        final AnagramGroup anagrams = getGroup(word, committedVersion);
+        return (anagrams == null) ? Collections.<String>emptySet() : anagrams.anagramsView(word);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int forEachAnagram(String word, Consumer<? super String> visitor) {
+        final AnagramGroup anagrams = getGroup(word, committedVersion);
+        return (anagrams == null) ? 0 : anagrams.forEachAnagram(word, visitor);
+    }
+
+    private AnagramGroup getGroup(String word, long readVersion) {
+        if (word == null) {
+            return null;
+        }
+        final Version head = sortedWord2Versions.get(AnagramSignature.sort(word));
+        return (head != null) ? head.at(readVersion) : null;
+    }
+
+    private List<Set<String>> getAllAnagrams(String[] words, long readVersion) {
+        if (words == null) {
+            return new ArrayList<>();
+        }
+        final List<Set<String>> anagrams = new ArrayList<>(words.length);
+        for (String word : words) {
+            final AnagramGroup group = getGroup(word, readVersion);
+            anagrams.add((group == null) ? Collections.<String>emptySet() : AnagramsView.copyOf(group.anagramsView(word)));
+        }
+        return anagrams;
+    }
+
+    private Set<String> getSubAnagrams(String letters, long readVersion) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEach(letters, (sortedWord, length, versions) -> {
+            final AnagramGroup anagrams = versions.at(readVersion);
+            if (anagrams != null) {
+                anagrams.addTo(words);
+            }
+        });
+        return words;
+    }
+
+    private Set<String> getWildcardAnagrams(String pattern, long readVersion) {
+        final Set<String> words = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        subAnagramIndex.forEachWildcard(pattern, WILDCARD, (sortedWord, length, versions) -> {
+            final AnagramGroup anagrams = versions.at(readVersion);
+            if (anagrams != null) {
+                anagrams.addTo(words);
+            }
+        });
+        return words;
+    }
+
+    private Set<String> getPhraseAnagrams(String phrase, long readVersion) {
+        final List<String[]> groups = new ArrayList<>();
+        subAnagramIndex.forEach(PhraseAnagramSolver.letters(phrase), (sortedWord, length, versions) -> {
+            final AnagramGroup anagrams = versions.at(readVersion);
+            if ((anagrams != null) && !anagrams.isEmpty()) {
+                groups.add(anagrams.toArray());
+            }
+        });
+        return PhraseAnagramSolver.getDefault().solve(phrase, groups);
+    }
+
+    /**
+     * Closes every open snapshot.
+     */
+    @Override
+    public void close() {
+        for (Snapshot snapshot : openSnapshots) {
+            snapshot.close();
+        }
+    }
+}
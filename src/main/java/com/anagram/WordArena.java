@@ -0,0 +1,98 @@
+package com.anagram;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only off-heap memory arena made of direct {@link java.nio.ByteBuffer} chunks.
+ *
+ * Records are 8-byte aligned and never span chunks, which allows them to be referenced by an int offset
+ * counted in 8-byte units (up to 16GB per arena). Offset 0 is reserved so it can be used as a null reference.
+ *
+ * Not thread-safe for allocation. Reads through absolute get methods are safe once the record is published
+ * by the caller (eg. under a lock).
+ */
+final class WordArena {
+
+    static final int NULL = 0;
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final int ALIGNMENT_SHIFT = 3;
+    private static final int ALIGNMENT = 1 << ALIGNMENT_SHIFT;
+    private static final long MAX_ADDRESS = ((long) Integer.MAX_VALUE) << ALIGNMENT_SHIFT;
+
+    private final int chunkSize;
+    private final int chunkShift;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private ByteBuffer currentChunk;
+    private int chunkPosition;
+    private long usedBytes;
+
+    /**
+     * @param chunkSize size of every direct buffer chunk, must be a power of two.
+     */
+    WordArena(int chunkSize) {
+        if ((chunkSize < ALIGNMENT) || (Integer.bitCount(chunkSize) != 1)) {
+            throw new IllegalArgumentException("Invalid chunk size " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        //reserve offset 0 as null
+        allocate(ALIGNMENT);
+    }
+
+    /**
+     * Allocates a record.
+     *
+     * @param size record size in bytes
+     * @return offset of the record.
+     */
+    int allocate(int size) {
+        final int alignedSize = (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+        if ((alignedSize <= 0) || (alignedSize > chunkSize)) {
+            throw new IllegalArgumentException("Invalid record size " + size);
+        }
+        if ((currentChunk == null) || ((chunkPosition + alignedSize) > chunkSize)) {
+            if (((long) (chunks.size() + 1) << chunkShift) > MAX_ADDRESS) {
+                throw new OutOfMemoryError("Word arena is full");
+            }
+            currentChunk = ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.nativeOrder());
+            chunks.add(currentChunk);
+            chunkPosition = 0;
+        }
+        final long address = ((long) (chunks.size() - 1) << chunkShift) | chunkPosition;
+        chunkPosition += alignedSize;
+        usedBytes += alignedSize;
+        return (int) (address >>> ALIGNMENT_SHIFT);
+    }
+
+    ByteBuffer chunk(int offset) {
+        return chunks.get((int) ((((long) offset) << ALIGNMENT_SHIFT) >>> chunkShift));
+    }
+
+    int position(int offset) {
+        return (int) ((((long) offset) << ALIGNMENT_SHIFT) & (chunkSize - 1));
+    }
+
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    long getAllocatedBytes() {
+        return (long) chunks.size() * chunkSize;
+    }
+
+    /**
+     * Drops all chunks. Direct memory is returned once the buffers are garbage collected.
+     * The arena stays usable and allocates new chunks on demand.
+     */
+    void clear() {
+        chunks.clear();
+        currentChunk = null;
+        chunkPosition = 0;
+        usedBytes = 0;
+        allocate(ALIGNMENT);
+    }
+}
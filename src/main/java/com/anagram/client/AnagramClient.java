@@ -121,6 +121,9 @@ public class AnagramClient {
                 sb.append("[A]\tAdd a word\n");
                 sb.append("[D]\tDelete a word\n");
                 sb.append("[P]\tPrint anagrams\n");
+                sb.append("[S]\tPrint words made of letters\n");
+                sb.append("[W]\tPrint anagrams of letters with '?' wildcards\n");
+                sb.append("[M]\tPrint multi-word anagrams of a phrase\n");
                 sb.append("[X]\tExit");
                 System.out.println(sb);
                 sb.setLength(0);
@@ -172,6 +175,66 @@ public class AnagramClient {
                         }
                         System.out.println(sb);
                         break;
+                    case "S":
+                        sb.append("Enter letters: ");
+                        System.out.println(sb);
+                        word = is.readLine();
+                        anagrams = anagramService.getSubAnagrams(word);
+                        sb.setLength(0);
+                        if(anagrams.isEmpty()) {
+                            sb.append("No words made of letters '").append(word).append("'");
+                        } else {
+                            sb.append(anagrams.size()).append(" words made of letters '").append(word).append("': ");
+                            int counter = 0;
+                            for (String anagram : anagrams) {
+                                if(counter++ > 0) {
+                                    sb.append(", ");
+                                }
+                                sb.append(anagram);
+                            }
+                        }
+                        System.out.println(sb);
+                        break;
+                    case "W":
+                        sb.append("Enter letters and '?' wildcards: ");
+                        System.out.println(sb);
+                        word = is.readLine();
+                        anagrams = anagramService.getWildcardAnagrams(word);
+                        sb.setLength(0);
+                        if(anagrams.isEmpty()) {
+                            sb.append("No anagrams for '").append(word).append("'");
+                        } else {
+                            sb.append(anagrams.size()).append(" anagrams for '").append(word).append("': ");
+                            int counter = 0;
+                            for (String anagram : anagrams) {
+                                if(counter++ > 0) {
+                                    sb.append(", ");
+                                }
+                                sb.append(anagram);
+                            }
+                        }
+                        System.out.println(sb);
+                        break;
+                    case "M":
+                        sb.append("Enter phrase: ");
+                        System.out.println(sb);
+                        word = is.readLine();
+                        anagrams = anagramService.getPhraseAnagrams(word);
+                        sb.setLength(0);
+                        if(anagrams.isEmpty()) {
+                            sb.append("No phrase anagrams for '").append(word).append("'");
+                        } else {
+                            sb.append(anagrams.size()).append(" phrase anagrams for '").append(word).append("': ");
+                            int counter = 0;
+                            for (String anagram : anagrams) {
+                                if(counter++ > 0) {
+                                    sb.append(", ");
+                                }
+                                sb.append(anagram);
+                            }
+                        }
+                        System.out.println(sb);
+                        break;
                     case "X":
                         close();
                         sb.append("Exiting...");
@@ -1,10 +1,22 @@
 package com.anagram.server.jmx;
 
+import com.anagram.AnagramServiceCacheMBean;
 import com.anagram.AnagramServiceFactory;
+import com.anagram.AnagramServiceLogMBean;
 import com.anagram.AnagramServiceMBean;
+import com.anagram.AnagramServiceMBeanFileTailer;
+import com.anagram.AnagramServiceReadinessMBean;
+import com.anagram.AnagramServiceSnapshotMBean;
+import com.anagram.AnagramServiceSnapshotter;
+import com.anagram.AnagramServiceStripesMBean;
+import com.anagram.AnagramServiceTailerMBean;
+import com.anagram.CachingAnagramService;
+import com.anagram.ProgressiveAnagramService;
 
 import javax.management.*;
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
 import java.util.Set;
@@ -17,26 +29,122 @@ import java.util.Set;
 public class AnagramServiceJMXServer {
 
     public static final String EXIT = "X";
+    public static final String SNAPSHOT = "S";
 
+    private final Map<String, AnagramServiceMBean> anagramServices;
     private final AnagramServiceMBean anagramService;
     private final AnagramServiceFactory anagramServiceFactory;
     private final String mbeanName;
     private final ObjectName objectName;
     private final ObjectInstance registeredMBean;
+    //set once the dictionary is loaded
+    private volatile AnagramServiceMBeanFileTailer tailer;
+    private volatile AnagramServiceSnapshotter snapshotter;
 
     public AnagramServiceJMXServer(String mbeanName) throws MalformedObjectNameException, NotCompliantMBeanException,
-            InstanceAlreadyExistsException, MBeanRegistrationException {
+            InstanceAlreadyExistsException, MBeanRegistrationException, IOException {
         this.mbeanName = mbeanName;
         Objects.nonNull(this.mbeanName);
         this.objectName = new ObjectName(this.mbeanName);
 
         this.anagramServiceFactory = new AnagramServiceFactory();
-        this.anagramService = this.anagramServiceFactory.createAnagramService(AnagramServiceFactory.Mode.LOCAL);
+        this.anagramServices = this.anagramServiceFactory.createAnagramServices();
+        this.anagramService = this.anagramServices.get(AnagramServiceFactory.DEFAULT_DICTIONARY_NAME);
 
         MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
-        this.registeredMBean = mBeanServer.registerMBean(anagramService, this.objectName);
+        //wrap since only AnagramService follows the standard MBean naming convention
+        final StandardMBean standardMBean = new StandardMBean(anagramService, AnagramServiceMBean.class);
+        this.registeredMBean = mBeanServer.registerMBean(standardMBean, this.objectName);
         Objects.nonNull(this.registeredMBean);
         System.out.println("Registered mbean " + registeredMBean.getObjectName());
+
+        if (anagramService instanceof AnagramServiceCacheMBean) {
+            final ObjectName cacheObjectName = new ObjectName(this.mbeanName + ",name=Cache");
+            mBeanServer.registerMBean(new StandardMBean((AnagramServiceCacheMBean) anagramService, AnagramServiceCacheMBean.class), cacheObjectName);
+            System.out.println("Registered mbean " + cacheObjectName);
+        }
+        for (Map.Entry<String, AnagramServiceMBean> entry : anagramServices.entrySet()) {
+            if (!entry.getKey().equals(AnagramServiceFactory.DEFAULT_DICTIONARY_NAME)) {
+                registerDictionary(mBeanServer, AnagramServiceFactory.getObjectName(this.mbeanName, entry.getKey()), entry.getValue());
+            }
+        }
+        final ProgressiveAnagramService progressive = AnagramServiceFactory.getProgressive(anagramService);
+        if (progressive != null) {
+            final ObjectName readinessObjectName = new ObjectName(this.mbeanName + ",name=Readiness");
+            mBeanServer.registerMBean(new StandardMBean(progressive, AnagramServiceReadinessMBean.class), readinessObjectName);
+            System.out.println("Registered mbean " + readinessObjectName);
+            progressive.ready().thenRun(() -> {
+                try {
+                    registerLoaded(mBeanServer);
+                } catch (JMException | IOException e) {
+                    System.out.println("Failed to register mbeans: " + e);
+                }
+            });
+        } else {
+            registerLoaded(mBeanServer);
+        }
+    }
+
+    /**
+     * Registers a named dictionary with its cache, stripes and readiness under the dictionary's object name.
+     */
+    private static void registerDictionary(MBeanServer mBeanServer, String dictionaryMBeanName, AnagramServiceMBean anagramService)
+            throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException {
+        final ObjectName dictionaryObjectName = new ObjectName(dictionaryMBeanName);
+        mBeanServer.registerMBean(new StandardMBean(anagramService, AnagramServiceMBean.class), dictionaryObjectName);
+        System.out.println("Registered mbean " + dictionaryObjectName);
+        if (anagramService instanceof AnagramServiceCacheMBean) {
+            final ObjectName cacheObjectName = new ObjectName(dictionaryMBeanName + ",name=Cache");
+            mBeanServer.registerMBean(new StandardMBean((AnagramServiceCacheMBean) anagramService, AnagramServiceCacheMBean.class), cacheObjectName);
+            System.out.println("Registered mbean " + cacheObjectName);
+        }
+        final AnagramServiceMBean engine = AnagramServiceFactory.getEngine(anagramService);
+        if (engine instanceof AnagramServiceStripesMBean) {
+            final ObjectName stripesObjectName = new ObjectName(dictionaryMBeanName + ",name=Stripes");
+            mBeanServer.registerMBean(new StandardMBean((AnagramServiceStripesMBean) engine, AnagramServiceStripesMBean.class), stripesObjectName);
+            System.out.println("Registered mbean " + stripesObjectName);
+        }
+        final ProgressiveAnagramService progressive = AnagramServiceFactory.getProgressive(anagramService);
+        if (progressive != null) {
+            final ObjectName readinessObjectName = new ObjectName(dictionaryMBeanName + ",name=Readiness");
+            mBeanServer.registerMBean(new StandardMBean(progressive, AnagramServiceReadinessMBean.class), readinessObjectName);
+            System.out.println("Registered mbean " + readinessObjectName);
+        }
+    }
+
+    /**
+     * Registers the mbeans of the loaded service and starts following the tail file and writing snapshots, which must
+     * not start before the whole dictionary is loaded.
+     */
+    private void registerLoaded(MBeanServer mBeanServer) throws MalformedObjectNameException, NotCompliantMBeanException,
+            InstanceAlreadyExistsException, MBeanRegistrationException, IOException {
+        final AnagramServiceMBean loaded = (anagramService instanceof CachingAnagramService) ?
+                ((CachingAnagramService) anagramService).getAnagramService() : anagramService;
+        final AnagramServiceMBean durable = (loaded instanceof ProgressiveAnagramService) ?
+                ((ProgressiveAnagramService) loaded).getAnagramService() : loaded;
+        if (durable instanceof AnagramServiceLogMBean) {
+            final ObjectName logObjectName = new ObjectName(this.mbeanName + ",name=Log");
+            mBeanServer.registerMBean(new StandardMBean((AnagramServiceLogMBean) durable, AnagramServiceLogMBean.class), logObjectName);
+            System.out.println("Registered mbean " + logObjectName);
+        }
+        final AnagramServiceMBean engine = AnagramServiceFactory.getEngine(anagramService);
+        if (engine instanceof AnagramServiceStripesMBean) {
+            final ObjectName stripesObjectName = new ObjectName(this.mbeanName + ",name=Stripes");
+            mBeanServer.registerMBean(new StandardMBean((AnagramServiceStripesMBean) engine, AnagramServiceStripesMBean.class), stripesObjectName);
+            System.out.println("Registered mbean " + stripesObjectName);
+        }
+        this.tailer = anagramServiceFactory.tailFile(anagramService);
+        if (tailer != null) {
+            final ObjectName tailerObjectName = new ObjectName(this.mbeanName + ",name=Tailer");
+            mBeanServer.registerMBean(new StandardMBean(tailer, AnagramServiceTailerMBean.class), tailerObjectName);
+            System.out.println("Registered mbean " + tailerObjectName);
+        }
+        this.snapshotter = anagramServiceFactory.createSnapshotter(anagramService);
+        if (snapshotter != null) {
+            final ObjectName snapshotObjectName = new ObjectName(this.mbeanName + ",name=Snapshot");
+            mBeanServer.registerMBean(new StandardMBean(snapshotter, AnagramServiceSnapshotMBean.class), snapshotObjectName);
+            System.out.println("Registered mbean " + snapshotObjectName);
+        }
     }
 
     private void readConsoleInput() {
@@ -47,14 +155,42 @@ public class AnagramServiceJMXServer {
         while (true) {
             sb.setLength(0);
             sb.append("Enter any command below:\n");
+            if (snapshotter != null) {
+                sb.append("[S]\tWrite snapshot to ").append(snapshotter.getSnapshotFileName()).append("\n");
+            }
             sb.append("[X]\tExit");
             System.out.println(sb);
             sb.setLength(0);
             String command = scanner.nextLine();
             switch (command) {
+                case SNAPSHOT:
+                    if (snapshotter != null) {
+                        snapshotter.snapshot();
+                        sb.append("Writing snapshot in the background...");
+                    } else {
+                        sb.append("No snapshot file set, or the dictionary is still loading");
+                    }
+                    System.out.println(sb);
+                    break;
                 case EXIT:
                     sb.append("Exiting...");
                     System.out.println(sb);
+                    if (snapshotter != null) {
+                        //stop the tailer first so the last snapshot holds every applied line
+                        if (tailer != null) {
+                            try {
+                                tailer.close();
+                            } catch (IOException e) {
+                                System.out.println("Failed to stop tailer: " + e);
+                            }
+                        }
+                        snapshotter.close();
+                        try {
+                            snapshotter.writeSnapshot();
+                        } catch (IOException e) {
+                            System.out.println("Failed to write snapshot: " + e);
+                        }
+                    }
                     return;
                 default:
                     sb.append("Invalid command '").append(command).append("'");
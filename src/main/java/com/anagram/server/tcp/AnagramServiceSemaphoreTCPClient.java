@@ -9,7 +9,9 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
@@ -54,7 +56,8 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
     private volatile boolean active;
     private volatile boolean connected;
     private Selector selector;
-    private final ByteBuffer readBuffer;
+    //grows while a response does not fit
+    private ByteBuffer readBuffer;
     private final ByteBuffer writeBuffer;
 
     private final Object guardedObject = new Object();
@@ -62,6 +65,9 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
     private Boolean added;
     private Boolean deleted;
     private Set<String> anagrams;
+    private Boolean ready;
+    private volatile boolean partial;
+    private volatile boolean rejected;
 
     private final StringBuilder sb = new StringBuilder();
 
@@ -132,7 +138,7 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
             socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, configuration.isReuseAddress());
             socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, configuration.isTcpNoDelay());
 
-            registeredSelectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT, readBuffer);
+            registeredSelectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT);
 
             final boolean connect = socketChannel.connect(socketAddress);
 
@@ -202,9 +208,15 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
     private void processCommand(Command command) {
         if(command != null) {
             writeBuffer.clear();
+            final int frameStart = FrameUtil.beginFrame(writeBuffer);
             writeBuffer.put(command.getEventType().getTypeCode());
             writeBuffer.putInt(command.getWord().getBytes().length);
             writeBuffer.put(command.getWord().getBytes());
+            if (configuration.getDictionaryName() != null) {
+                writeBuffer.putInt(configuration.getDictionaryName().getBytes().length);
+                writeBuffer.put(configuration.getDictionaryName().getBytes());
+            }
+            FrameUtil.endFrame(writeBuffer, frameStart);
             SelectionKeyUtil.setBit(registeredSelectionKey, SelectionKey.OP_WRITE);
         }
     }
@@ -252,11 +264,9 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
     private void readOP(SelectionKey key, Selector selector) throws IOException {
         try {
             final SocketChannel socketChannel1 = (SocketChannel) key.channel();
-            final ByteBuffer byteBuffer = (ByteBuffer) key.attachment();
-            byteBuffer.clear();
             int numRead = -1;
             try {
-                numRead = socketChannel1.read(byteBuffer);
+                numRead = socketChannel1.read(readBuffer);
             } catch (IOException e) {
                 log.severe("Read Error: " + e.getMessage());
             }
@@ -266,23 +276,44 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
                 key.cancel();
                 return;
             } else if(numRead > 0){
-                processResponse(key, socketChannel1, byteBuffer);
+                decodeResponses(key, socketChannel1);
             }
         } catch(IOException e) {
             System.err.println(e);
         }
     }
 
+    //responses may arrive over several reads
+    private void decodeResponses(SelectionKey selectionKey, SocketChannel socketChannel) throws IOException {
+        readBuffer.flip();
+        int frameLength;
+        while ((frameLength = FrameUtil.nextFrameLength(readBuffer, Integer.MAX_VALUE)) > 0) {
+            final int limit = readBuffer.limit();
+            final int frameEnd = readBuffer.position() + FrameUtil.LENGTH_FIELD_SIZE + frameLength;
+            readBuffer.position(readBuffer.position() + FrameUtil.LENGTH_FIELD_SIZE);
+            readBuffer.limit(frameEnd);
+            processResponse(selectionKey, socketChannel, readBuffer);
+            readBuffer.limit(limit);
+            readBuffer.position(frameEnd);
+        }
+        readBuffer.compact();
+        readBuffer = FrameUtil.ensureFrameCapacity(readBuffer);
+    }
+
     private void processResponse(SelectionKey selectionKey, SocketChannel socketChannel, ByteBuffer byteBuffer) {
-        byteBuffer.flip();
         final byte eventTypeTypeCode = byteBuffer.get();
         final EventType eventType = EventType.fromTypeCode(eventTypeTypeCode);
         sb.setLength(0);
+        if (eventType == null) {
+            log.severe("Invalid eventType: " + eventTypeTypeCode);
+            return;
+        }
 
         switch (eventType) {
             case ADD:
-                final byte addedByteValue = byteBuffer.get();
-                boolean addedValue = (addedByteValue == 0) ? false : true;
+                final UpdateStatus addedStatus = UpdateStatus.fromStatusCode(byteBuffer.get());
+                boolean addedValue = (addedStatus == UpdateStatus.CHANGED);
+                rejected = (addedStatus == UpdateStatus.REJECTED);
 
 //                try {
 //                    eventSemaphore.acquire();
@@ -298,8 +329,9 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
                 eventSemaphore.release();
                 break;
             case DELETE:
-                final byte deletedByteValue = byteBuffer.get();
-                boolean deletedValue = (deletedByteValue == 0) ? false : true;
+                final UpdateStatus deletedStatus = UpdateStatus.fromStatusCode(byteBuffer.get());
+                boolean deletedValue = (deletedStatus == UpdateStatus.CHANGED);
+                rejected = (deletedStatus == UpdateStatus.REJECTED);
 
 //                try {
 //                    eventSemaphore.acquire();
@@ -316,12 +348,17 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
 
                 break;
             case PRINT:
+            case SUBANAGRAMS:
+            case WILDCARD:
+            case PHRASE_ANAGRAMS:
                 Set<String> tempAnagrams = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
                 final int count = byteBuffer.getInt();
                 for(int i=0; i<count; i++) {
                     String word = getWord(byteBuffer);
                     tempAnagrams.add(word);
                 }
+                //servers loading progressively flag results holding only the words loaded so far
+                partial = byteBuffer.hasRemaining() && (byteBuffer.get() != 0);
 
 //                try {
 //                    eventSemaphore.acquire();
@@ -336,6 +373,13 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
                 anagrams = tempAnagrams;
                 eventSemaphore.release();
 
+                break;
+            case READY:
+                ready = (byteBuffer.get() != 0);
+                eventSemaphore.release();
+                break;
+            case ERROR:
+                log.warning("Server could not answer a request of type " + (char) byteBuffer.get());
                 break;
             default:
                 break;
@@ -432,6 +476,108 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
 
     @Override
     public Set<String> getAnagrams(String word) {
+        return getWords(EventType.PRINT, word);
+    }
+
+    /**
+     * @return true if the last query result was answered while the server was still loading its dictionary, so it
+     * only holds the words loaded so far.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * @return true if the last update was rejected by the server, eg. while it loads its dictionary or because the
+     * dictionary is read-only, rather than finding nothing to change.
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return true once the server has loaded its whole dictionary.
+     */
+    public boolean isServerReady() {
+        boolean result = false;
+
+        //set commandWord
+        try {
+            final boolean acquired = commandSemaphore.tryAcquire(configuration.getWaitTimeoutMilliseconds(), TimeUnit.MILLISECONDS);
+            if(!acquired) {
+                throw new RuntimeException("Wait timeout " + configuration.getWaitTimeoutMilliseconds() + " milliseconds exceeded");
+            }
+            command = new Command(EventType.READY, "");
+        } catch (InterruptedException e) {
+            //restore interrupted status
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            commandSemaphore.release();
+        }
+
+        //check ready Event value
+        try {
+            final boolean acquired = eventSemaphore.tryAcquire(configuration.getWaitTimeoutMilliseconds(), TimeUnit.MILLISECONDS);
+            if(!acquired) {
+                throw new RuntimeException("Wait timeout " + configuration.getWaitTimeoutMilliseconds() + " milliseconds exceeded");
+            }
+            result = ready;
+            ready = null;
+        } catch (InterruptedException e) {
+            //restore interrupted status
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } finally {
+            eventSemaphore.release();
+        }
+
+        return result;
+    }
+
+    @Override
+    public boolean[] addWords(String[] words) {
+        final boolean[] added = new boolean[words.length];
+        for (int i = 0; i < words.length; i++) {
+            added[i] = addWord(words[i]);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        final boolean[] deleted = new boolean[words.length];
+        for (int i = 0; i < words.length; i++) {
+            deleted[i] = deleteWord(words[i]);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        final List<Set<String>> anagrams = new ArrayList<>(words.length);
+        for (String word : words) {
+            anagrams.add(getAnagrams(word));
+        }
+        return anagrams;
+    }
+
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return getWords(EventType.SUBANAGRAMS, letters);
+    }
+
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return getWords(EventType.WILDCARD, pattern);
+    }
+
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return getWords(EventType.PHRASE_ANAGRAMS, phrase);
+    }
+
+    private Set<String> getWords(EventType eventType, String word) {
         Set<String> result = null;
 
         //set commandWord
@@ -440,7 +586,7 @@ public class AnagramServiceSemaphoreTCPClient implements AnagramServiceMBean, Ru
             if(!acquired) {
                 throw new RuntimeException("Wait timeout " + configuration.getWaitTimeoutMilliseconds() + " milliseconds exceeded");
             }
-            command = new Command(EventType.PRINT, word);
+            command = new Command(eventType, word);
         } catch (InterruptedException e) {
             //restore interrupted status
             Thread.currentThread().interrupt();
@@ -7,7 +7,9 @@ import java.net.InetSocketAddress;
 import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
@@ -51,7 +53,8 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
     private volatile boolean active;
     private volatile boolean connected;
     private Selector selector;
-    private final ByteBuffer readBuffer;
+    //grows while a response does not fit
+    private ByteBuffer readBuffer;
     private final ByteBuffer writeBuffer;
 
 //    private final BlockingQueue<Command> commands = new LinkedBlockingDeque<>();
@@ -64,6 +67,8 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
     private Boolean added;
     private Boolean deleted;
     private Set<String> anagrams;
+    private volatile boolean partial;
+    private volatile boolean rejected;
 
     private final StringBuilder sb = new StringBuilder();
 
@@ -128,7 +133,7 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
             socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, configuration.isReuseAddress());
             socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, configuration.isTcpNoDelay());
 
-            registeredSelectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT, readBuffer);
+            registeredSelectionKey = socketChannel.register(selector, SelectionKey.OP_CONNECT);
 //            selectionKey.attach(readBuffer);
 
             final boolean connect = socketChannel.connect(socketAddress);
@@ -200,9 +205,15 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
     private void processCommand(Command command) {
         if(command != null) {
             writeBuffer.clear();
+            final int frameStart = FrameUtil.beginFrame(writeBuffer);
             writeBuffer.put(command.getEventType().getTypeCode());
             writeBuffer.putInt(command.getWord().getBytes().length);
             writeBuffer.put(command.getWord().getBytes());
+            if (configuration.getDictionaryName() != null) {
+                writeBuffer.putInt(configuration.getDictionaryName().getBytes().length);
+                writeBuffer.put(configuration.getDictionaryName().getBytes());
+            }
+            FrameUtil.endFrame(writeBuffer, frameStart);
             SelectionKeyUtil.setBit(registeredSelectionKey, SelectionKey.OP_WRITE);
         }
     }
@@ -250,11 +261,9 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
     private void readOP(SelectionKey key, Selector selector) throws IOException {
         try {
             final SocketChannel socketChannel1 = (SocketChannel) key.channel();
-            final ByteBuffer byteBuffer = (ByteBuffer) key.attachment();
-            byteBuffer.clear();
             int numRead = -1;
             try {
-                numRead = socketChannel1.read(byteBuffer);
+                numRead = socketChannel1.read(readBuffer);
             } catch (IOException e) {
                 log.severe("Read Error: " + e.getMessage());
             }
@@ -264,23 +273,44 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
                 key.cancel();
                 return;
             } else if(numRead > 0){
-                processResponse(key, socketChannel1, byteBuffer);
+                decodeResponses(key, socketChannel1);
             }
         } catch(IOException e) {
             System.err.println(e);
         }
     }
 
+    //responses may arrive over several reads
+    private void decodeResponses(SelectionKey selectionKey, SocketChannel socketChannel) throws IOException {
+        readBuffer.flip();
+        int frameLength;
+        while ((frameLength = FrameUtil.nextFrameLength(readBuffer, Integer.MAX_VALUE)) > 0) {
+            final int limit = readBuffer.limit();
+            final int frameEnd = readBuffer.position() + FrameUtil.LENGTH_FIELD_SIZE + frameLength;
+            readBuffer.position(readBuffer.position() + FrameUtil.LENGTH_FIELD_SIZE);
+            readBuffer.limit(frameEnd);
+            processResponse(selectionKey, socketChannel, readBuffer);
+            readBuffer.limit(limit);
+            readBuffer.position(frameEnd);
+        }
+        readBuffer.compact();
+        readBuffer = FrameUtil.ensureFrameCapacity(readBuffer);
+    }
+
     private void processResponse(SelectionKey selectionKey, SocketChannel socketChannel, ByteBuffer byteBuffer) {
-        byteBuffer.flip();
         final byte eventTypeTypeCode = byteBuffer.get();
         final EventType eventType = EventType.fromTypeCode(eventTypeTypeCode);
         sb.setLength(0);
+        if (eventType == null) {
+            log.severe("Invalid eventType: " + eventTypeTypeCode);
+            return;
+        }
 
         switch (eventType) {
             case ADD:
-                final byte addedByteValue = byteBuffer.get();
-                boolean addedValue = (addedByteValue == 0) ? false : true;
+                final UpdateStatus addedStatus = UpdateStatus.fromStatusCode(byteBuffer.get());
+                boolean addedValue = (addedStatus == UpdateStatus.CHANGED);
+                rejected = (addedStatus == UpdateStatus.REJECTED);
                 synchronized (guardedObject) {
                     while(added != null) {
                         try {
@@ -295,8 +325,9 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
                 }
                 break;
             case DELETE:
-                final byte deletedByteValue = byteBuffer.get();
-                boolean deletedValue = (deletedByteValue == 0) ? false : true;
+                final UpdateStatus deletedStatus = UpdateStatus.fromStatusCode(byteBuffer.get());
+                boolean deletedValue = (deletedStatus == UpdateStatus.CHANGED);
+                rejected = (deletedStatus == UpdateStatus.REJECTED);
                 synchronized (guardedObject) {
                     while(deleted != null) {
                         try {
@@ -311,12 +342,17 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
                 }
                 break;
             case PRINT:
+            case SUBANAGRAMS:
+            case WILDCARD:
+            case PHRASE_ANAGRAMS:
                 Set<String> tempAnagrams = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
                 final int count = byteBuffer.getInt();
                 for(int i=0; i<count; i++) {
                     String word = getWord(byteBuffer);
                     tempAnagrams.add(word);
                 }
+                //servers loading progressively flag results holding only the words loaded so far
+                partial = byteBuffer.hasRemaining() && (byteBuffer.get() != 0);
                 synchronized (guardedObject) {
                     while(anagrams != null) {
                         try {
@@ -330,6 +366,9 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
                     guardedObject.notify();
                 }
                 break;
+            case ERROR:
+                log.warning("Server could not answer a request of type " + (char) byteBuffer.get());
+                break;
             default:
                 break;
         }
@@ -427,6 +466,68 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
 
     @Override
     public Set<String> getAnagrams(String word) {
+        return getWords(EventType.PRINT, word);
+    }
+
+    /**
+     * @return true if the last query result was answered while the server was still loading its dictionary, so it
+     * only holds the words loaded so far.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * @return true if the last update was rejected by the server, eg. while it loads its dictionary or because the
+     * dictionary is read-only, rather than finding nothing to change.
+     */
+    public boolean isRejected() {
+        return rejected;
+    }
+
+    @Override
+    public boolean[] addWords(String[] words) {
+        final boolean[] added = new boolean[words.length];
+        for (int i = 0; i < words.length; i++) {
+            added[i] = addWord(words[i]);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean[] deleteWords(String[] words) {
+        final boolean[] deleted = new boolean[words.length];
+        for (int i = 0; i < words.length; i++) {
+            deleted[i] = deleteWord(words[i]);
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Set<String>> getAllAnagrams(String[] words) {
+        final List<Set<String>> anagrams = new ArrayList<>(words.length);
+        for (String word : words) {
+            anagrams.add(getAnagrams(word));
+        }
+        return anagrams;
+    }
+
+    @Override
+    public Set<String> getSubAnagrams(String letters) {
+        return getWords(EventType.SUBANAGRAMS, letters);
+    }
+
+    @Override
+    public Set<String> getWildcardAnagrams(String pattern) {
+        return getWords(EventType.WILDCARD, pattern);
+    }
+
+    @Override
+    public Set<String> getPhraseAnagrams(String phrase) {
+        return getWords(EventType.PHRASE_ANAGRAMS, phrase);
+    }
+
+    private Set<String> getWords(EventType eventType, String word) {
         Set<String> responseAnagrams = null;
         //set commandWord
         synchronized (guardedObject) {
@@ -438,7 +539,7 @@ public class AnagramServiceTCPClient implements AnagramServiceMBean, Runnable {
                     Thread.currentThread().interrupt();
                 }
             }
-            command = new Command(EventType.PRINT, word);
+            command = new Command(eventType, word);
             guardedObject.notify();
         }
 
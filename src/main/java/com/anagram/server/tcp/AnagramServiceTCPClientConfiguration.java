@@ -17,6 +17,7 @@ public class AnagramServiceTCPClientConfiguration {
     private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
     private String host = System.getProperty("anagram.tcp.client.configuration.host", "localhost");
     private int port = Integer.getInteger("anagram.tcp.client.configuration.port", 5555);
+    private String dictionaryName;
 
 //    private boolean clientReuseAddress = Boolean.valueOf(System.getProperty("anagram.tcp.client.configuration.client.reuse.address", "true"));
 //    private boolean clientKeepAlive = Boolean.valueOf(System.getProperty("anagram.tcp.client.configuration.client.keepalive", "true"));
@@ -92,6 +93,17 @@ public class AnagramServiceTCPClientConfiguration {
         this.port = port;
     }
 
+    public String getDictionaryName() {
+        return dictionaryName;
+    }
+
+    /**
+     * @param dictionaryName dictionary named in every request, null for the server's default dictionary.
+     */
+    public void setDictionaryName(String dictionaryName) {
+        this.dictionaryName = dictionaryName;
+    }
+
     public boolean isKeepAlive() {
         return keepAlive;
     }
@@ -2,6 +2,8 @@ package com.anagram.server.tcp;
 
 import com.anagram.AnagramServiceFactory;
 import com.anagram.AnagramServiceMBean;
+import com.anagram.FrozenAnagramService;
+import com.anagram.ProgressiveAnagramService;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -10,20 +12,35 @@ import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Created by rmanaloto on 8/12/14.
  *
- * TODO handle issue where there are multiple different clients send requests
- * and how to handle the buffers for each (ie, make sure they are not intermixed)
+ * Requests and responses are {@link com.anagram.server.tcp.FrameUtil} frames. Every connection reads and writes its
+ * own buffers, so requests split over several reads or several requests in one read are answered in order.
+ *
+ * Connections are accepted and served on the server thread, or with
+ * {@link com.anagram.server.tcp.AnagramTCPServerConfiguration#getReactorCount()} reactors the server thread only
+ * accepts them and hands them round-robin to that many reactor threads. Every reactor has its own
+ * {@link java.nio.channels.Selector} and buffer pools and serves its connections from read to write, so the dictionaries
+ * are queried from all reactor threads at once.
  */
 public class AnagramServiceTCPServer implements Runnable {
 
@@ -31,38 +48,74 @@ public class AnagramServiceTCPServer implements Runnable {
 
     public static final String EXIT = "X";
 
-    private final StringBuilder sb = new StringBuilder();
+    //answers requests naming an unknown dictionary
+    private static final AnagramServiceMBean EMPTY = FrozenAnagramService.of(Collections.<String>emptyList());
+
+    //maximum time a selector waits before checking the server is still active
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
 
     private final AnagramTCPServerConfiguration configuration;
 
     private volatile boolean active;
     private Selector selector;
-    private final ByteBuffer readBuffer;
-    private final ByteBuffer writeBuffer;
-    private ServerSocketChannel serverSocketChannel;
+    private volatile ServerSocketChannel serverSocketChannel;
     private NetworkInterface networkInterface;
 
+    //serve the accepted connections, only reactors[0] on the server thread when no reactor count is configured
+    private final Reactor[] reactors;
+    private int nextReactor;
+    //answers the multi-word anagram queries, which may take up to the phrase timeout, off the reactor threads
+    private final ExecutorService phraseExecutor;
+
     private final AnagramServiceFactory anagramServiceFactory;
+    private final Map<String, AnagramServiceMBean> anagramServices;
     private final AnagramServiceMBean anagramService;
     private SelectionKey registeredSelectionKey;
 
-    private boolean writeImmediately = true;
+    private volatile boolean writeImmediately = true;
 
     public AnagramServiceTCPServer(AnagramTCPServerConfiguration configuration) {
+        this(configuration, new AnagramServiceFactory());
+    }
+
+    /**
+     * @param anagramServiceFactory creates the dictionaries to serve.
+     */
+    public AnagramServiceTCPServer(AnagramTCPServerConfiguration configuration, AnagramServiceFactory anagramServiceFactory) {
         this.configuration = configuration;
         Objects.nonNull(this.configuration);
+        if (this.configuration.getReactorCount() < 0) {
+            throw new IllegalArgumentException("Invalid reactor count " + this.configuration.getReactorCount());
+        }
+        if (this.configuration.getPhraseThreadCount() <= 0) {
+            throw new IllegalArgumentException("Invalid phrase thread count " + this.configuration.getPhraseThreadCount());
+        }
 
-        this.readBuffer = ByteBuffer.allocateDirect(this.configuration.getReadBufferSize());
-        this.readBuffer.order(this.configuration.getByteOrder());
-        this.writeBuffer = ByteBuffer.allocateDirect(this.configuration.getWriteBufferSize());
-        this.writeBuffer.order(this.configuration.getByteOrder());
-
-        this.anagramServiceFactory = new AnagramServiceFactory();
-        this.anagramService = this.anagramServiceFactory.createAnagramService(AnagramServiceFactory.Mode.LOCAL);
+        this.reactors = new Reactor[Math.max(1, this.configuration.getReactorCount())];
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor(i);
+        }
+        final AtomicInteger phraseThreadIndex = new AtomicInteger();
+        this.phraseExecutor = Executors.newFixedThreadPool(this.configuration.getPhraseThreadCount(), r -> {
+            final Thread thread = new Thread(r, "anagram-tcp-phrase-" + phraseThreadIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.anagramServiceFactory = Objects.requireNonNull(anagramServiceFactory);
+        this.anagramServices = this.anagramServiceFactory.createAnagramServices();
+        this.anagramService = this.anagramServices.get(AnagramServiceFactory.DEFAULT_DICTIONARY_NAME);
     }
 
     public void cancel() {
         this.active = false;
+        final Selector selector = this.selector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        for (Reactor reactor : reactors) {
+            reactor.wakeup();
+        }
     }
 
     public boolean isActive() {
@@ -77,6 +130,29 @@ public class AnagramServiceTCPServer implements Runnable {
         this.writeImmediately = writeImmediately;
     }
 
+    /**
+     * @return number of threads serving connections, 1 when the server thread serves them.
+     */
+    public int getReactorCount() {
+        return reactors.length;
+    }
+
+    /**
+     * @return number of connections handed to the reactor so far.
+     */
+    long getConnectionCount(int reactorIndex) {
+        return reactors[reactorIndex].connectionCount.sum();
+    }
+
+    /**
+     * @return the port the server listens on, eg. the port picked by the system when the configured port is 0, or -1
+     * before the server is started.
+     */
+    public int getLocalPort() {
+        final ServerSocketChannel serverSocketChannel = this.serverSocketChannel;
+        return (serverSocketChannel == null) ? -1 : serverSocketChannel.socket().getLocalPort();
+    }
+
     @Override
     public void run() {
         try {
@@ -86,8 +162,16 @@ public class AnagramServiceTCPServer implements Runnable {
         }
     }
 
+    private boolean isMultiReactor() {
+        return configuration.getReactorCount() > 0;
+    }
+
     private void init() throws IOException {
-        selector = Selector.open();
+        for (Reactor reactor : reactors) {
+            reactor.open();
+        }
+        //a single reactor accepts on its own selector
+        selector = isMultiReactor() ? Selector.open() : reactors[0].selector;
 //        networkInterface = getNetworkInterface();
         serverSocketChannel = ServerSocketChannel.open();
 
@@ -106,36 +190,32 @@ public class AnagramServiceTCPServer implements Runnable {
             this.active = true;
 
             //display a waiting message while ... waiting!
-            System.out.println("Waiting for connections ...");
+            System.out.println("Waiting for connections on " + reactors.length + " reactor thread(s) ...");
         }
     }
 
     private void eventLoop() throws IOException {
         try {
             init();
+            if (!isMultiReactor()) {
+                reactors[0].eventLoop();
+                return;
+            }
+            for (Reactor reactor : reactors) {
+                reactor.start();
+            }
             Set<SelectionKey> selectionKeys = null;
             while (!Thread.currentThread().isInterrupted() && active) {
-                //wait for incoming events
-                final int selectNow = selector.selectNow();
-                //there is something to process on selected keys
-                if ((selectNow > 0) && !(selectionKeys = selector.selectedKeys()).isEmpty()) {
+                //wait for incoming connections
+                final int select = selector.select(SELECT_TIMEOUT_MILLIS);
+                if ((select > 0) && !(selectionKeys = selector.selectedKeys()).isEmpty()) {
                     Iterator<SelectionKey> keys = selectionKeys.iterator();
                     while (keys.hasNext()) {
                         SelectionKey key = keys.next();
                         //prevent the same key from coming up again
                         keys.remove();
-                        if (!key.isValid()) {
-                            continue;
-                        }
-                        if(!serverSocketChannel.isOpen()) {
-                            continue;
-                        }
-                        if (key.isAcceptable()) {
-                            acceptOP(key, selector);
-                        } else if (key.isReadable()) {
-                            this.readOP(key);
-                        } else if (key.isWritable()) {
-                            this.writeOP(key);
+                        if (key.isValid() && key.isAcceptable()) {
+                            acceptOP(key);
                         }
                     }
                 }
@@ -144,142 +224,587 @@ public class AnagramServiceTCPServer implements Runnable {
             if (serverSocketChannel != null) {
                 serverSocketChannel.close();
             }
+            if (Thread.currentThread().isInterrupted()) {
+                //interrupting the server thread shuts it down
+                cancel();
+            } else if (active) {
+                log.severe("Stopped accepting connections, the reactors keep serving theirs until cancelled");
+            }
+            //only cancel() stops the reactors
+            for (Reactor reactor : reactors) {
+                reactor.join();
+            }
             if (selector != null) {
                 selector.close();
             }
-            cancel();
+            phraseExecutor.shutdownNow();
+            active = false;
 
             log.info("Exiting finally...");
         }
     }
 
     //isAcceptable returned true
-    private void acceptOP(SelectionKey key, Selector selector) throws IOException {
+    private void acceptOP(SelectionKey key) {
         ServerSocketChannel serverChannel = (ServerSocketChannel) key.channel();
         if (serverChannel != null) {
-            SocketChannel socketChannel = serverChannel.accept();
-            socketChannel.configureBlocking(false);
+            SocketChannel socketChannel;
+            try {
+                socketChannel = serverChannel.accept();
+            } catch (IOException e) {
+                //eg. out of file descriptors, the next select tries again
+                log.warning("Cannot accept connection, " + e);
+                return;
+            }
+            if (socketChannel == null) {
+                return;
+            }
+            try {
+                socketChannel.configureBlocking(false);
+
+                socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, configuration.isClientKeepAlive());
+                socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, configuration.isClientTCPNoDelay());
+                socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, configuration.isClientReuseAddress());
+                socketChannel.setOption(StandardSocketOptions.SO_RCVBUF, configuration.getClientReceiveBufferSize());
+                socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, configuration.getClientSendBufferSize());
+
+                final Reactor reactor = nextReactor();
+                if (reactor == null) {
+                    log.severe("No reactor left to serve " + socketChannel.getRemoteAddress());
+                    socketChannel.close();
+                    return;
+                }
+                log.info("Incoming connection from: " + socketChannel.getRemoteAddress() + " on reactor " + reactor.index);
+                reactor.register(socketChannel);
+            } catch (IOException e) {
+                //eg. a client that reset the connection before it was accepted
+                log.warning("Closing incoming connection, " + e);
+                try {
+                    socketChannel.close();
+                } catch (IOException closeException) {
+                    log.warning("Cannot close connection, " + closeException);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next reactor still running, round-robin, or null if they all stopped.
+     */
+    private Reactor nextReactor() {
+        for (int i = 0; i < reactors.length; i++) {
+            final Reactor reactor = reactors[nextReactor];
+            nextReactor = (nextReactor + 1) % reactors.length;
+            if (reactor.running) {
+                return reactor;
+            }
+        }
+        return null;
+    }
 
-            socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, configuration.isClientKeepAlive());
-            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, configuration.isClientTCPNoDelay());
-            socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, configuration.isClientReuseAddress());
-            socketChannel.setOption(StandardSocketOptions.SO_RCVBUF, configuration.getClientReceiveBufferSize());
-            socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, configuration.getClientSendBufferSize());
+    /**
+     * Buffers of one connection, taken from its reactor's pools. The read buffer holds the bytes of requests not
+     * complete yet and the write buffer the responses not written yet. Both grow past their pooled size while a frame
+     * does not fit and go back to pooled buffers once empty.
+     */
+    private static final class Connection {
+
+        private final ByteBufferPool readBufferPool;
+        private final ByteBufferPool writeBufferPool;
+        private ByteBuffer readBuffer;
+        private ByteBuffer writeBuffer;
+        private int responseStart;
+        //a multi-word anagram query is being answered, the requests after it wait in the read buffer
+        private boolean awaitingResponse;
+
+        private Connection(ByteBufferPool readBufferPool, ByteBufferPool writeBufferPool) {
+            this.readBufferPool = readBufferPool;
+            this.writeBufferPool = writeBufferPool;
+            this.readBuffer = readBufferPool.acquire();
+            this.writeBuffer = writeBufferPool.acquire();
+        }
 
-            sb.setLength(0);
-            sb.append("Incoming connection from: ").append(socketChannel.getRemoteAddress());
-            log.info(sb.toString());
+        /**
+         * Makes room for the rest of the request at the start of the read buffer, in write mode.
+         */
+        private void compactReadBuffer() {
+            readBuffer.compact();
+            if ((readBuffer.position() == 0) && (readBuffer.capacity() != readBufferPool.getBufferSize())) {
+                readBuffer = readBufferPool.acquire();
+            } else {
+                final ByteBuffer buffer = FrameUtil.ensureFrameCapacity(readBuffer);
+                if (buffer != readBuffer) {
+                    readBufferPool.release(readBuffer);
+                    readBuffer = buffer;
+                }
+            }
+        }
 
-            final SelectionKey readSelectionKey = socketChannel.register(selector, SelectionKey.OP_READ, readBuffer);
+        private ByteBuffer ensureWritable(int length) {
+            final ByteBuffer buffer = FrameUtil.ensureRemaining(writeBuffer, length);
+            if (buffer != writeBuffer) {
+                writeBufferPool.release(writeBuffer);
+                writeBuffer = buffer;
+            }
+            return writeBuffer;
+        }
+
+        /**
+         * @param length bytes of the response known up front, more can be made room for with
+         * {@link #ensureWritable(int)}.
+         * @return the write buffer to write the response to.
+         */
+        private ByteBuffer beginResponse(int length) {
+            ensureWritable(FrameUtil.LENGTH_FIELD_SIZE + length);
+            responseStart = FrameUtil.beginFrame(writeBuffer);
+            return writeBuffer;
+        }
+
+        private void endResponse() {
+            FrameUtil.endFrame(writeBuffer, responseStart);
+        }
+
+        /**
+         * Makes room for more responses at the start of the write buffer, in write mode.
+         */
+        private void compactWriteBuffer() {
+            writeBuffer.compact();
+            if ((writeBuffer.position() == 0) && (writeBuffer.capacity() != writeBufferPool.getBufferSize())) {
+                writeBuffer = writeBufferPool.acquire();
+            }
+        }
+
+        private void release() {
+            readBufferPool.release(readBuffer);
+            writeBufferPool.release(writeBuffer);
+            readBuffer = null;
+            writeBuffer = null;
         }
     }
 
-    //isReadable returned true
-    private void readOP(SelectionKey key) {
+    /**
+     * Serves the connections handed to it on one {@link java.nio.channels.Selector}, with its own buffer pools so
+     * reactors never share state. Connections are handed over through a queue and registered by the reactor itself,
+     * since registering with a selector blocks while another thread is selecting on it.
+     *
+     * Every read decodes all the complete request frames received so far and answers them in order. While responses
+     * cannot be written the connection is not read, so a client that does not read its responses only fills its own
+     * buffers.
+     *
+     * Multi-word anagram queries are answered on the phrase executor and their responses handed back through a queue,
+     * so they do not hold up the other connections of the reactor. The connection is not read until the response is
+     * queued, its later requests are then answered in order.
+     */
+    private final class Reactor implements Runnable {
+
+        private final int index;
+        private final StringBuilder sb = new StringBuilder();
+        private final ByteBufferPool readBufferPool;
+        private final ByteBufferPool writeBufferPool;
+        private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+        //responses of the phrase executor, queued to the connection on the reactor thread
+        private final Queue<Runnable> completedResponses = new ConcurrentLinkedQueue<>();
+        private final LongAdder connectionCount = new LongAdder();
+        private volatile Selector selector;
+        //false once the event loop ended, the acceptor skips the reactor
+        private volatile boolean running = true;
+        private Thread thread;
+
+        private Reactor(int index) {
+            this.index = index;
+            this.readBufferPool = new ByteBufferPool(configuration.getReadBufferSize(), configuration.getBufferPoolSize(),
+                    configuration.getByteOrder());
+            this.writeBufferPool = new ByteBufferPool(configuration.getWriteBufferSize(), configuration.getBufferPoolSize(),
+                    configuration.getByteOrder());
+        }
 
-        try {
+        private void open() throws IOException {
+            selector = Selector.open();
+        }
+
+        private void start() {
+            thread = new Thread(this, "anagram-tcp-reactor-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void join() {
+            final Thread thread = this.thread;
+            if ((thread != null) && (thread != Thread.currentThread())) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void wakeup() {
+            final Selector selector = this.selector;
+            if (selector != null) {
+                selector.wakeup();
+            }
+        }
+
+        private void register(SocketChannel socketChannel) throws IOException {
+            connectionCount.increment();
+            pendingChannels.add(socketChannel);
+            selector.wakeup();
+            if (!running) {
+                //the event loop ended after the acceptor picked the reactor, it may have missed the channel
+                closePendingChannels();
+            }
+        }
+
+        private void closePendingChannels() throws IOException {
+            SocketChannel socketChannel;
+            while ((socketChannel = pendingChannels.poll()) != null) {
+                socketChannel.close();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                eventLoop();
+            } catch (IOException | RuntimeException e) {
+                //the other reactors keep serving their connections
+                log.log(Level.SEVERE, "Reactor " + index + " stopped", e);
+            }
+        }
+
+        private void eventLoop() throws IOException {
+            try {
+                Set<SelectionKey> selectionKeys = null;
+                while (!Thread.currentThread().isInterrupted() && active) {
+                    //wait for incoming events
+                    final int select = selector.select(SELECT_TIMEOUT_MILLIS);
+                    registerPendingChannels();
+                    Runnable completedResponse;
+                    while ((completedResponse = completedResponses.poll()) != null) {
+                        completedResponse.run();
+                    }
+                    //there is something to process on selected keys
+                    if ((select > 0) && !(selectionKeys = selector.selectedKeys()).isEmpty()) {
+                        Iterator<SelectionKey> keys = selectionKeys.iterator();
+                        while (keys.hasNext()) {
+                            SelectionKey key = keys.next();
+                            //prevent the same key from coming up again
+                            keys.remove();
+                            if (!key.isValid()) {
+                                continue;
+                            }
+                            if (!serverSocketChannel.isOpen()) {
+                                continue;
+                            }
+                            if (key.isAcceptable()) {
+                                acceptOP(key);
+                                continue;
+                            }
+                            try {
+                                if (key.isReadable()) {
+                                    this.readOP(key);
+                                } else if (key.isWritable()) {
+                                    this.writeOP(key);
+                                }
+                            } catch (IOException | CancelledKeyException e) {
+                                //eg. a reset or a broken pipe, it fails this connection rather than the reactor
+                                log.warning("Closing connection, " + e);
+                                close(key);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                running = false;
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                closePendingChannels();
+                selector.close();
+            }
+        }
+
+        private void registerPendingChannels() {
+            SocketChannel socketChannel;
+            while ((socketChannel = pendingChannels.poll()) != null) {
+                final Connection connection = new Connection(readBufferPool, writeBufferPool);
+                try {
+                    socketChannel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (ClosedChannelException e) {
+                    connection.release();
+                    log.info("Connection closed before it was served");
+                }
+            }
+        }
+
+        private void close(SelectionKey key) {
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                log.warning("Cannot close connection, " + e);
+            }
+            ((Connection) key.attachment()).release();
+        }
+
+        //isReadable returned true
+        private void readOP(SelectionKey key) throws IOException {
             SocketChannel socketChannel = (SocketChannel) key.channel();
-            final ByteBuffer buffer = (ByteBuffer) key.attachment();
-            buffer.clear();
+            final Connection connection = (Connection) key.attachment();
             int numRead = -1;
             try {
-                numRead = socketChannel.read(buffer);
+                numRead = socketChannel.read(connection.readBuffer);
             } catch (IOException e) {
                 log.severe("Cannot read error!");
             }
             if (numRead == -1) {
                 log.info("Connection closed by: " + socketChannel.getRemoteAddress());
-                socketChannel.close();
-                key.cancel();
+                close(key);
                 return;
             } else if (numRead > 0) {
-                sendRequestToAnagramService(key, socketChannel, buffer);
-                if(writeImmediately) {
-                    writeOP(key);
-                }
+                answerRequests(key, connection);
             }
-        } catch (IOException ex) {
-            System.err.println(ex);
         }
-    }
 
-    private void sendRequestToAnagramService(SelectionKey selectionKey, SocketChannel socketChannel, ByteBuffer byteBuffer) {
-        byteBuffer.flip();
-        byte eventTypeTypeCode = byteBuffer.get();
-        final EventType eventType = EventType.fromTypeCode(eventTypeTypeCode);
-        sb.setLength(0);
-
-        String word = getWord(byteBuffer);
-        sb.setLength(0);
-        sb.append("[eventType=").append(eventType).append("][word=").append(word).append("]");
-        log.info(sb.toString());
-
-        switch (eventType) {
-            case ADD:
-                writeBuffer.put(EventType.ADD.getTypeCode());
-                boolean added = anagramService.addWord(word);
-                if (added) {
-                    writeBuffer.put((byte) 0);
+        /**
+         * Answers the complete requests in the read buffer and writes the responses, or waits for the socket to take
+         * them.
+         */
+        private void answerRequests(SelectionKey key, Connection connection) throws IOException {
+            try {
+                decodeRequests(key, connection);
+            } catch (IOException | BufferUnderflowException e) {
+                log.warning("Closing connection from " + ((SocketChannel) key.channel()).getRemoteAddress() + ", invalid request: " + e);
+                close(key);
+                return;
+            }
+            if (connection.writeBuffer.position() > 0) {
+                if (writeImmediately) {
+                    writeOP(key);
                 } else {
-                    writeBuffer.put((byte) 1);
+                    key.interestOps(SelectionKey.OP_WRITE);
                 }
-                SelectionKeyUtil.clearBit(selectionKey, SelectionKey.OP_READ);
-                SelectionKeyUtil.setBit(selectionKey, SelectionKey.OP_WRITE);
-                break;
-            case DELETE:
-                writeBuffer.put(EventType.DELETE.getTypeCode());
-                boolean deleted = anagramService.deleteWord(word);
-                if (deleted) {
-                    writeBuffer.put((byte) 0);
-                } else {
-                    writeBuffer.put((byte) 1);
+            } else {
+                key.interestOps(connection.awaitingResponse ? 0 : SelectionKey.OP_READ);
+            }
+        }
+
+        private void decodeRequests(SelectionKey selectionKey, Connection connection) throws IOException {
+            final ByteBuffer readBuffer = connection.readBuffer;
+            readBuffer.flip();
+            int frameLength;
+            while (!connection.awaitingResponse
+                    && ((frameLength = FrameUtil.nextFrameLength(readBuffer, configuration.getMaxFrameLength())) > 0)) {
+                final int limit = readBuffer.limit();
+                final int frameEnd = readBuffer.position() + FrameUtil.LENGTH_FIELD_SIZE + frameLength;
+                readBuffer.position(readBuffer.position() + FrameUtil.LENGTH_FIELD_SIZE);
+                readBuffer.limit(frameEnd);
+                sendRequestToAnagramService(selectionKey, connection, readBuffer);
+                readBuffer.limit(limit);
+                readBuffer.position(frameEnd);
+            }
+            //only once the length of the incomplete frame is known to be valid
+            connection.compactReadBuffer();
+        }
+
+        private void sendRequestToAnagramService(SelectionKey selectionKey, Connection connection, ByteBuffer byteBuffer) {
+            byte eventTypeTypeCode = byteBuffer.get();
+            final EventType eventType = EventType.fromTypeCode(eventTypeTypeCode);
+            if (eventType == null) {
+                log.severe("Invalid eventType: " + eventTypeTypeCode);
+                putError(connection, eventTypeTypeCode);
+                return;
+            }
+            sb.setLength(0);
+
+            String word = getWord(byteBuffer);
+            //requests without a dictionary name use the default dictionary
+            sb.setLength(0);
+            final String dictionaryName = byteBuffer.hasRemaining() ? getWord(byteBuffer) : AnagramServiceFactory.DEFAULT_DICTIONARY_NAME;
+            AnagramServiceMBean anagramService = anagramServices.get(dictionaryName);
+            if (anagramService == null) {
+                log.warning("Invalid dictionary: " + dictionaryName);
+                anagramService = EMPTY;
+            }
+            //before the query, so a result answered while loading is never flagged complete
+            final ProgressiveAnagramService progressiveAnagramService = AnagramServiceFactory.getProgressive(anagramService);
+            final boolean partial = (progressiveAnagramService != null) && progressiveAnagramService.isPartial();
+            sb.setLength(0);
+            sb.append("[eventType=").append(eventType).append("][word=").append(word).append("][dictionary=").append(dictionaryName).append("]");
+            log.info(sb.toString());
+
+            final int responseStart = connection.writeBuffer.position();
+            try {
+                if (eventType == EventType.PHRASE_ANAGRAMS) {
+                    submitPhraseAnagrams(selectionKey, connection, anagramService, word, partial);
+                    return;
                 }
-                SelectionKeyUtil.clearBit(selectionKey, SelectionKey.OP_READ);
-                SelectionKeyUtil.setBit(selectionKey, SelectionKey.OP_WRITE);
-                break;
-            case PRINT:
-                writeBuffer.put(EventType.PRINT.getTypeCode());
-                Set<String> anagrams = anagramService.getAnagrams(word);
-                writeBuffer.putInt(anagrams.size());
-                for (String anagram : anagrams) {
-                    writeBuffer.putInt(anagram.getBytes().length);
-                    writeBuffer.put(anagram.getBytes());
+                answerRequest(connection, eventType, anagramService, word, partial);
+            } catch (RuntimeException e) {
+                //eg. an update of a read-only dictionary, it fails this request rather than the reactor
+                log.log(Level.WARNING, "Failed request " + sb, e);
+                connection.writeBuffer.position(responseStart);
+                putFailure(connection, eventType, partial);
+            }
+        }
+
+        private void answerRequest(Connection connection, EventType eventType, AnagramServiceMBean anagramService,
+                                   String word, boolean partial) {
+            final ByteBuffer writeBuffer;
+            switch (eventType) {
+                case ADD:
+                    boolean added = anagramService.addWord(word);
+                    putUpdate(connection, EventType.ADD, added ? UpdateStatus.CHANGED : UpdateStatus.UNCHANGED);
+                    break;
+                case DELETE:
+                    boolean deleted = anagramService.deleteWord(word);
+                    putUpdate(connection, EventType.DELETE, deleted ? UpdateStatus.CHANGED : UpdateStatus.UNCHANGED);
+                    break;
+                case PRINT:
+                    Set<String> anagrams = anagramService.getAnagrams(word);
+                    putWords(connection, EventType.PRINT, anagrams, partial);
+                    break;
+                case SUBANAGRAMS:
+                    Set<String> subAnagrams = anagramService.getSubAnagrams(word);
+                    putWords(connection, EventType.SUBANAGRAMS, subAnagrams, partial);
+                    break;
+                case WILDCARD:
+                    Set<String> wildcardAnagrams = anagramService.getWildcardAnagrams(word);
+                    putWords(connection, EventType.WILDCARD, wildcardAnagrams, partial);
+                    break;
+                case READY:
+                    writeBuffer = connection.beginResponse(2);
+                    writeBuffer.put(EventType.READY.getTypeCode());
+                    writeBuffer.put(partial ? (byte) 0 : (byte) 1);
+                    connection.endResponse();
+                    break;
+                default:
+                    //eg. a response type sent as a request
+                    log.severe("Invalid eventType: " + eventType);
+                    putError(connection, eventType.getTypeCode());
+                    break;
+            }
+        }
+
+        /**
+         * Answers a request of an unknown type, so every frame gets a response and pipelined responses stay in order.
+         */
+        private void putError(Connection connection, byte eventTypeTypeCode) {
+            connection.beginResponse(2).put(EventType.ERROR.getTypeCode()).put(eventTypeTypeCode);
+            connection.endResponse();
+        }
+
+        private void submitPhraseAnagrams(SelectionKey selectionKey, Connection connection, AnagramServiceMBean anagramService,
+                                          String phrase, boolean partial) {
+            final String request = sb.toString();
+            phraseExecutor.execute(() -> {
+                Set<String> phraseAnagrams;
+                try {
+                    phraseAnagrams = anagramService.getPhraseAnagrams(phrase);
+                } catch (RuntimeException e) {
+                    log.log(Level.WARNING, "Failed request " + request, e);
+                    phraseAnagrams = null;
                 }
-                SelectionKeyUtil.clearBit(selectionKey, SelectionKey.OP_READ);
-                SelectionKeyUtil.setBit(selectionKey, SelectionKey.OP_WRITE);
-                break;
-            default:
-                log.severe("Invalid eventType: " + eventTypeTypeCode);
-                break;
+                final Set<String> response = phraseAnagrams;
+                completedResponses.add(() -> completePhraseAnagrams(selectionKey, connection, response, partial));
+                selector.wakeup();
+            });
+            connection.awaitingResponse = true;
+        }
+
+        /**
+         * Queues the response of a multi-word anagram query, null if it failed, then answers the requests received
+         * after it.
+         */
+        private void completePhraseAnagrams(SelectionKey key, Connection connection, Set<String> phraseAnagrams,
+                                            boolean partial) {
+            if (!key.isValid()) {
+                //closed while the query was answered
+                return;
+            }
+            connection.awaitingResponse = false;
+            if (phraseAnagrams == null) {
+                putFailure(connection, EventType.PHRASE_ANAGRAMS, partial);
+            } else {
+                putWords(connection, EventType.PHRASE_ANAGRAMS, phraseAnagrams, partial);
+            }
+            try {
+                answerRequests(key, connection);
+            } catch (IOException | CancelledKeyException e) {
+                log.warning("Closing connection, " + e);
+                close(key);
+            }
         }
-    }
 
-    private String getWord(ByteBuffer byteBuffer) {
-        String word = null;
-        int wordLength = byteBuffer.getInt();
-        for (int i = 0; i < wordLength; i++) {
-            sb.append((char) byteBuffer.get());
+        private void putUpdate(Connection connection, EventType eventType, UpdateStatus updateStatus) {
+            connection.beginResponse(2).put(eventType.getTypeCode()).put(updateStatus.getStatusCode());
+            connection.endResponse();
+        }
+
+        /**
+         * Answers a failed update as {@link com.anagram.server.tcp.UpdateStatus#REJECTED} and a failed query like a
+         * query without results.
+         */
+        private void putFailure(Connection connection, EventType eventType, boolean partial) {
+            switch (eventType) {
+                case ADD:
+                case DELETE:
+                    putUpdate(connection, eventType, UpdateStatus.REJECTED);
+                    break;
+                default:
+                    putWords(connection, eventType, Collections.<String>emptySet(), partial);
+                    break;
+            }
+        }
+
+        /**
+         * Writes the words followed by a partial flag, 1 if the dictionary was still loading when the query started.
+         * Clients reading only the words ignore the flag.
+         */
+        private void putWords(Connection connection, EventType eventType, Set<String> words, boolean partial) {
+            connection.beginResponse(6).put(eventType.getTypeCode()).putInt(words.size());
+            for (String word : words) {
+                final byte[] bytes = word.getBytes();
+                connection.ensureWritable(4 + bytes.length).putInt(bytes.length).put(bytes);
+            }
+            connection.ensureWritable(1).put(partial ? (byte) 1 : (byte) 0);
+            connection.endResponse();
         }
-        word = sb.toString();
-        return word;
-    }
 
-    //isWritable returned true
-    private void writeOP(SelectionKey key) throws IOException {
-        writeBuffer.flip();
-        SocketChannel socketChannel = (SocketChannel) key.channel();
-        int writeCount  = 0;
-        while (writeBuffer.hasRemaining()) {
-            writeCount += socketChannel.write(writeBuffer);
-        }
-        sb.setLength(0);
-        sb.append("Wrote ").append(writeCount).append(" bytes");
-        log.info(sb.toString());
-        SelectionKeyUtil.clearBit(key, SelectionKey.OP_WRITE);
-        SelectionKeyUtil.setBit(key, SelectionKey.OP_READ);
-//        final boolean writable = key.isWritable();
-//        log.info("writable="+writable);
-        writeBuffer.clear();
+        private String getWord(ByteBuffer byteBuffer) {
+            String word = null;
+            int wordLength = byteBuffer.getInt();
+            for (int i = 0; i < wordLength; i++) {
+                sb.append((char) byteBuffer.get());
+            }
+            word = sb.toString();
+            return word;
+        }
+
+        //isWritable returned true, or responses were just added
+        private void writeOP(SelectionKey key) throws IOException {
+            final Connection connection = (Connection) key.attachment();
+            final ByteBuffer writeBuffer = connection.writeBuffer;
+            writeBuffer.flip();
+            SocketChannel socketChannel = (SocketChannel) key.channel();
+            int writeCount = 0;
+            int written;
+            while (writeBuffer.hasRemaining() && ((written = socketChannel.write(writeBuffer)) > 0)) {
+                writeCount += written;
+            }
+            final boolean flushed = !writeBuffer.hasRemaining();
+            connection.compactWriteBuffer();
+            sb.setLength(0);
+            sb.append("Wrote ").append(writeCount).append(" bytes");
+            log.info(sb.toString());
+            //stop reading requests until the socket takes the rest of the responses
+            if (!flushed) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else {
+                key.interestOps(connection.awaitingResponse ? 0 : SelectionKey.OP_READ);
+            }
+        }
     }
 
     private NetworkInterface getNetworkInterface() throws SocketException {
@@ -9,13 +9,21 @@ public class AnagramTCPServerConfiguration {
 
     private int receiveBufferSize = Integer.getInteger("anagram.tcp.server.configuration.receive.buffer.size", 256 * 1024);
     private int sendBufferSize = Integer.getInteger("anagram.tcp.server.configuration.send.buffer.size", 256 * 1024);
-    private int readBufferSize = Integer.getInteger("anagram.tcp.server.configuration.read.buffer.size", 256 * 1024);
-    private int writeBufferSize = Integer.getInteger("anagram.tcp.server.configuration.write.buffer.size", 256 * 1024);
+    //per connection, grown while a frame does not fit
+    private int readBufferSize = Integer.getInteger("anagram.tcp.server.configuration.read.buffer.size", 16 * 1024);
+    private int writeBufferSize = Integer.getInteger("anagram.tcp.server.configuration.write.buffer.size", 16 * 1024);
+    //released connection buffers kept by every reactor
+    private int bufferPoolSize = Integer.getInteger("anagram.tcp.server.configuration.buffer.pool.size", 256);
+    private int maxFrameLength = Integer.getInteger("anagram.tcp.server.configuration.max.frame.length", 64 * 1024);
     private boolean reuseAddress = Boolean.valueOf(System.getProperty("anagram.tcp.server.configuration.reuse.address", "true"));
     private boolean keepAlive = Boolean.valueOf(System.getProperty("anagram.tcp.server.configuration.keepalive", "true"));
     private boolean tcpNoDelay = Boolean.valueOf(System.getProperty("anagram.tcp.server.configuration.tcp_no_delay", "true"));
     private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
     private int port = Integer.getInteger("anagram.tcp.server.configuration.port", 5555);
+    //0 accepts and serves every connection on the server thread
+    private int reactorCount = Integer.getInteger("anagram.tcp.server.configuration.reactor.count", 0);
+    //threads answering the multi-word anagram queries of all reactors
+    private int phraseThreadCount = Integer.getInteger("anagram.tcp.server.configuration.phrase.thread.count", 1);
 
     private boolean clientReuseAddress = Boolean.valueOf(System.getProperty("anagram.tcp.server.configuration.client.reuse.address", "true"));
     private boolean clientKeepAlive = Boolean.valueOf(System.getProperty("anagram.tcp.server.configuration.client.keepalive", "true"));
@@ -65,6 +73,22 @@ public class AnagramTCPServerConfiguration {
         this.writeBufferSize = writeBufferSize;
     }
 
+    public int getBufferPoolSize() {
+        return bufferPoolSize;
+    }
+
+    public void setBufferPoolSize(int bufferPoolSize) {
+        this.bufferPoolSize = bufferPoolSize;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public void setMaxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+    }
+
     public ByteOrder getByteOrder() {
         return byteOrder;
     }
@@ -81,6 +105,22 @@ public class AnagramTCPServerConfiguration {
         this.port = port;
     }
 
+    public int getReactorCount() {
+        return reactorCount;
+    }
+
+    public void setReactorCount(int reactorCount) {
+        this.reactorCount = reactorCount;
+    }
+
+    public int getPhraseThreadCount() {
+        return phraseThreadCount;
+    }
+
+    public void setPhraseThreadCount(int phraseThreadCount) {
+        this.phraseThreadCount = phraseThreadCount;
+    }
+
     public boolean isKeepAlive() {
         return keepAlive;
     }
@@ -0,0 +1,74 @@
+package com.anagram.server.tcp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+/**
+ * Direct buffers of one size handed to connections as they are accepted and taken back as they close, so a server
+ * with many short connections does not allocate direct memory for each of them.
+ * Buffers released beyond maxPooled, and buffers of any other size, are left to the garbage collector.
+ *
+ * Not thread-safe: every reactor of {@link com.anagram.server.tcp.AnagramServiceTCPServer} has its own pool.
+ */
+public class ByteBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ByteOrder byteOrder;
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    private long allocatedCount;
+
+    public ByteBufferPool(int bufferSize, int maxPooled, ByteOrder byteOrder) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Invalid buffer size " + bufferSize);
+        }
+        if (maxPooled < 0) {
+            throw new IllegalArgumentException("Invalid pool size " + maxPooled);
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.byteOrder = byteOrder;
+    }
+
+    /**
+     * @return a cleared buffer of {@link #getBufferSize()} bytes.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.pollFirst();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize).order(byteOrder);
+            allocatedCount++;
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer to the pool, the caller must not use it anymore.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.isDirect() && (buffer.capacity() == bufferSize) && (buffers.size() < maxPooled)) {
+            buffer.clear();
+            //most recently used first, it is the most likely to still be cached
+            buffers.addFirst(buffer);
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return number of buffers waiting to be acquired.
+     */
+    public int getPooledCount() {
+        return buffers.size();
+    }
+
+    /**
+     * @return number of buffers allocated because the pool was empty.
+     */
+    public long getAllocatedCount() {
+        return allocatedCount;
+    }
+}
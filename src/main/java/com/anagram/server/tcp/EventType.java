@@ -11,7 +11,13 @@ public enum EventType {
 
     ADD((byte)'A'),
     DELETE((byte)'D'),
-    PRINT((byte)'P')
+    PRINT((byte)'P'),
+    SUBANAGRAMS((byte)'S'),
+    PHRASE_ANAGRAMS((byte)'M'),
+    WILDCARD((byte)'W'),
+    READY((byte)'R'),
+    //response to a request the server cannot answer, followed by the type code of the request
+    ERROR((byte)'E')
     ;
 
     private static Map<Byte, EventType> typeCode2Enum;
@@ -0,0 +1,79 @@
+package com.anagram.server.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Length-prefixed frames of the TCP protocol: every request and response is an int holding the length of the payload,
+ * followed by the payload. A frame may arrive over several reads and one read may hold several frames, so readers keep
+ * the unread bytes of a frame in their buffer and decode the frames once complete with
+ * {@link #nextFrameLength(java.nio.ByteBuffer, int)}.
+ */
+public abstract class FrameUtil {
+
+    public static final int LENGTH_FIELD_SIZE = 4;
+
+    /**
+     * @param buffer buffer in read mode, positioned at the start of a frame.
+     * @param maxFrameLength maximum length of a payload.
+     * @return length of the payload if the whole frame is in the buffer, -1 if more bytes must be read.
+     * @throws IOException if the length is not between 1 and maxFrameLength.
+     */
+    public static int nextFrameLength(ByteBuffer buffer, int maxFrameLength) throws IOException {
+        if (buffer.remaining() < LENGTH_FIELD_SIZE) {
+            return -1;
+        }
+        final int length = buffer.getInt(buffer.position());
+        if ((length <= 0) || (length > maxFrameLength)) {
+            throw new IOException("Invalid frame length " + length);
+        }
+        return (buffer.remaining() - LENGTH_FIELD_SIZE >= length) ? length : -1;
+    }
+
+    /**
+     * Reserves the length of a frame written from the buffer's position.
+     *
+     * @return offset of the frame, to pass to {@link #endFrame(java.nio.ByteBuffer, int)}.
+     */
+    public static int beginFrame(ByteBuffer buffer) {
+        final int start = buffer.position();
+        buffer.putInt(0);
+        return start;
+    }
+
+    /**
+     * Sets the length of the frame started at start to the bytes written since.
+     */
+    public static void endFrame(ByteBuffer buffer, int start) {
+        buffer.putInt(start, buffer.position() - start - LENGTH_FIELD_SIZE);
+    }
+
+    /**
+     * @param buffer buffer in write mode.
+     * @param remaining number of bytes about to be written.
+     * @return the buffer, or a larger heap buffer holding the same bytes at the same offsets if it has less room.
+     */
+    public static ByteBuffer ensureRemaining(ByteBuffer buffer, int remaining) {
+        if (buffer.remaining() >= remaining) {
+            return buffer;
+        }
+        final int capacity = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(2L * buffer.capacity(), (long) buffer.position() + remaining));
+        final ByteBuffer larger = ByteBuffer.allocate(capacity).order(buffer.order());
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    /**
+     * @param buffer buffer in write mode, holding the start of a frame at offset 0.
+     * @return the buffer, or a larger heap buffer holding the same bytes if the whole frame does not fit.
+     */
+    public static ByteBuffer ensureFrameCapacity(ByteBuffer buffer) {
+        if (buffer.position() < LENGTH_FIELD_SIZE) {
+            return buffer;
+        }
+        final long frameSize = (long) LENGTH_FIELD_SIZE + buffer.getInt(0);
+        return ensureRemaining(buffer, (int) Math.min(Integer.MAX_VALUE, frameSize - buffer.position()));
+    }
+}
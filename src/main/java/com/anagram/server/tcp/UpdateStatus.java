@@ -0,0 +1,38 @@
+package com.anagram.server.tcp;
+
+/**
+ * Result byte of the responses to {@link com.anagram.server.tcp.EventType#ADD} and
+ * {@link com.anagram.server.tcp.EventType#DELETE} requests.
+ */
+public enum UpdateStatus {
+
+    /** the word was added or deleted */
+    CHANGED((byte) 0),
+    /** the word was already present, or not found */
+    UNCHANGED((byte) 1),
+    /** the update was not applied, eg. while the dictionary loads or because it is read-only */
+    REJECTED((byte) 2)
+    ;
+
+    private final byte statusCode;
+
+    UpdateStatus(byte statusCode) {
+        this.statusCode = statusCode;
+    }
+
+    public byte getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the status of the code, or null if the code is unknown.
+     */
+    public static UpdateStatus fromStatusCode(byte statusCode) {
+        for (UpdateStatus updateStatus : values()) {
+            if (updateStatus.statusCode == statusCode) {
+                return updateStatus;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AnagramServiceBuilderTest {
+
+    private static List<String> randomWords(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = 2 + random.nextInt(4);
+            for (int j = 0; j < length; j++) {
+                final char letter = (char) ('a' + random.nextInt(6));
+                sb.append(random.nextBoolean() ? Character.toUpperCase(letter) : letter);
+            }
+            words.add(sb.toString());
+        }
+        return words;
+    }
+
+    @Test
+    public void testSameAsAddWord() throws Exception {
+        final List<String> words = randomWords(5000, 1);
+        for (AnagramService.LockType lockType : AnagramService.LockType.values()) {
+            final AnagramService expected = new AnagramService(1);
+            for (String word : words) {
+                expected.addWord(word);
+            }
+            final AnagramService.Builder builder = new AnagramService.Builder().stripes(7, lockType).filter(1000);
+            //batches from many threads in any order
+            final Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final int thread = t;
+                threads[t] = new Thread(() -> {
+                    for (int i = thread; i < words.size(); i += threads.length) {
+                        builder.addWords(new String[]{words.get(i), null});
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            final AnagramService built = builder.build();
+            assertEquals(7, built.getStripeCount());
+            assertEquals(lockType, built.getLockType());
+            for (String word : words) {
+                assertEquals(word, expected.getAnagrams(word), built.getAnagrams(word));
+            }
+            assertEquals(expected.getSubAnagrams("aabbccddeeff"), built.getSubAnagrams("aabbccddeeff"));
+            //no case-insensitive duplicates
+            for (String word : words) {
+                assertFalse(word, built.addWord(word.toUpperCase()));
+            }
+            assertArrayEquals(expected.deleteWords(words.toArray(new String[words.size()])),
+                    built.deleteWords(words.toArray(new String[words.size()])));
+            assertEquals(0, built.getSubAnagrams("aabbccddeeff").size());
+        }
+    }
+}
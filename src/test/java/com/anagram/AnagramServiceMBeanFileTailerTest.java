@@ -0,0 +1,166 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AnagramServiceMBeanFileTailerTest {
+
+    private static Set<String> set(String... words) {
+        return new HashSet<>(Arrays.asList(words));
+    }
+
+    private static File createFile(String content) throws IOException {
+        final File file = File.createTempFile("changelog", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void testAppliesAppendedLinesInOrder() throws Exception {
+        final File file = createFile("stop\n");
+        final AnagramService service = new AnagramService(1);
+        final AnagramServiceMBeanFileTailer tailer = new AnagramServiceMBeanFileTailer(service, file.getPath(),
+                file.length(), 2, AnagramServiceMBeanFileTailer.DEFAULT_POLL_INTERVAL_MILLIS);
+        assertEquals(0, tailer.poll());
+
+        append(file, "+pots\r\n  tops \n\n-stop\n+stop\n-pots\n+spot\n+opts\n+");
+        assertEquals(7, tailer.poll());
+        assertEquals(set("tops", "spot", "opts"), new HashSet<>(service.getAnagrams("stop")));
+        //stop was never loaded, so only pots was deleted
+        assertEquals(5, tailer.getAddedCount());
+        assertEquals(1, tailer.getDeletedCount());
+        //+pots tops, -stop, +stop, -pots, +spot +opts
+        assertEquals(5, tailer.getBatchCount());
+
+        //the incomplete last line is applied once its newline is written
+        append(file, "post\n");
+        assertEquals(1, tailer.poll());
+        assertEquals(set("tops", "spot", "opts", "post"), new HashSet<>(service.getAnagrams("stop")));
+        assertEquals(file.length(), tailer.getPosition());
+        assertEquals(8, tailer.getLineCount());
+    }
+
+    @Test
+    public void testRestartsWhenFileShrinks() throws Exception {
+        final File file = createFile("+listen\n+silent\n+enlist\n");
+        final AnagramService service = new AnagramService(1);
+        final AnagramServiceMBeanFileTailer tailer = new AnagramServiceMBeanFileTailer(service, file.getPath(),
+                0, 10, AnagramServiceMBeanFileTailer.DEFAULT_POLL_INTERVAL_MILLIS);
+        assertEquals(3, tailer.poll());
+        Files.write(file.toPath(), "-enlist\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, tailer.poll());
+        assertEquals(1, tailer.getResetCount());
+        assertEquals(set("silent"), service.getAnagrams("listen"));
+    }
+
+    @Test
+    public void testLongLines() throws Exception {
+        final StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            word.append((char) ('a' + (i % 26)));
+        }
+        final String forward = word.toString();
+        final String reversed = new StringBuilder(forward).reverse().toString();
+        final File file = createFile("+" + forward + "\n+" + reversed + "\n");
+        final AnagramService service = new AnagramService(1);
+        final AnagramServiceMBeanFileTailer tailer = new AnagramServiceMBeanFileTailer(service, file.getPath(),
+                0, 10, AnagramServiceMBeanFileTailer.DEFAULT_POLL_INTERVAL_MILLIS);
+        assertEquals(2, tailer.poll());
+        assertEquals(1, service.getAnagrams(forward).size());
+    }
+
+    @Test
+    public void testFollowsFileInBackground() throws Exception {
+        final File file = createFile("stop\n");
+        final AnagramService service = new AnagramService(1);
+        AnagramServiceMBeanFileLoader.processFile(service, file.getPath());
+        final AnagramServiceFactory anagramServiceFactory = new AnagramServiceFactory(file.getPath());
+        anagramServiceFactory.setTailFileName(file.getPath());
+        try (AnagramServiceMBeanFileTailer tailer = anagramServiceFactory.tailFile(service)) {
+            assertEquals(file.length(), tailer.getPosition());
+            append(file, "pots\n-stop\ntops\n");
+            for (int i = 0; (i < 500) && (tailer.getLineCount() < 3); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, tailer.getLineCount());
+            assertEquals(set("pots"), service.getAnagrams("tops"));
+        }
+    }
+
+    @Test
+    public void testRetriesFailedLines() throws Exception {
+        final File file = createFile("+pots\n+tops\n+spot\n");
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final AnagramService service = new AnagramService(1) {
+            @Override
+            public boolean[] addWords(String[] words) {
+                if (failing.get() && Arrays.asList(words).contains("spot")) {
+                    throw new UnsupportedOperationException("Dictionary is read-only");
+                }
+                return super.addWords(words);
+            }
+        };
+        final AnagramServiceMBeanFileTailer tailer = new AnagramServiceMBeanFileTailer(service, file.getPath(),
+                0, 2, AnagramServiceMBeanFileTailer.DEFAULT_POLL_INTERVAL_MILLIS);
+        try {
+            tailer.poll();
+            fail("The failed batch should fail the poll");
+        } catch (UnsupportedOperationException e) {
+            //expected
+        }
+        assertEquals(1, tailer.getFailureCount());
+        assertEquals(0, tailer.getPosition());
+        assertEquals(0, tailer.getLineCount());
+
+        failing.set(false);
+        assertEquals(3, tailer.poll());
+        assertEquals(file.length(), tailer.getPosition());
+        assertEquals(set("tops", "spot"), service.getAnagrams("pots"));
+        assertEquals(1, tailer.getFailureCount());
+    }
+
+    @Test
+    public void testKeepsFollowingAfterFailure() throws Exception {
+        final File file = createFile("");
+        final AtomicBoolean failing = new AtomicBoolean(true);
+        final AnagramService service = new AnagramService(1) {
+            @Override
+            public boolean[] addWords(String[] words) {
+                if (failing.get()) {
+                    throw new UnsupportedOperationException("Dictionary is read-only");
+                }
+                return super.addWords(words);
+            }
+        };
+        try (AnagramServiceMBeanFileTailer tailer = new AnagramServiceMBeanFileTailer(service, file.getPath(),
+                0, 10, 10).start()) {
+            append(file, "pots\ntops\n");
+            for (int i = 0; (i < 500) && (tailer.getFailureCount() == 0); i++) {
+                Thread.sleep(10);
+            }
+            failing.set(false);
+            for (int i = 0; (i < 500) && (tailer.getLineCount() < 2); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, tailer.getLineCount());
+            assertEquals(set("tops"), service.getAnagrams("pots"));
+        }
+    }
+}
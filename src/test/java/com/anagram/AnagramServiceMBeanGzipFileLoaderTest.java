@@ -0,0 +1,105 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnagramServiceMBeanGzipFileLoaderTest {
+
+    private static String createDictionary() {
+        final Random random = new Random(1);
+        final String[] separators = {"\n", "\r\n", "\r", "\u2029", "\n\n", "  \n\t", "\u2028"};
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            if ((i % 7) == 0) {
+                sb.append("  ");
+            }
+            final int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('a' + random.nextInt(6)));
+            }
+            if ((i % 11) == 0) {
+                sb.append("\u00e9");
+            }
+            sb.append(separators[i % separators.length]);
+        }
+        //last line without a separator
+        sb.append(" last ");
+        return sb.toString();
+    }
+
+    private static File createFile(String suffix, byte[] content) throws Exception {
+        final File file = File.createTempFile("dictionary", suffix);
+        file.deleteOnExit();
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static File gzip(String content) throws Exception {
+        final File file = File.createTempFile("dictionary", ".txt" + AnagramServiceMBeanGzipFileLoader.GZIP_SUFFIX);
+        file.deleteOnExit();
+        try (OutputStream outputStream = new GZIPOutputStream(new FileOutputStream(file))) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    @Test
+    public void testSameWordsAsPlainText() throws Exception {
+        final String dictionary = createDictionary();
+        final File plain = createFile(".txt", dictionary.getBytes(StandardCharsets.UTF_8));
+        final File compressed = gzip(dictionary);
+        final List<String> expected = new ArrayList<>();
+        final int expectedCount = AnagramServiceMBeanFileLoader.processFile(expected::add, plain.getPath());
+
+        //blocks of 1 byte split every multi-byte character
+        for (int blockSize : new int[]{1, 7, 4096, AnagramServiceMBeanGzipFileLoader.DEFAULT_BLOCK_SIZE}) {
+            final List<String> words = new ArrayList<>();
+            final AnagramServiceMBeanGzipFileLoader loader = new AnagramServiceMBeanGzipFileLoader(
+                    AnagramServiceMBeanFileLoader.DEFAULT_CHARSET, blockSize, 10, 2, 1);
+            assertEquals(expectedCount, loader.load(batch -> words.addAll(Arrays.asList(batch)), compressed.getPath()));
+            assertEquals("block size " + blockSize, expected, words);
+            assertEquals(expectedCount, loader.getStages().get(1).getCount());
+            assertEquals(expectedCount, loader.getStages().get(2).getCount());
+            assertTrue(loader.getStages().get(0).getCount() > dictionary.length());
+        }
+
+        //the file loaders pick the pipeline by suffix
+        final List<String> words = new ArrayList<>();
+        assertEquals(expectedCount, AnagramServiceMBeanFileLoader.processFile(words::add, compressed.getPath()));
+        assertEquals(expected, words);
+        final AnagramService service = new AnagramService(4);
+        assertEquals(expectedCount, AnagramServiceMBeanMappedFileLoader.processFile(service, compressed.getPath()));
+        final AnagramService expectedService = new AnagramService(1);
+        AnagramServiceMBeanFileLoader.processFile(expectedService, plain.getPath());
+        assertEquals(expectedService.getSubAnagrams("aabbccddeeff\u00e9"), service.getSubAnagrams("aabbccddeeff\u00e9"));
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void testNotCompressed() throws Exception {
+        final File file = createFile(AnagramServiceMBeanGzipFileLoader.GZIP_SUFFIX, "plain\ntext\n".getBytes(StandardCharsets.UTF_8));
+        AnagramServiceMBeanGzipFileLoader.processFile(batch -> { }, file.getPath());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFailingConsumerStopsPipeline() throws Exception {
+        final File compressed = gzip(createDictionary());
+        new AnagramServiceMBeanGzipFileLoader(AnagramServiceMBeanFileLoader.DEFAULT_CHARSET, 16, 1, 1, 2)
+                .load(batch -> {
+                    throw new IllegalStateException("full");
+                }, compressed.getPath());
+    }
+}
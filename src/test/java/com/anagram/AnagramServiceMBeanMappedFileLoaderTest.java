@@ -0,0 +1,63 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class AnagramServiceMBeanMappedFileLoaderTest {
+
+    private static File createDictionary() throws Exception {
+        final Random random = new Random(1);
+        final String[] separators = {"\n", "\r\n", "\r", "\u2029", "\n\n", "  \n\t", "\u2028"};
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            if ((i % 7) == 0) {
+                sb.append("  ");
+            }
+            final int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('a' + random.nextInt(6)));
+            }
+            if ((i % 11) == 0) {
+                sb.append("\u00e9");
+            }
+            sb.append(separators[i % separators.length]);
+        }
+        //last line without a separator
+        sb.append(" last ");
+        final File file = File.createTempFile("dictionary", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void testSameWordsAsScanner() throws Exception {
+        final File file = createDictionary();
+        final AnagramService expected = new AnagramService(1);
+        final int expectedCount = AnagramServiceMBeanFileLoader.processFile(expected, file.getPath());
+        for (int chunkSize : new int[]{1, 7, 64, 4096, AnagramServiceMBeanMappedFileLoader.DEFAULT_CHUNK_SIZE}) {
+            final AnagramService loaded = new AnagramService(4);
+            final int count = AnagramServiceMBeanMappedFileLoader.processFile(loaded, file.getPath(),
+                    AnagramServiceMBeanFileLoader.DEFAULT_CHARSET, chunkSize, 10);
+            assertEquals(expectedCount, count);
+            assertEquals("chunk size " + chunkSize, expected.getSubAnagrams("aabbccddeeff\u00e9"), loaded.getSubAnagrams("aabbccddeeff\u00e9"));
+            assertEquals(expected.getAnagrams("last"), loaded.getAnagrams("last"));
+            assertEquals(expected.getSubAnagrams("last"), loaded.getSubAnagrams("last"));
+        }
+    }
+
+    @Test
+    public void testFallsBackForClasspathResources() throws Exception {
+        final AnagramService expected = new AnagramService(1);
+        final AnagramService loaded = new AnagramService(1);
+        assertEquals(AnagramServiceMBeanFileLoader.processFile(expected, "words2.txt"),
+                AnagramServiceMBeanMappedFileLoader.processFile(loaded, "words2.txt"));
+        assertEquals(expected.getSubAnagrams("abcdefghijklmnopqrstuvwxyz"), loaded.getSubAnagrams("abcdefghijklmnopqrstuvwxyz"));
+    }
+}
@@ -0,0 +1,156 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnagramServiceSnapshotTest {
+
+    private static List<String> randomWords(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = 2 + random.nextInt(5);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('a' + random.nextInt(6)));
+            }
+            words.add(sb.toString());
+        }
+        return words;
+    }
+
+    private static File snapshotFile() throws IOException {
+        final File file = File.createTempFile("snapshot", ".idx");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testRestoreAfterUpdates() throws Exception {
+        final List<String> words = randomWords(4000, 1);
+        final AnagramService.Builder builder = new AnagramService.Builder().stripes(5, AnagramService.LockType.READ_WRITE);
+        builder.addWords(words.toArray(new String[words.size()]));
+        final AnagramService live = builder.build();
+        for (String word : words.subList(0, 500)) {
+            live.deleteWord(word);
+        }
+        final List<String> added = randomWords(500, 2);
+        for (String word : added) {
+            live.addWord(word + "g");
+        }
+        final File snapshot = snapshotFile();
+        final int wordCount = live.writeSnapshot(snapshot.getPath());
+
+        final AnagramService restored = new AnagramService.Builder()
+                .stripes(3, AnagramService.LockType.STAMPED)
+                .restore(snapshot.getPath())
+                .build();
+        assertEquals(wordCount, restored.writeSnapshot(snapshotFile().getPath()));
+        for (String word : words) {
+            assertEquals(word, live.getAnagrams(word), restored.getAnagrams(word));
+        }
+        for (String word : added) {
+            assertEquals(word, live.getAnagrams(word + "g"), restored.getAnagrams(word + "g"));
+        }
+        for (String letters : new String[]{"aabbccddeeff", "abc", "ffff", ""}) {
+            assertEquals(letters, live.getSubAnagrams(letters), restored.getSubAnagrams(letters));
+        }
+        for (String pattern : new String[]{"a??", "??f?", "?????"}) {
+            assertEquals(pattern, live.getWildcardAnagrams(pattern), restored.getWildcardAnagrams(pattern));
+        }
+        //the restored service keeps taking updates
+        assertTrue(restored.addWord("xyzzy"));
+        assertFalse(restored.addWord(words.get(1000)));
+        assertTrue(restored.deleteWord(words.get(1000)));
+    }
+
+    @Test
+    public void testRestoreAndAddWords() throws Exception {
+        final AnagramService live = new AnagramService(2);
+        live.addWord("test");
+        live.addWord("sett");
+        live.addWord("stop");
+        final File snapshot = snapshotFile();
+        live.writeSnapshot(snapshot.getPath());
+
+        final AnagramService restored = new AnagramService.Builder()
+                .restore(snapshot.getPath())
+                .addWords(new String[]{"stet", "TEST", "pots", "dormitory"})
+                .build();
+        assertEquals(6, restored.writeSnapshot(snapshotFile().getPath()));
+        assertEquals(2, restored.getAnagrams("test").size());
+        assertEquals(1, restored.getAnagrams("stop").size());
+    }
+
+    @Test
+    public void testSnapshotWhileWriting() throws Exception {
+        final List<String> words = randomWords(20000, 3);
+        final AnagramService live = new AnagramService(4);
+        for (String word : words.subList(0, 10000)) {
+            live.addWord(word);
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        final Thread writer = new Thread(() -> {
+            for (int i = 10000; !done.get() && i < words.size(); i++) {
+                live.addWord(words.get(i));
+            }
+        });
+        writer.start();
+        final File snapshot = snapshotFile();
+        final AnagramServiceSnapshotter snapshotter = new AnagramServiceSnapshotter(live, snapshot.getPath(), 0);
+        final int wordCount = snapshotter.writeSnapshot();
+        done.set(true);
+        writer.join();
+        snapshotter.close();
+
+        //every word loaded before the snapshot was saved
+        assertEquals(wordCount, MappedAnagramService.open(snapshot.getPath()).getWordCount());
+        final AnagramService restored = new AnagramService.Builder().restore(snapshot.getPath()).build();
+        for (String word : new HashSet<>(words.subList(0, 10000))) {
+            assertTrue(word, restored.deleteWord(word));
+        }
+        assertEquals(1, snapshotter.getSnapshotCount());
+        assertEquals(wordCount, snapshotter.getLastSnapshotWordCount());
+    }
+
+    @Test
+    public void testFactoryRestoresSnapshot() throws Exception {
+        final File dictionary = File.createTempFile("dictionary", ".txt");
+        dictionary.deleteOnExit();
+        Files.write(dictionary.toPath(), Arrays.asList("test", "sett", "stop"), StandardCharsets.UTF_8);
+        final File snapshot = snapshotFile();
+        assertTrue(snapshot.delete());
+        final AnagramServiceFactory anagramServiceFactory = new AnagramServiceFactory(dictionary.getPath());
+        anagramServiceFactory.setSnapshotFileName(snapshot.getPath());
+
+        final AnagramService loaded = anagramServiceFactory.createAnagramServiceBuilder().build();
+        assertEquals(1, loaded.getAnagrams("test").size());
+        loaded.addWord("pots");
+        loaded.deleteWord("sett");
+        anagramServiceFactory.createSnapshotter(loaded).writeSnapshot();
+
+        final AnagramService restored = anagramServiceFactory.createAnagramServiceBuilder().build();
+        assertEquals(3, restored.writeSnapshot(snapshotFile().getPath()));
+        assertEquals(loaded.getAnagrams("stop"), restored.getAnagrams("stop"));
+        assertEquals(loaded.getAnagrams("test"), restored.getAnagrams("test"));
+        assertEquals(0, restored.getAnagrams("test").size());
+
+        //a corrupt snapshot falls back to the dictionary
+        Files.write(snapshot.toPath(), new byte[]{1, 2, 3});
+        assertEquals(1, anagramServiceFactory.createAnagramServiceBuilder().build().getAnagrams("test").size());
+    }
+}
@@ -16,10 +16,12 @@ public class AnagramServiceTest {
     public static class AnagramServiceTestInputs {
         private int numberOfStripes;
         private Set<String> words;
+        private AnagramServiceFactory.Engine engine;
 
-        public AnagramServiceTestInputs(int numberOfStripes, Set<String> words) {
+        public AnagramServiceTestInputs(int numberOfStripes, Set<String> words, AnagramServiceFactory.Engine engine) {
             this.numberOfStripes = numberOfStripes;
             this.words = words;
+            this.engine = engine;
         }
 
         public int getNumberOfStripes() {
@@ -38,15 +40,31 @@ public class AnagramServiceTest {
             this.words = words;
         }
 
+        public AnagramServiceFactory.Engine getEngine() {
+            return engine;
+        }
+
+        public void setEngine(AnagramServiceFactory.Engine engine) {
+            this.engine = engine;
+        }
+
         @Override
         public String toString() {
             return "AnagramServiceTestInputs{" +
                     "numberOfStripes=" + numberOfStripes +
                     ", words=" + words +
+                    ", engine=" + engine +
                     '}';
         }
     }
 
+    private static final AnagramServiceFactory.Engine[] MUTABLE_ENGINES = {
+            AnagramServiceFactory.Engine.STRIPED,
+            AnagramServiceFactory.Engine.SHARDED,
+            AnagramServiceFactory.Engine.OFF_HEAP,
+            AnagramServiceFactory.Engine.VERSIONED
+    };
+
     private AnagramServiceTestInputs inputs;
 
     private static Collection<Set<String>> anagrams() {
@@ -82,26 +100,42 @@ public class AnagramServiceTest {
         values[j] =  temp;
     }
 
-    @Parameterized.Parameters(name = "stripes = {0}, word = {1}")
+    @Parameterized.Parameters(name = "stripes = {0}, word = {1}, engine = {2}")
     public static Collection<Object[]> data() {
 //        final int[] numberOfStripesValues = {1, 2, 5, 10, 100};
         final int[] numberOfStripesValues = {1};
         List<Object[]> params = new ArrayList<>();
         for (Collection<String> anagrams : anagrams()) {
             for (int numberOfStripes : numberOfStripesValues) {
-                params.add(new Object[]{numberOfStripes, anagrams});
+                for (AnagramServiceFactory.Engine engine : MUTABLE_ENGINES) {
+                    params.add(new Object[]{numberOfStripes, anagrams, engine});
+                }
             }
         }
         return params;
     }
 
-    public AnagramServiceTest(int numberOfStripes, Set<String> words) {
-        this.inputs = new AnagramServiceTestInputs(numberOfStripes, words);
+    public AnagramServiceTest(int numberOfStripes, Set<String> words, AnagramServiceFactory.Engine engine) {
+        this.inputs = new AnagramServiceTestInputs(numberOfStripes, words, engine);
+    }
+
+    private AnagramServiceMBean createAnagramService() {
+        switch (inputs.getEngine()) {
+            case SHARDED:
+                return new ShardedAnagramService(inputs.numberOfStripes);
+            case OFF_HEAP:
+                return new OffHeapAnagramService(16, 64 * 1024);
+            case VERSIONED:
+                return new VersionedAnagramService();
+            case STRIPED:
+            default:
+                return new AnagramService(inputs.numberOfStripes);
+        }
     }
 
     @Test
     public void testAdd() throws Exception {
-        AnagramService anagramService = new AnagramService(inputs.numberOfStripes);
+        AnagramServiceMBean anagramService = createAnagramService();
         final Set<String> words = inputs.getWords();
         Set<String> processedWords = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
 
@@ -143,7 +177,7 @@ public class AnagramServiceTest {
 
     @Test
     public void testDelete() throws Exception {
-        AnagramService anagramService = new AnagramService(inputs.numberOfStripes);
+        AnagramServiceMBean anagramService = createAnagramService();
         final Set<String> words = inputs.getWords();
         Set<String> processedWords = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
 
@@ -185,6 +219,169 @@ public class AnagramServiceTest {
         }
     }
 
+    @Test
+    public void testAnagramsView() throws Exception {
+        AnagramServiceMBean anagramService = createAnagramService();
+        final AnagramQuery anagramQuery = (AnagramQuery) anagramService;
+        final Set<String> words = inputs.getWords();
+        for (String word : words) {
+            anagramService.addWord(word);
+        }
+        for (String word : words) {
+            for (String permutation : permutations(word)) {
+                final Set<String> expected = anagramService.getAnagrams(permutation);
+                final Set<String> view = anagramQuery.anagramsView(permutation);
+                assertEquals("[permutation=" + permutation + "][engine=" + inputs.getEngine() + "]", expected, view);
+
+                final Set<String> visited = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                final int count = anagramQuery.forEachAnagram(permutation, visited::add);
+                assertEquals("[permutation=" + permutation + "][engine=" + inputs.getEngine() + "]", expected.size(), count);
+                assertEquals("[permutation=" + permutation + "][engine=" + inputs.getEngine() + "]", expected, visited);
+            }
+        }
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        AnagramServiceMBean expectedService = new AnagramService(1);
+        AnagramServiceMBean anagramService = createAnagramService();
+        final List<String> batch = new ArrayList<>();
+        for (String word : inputs.getWords()) {
+            batch.addAll(permutations(word));
+            batch.add(word);
+        }
+        batch.add(null);
+        final String[] words = batch.toArray(new String[batch.size()]);
+
+        final boolean[] added = anagramService.addWords(words);
+        assertEquals(words.length, added.length);
+        for (int i = 0; i < words.length; i++) {
+            assertEquals("[word=" + words[i] + "][engine=" + inputs.getEngine() + "]", expectedService.addWord(words[i]), added[i]);
+        }
+
+        final List<Set<String>> anagrams = anagramService.getAllAnagrams(words);
+        assertEquals(words.length, anagrams.size());
+        for (int i = 0; i < words.length; i++) {
+            assertEquals("[word=" + words[i] + "][engine=" + inputs.getEngine() + "]", expectedService.getAnagrams(words[i]), anagrams.get(i));
+        }
+
+        final boolean[] deleted = anagramService.deleteWords(words);
+        for (int i = 0; i < words.length; i++) {
+            assertEquals("[word=" + words[i] + "][engine=" + inputs.getEngine() + "]", expectedService.deleteWord(words[i]), deleted[i]);
+        }
+        for (String word : inputs.getWords()) {
+            assertTrue(anagramService.getAnagrams(word).isEmpty());
+        }
+    }
+
+    @Test
+    public void testSubAnagrams() throws Exception {
+        AnagramServiceMBean anagramService = createAnagramService();
+        final Set<String> dictionary = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (String word : inputs.getWords()) {
+            dictionary.add(word);
+            anagramService.addWord(word);
+            for (int i = 1; i < word.length(); i++) {
+                dictionary.add(word.substring(i));
+                anagramService.addWord(word.substring(i));
+            }
+        }
+        //deleted words must not be found
+        for (String word : inputs.getWords()) {
+            if (word.length() > 2) {
+                dictionary.remove(word.substring(2));
+                anagramService.deleteWord(word.substring(2));
+            }
+        }
+        final Set<String> queries = new TreeSet<>(inputs.getWords());
+        queries.add("tTeEsS0");
+        queries.add("z");
+        queries.add("");
+        for (String letters : queries) {
+            final Set<String> expected = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (String word : dictionary) {
+                if (isSubAnagram(word, letters)) {
+                    expected.add(word);
+                }
+            }
+            assertEquals("[letters=" + letters + "][engine=" + inputs.getEngine() + "]", expected, anagramService.getSubAnagrams(letters));
+        }
+    }
+
+    @Test
+    public void testWildcardAnagrams() throws Exception {
+        AnagramServiceMBean anagramService = createAnagramService();
+        final Set<String> dictionary = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        for (String word : inputs.getWords()) {
+            for (String added : new String[]{word, word.substring(1), word + "s", "s" + word + "e"}) {
+                dictionary.add(added);
+                anagramService.addWord(added);
+            }
+        }
+        for (String word : inputs.getWords()) {
+            dictionary.remove(word + "s");
+            anagramService.deleteWord(word + "s");
+        }
+        final Set<String> patterns = new TreeSet<>();
+        for (String word : inputs.getWords()) {
+            patterns.add(word);
+            patterns.add(word.replaceFirst(".", "?"));
+            patterns.add(word + "?");
+            patterns.add("?" + word.toUpperCase() + "?");
+            patterns.add(word.replaceAll(".", "?"));
+        }
+        patterns.add("?");
+        patterns.add("??????");
+        for (String pattern : patterns) {
+            final String known = pattern.replace("?", "");
+            final Set<String> expected = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            for (String word : dictionary) {
+                if ((word.length() == pattern.length()) && isSubAnagram(known, word)) {
+                    expected.add(word);
+                }
+            }
+            assertEquals("[pattern=" + pattern + "][engine=" + inputs.getEngine() + "]", expected, anagramService.getWildcardAnagrams(pattern));
+        }
+    }
+
+    @Test
+    public void testOffHeapSubAnagramIndexAgreesWithScan() throws Exception {
+        if (inputs.getEngine() != AnagramServiceFactory.Engine.OFF_HEAP) {
+            return;
+        }
+        final OffHeapAnagramService scanned = new OffHeapAnagramService(16, 64 * 1024, false);
+        final OffHeapAnagramService indexed = new OffHeapAnagramService(16, 64 * 1024, true);
+        assertFalse(scanned.isSubAnagramIndexed());
+        assertTrue(indexed.isSubAnagramIndexed());
+        for (String word : inputs.getWords()) {
+            for (String added : new String[]{word, word.substring(1), word + "s", word + "\u00e9"}) {
+                scanned.addWord(added);
+                indexed.addWord(added);
+            }
+            scanned.deleteWord(word + "s");
+            indexed.deleteWord(word + "s");
+        }
+        for (String word : inputs.getWords()) {
+            for (String query : new String[]{word, word + "s\u00e9", word.replaceFirst(".", "?"), word + "?"}) {
+                assertEquals("[query=" + query + "]", indexed.getSubAnagrams(query), scanned.getSubAnagrams(query));
+                assertEquals("[query=" + query + "]", indexed.getWildcardAnagrams(query), scanned.getWildcardAnagrams(query));
+                assertEquals("[query=" + query + "]", indexed.getPhraseAnagrams(query), scanned.getPhraseAnagrams(query));
+            }
+        }
+    }
+
+    private static boolean isSubAnagram(String word, String letters) {
+        final StringBuilder remaining = new StringBuilder(letters.toUpperCase());
+        for (char c : word.toUpperCase().toCharArray()) {
+            final int index = remaining.indexOf(String.valueOf(c));
+            if (index < 0) {
+                return false;
+            }
+            remaining.deleteCharAt(index);
+        }
+        return true;
+    }
+
     /**
      * Get all capitalization permutations of the word.
      * @param word
@@ -0,0 +1,53 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnagramSignatureTest {
+
+    @Test
+    public void testAnagramsShareSignature() throws Exception {
+        final String[][] anagrams = {
+                {"test", "sett", "TSET", "eTtS"},
+                {"dormitory", "dirtyroom"},
+                {"abcdefghijklmnopqrstuvwxyz", "zyxwvutsrqponmlkjihgfedcba"}
+        };
+        for (String[] group : anagrams) {
+            final AnagramSignature expected = AnagramSignature.of(group[0]);
+            assertTrue(group[0], expected.isPacked());
+            for (String word : group) {
+                final AnagramSignature signature = AnagramSignature.of(word);
+                assertEquals(word, expected, signature);
+                assertEquals(word, expected.hashCode(), signature.hashCode());
+                assertEquals(word, expected.getHigh(), AnagramSignature.high(word));
+                assertEquals(word, expected.getLow(), AnagramSignature.low(word));
+            }
+        }
+    }
+
+    @Test
+    public void testDifferentLettersHaveDifferentSignatures() throws Exception {
+        assertFalse(AnagramSignature.of("test").equals(AnagramSignature.of("tests")));
+        assertFalse(AnagramSignature.of("ab").equals(AnagramSignature.of("aq")));
+        assertFalse(AnagramSignature.of("p").equals(AnagramSignature.of("q")));
+    }
+
+    @Test
+    public void testFallbackToSortedWord() throws Exception {
+        final String[] words = {"test0", "10", "caf\u00e9", "aaaaaaaaaaaaaaaa"};
+        for (String word : words) {
+            assertEquals(word, AnagramSignature.NOT_PACKABLE, AnagramSignature.high(word));
+            final AnagramSignature signature = AnagramSignature.of(word);
+            assertFalse(word, signature.isPacked());
+            assertEquals(word, AnagramSignature.sort(word), signature.getSortedWord());
+        }
+        //15 occurrences of a letter still fit
+        final AnagramSignature signature = AnagramSignature.of("aaaaaaaaaaaaaaa");
+        assertTrue(signature.isPacked());
+        assertNull(signature.getSortedWord());
+    }
+}
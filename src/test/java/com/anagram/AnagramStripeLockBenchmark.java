@@ -0,0 +1,85 @@
+package com.anagram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lookup throughput of {@link com.anagram.AnagramService} with each {@link com.anagram.AnagramService.LockType}, in
+ * millions of {@link com.anagram.AnagramService#getAnagrams(String)} calls per second.
+ * Every run loads the same random words into 16 stripes, then the reader threads look up random words for a fixed time.
+ *
+ * Not a unit test, run it with its main method:
+ * args[0] comma separated thread counts, default 1,8,32,64. args[1] seconds per run, default 1.5.
+ */
+public class AnagramStripeLockBenchmark {
+
+    private static final int WORD_COUNT = 200000;
+    private static final int NUMBER_OF_STRIPES = 16;
+
+    private static String[] randomWords(Random random) {
+        final String[] words = new String[WORD_COUNT];
+        final StringBuilder word = new StringBuilder();
+        for (int i = 0; i < words.length; i++) {
+            word.setLength(0);
+            final int length = 4 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+        return words;
+    }
+
+    private static double lookupsPerSecond(AnagramService anagramService, String[] words, int threadCount,
+                                           long millis) throws InterruptedException {
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicLong lookups = new AtomicLong();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            final Random random = new Random(i);
+            final Thread thread = new Thread(() -> {
+                long count = 0;
+                while (running.get()) {
+                    anagramService.getAnagrams(words[random.nextInt(words.length)]);
+                    count++;
+                }
+                lookups.addAndGet(count);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        Thread.sleep(millis);
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return lookups.get() * 1000.0 / millis;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        final String[] threadCounts = ((args.length > 0) ? args[0] : "1,8,32,64").split(",");
+        final long millis = (long) (1000 * ((args.length > 1) ? Double.parseDouble(args[1]) : 1.5));
+        final String[] words = randomWords(new Random(1));
+        System.out.println(Runtime.getRuntime().availableProcessors() + " CPUs, lookups in Mops/s");
+        System.out.printf("%-8s", "threads");
+        for (AnagramService.LockType lockType : AnagramService.LockType.values()) {
+            System.out.printf("  %-10s", lockType);
+        }
+        System.out.println();
+        for (String threadCount : threadCounts) {
+            System.out.printf("%-8s", threadCount.trim());
+            for (AnagramService.LockType lockType : AnagramService.LockType.values()) {
+                final AnagramService anagramService = new AnagramService(NUMBER_OF_STRIPES, 0, lockType);
+                for (String word : words) {
+                    anagramService.addWord(word);
+                }
+                final double perSecond = lookupsPerSecond(anagramService, words, Integer.parseInt(threadCount.trim()), millis);
+                System.out.printf("  %-10.1f", perSecond / 1e6);
+            }
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AnagramStripeTest {
+
+    private static final String[] STABLE = {"stop", "pots", "tops", "spot", "opts", "post"};
+
+    @Test
+    public void testSameResultsForEveryLockType() throws Exception {
+        for (AnagramService.LockType lockType : AnagramService.LockType.values()) {
+            final AnagramService service = new AnagramService(4, 0, lockType);
+            assertEquals(lockType, service.getLockType());
+            for (String word : STABLE) {
+                service.addWord(word);
+            }
+            final Set<String> expected = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            expected.addAll(Arrays.asList("pots", "tops", "spot", "opts", "post"));
+            assertEquals(lockType.name(), expected, service.getAnagrams("stop"));
+            assertEquals(lockType.name(), new HashSet<>(Arrays.asList(expected, expected)),
+                    new HashSet<>(service.getAllAnagrams(new String[]{"stop", "STOP"})));
+            service.deleteWord("post");
+            expected.remove("post");
+            assertEquals(lockType.name(), expected, service.getAnagrams("stop"));
+        }
+    }
+
+    /**
+     * Readers must keep finding a stable group while writers resize the stripe's table underneath them.
+     */
+    @Test
+    public void testReadsDuringWrites() throws Exception {
+        for (AnagramService.LockType lockType : AnagramService.LockType.values()) {
+            final AnagramService service = new AnagramService(1, 0, lockType);
+            for (String word : STABLE) {
+                service.addWord(word);
+            }
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final CountDownLatch done = new CountDownLatch(4);
+            final Thread writer = new Thread(() -> {
+                for (int round = 0; round < 20; round++) {
+                    for (int i = 0; i < 2000; i++) {
+                        service.addWord("w" + i);
+                    }
+                    for (int i = 0; i < 2000; i++) {
+                        service.deleteWord("w" + i);
+                    }
+                }
+                running.set(false);
+            });
+            for (int t = 0; t < 4; t++) {
+                new Thread(() -> {
+                    try {
+                        while (running.get()) {
+                            assertEquals(5, service.getAnagrams("stop").size());
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            writer.start();
+            writer.join();
+            done.await();
+            assertNull(lockType.name(), failure.get());
+        }
+    }
+
+    @Test
+    public void testResizeDuringUpdates() throws Exception {
+        for (AnagramService.LockType lockType : AnagramService.LockType.values()) {
+            final AnagramService service = new AnagramService(2, 0, lockType);
+            for (String word : STABLE) {
+                service.addWord(word);
+            }
+            final AtomicBoolean running = new AtomicBoolean(true);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final int thread = t;
+                threads[t] = new Thread(() -> {
+                    try {
+                        //every thread owns its words, so it knows what the dictionary must hold
+                        for (int i = 0; running.get(); i++) {
+                            final String word = "w" + thread + "x" + (i % 500);
+                            if ((i / 500) % 2 == 0) {
+                                assertTrue(word, service.addWord(word));
+                            } else {
+                                assertTrue(word, service.deleteWords(new String[]{word})[0]);
+                            }
+                            assertEquals(5, service.getAnagrams("stop").size());
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (int stripes : new int[]{8, 3, 64, 1, 16}) {
+                service.resize(stripes);
+                assertEquals(stripes, service.getStripeCount());
+                Thread.sleep(20);
+            }
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(lockType.name(), failure.get());
+            assertEquals(5, service.getResizeCount());
+            assertEquals(5, service.getAllAnagrams(new String[]{"tops"}).get(0).size());
+            assertTrue(service.getLockCount() > 0);
+            assertEquals(16, service.getStripeLockWaitNanos().length);
+        }
+    }
+
+    @Test
+    public void testAdaptiveShrinksWhenIdle() throws Exception {
+        final AnagramService service = new AnagramService(8, 0, AnagramService.LockType.READ_WRITE, 16, 10);
+        try {
+            assertTrue(service.isAdaptive());
+            assertEquals(16, service.getMaxStripes());
+            for (String word : STABLE) {
+                service.addWord(word);
+            }
+            for (int i = 0; (i < 500) && (service.getStripeCount() > 1); i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, service.getStripeCount());
+            assertEquals(5, service.getAnagrams("stop").size());
+        } finally {
+            service.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CachingAnagramServiceTest {
+
+    private static Set<String> set(String... words) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(words));
+        return set;
+    }
+
+    @Test
+    public void testHitAndMiss() throws Exception {
+        final CachingAnagramService anagramService = new CachingAnagramService(new AnagramService(1), 10, 2);
+        anagramService.addWord("test");
+        anagramService.addWord("sett");
+
+        final Set<String> first = anagramService.getAnagrams("test");
+        assertEquals(set("sett"), first);
+        assertEquals(0, anagramService.getHitCount());
+        assertEquals(1, anagramService.getMissCount());
+
+        assertSame(first, anagramService.getAnagrams("test"));
+        assertEquals(1, anagramService.getHitCount());
+        assertEquals(1, anagramService.getMissCount());
+    }
+
+    @Test
+    public void testInvalidateOnlyAffectedSignature() throws Exception {
+        final CachingAnagramService anagramService = new CachingAnagramService(new AnagramService(1), 10, 1);
+        anagramService.addWord("test");
+        anagramService.addWord("sett");
+        anagramService.addWord("abc");
+        anagramService.addWord("cab");
+        assertEquals(set("sett"), anagramService.getAnagrams("test"));
+        assertEquals(set("sett"), anagramService.getAnagrams("TEST"));
+        assertEquals(set("cab"), anagramService.getAnagrams("abc"));
+        assertEquals(3, anagramService.getSize());
+
+        //no change, nothing invalidated
+        anagramService.addWord("Test");
+        assertEquals(0, anagramService.getInvalidationCount());
+
+        anagramService.addWord("stet");
+        assertEquals(2, anagramService.getInvalidationCount());
+        assertEquals(1, anagramService.getSize());
+        assertEquals(set("sett", "stet"), anagramService.getAnagrams("test"));
+
+        anagramService.deleteWord("cab");
+        assertEquals(3, anagramService.getInvalidationCount());
+        assertEquals(set(), anagramService.getAnagrams("abc"));
+    }
+
+    @Test
+    public void testBatchInvalidates() throws Exception {
+        final CachingAnagramService anagramService = new CachingAnagramService(new AnagramService(2), 10, 1);
+        anagramService.addWords(new String[]{"test", "sett", "abc"});
+        assertEquals(set("sett"), anagramService.getAllAnagrams(new String[]{"test", "abc"}).get(0));
+
+        anagramService.addWords(new String[]{"stet", "test"});
+        assertEquals(set("sett", "stet"), anagramService.getAnagrams("test"));
+        assertEquals(1, anagramService.getInvalidationCount());
+
+        anagramService.deleteWords(new String[]{"sett", "missing"});
+        assertEquals(set("stet"), anagramService.getAnagrams("test"));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        final CachingAnagramService anagramService = new CachingAnagramService(new AnagramService(1), 2, 1);
+        anagramService.getAnagrams("a");
+        anagramService.getAnagrams("b");
+        anagramService.getAnagrams("a");
+        anagramService.getAnagrams("c");
+        assertEquals(2, anagramService.getSize());
+        assertEquals(1, anagramService.getEvictionCount());
+
+        //"b" was the least recently used entry
+        anagramService.getAnagrams("a");
+        assertEquals(2, anagramService.getHitCount());
+        anagramService.getAnagrams("b");
+        assertEquals(4, anagramService.getMissCount());
+    }
+}
@@ -0,0 +1,123 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DurableAnagramServiceTest {
+
+    private static File logFile() throws IOException {
+        final File file = File.createTempFile("anagram", ".log");
+        file.deleteOnExit();
+        assertTrue(file.delete());
+        return file;
+    }
+
+    private static AnagramService dictionary() {
+        final AnagramService anagramService = new AnagramService(3);
+        anagramService.addWords(new String[]{"test", "sett", "stop"});
+        return anagramService;
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        final File log = logFile();
+        final DurableAnagramService durable = DurableAnagramService.open(dictionary(), log.getPath(), 0);
+        assertEquals(0, durable.getReplayedCount());
+        assertTrue(durable.addWord("stet"));
+        assertFalse(durable.addWord("stet"));
+        assertTrue(durable.deleteWord("sett"));
+        assertFalse(durable.deleteWord("missing"));
+        assertArrayEquals(new boolean[]{true, true, false}, durable.addWords(new String[]{"pots", "tops", "stop"}));
+        assertArrayEquals(new boolean[]{true, false}, durable.deleteWords(new String[]{"tops", "tops"}));
+        assertEquals(5, durable.getRecordCount());
+        assertEquals(4, durable.getCommitCount());
+        assertEquals(log.length(), durable.getLogSize());
+        assertEquals(Arrays.asList("+stet", "-sett", "+pots", "+tops", "-tops"), Files.readAllLines(log.toPath(), StandardCharsets.UTF_8));
+        durable.close();
+
+        final DurableAnagramService reopened = DurableAnagramService.open(dictionary(), log.getPath(), 0);
+        assertEquals(5, reopened.getReplayedCount());
+        assertEquals(durable.getAnagrams("test"), reopened.getAnagrams("test"));
+        assertEquals(durable.getAnagrams("stop"), reopened.getAnagrams("stop"));
+        assertEquals(1, reopened.getAnagrams("stop").size());
+        reopened.close();
+    }
+
+    @Test
+    public void testIncompleteRecordDropped() throws Exception {
+        final File log = logFile();
+        Files.write(log.toPath(), "+stet\n-sto".getBytes(StandardCharsets.UTF_8));
+        final DurableAnagramService durable = DurableAnagramService.open(dictionary(), log.getPath(), 0);
+        assertEquals(1, durable.getReplayedCount());
+        assertEquals(2, durable.getAnagrams("test").size());
+        assertEquals(6, log.length());
+        assertTrue(durable.addWord("pots"));
+        durable.close();
+        assertEquals(Arrays.asList("+stet", "+pots"), Files.readAllLines(log.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testConcurrentWritersShareCommits() throws Exception {
+        final File log = logFile();
+        final DurableAnagramService durable = DurableAnagramService.open(new AnagramService(4), log.getPath(), 2000);
+        final Thread[] threads = new Thread[8];
+        final int wordsPerThread = 50;
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < wordsPerThread; i++) {
+                    assertTrue(durable.addWord("w" + thread + "x" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        final int wordCount = threads.length * wordsPerThread;
+        assertEquals(wordCount, durable.getRecordCount());
+        assertTrue(durable.getCommitCount() + " commits", durable.getCommitCount() < wordCount);
+        durable.close();
+
+        final AnagramService replayed = new AnagramService(2);
+        DurableAnagramService.open(replayed, log.getPath(), 0).close();
+        final List<String> words = new ArrayList<>();
+        for (int t = 0; t < threads.length; t++) {
+            for (int i = 0; i < wordsPerThread; i++) {
+                words.add("w" + t + "x" + i);
+            }
+        }
+        for (String word : words) {
+            assertTrue(word, replayed.deleteWord(word));
+        }
+    }
+
+    @Test
+    public void testInvalidWords() throws Exception {
+        final File log = logFile();
+        final DurableAnagramService durable = DurableAnagramService.open(dictionary(), log.getPath(), 0);
+        for (String word : new String[]{"", " test", "te\nst"}) {
+            try {
+                durable.addWord(word);
+                throw new AssertionError("added '" + word + "'");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Invalid word"));
+            }
+        }
+        assertFalse(durable.addWord(null));
+        durable.close();
+        assertEquals(0, log.length());
+    }
+}
@@ -0,0 +1,77 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class FrozenAnagramServiceTest {
+
+    private static final List<String> WORDS = Arrays.asList(
+            "test", "sett", "stet", "Tets", "TEST", "dormitory", "dirtyroom", "zzz", "0", "10", "01", "test0", "0tset");
+
+    private static Set<String> set(String... words) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(words));
+        return set;
+    }
+
+    @Test
+    public void testMatchesMutableService() throws Exception {
+        final AnagramService expected = new AnagramService(1);
+        for (String word : WORDS) {
+            expected.addWord(word);
+        }
+        final FrozenAnagramService frozen = FrozenAnagramService.of(WORDS);
+        assertEquals(12, frozen.getWordCount());
+        for (String word : WORDS) {
+            assertEquals(word, expected.getAnagrams(word), frozen.getAnagrams(word));
+        }
+        assertEquals(set("sett", "stet", "Tets"), frozen.getAnagrams("test"));
+        assertEquals(set("10"), frozen.getAnagrams("01"));
+        assertEquals(Collections.emptySet(), frozen.getAnagrams("zzz"));
+        assertEquals(Collections.emptySet(), frozen.getAnagrams("missing"));
+    }
+
+    @Test
+    public void testSubAnagrams() throws Exception {
+        final FrozenAnagramService frozen = FrozenAnagramService.of(WORDS);
+        assertEquals(set("test", "sett", "stet", "Tets", "0", "test0", "0tset"), frozen.getSubAnagrams("TESTO0"));
+        assertEquals(set("0", "10", "01"), frozen.getSubAnagrams("01"));
+        assertEquals(set("dormitory", "dirtyroom"), frozen.getSubAnagrams("dirty room"));
+        assertEquals(Collections.emptySet(), frozen.getSubAnagrams("zz"));
+        assertEquals(Collections.emptySet(), frozen.getSubAnagrams(""));
+    }
+
+    @Test
+    public void testWildcardAnagrams() throws Exception {
+        final FrozenAnagramService frozen = FrozenAnagramService.of(WORDS);
+        assertEquals(set("test", "sett", "stet", "Tets"), frozen.getWildcardAnagrams("TE?T"));
+        assertEquals(set("test", "sett", "stet", "Tets"), frozen.getWildcardAnagrams("t??s"));
+        assertEquals(set("test0", "0tset"), frozen.getWildcardAnagrams("?????"));
+        assertEquals(set("dormitory", "dirtyroom"), frozen.getWildcardAnagrams("y??????d?"));
+        assertEquals(Collections.emptySet(), frozen.getWildcardAnagrams("z?"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() throws Exception {
+        FrozenAnagramService.of(WORDS).addWord("word");
+    }
+
+    @Test
+    public void testPublish() throws Exception {
+        final FrozenAnagramService first = FrozenAnagramService.of(Arrays.asList("abc", "cab"));
+        final SwappableAnagramService anagramService = new SwappableAnagramService(first);
+        assertEquals(set("cab"), anagramService.getAnagrams("abc"));
+
+        final FrozenAnagramService second = FrozenAnagramService.of(Arrays.asList("abc", "cab", "bca"));
+        assertSame(first, anagramService.publish(second));
+        assertEquals(set("cab", "bca"), anagramService.getAnagrams("abc"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedAnagramServiceTest {
+
+    private static final List<String> WORDS = Arrays.asList(
+            "test", "sett", "stet", "Tets", "TEST", "dormitory", "dirtyroom", "zzz", "0", "10", "01", "test0", "0tset",
+            "caf\u00e9", "fac\u00e9", "a", "at", "ta", "tat", "att");
+
+    private static File createDictionary(List<String> words) throws IOException {
+        final File file = File.createTempFile("dictionary", ".txt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), words, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static File indexFile(File dictionary) {
+        final File index = new File(dictionary.getPath() + MappedAnagramService.DEFAULT_INDEX_SUFFIX);
+        index.deleteOnExit();
+        return index;
+    }
+
+    @Test
+    public void testMatchesFrozenService() throws Exception {
+        final List<String> words = new ArrayList<>(WORDS);
+        final Random random = new Random(1);
+        for (int i = 0; i < 3000; i++) {
+            final StringBuilder word = new StringBuilder();
+            final int length = 1 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                word.append((char) ('a' + random.nextInt(6)));
+            }
+            words.add(word.toString());
+        }
+        final File dictionary = createDictionary(words);
+        final File index = indexFile(dictionary);
+        final FrozenAnagramService expected = FrozenAnagramService.of(words);
+        assertEquals(expected.getWordCount(), AnagramIndexWriter.write(dictionary.getPath(), index.getPath()));
+
+        final MappedAnagramService mapped = MappedAnagramService.open(index.getPath(), dictionary.getPath());
+        assertEquals(expected.getWordCount(), mapped.getWordCount());
+        assertEquals(expected.getGroupCount(), mapped.getGroupCount());
+        for (String word : words) {
+            assertEquals(word, expected.getAnagrams(word), mapped.getAnagrams(word));
+        }
+        assertEquals(expected.getAnagrams("missing"), mapped.getAnagrams("missing"));
+        for (String letters : new String[]{"TESTO0", "01", "dirty room", "zz", "", "abcdef", "aabbccddeeff", "caf\u00e9t"}) {
+            assertEquals(letters, expected.getSubAnagrams(letters), mapped.getSubAnagrams(letters));
+        }
+        for (String pattern : new String[]{"TE?T", "t??s", "?????", "y??????d?", "z?", "?", "a??", "??f\u00e9", "?a?b?"}) {
+            assertEquals(pattern, expected.getWildcardAnagrams(pattern), mapped.getWildcardAnagrams(pattern));
+        }
+        assertEquals(expected.getPhraseAnagrams("dirty room"), mapped.getPhraseAnagrams("dirty room"));
+    }
+
+    @Test
+    public void testStaleIndex() throws Exception {
+        final File dictionary = createDictionary(WORDS);
+        final File index = indexFile(dictionary);
+        AnagramIndexWriter.write(dictionary.getPath(), index.getPath());
+        MappedAnagramService.open(index.getPath(), dictionary.getPath());
+
+        assertTrue(dictionary.setLastModified(dictionary.lastModified() - 60000));
+        try {
+            MappedAnagramService.open(index.getPath(), dictionary.getPath());
+            fail("stale index opened");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Stale index"));
+        }
+        //the stale index is still a valid index
+        assertEquals(3, MappedAnagramService.open(index.getPath()).getAnagrams("test").size());
+    }
+
+    @Test
+    public void testCorruptIndex() throws Exception {
+        final File dictionary = createDictionary(WORDS);
+        final File index = indexFile(dictionary);
+        AnagramIndexWriter.write(dictionary.getPath(), index.getPath());
+        try (RandomAccessFile file = new RandomAccessFile(index, "rw")) {
+            file.seek(file.length() - 1);
+            final int last = file.read();
+            file.seek(file.length() - 1);
+            file.write(last ^ 1);
+        }
+        try {
+            MappedAnagramService.open(index.getPath(), dictionary.getPath());
+            fail("corrupt index opened");
+        } catch (IOException e) {
+            assertEquals("Invalid index checksum", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFactoryFallsBackToDictionary() throws Exception {
+        final File dictionary = createDictionary(WORDS);
+        final AnagramServiceFactory anagramServiceFactory = new AnagramServiceFactory(dictionary.getPath());
+        anagramServiceFactory.setIndexFileName(indexFile(dictionary).getPath());
+        assertTrue(anagramServiceFactory.createMappedAnagramService() instanceof FrozenAnagramService);
+
+        AnagramIndexWriter.write(dictionary.getPath(), anagramServiceFactory.getIndexFileName());
+        final AnagramServiceMBean mapped = anagramServiceFactory.createMappedAnagramService();
+        assertTrue(mapped instanceof MappedAnagramService);
+        assertEquals(FrozenAnagramService.of(WORDS).getAnagrams("test"), mapped.getAnagrams("test"));
+
+        Files.write(dictionary.toPath(), Arrays.asList("stop", "pots"), StandardCharsets.UTF_8);
+        final AnagramServiceMBean reloaded = anagramServiceFactory.createMappedAnagramService();
+        assertTrue(reloaded instanceof FrozenAnagramService);
+        assertEquals(1, reloaded.getAnagrams("stop").size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testReadOnly() throws Exception {
+        final File dictionary = createDictionary(WORDS);
+        final File index = indexFile(dictionary);
+        AnagramIndexWriter.write(WORDS, 0, 0, index.getPath());
+        MappedAnagramService.open(index.getPath()).addWord("word");
+    }
+}
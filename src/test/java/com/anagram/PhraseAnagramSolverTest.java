@@ -0,0 +1,81 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PhraseAnagramSolverTest {
+
+    private static final List<String> WORDS = Arrays.asList(
+            "dirty", "room", "moor", "dormitory", "dirtyroom", "rod", "my", "tiro", "to", "tidy", "or", "rom", "a", "b");
+
+    private static Set<String> set(String... words) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(Arrays.asList(words));
+        return set;
+    }
+
+    private static AnagramServiceMBean createAnagramService() {
+        final AnagramService anagramService = new AnagramService(4);
+        for (String word : WORDS) {
+            anagramService.addWord(word);
+        }
+        return anagramService;
+    }
+
+    @Test
+    public void testPhraseAnagrams() throws Exception {
+        final Set<String> phrases = createAnagramService().getPhraseAnagrams("dirty room");
+        assertTrue(phrases.toString(), phrases.contains("dormitory"));
+        assertTrue(phrases.toString(), phrases.contains("dirtyroom"));
+        assertTrue(phrases.toString(), phrases.contains("dirty moor"));
+        //the phrase itself is not an anagram
+        assertTrue(phrases.toString(), !phrases.contains("dirty room"));
+        for (String phrase : phrases) {
+            assertEquals(phrase, AnagramSignature.sort("dirtyroom"), AnagramSignature.sort(PhraseAnagramSolver.letters(phrase)));
+        }
+    }
+
+    @Test
+    public void testEnginesAgree() throws Exception {
+        final Set<String> expected = createAnagramService().getPhraseAnagrams("Dormitory");
+        final FrozenAnagramService frozen = FrozenAnagramService.of(WORDS);
+        assertEquals(expected, frozen.getPhraseAnagrams("Dormitory"));
+        final ShardedAnagramService sharded = new ShardedAnagramService(3);
+        final OffHeapAnagramService offHeap = new OffHeapAnagramService(16, 64 * 1024);
+        for (String word : WORDS) {
+            sharded.addWord(word);
+            offHeap.addWord(word);
+        }
+        assertEquals(expected, sharded.getPhraseAnagrams("Dormitory"));
+        assertEquals(expected, offHeap.getPhraseAnagrams("Dormitory"));
+        assertEquals(Collections.emptySet(), frozen.getPhraseAnagrams("xyz"));
+        assertEquals(Collections.emptySet(), frozen.getPhraseAnagrams("  "));
+    }
+
+    @Test
+    public void testCaps() throws Exception {
+        final List<String[]> groups = Arrays.asList(new String[]{"a"}, new String[]{"b"}, new String[]{"ab", "ba"});
+        final PhraseAnagramSolver unlimited = new PhraseAnagramSolver(100, 1000, 4, ForkJoinPool.commonPool());
+        assertEquals(set("a a b b", "ab a b", "ab ab", "ab ba", "ba a b", "ba ab", "ba ba"), unlimited.solve("abab", groups));
+
+        final PhraseAnagramSolver twoWords = new PhraseAnagramSolver(100, 1000, 2, ForkJoinPool.commonPool());
+        assertEquals(set("ab ab", "ab ba", "ba ab", "ba ba"), twoWords.solve("abab", groups));
+
+        final PhraseAnagramSolver twoResults = new PhraseAnagramSolver(2, 1000, 4, ForkJoinPool.commonPool());
+        assertEquals(2, twoResults.solve("abab", groups).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxResults() throws Exception {
+        new PhraseAnagramSolver(0, 1000, 4, ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,142 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProgressiveAnagramServiceTest {
+
+    @Test
+    public void testQueriesWhileLoading() throws Exception {
+        final CountDownLatch firstBatchLoaded = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final AnagramService anagramService = new AnagramService(2);
+        final ProgressiveAnagramService progressive = new ProgressiveAnagramService(anagramService).start(words -> {
+            words.accept(new String[]{"test", "sett"});
+            firstBatchLoaded.countDown();
+            try {
+                resume.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            words.accept(new String[]{"stet", "stop"});
+            return anagramService;
+        });
+        assertTrue(firstBatchLoaded.await(10, TimeUnit.SECONDS));
+        assertTrue(progressive.isPartial());
+        assertEquals("LOADING", progressive.getState());
+        assertEquals(2, progressive.getLoadedWordCount());
+        assertEquals(1, progressive.getAnagrams("test").size());
+
+        //updates are rejected right away rather than waiting for the load
+        try {
+            progressive.deleteWord("stop");
+            fail("deleted while loading");
+        } catch (IllegalStateException e) {
+            assertEquals("Dictionary is loading", e.getMessage());
+        }
+        try {
+            progressive.addWords(new String[]{"tops"});
+            fail("added while loading");
+        } catch (IllegalStateException e) {
+            assertEquals("Dictionary is loading", e.getMessage());
+        }
+
+        resume.countDown();
+        assertTrue(progressive.ready().get(10, TimeUnit.SECONDS) == anagramService);
+        assertTrue(progressive.isReady());
+        assertFalse(progressive.isPartial());
+        assertEquals(4, progressive.getLoadedWordCount());
+        assertEquals(2, progressive.getAnagrams("test").size());
+        assertTrue(progressive.getAnagrams("tops").isEmpty());
+        assertTrue(progressive.deleteWord("stop"));
+    }
+
+    @Test
+    public void testLoadFailure() throws Exception {
+        final ProgressiveAnagramService progressive = new ProgressiveAnagramService(new AnagramService(1)).start(words -> {
+            throw new IOException("missing dictionary");
+        });
+        try {
+            progressive.ready().get(10, TimeUnit.SECONDS);
+            fail("loaded");
+        } catch (Exception e) {
+            assertEquals("FAILED", progressive.getState());
+        }
+        assertTrue(progressive.isPartial());
+        assertNotNull(progressive.getFailure());
+        assertTrue(progressive.getAnagrams("test").isEmpty());
+        try {
+            progressive.addWord("test");
+            fail("added while failed");
+        } catch (IllegalStateException e) {
+            assertEquals("Dictionary failed to load", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFactoryLoadsInBackground() throws Exception {
+        final File dictionary = File.createTempFile("dictionary", ".txt");
+        dictionary.deleteOnExit();
+        Files.write(dictionary.toPath(), Arrays.asList("test", "sett", "stop", "pots"), StandardCharsets.UTF_8);
+        final File log = File.createTempFile("anagram", ".log");
+        log.deleteOnExit();
+        Files.write(log.toPath(), Arrays.asList("-pots", "+stet"), StandardCharsets.UTF_8);
+        for (AnagramServiceFactory.Engine engine : new AnagramServiceFactory.Engine[]{
+                AnagramServiceFactory.Engine.STRIPED, AnagramServiceFactory.Engine.SHARDED}) {
+            final AnagramServiceFactory anagramServiceFactory = new AnagramServiceFactory(dictionary.getPath());
+            anagramServiceFactory.setEngine(engine);
+            anagramServiceFactory.setProgressive(true);
+            anagramServiceFactory.setLogFileName(log.getPath());
+            final AnagramServiceMBean anagramService = anagramServiceFactory.createAnagramService(AnagramServiceFactory.Mode.LOCAL);
+            final ProgressiveAnagramService progressive = AnagramServiceFactory.getProgressive(anagramService);
+            assertNotNull(progressive);
+            assertTrue(progressive.ready().get(10, TimeUnit.SECONDS) instanceof DurableAnagramService);
+            assertEquals(engine.name(), 2, anagramService.getAnagrams("test").size());
+            assertEquals(engine.name(), 0, anagramService.getAnagrams("stop").size());
+            anagramService.close();
+        }
+    }
+
+    @Test
+    public void testFactoryLoadsNamedDictionariesInBackground() throws Exception {
+        final File dictionary = File.createTempFile("dictionary", ".txt");
+        dictionary.deleteOnExit();
+        Files.write(dictionary.toPath(), Arrays.asList("test", "sett"), StandardCharsets.UTF_8);
+        final File named = File.createTempFile("named", ".txt");
+        named.deleteOnExit();
+        Files.write(named.toPath(), Arrays.asList("stop", "pots", "tops"), StandardCharsets.UTF_8);
+        for (AnagramServiceFactory.Engine engine : new AnagramServiceFactory.Engine[]{
+                AnagramServiceFactory.Engine.STRIPED, AnagramServiceFactory.Engine.FROZEN}) {
+            final AnagramServiceFactory anagramServiceFactory = new AnagramServiceFactory(dictionary.getPath());
+            anagramServiceFactory.setEngine(engine);
+            anagramServiceFactory.setProgressive(true);
+            anagramServiceFactory.setDictionaryFileNames(Collections.singletonMap("named", named.getPath()));
+            final Map<String, AnagramServiceMBean> anagramServices = anagramServiceFactory.createAnagramServices();
+            final ProgressiveAnagramService progressive = AnagramServiceFactory.getProgressive(anagramServices.get("named"));
+            assertNotNull(progressive);
+            progressive.ready().get(10, TimeUnit.SECONDS);
+            assertFalse(progressive.isPartial());
+            assertEquals(engine.name(), 2, anagramServices.get("named").getAnagrams("stop").size());
+            AnagramServiceFactory.getProgressive(anagramServices.get(AnagramServiceFactory.DEFAULT_DICTIONARY_NAME))
+                    .ready().get(10, TimeUnit.SECONDS);
+            for (AnagramServiceMBean anagramService : anagramServices.values()) {
+                anagramService.close();
+            }
+        }
+    }
+}
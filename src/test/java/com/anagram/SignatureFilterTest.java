@@ -0,0 +1,75 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SignatureFilterTest {
+
+    private static List<String> randomWords(int count, long seed) {
+        final Random random = new Random(seed);
+        final List<String> words = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final StringBuilder sb = new StringBuilder();
+            final int length = 3 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            //non-packable words use the sorted word
+            if ((i % 10) == 0) {
+                sb.append(i);
+            }
+            words.add(sb.toString());
+        }
+        return words;
+    }
+
+    @Test
+    public void testNoFalseNegatives() throws Exception {
+        final SignatureFilter filter = new SignatureFilter(1000);
+        final List<String> words = randomWords(2000, 1);
+        for (String word : words) {
+            filter.add(word);
+        }
+        for (String word : words) {
+            assertTrue(word, filter.mightContain(word));
+            assertTrue(word, filter.mightContain(new StringBuilder(word).reverse().toString().toUpperCase()));
+        }
+        //delete half, the other half must still be found
+        for (int i = 0; i < words.size(); i += 2) {
+            filter.remove(words.get(i));
+        }
+        for (int i = 1; i < words.size(); i += 2) {
+            assertTrue(words.get(i), filter.mightContain(words.get(i)));
+        }
+    }
+
+    @Test
+    public void testFilteredServiceMatchesUnfiltered() throws Exception {
+        final AnagramService expected = new AnagramService(1);
+        final AnagramService filtered = new AnagramService(4, 100);
+        final List<String> words = randomWords(500, 2);
+        for (String word : words) {
+            expected.addWord(word);
+            filtered.addWord(word);
+            final String anagram = new StringBuilder(word).reverse().toString();
+            expected.addWord(anagram);
+            filtered.addWord(anagram);
+        }
+        for (int i = 0; i < words.size(); i += 3) {
+            expected.deleteWord(words.get(i));
+            filtered.deleteWord(words.get(i));
+        }
+        for (String word : words) {
+            assertEquals(word, expected.getAnagrams(word), filtered.getAnagrams(word));
+        }
+        for (String word : randomWords(500, 3)) {
+            assertEquals(word, expected.getAnagrams(word), filtered.getAnagrams(word));
+        }
+    }
+}
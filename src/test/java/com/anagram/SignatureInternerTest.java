@@ -0,0 +1,90 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SignatureInternerTest {
+
+    private static String anagram(AnagramService anagramService, String word, String anagram) {
+        for (String candidate : anagramService.anagramsView(word)) {
+            if (candidate.equals(anagram)) {
+                return candidate;
+            }
+        }
+        throw new AssertionError(anagram + " is not an anagram of " + word);
+    }
+
+    @Test
+    public void testDictionariesShareWords() {
+        final SignatureInterner interner = new SignatureInterner();
+        final AnagramService first = new AnagramService.Builder().interner(interner)
+                .addWords(new String[]{"test", new String("sett"), "stop"}).build();
+        final AnagramService second = new AnagramService.Builder().interner(interner)
+                .addWords(new String[]{"test", new String("sett"), "pots"}).build();
+        assertEquals(4, interner.getWordCount());
+        assertEquals(2, interner.getSignatureCount());
+        assertSame(anagram(first, "test", "sett"), anagram(second, "test", "sett"));
+        assertTrue(first.getAnagrams("stop").isEmpty());
+
+        final AnagramService unshared = new AnagramService.Builder()
+                .addWords(new String[]{"test", new String("sett")}).build();
+        assertTrue(anagram(first, "test", "sett") != anagram(unshared, "test", "sett"));
+    }
+
+    @Test
+    public void testNamedDictionaries() throws Exception {
+        final File english = File.createTempFile("english", ".txt");
+        english.deleteOnExit();
+        Files.write(english.toPath(), Arrays.asList("test", "sett", "stop"), StandardCharsets.UTF_8);
+        final File french = File.createTempFile("french", ".txt");
+        french.deleteOnExit();
+        Files.write(french.toPath(), Arrays.asList("test", "stet", "tes", "set"), StandardCharsets.UTF_8);
+
+        final AnagramServiceFactory anagramServiceFactory = new AnagramServiceFactory(english.getPath());
+        final Map<String, String> dictionaryFileNames = new LinkedHashMap<>();
+        dictionaryFileNames.put("fr", french.getPath());
+        anagramServiceFactory.setDictionaryFileNames(dictionaryFileNames);
+        final Map<String, AnagramServiceMBean> anagramServices = anagramServiceFactory.createAnagramServices();
+        assertEquals(Arrays.asList(AnagramServiceFactory.DEFAULT_DICTIONARY_NAME, "fr"), Arrays.asList(anagramServices.keySet().toArray()));
+        assertEquals(Collections.singleton("sett"), anagramServices.get(AnagramServiceFactory.DEFAULT_DICTIONARY_NAME).getAnagrams("test"));
+        assertEquals(Collections.singleton("stet"), anagramServices.get("fr").getAnagrams("test"));
+        assertEquals(Collections.singleton("set"), anagramServices.get("fr").getAnagrams("tes"));
+
+        try {
+            anagramServiceFactory.createAnagramService(AnagramServiceFactory.Mode.LOCAL, "de");
+            fail("created a dictionary without file");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid dictionary name de", e.getMessage());
+        }
+        assertEquals("com.anagram:type=AnagramService,dictionary=fr",
+                AnagramServiceFactory.getObjectName(AnagramServiceFactory.DEFAULT_ANAGRAM_SERVICE_MBEAN_NAME, "fr"));
+    }
+
+    @Test
+    public void testParseDictionaryFileNames() {
+        final Map<String, String> dictionaryFileNames = AnagramServiceFactory.parseDictionaryFileNames(" en = words.txt ,fr=mots.txt,");
+        assertEquals(Arrays.asList("en", "fr"), Arrays.asList(dictionaryFileNames.keySet().toArray()));
+        assertEquals("words.txt", dictionaryFileNames.get("en"));
+        assertTrue(AnagramServiceFactory.parseDictionaryFileNames("").isEmpty());
+        for (String invalid : new String[]{"words.txt", "en=a.txt,en=b.txt", "default=words.txt", "e n=words.txt", "en,fr=words.txt"}) {
+            try {
+                AnagramServiceFactory.parseDictionaryFileNames(invalid);
+                fail("parsed " + invalid);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid dictionary"));
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.anagram;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VersionedAnagramServiceTest {
+
+    private static Set<String> set(String... words) {
+        return new HashSet<>(Arrays.asList(words));
+    }
+
+    @Test
+    public void testSnapshotIsolation() throws Exception {
+        final VersionedAnagramService service = new VersionedAnagramService();
+        service.addWords(new String[]{"stop", "pots", "tops"});
+        final VersionedAnagramService.Snapshot snapshot = service.snapshot();
+        assertEquals(service.getVersion(), snapshot.getVersion());
+
+        service.addWord("spot");
+        service.deleteWord("pots");
+        service.addWords(new String[]{"listen", "silent"});
+
+        assertEquals(set("pots", "tops"), new HashSet<>(snapshot.getAnagrams("stop")));
+        assertEquals(Collections.<String>emptySet(), snapshot.getAnagrams("listen"));
+        assertEquals(set("pots", "tops", "stop"), new HashSet<>(snapshot.getSubAnagrams("postx")));
+        assertEquals(set("pots", "tops", "stop"), new HashSet<>(snapshot.getWildcardAnagrams("s??p")));
+        assertEquals(set("tops", "spot"), new HashSet<>(service.getAnagrams("stop")));
+        assertEquals(set("silent"), new HashSet<>(service.getAnagrams("listen")));
+
+        assertEquals(1, service.getOpenSnapshotCount());
+        assertTrue(service.getHistoryCount() > 0);
+        snapshot.close();
+        assertEquals(0, service.getOpenSnapshotCount());
+        assertEquals(0, service.getHistoryCount());
+        assertEquals(set("tops", "spot"), new HashSet<>(service.getAnagrams("stop")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedSnapshot() throws Exception {
+        final VersionedAnagramService service = new VersionedAnagramService();
+        final VersionedAnagramService.Snapshot snapshot = service.snapshot();
+        snapshot.close();
+        snapshot.getAnagrams("stop");
+    }
+
+    @Test
+    public void testNoHistoryWithoutSnapshots() throws Exception {
+        final VersionedAnagramService service = new VersionedAnagramService();
+        for (int i = 0; i < 100; i++) {
+            service.addWord("stop");
+            service.deleteWord("stop");
+        }
+        assertEquals(0, service.getHistoryCount());
+        assertEquals(200, service.getVersion());
+    }
+
+    /**
+     * Batches are committed as one version, so a snapshot sees all of a batch or none of it.
+     */
+    @Test
+    public void testBatchesAreAtomic() throws Exception {
+        final VersionedAnagramService service = new VersionedAnagramService();
+        final String[] batch = new String[24];
+        final String[] reversed = new String[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = "ab" + (char) ('c' + i);
+            reversed[i] = "ba" + (char) ('c' + i);
+        }
+        service.addWords(batch);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread reader = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    try (VersionedAnagramService.Snapshot snapshot = service.snapshot()) {
+                        final List<Set<String>> anagrams = snapshot.getAllAnagrams(batch);
+                        final int size = anagrams.get(0).size();
+                        for (Set<String> group : anagrams) {
+                            assertEquals(size, group.size());
+                        }
+                    }
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        reader.start();
+        for (int round = 0; round < 200; round++) {
+            service.addWords(reversed);
+            service.deleteWords(reversed);
+        }
+        running.set(false);
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(0, service.getOpenSnapshotCount());
+        assertEquals(0, service.getHistoryCount());
+    }
+}
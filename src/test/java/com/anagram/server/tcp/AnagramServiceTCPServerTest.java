@@ -0,0 +1,313 @@
+package com.anagram.server.tcp;
+
+import com.anagram.AnagramServiceFactory;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnagramServiceTCPServerTest {
+
+    private static final List<String> WORDS = Arrays.asList("test", "sett", "stet", "stop", "pots", "tops", "dormitory", "dirtyroom");
+
+    private Thread serverThread;
+
+    private AnagramServiceTCPServer startServer(AnagramServiceFactory.Engine engine, int reactorCount) throws Exception {
+        final AnagramTCPServerConfiguration configuration = new AnagramTCPServerConfiguration();
+        configuration.setReactorCount(reactorCount);
+        return startServer(engine, configuration);
+    }
+
+    private AnagramServiceTCPServer startServer(AnagramServiceFactory.Engine engine,
+                                                AnagramTCPServerConfiguration configuration) throws Exception {
+        final File dictionary = File.createTempFile("dictionary", ".txt");
+        dictionary.deleteOnExit();
+        Files.write(dictionary.toPath(), WORDS, StandardCharsets.UTF_8);
+        final AnagramServiceFactory anagramServiceFactory = new AnagramServiceFactory(dictionary.getPath());
+        anagramServiceFactory.setEngine(engine);
+        configuration.setPort(0);
+        final AnagramServiceTCPServer server = new AnagramServiceTCPServer(configuration, anagramServiceFactory);
+        serverThread = new Thread(server, "anagram-tcp-server-test");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        final long deadline = System.currentTimeMillis() + 10000;
+        while (!server.isActive()) {
+            assertTrue("server did not start", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        return server;
+    }
+
+    /**
+     * Blocking client writing the frames of {@link com.anagram.server.tcp.FrameUtil} by hand.
+     */
+    private static final class Client implements AutoCloseable {
+
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        private Client(AnagramServiceTCPServer server) throws IOException {
+            this(server, 0);
+        }
+
+        /**
+         * @param bufferSize send and receive buffers of the socket, 0 for the defaults.
+         */
+        private Client(AnagramServiceTCPServer server, int bufferSize) throws IOException {
+            socket = new Socket();
+            if (bufferSize > 0) {
+                socket.setSendBufferSize(bufferSize);
+                socket.setReceiveBufferSize(bufferSize);
+            }
+            socket.connect(new InetSocketAddress("localhost", server.getLocalPort()));
+            socket.setSoTimeout(10000);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        private void send(EventType eventType, String word) throws IOException {
+            send(eventType.getTypeCode(), word);
+        }
+
+        private void send(byte eventTypeTypeCode, String word) throws IOException {
+            write(eventTypeTypeCode, word);
+            out.flush();
+        }
+
+        /**
+         * Buffers a request without sending it.
+         */
+        private void write(EventType eventType, String word) throws IOException {
+            write(eventType.getTypeCode(), word);
+        }
+
+        private void write(byte eventTypeTypeCode, String word) throws IOException {
+            final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            final DataOutputStream request = new DataOutputStream(payload);
+            request.writeByte(eventTypeTypeCode);
+            request.writeInt(word.length());
+            request.writeBytes(word);
+            out.writeInt(payload.size());
+            out.write(payload.toByteArray());
+        }
+
+        /**
+         * @return the event type code, followed by the result byte of an update, the request type code of an error or
+         * the words of a query.
+         */
+        private List<String> receive() throws IOException {
+            final byte[] frame = new byte[in.readInt()];
+            in.readFully(frame);
+            final DataInputStream response = new DataInputStream(new ByteArrayInputStream(frame));
+            final List<String> result = new ArrayList<>();
+            final byte eventType = response.readByte();
+            result.add(String.valueOf((char) eventType));
+            if ((eventType == EventType.ADD.getTypeCode()) || (eventType == EventType.DELETE.getTypeCode())) {
+                result.add(String.valueOf(response.readByte()));
+            } else if (eventType == EventType.ERROR.getTypeCode()) {
+                result.add(String.valueOf((char) response.readByte()));
+            } else {
+                final int count = response.readInt();
+                for (int i = 0; i < count; i++) {
+                    final byte[] word = new byte[response.readInt()];
+                    response.readFully(word);
+                    result.add(new String(word, StandardCharsets.US_ASCII));
+                }
+                //partial flag
+                response.readByte();
+            }
+            assertEquals(0, response.available());
+            return result;
+        }
+
+        private List<String> request(EventType eventType, String word) throws IOException {
+            send(eventType, word);
+            return receive();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void testUpdateOfReadOnlyDictionaryFailsTheRequestOnly() throws Exception {
+        final AnagramServiceTCPServer server = startServer(AnagramServiceFactory.Engine.FROZEN, 0);
+        try (Client client = new Client(server)) {
+            final String rejected = String.valueOf(UpdateStatus.REJECTED.getStatusCode());
+            assertEquals(Arrays.asList("A", rejected), client.request(EventType.ADD, "word"));
+            assertEquals(Arrays.asList("D", rejected), client.request(EventType.DELETE, "test"));
+            assertTrue(server.isActive());
+            assertEquals(Arrays.asList("P", "sett", "stet"), client.request(EventType.PRINT, "test"));
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void testUpdateStatus() throws Exception {
+        final AnagramServiceTCPServer server = startServer(AnagramServiceFactory.Engine.STRIPED, 0);
+        final String changed = String.valueOf(UpdateStatus.CHANGED.getStatusCode());
+        final String unchanged = String.valueOf(UpdateStatus.UNCHANGED.getStatusCode());
+        try (Client client = new Client(server)) {
+            assertEquals(Arrays.asList("A", changed), client.request(EventType.ADD, "tset"));
+            assertEquals(Arrays.asList("A", unchanged), client.request(EventType.ADD, "tset"));
+            assertEquals(Arrays.asList("D", changed), client.request(EventType.DELETE, "tset"));
+            assertEquals(Arrays.asList("D", unchanged), client.request(EventType.DELETE, "tset"));
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void testUnknownRequestsAreAnswered() throws Exception {
+        final AnagramServiceTCPServer server = startServer(AnagramServiceFactory.Engine.STRIPED, 0);
+        try (Client client = new Client(server)) {
+            client.send((byte) 'X', "test");
+            //a response type is not a request either
+            client.send(EventType.ERROR, "test");
+            client.send(EventType.PRINT, "test");
+            assertEquals(Arrays.asList("E", "X"), client.receive());
+            assertEquals(Arrays.asList("E", "E"), client.receive());
+            assertEquals(Arrays.asList("P", "sett", "stet"), client.receive());
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void testPhraseAnagramsAnsweredInOrder() throws Exception {
+        final AnagramServiceTCPServer server = startServer(AnagramServiceFactory.Engine.STRIPED, 0);
+        try (Client client = new Client(server)) {
+            //the phrase query is answered on another thread, the requests after it wait for its response
+            client.send(EventType.PRINT, "test");
+            client.send(EventType.PHRASE_ANAGRAMS, "stop test");
+            client.send(EventType.PRINT, "stop");
+            assertEquals(Arrays.asList("P", "sett", "stet"), client.receive());
+            final List<String> phraseAnagrams = client.receive();
+            assertEquals("M", phraseAnagrams.get(0));
+            assertEquals(10, phraseAnagrams.size());
+            assertTrue(phraseAnagrams.contains("sett pots"));
+            assertEquals(Arrays.asList("P", "pots", "tops"), client.receive());
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void testResetConnectionFailsTheConnectionOnly() throws Exception {
+        final AnagramTCPServerConfiguration configuration = new AnagramTCPServerConfiguration();
+        configuration.setClientSendBufferSize(4096);
+        final AnagramServiceTCPServer server = startServer(AnagramServiceFactory.Engine.STRIPED, configuration);
+        try {
+            final Client slowClient = new Client(server, 4096);
+            //requests without reading the responses, until the server waits for the socket to take them
+            final Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200000; i++) {
+                        slowClient.write(EventType.PRINT, "dormitory");
+                    }
+                    slowClient.out.flush();
+                } catch (IOException e) {
+                    //the reset below
+                }
+            });
+            writer.start();
+            writer.join(2000);
+            slowClient.socket.setSoLinger(true, 0);
+            slowClient.close();
+            writer.join(10000);
+
+            try (Client client = new Client(server)) {
+                assertEquals(Arrays.asList("P", "sett", "stet"), client.request(EventType.PRINT, "test"));
+            }
+            assertTrue(server.isActive());
+        } finally {
+            server.cancel();
+        }
+    }
+
+    @Test
+    public void testReactorsServeConcurrentClients() throws Exception {
+        final int reactorCount = 3;
+        final int clientCount = 9;
+        final AnagramServiceTCPServer server = startServer(AnagramServiceFactory.Engine.STRIPED, reactorCount);
+        assertEquals(reactorCount, server.getReactorCount());
+        final List<Client> clients = new ArrayList<>();
+        try {
+            for (int i = 0; i < clientCount; i++) {
+                clients.add(new Client(server));
+            }
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final List<Thread> threads = new ArrayList<>();
+            for (final Client client : clients) {
+                final Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < 50; i++) {
+                            assertEquals(Arrays.asList("P", "sett", "stet"), client.request(EventType.PRINT, "test"));
+                            //two requests in flight on the same connection are answered in order
+                            client.send(EventType.PRINT, "stop");
+                            client.send(EventType.PRINT, "dormitory");
+                            assertEquals(Arrays.asList("P", "pots", "tops"), client.receive());
+                            assertEquals(Arrays.asList("P", "dirtyroom"), client.receive());
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join(60000);
+                assertFalse("client did not finish", thread.isAlive());
+            }
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            //the acceptor hands the connections round-robin
+            for (int i = 0; i < reactorCount; i++) {
+                assertEquals(clientCount / reactorCount, server.getConnectionCount(i));
+            }
+        } finally {
+            server.cancel();
+        }
+
+        serverThread.join(10000);
+        assertFalse("server did not stop", serverThread.isAlive());
+        assertFalse(server.isActive());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse(thread.getName() + " still running", thread.getName().startsWith("anagram-tcp-reactor-"));
+        }
+        //every reactor closed its connections
+        for (Client client : clients) {
+            assertEquals(-1, client.in.read());
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.anagram.server.tcp;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ByteBufferPoolTest {
+
+    @Test
+    public void testReleasedBuffersAreReused() {
+        final ByteBufferPool pool = new ByteBufferPool(64, 2, ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer first = pool.acquire();
+        final ByteBuffer second = pool.acquire();
+        final ByteBuffer third = pool.acquire();
+        assertEquals(3, pool.getAllocatedCount());
+        assertTrue(first.isDirect());
+        assertEquals(64, first.capacity());
+        assertEquals(ByteOrder.LITTLE_ENDIAN, first.order());
+
+        first.putInt(1);
+        pool.release(first);
+        pool.release(second);
+        //beyond the pool size
+        pool.release(third);
+        assertEquals(2, pool.getPooledCount());
+
+        final ByteBuffer reused = pool.acquire();
+        assertTrue(reused == second);
+        assertTrue(pool.acquire() == first);
+        assertEquals(0, first.position());
+        assertEquals(64, first.limit());
+        assertEquals(3, pool.getAllocatedCount());
+    }
+
+    @Test
+    public void testOtherBuffersAreNotPooled() {
+        final ByteBufferPool pool = new ByteBufferPool(64, 2, ByteOrder.BIG_ENDIAN);
+        pool.release(ByteBuffer.allocate(64));
+        pool.release(ByteBuffer.allocateDirect(128));
+        assertEquals(0, pool.getPooledCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBufferSize() {
+        new ByteBufferPool(0, 2, ByteOrder.BIG_ENDIAN);
+    }
+}
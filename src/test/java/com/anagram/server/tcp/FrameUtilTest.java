@@ -0,0 +1,118 @@
+package com.anagram.server.tcp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FrameUtilTest {
+
+    private static final int MAX_FRAME_LENGTH = 1024;
+
+    private static ByteBuffer frames(String... payloads) {
+        final ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (String payload : payloads) {
+            final int start = FrameUtil.beginFrame(buffer);
+            buffer.put(payload.getBytes());
+            FrameUtil.endFrame(buffer, start);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Feeds the bytes chunkSize at a time into a buffer of bufferSize bytes, decoding like the server does.
+     */
+    private static List<String> decode(ByteBuffer bytes, int chunkSize, int bufferSize) throws IOException {
+        final List<String> payloads = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        while (bytes.hasRemaining()) {
+            final ByteBuffer chunk = bytes.slice();
+            chunk.limit(Math.min(Math.min(chunkSize, chunk.remaining()), buffer.remaining()));
+            bytes.position(bytes.position() + chunk.limit());
+            buffer.put(chunk);
+            buffer.flip();
+            int frameLength;
+            while ((frameLength = FrameUtil.nextFrameLength(buffer, MAX_FRAME_LENGTH)) > 0) {
+                final byte[] payload = new byte[frameLength];
+                buffer.position(buffer.position() + FrameUtil.LENGTH_FIELD_SIZE);
+                buffer.get(payload);
+                payloads.add(new String(payload));
+            }
+            buffer.compact();
+            buffer = FrameUtil.ensureFrameCapacity(buffer);
+        }
+        assertEquals(0, buffer.position());
+        return payloads;
+    }
+
+    @Test
+    public void testSeveralFramesInOneRead() throws Exception {
+        final List<String> payloads = decode(frames("Ptest", "Astop", "D"), 4096, 4096);
+        assertEquals(3, payloads.size());
+        assertEquals("Ptest", payloads.get(0));
+        assertEquals("Astop", payloads.get(1));
+        assertEquals("D", payloads.get(2));
+    }
+
+    @Test
+    public void testFramesSplitOverReads() throws Exception {
+        for (int chunkSize = 1; chunkSize < 12; chunkSize++) {
+            final List<String> payloads = decode(frames("Ptest", "Wt??t", "Sdormitory"), chunkSize, 4096);
+            assertEquals(3, payloads.size());
+            assertEquals("Ptest", payloads.get(0));
+            assertEquals("Wt??t", payloads.get(1));
+            assertEquals("Sdormitory", payloads.get(2));
+        }
+    }
+
+    @Test
+    public void testFrameLargerThanBuffer() throws Exception {
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append("word");
+        }
+        final List<String> payloads = decode(frames("a", large.toString(), "b"), 7, 16);
+        assertEquals(3, payloads.size());
+        assertEquals(large.toString(), payloads.get(1));
+        assertEquals("b", payloads.get(2));
+    }
+
+    @Test
+    public void testIncompleteLength() throws Exception {
+        final ByteBuffer buffer = ByteBuffer.allocate(3);
+        assertEquals(-1, FrameUtil.nextFrameLength(buffer, MAX_FRAME_LENGTH));
+    }
+
+    @Test
+    public void testInvalidLength() throws Exception {
+        for (int length : new int[]{0, -1, MAX_FRAME_LENGTH + 1}) {
+            final ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.putInt(length).flip();
+            try {
+                FrameUtil.nextFrameLength(buffer, MAX_FRAME_LENGTH);
+                fail("invalid length " + length + " accepted");
+            } catch (IOException e) {
+                assertEquals("Invalid frame length " + length, e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testEnsureRemainingKeepsBytes() {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+        buffer.putInt(1).putInt(2);
+        assertTrue(FrameUtil.ensureRemaining(buffer, 0) == buffer);
+        final ByteBuffer larger = FrameUtil.ensureRemaining(buffer, 100);
+        assertEquals(8, larger.position());
+        assertTrue(larger.remaining() >= 100);
+        assertEquals(1, larger.getInt(0));
+        assertEquals(2, larger.getInt(4));
+    }
+}